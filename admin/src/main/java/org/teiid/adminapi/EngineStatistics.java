@@ -89,4 +89,28 @@ public interface EngineStatistics extends AdminObject, DomainAware {
 	 */
 	int getMaxWaitPlanWaterMark();
 	
+	/**
+	 * Bytes in use by the serialized batches held in the memory buffer
+	 * @return
+	 */
+	long getMemoryBufferUsedInKB();
+	
+	/**
+	 * Bytes allocated, either direct, mapped, or on heap, for the memory buffer 
+	 * @return
+	 */
+	long getMemoryBufferAllocatedInKB();
+	
+	/**
+	 * Serialized batch bytes that have been compressed by the buffer manager codec
+	 * @return
+	 */
+	long getBufferUncompressedInKB();
+	
+	/**
+	 * Bytes written by the buffer manager codec
+	 * @return
+	 */
+	long getBufferCompressedInKB();
+	
 }
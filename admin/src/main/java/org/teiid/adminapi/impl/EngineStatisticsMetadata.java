@@ -37,6 +37,10 @@ public class EngineStatisticsMetadata extends AdminObjectImpl implements EngineS
 	private int activePlanCount;
 	private int waitPlanCount;
 	private int maxWaitPlanCount;
+	private long memoryBufferUsedInKB;
+	private long memoryBufferAllocatedInKB;
+	private long bufferUncompressedInKB;
+	private long bufferCompressedInKB;
 	
 	@Override
 	public int getSessionCount() {
@@ -136,6 +140,42 @@ public class EngineStatisticsMetadata extends AdminObjectImpl implements EngineS
 	public void setMaxWaitPlanWaterMark(int maxWaitPlanCount) {
 		this.maxWaitPlanCount = maxWaitPlanCount;
 	}
+	
+	@Override
+	public long getMemoryBufferUsedInKB() {
+		return memoryBufferUsedInKB;
+	}
+	
+	public void setMemoryBufferUsedInKB(long memoryBufferUsedInKB) {
+		this.memoryBufferUsedInKB = memoryBufferUsedInKB;
+	}
+	
+	@Override
+	public long getMemoryBufferAllocatedInKB() {
+		return memoryBufferAllocatedInKB;
+	}
+	
+	public void setMemoryBufferAllocatedInKB(long memoryBufferAllocatedInKB) {
+		this.memoryBufferAllocatedInKB = memoryBufferAllocatedInKB;
+	}
+	
+	@Override
+	public long getBufferUncompressedInKB() {
+		return bufferUncompressedInKB;
+	}
+	
+	public void setBufferUncompressedInKB(long bufferUncompressedInKB) {
+		this.bufferUncompressedInKB = bufferUncompressedInKB;
+	}
+	
+	@Override
+	public long getBufferCompressedInKB() {
+		return bufferCompressedInKB;
+	}
+	
+	public void setBufferCompressedInKB(long bufferCompressedInKB) {
+		this.bufferCompressedInKB = bufferCompressedInKB;
+	}
 
 	public String toString() {
 		StringBuilder sb = new StringBuilder();
@@ -151,6 +191,10 @@ public class EngineStatisticsMetadata extends AdminObjectImpl implements EngineS
 		sb.append("; activePlanCount ").append(activePlanCount); //$NON-NLS-1$
 		sb.append("; waitPlanCount ").append(waitPlanCount); //$NON-NLS-1$
 		sb.append("; maxWaitPlanCount ").append(maxWaitPlanCount); //$NON-NLS-1$
+		sb.append("; memoryBufferUsedInKB ").append(memoryBufferUsedInKB); //$NON-NLS-1$
+		sb.append("; memoryBufferAllocatedInKB ").append(memoryBufferAllocatedInKB); //$NON-NLS-1$
+		sb.append("; bufferUncompressedInKB ").append(bufferUncompressedInKB); //$NON-NLS-1$
+		sb.append("; bufferCompressedInKB ").append(bufferCompressedInKB); //$NON-NLS-1$
 		return sb.toString();
 	}
 }
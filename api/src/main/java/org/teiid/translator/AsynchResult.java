@@ -0,0 +1,105 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.translator;
+
+/**
+ * Holds the result of an asynch source call made by an {@link Execution} so that 
+ * the execution does not need to block an engine thread while waiting.
+ * <p>
+ * The execution should start the call, typically in {@link Execution#execute()}, and have 
+ * the source callback use {@link #setResult(Object)} or {@link #setFailure(Throwable)}.  
+ * Calling {@link #get()} from {@link ResultSetExecution#next()} will then throw 
+ * {@link DataNotAvailableException#NO_POLLING} until the call completes and 
+ * {@link ExecutionContext#dataAvailable()} will be used to notify the engine.
+ * 
+ * @param <T> the result type
+ */
+public class AsynchResult<T> {
+	
+	private ExecutionContext executionContext;
+	private boolean done;
+	private T result;
+	private Throwable failure;
+	
+	public AsynchResult(ExecutionContext executionContext) {
+		this.executionContext = executionContext;
+	}
+	
+	/**
+	 * Set the result and notify the engine that data is available
+	 * @param value
+	 */
+	public void setResult(T value) {
+		synchronized (this) {
+			if (this.done) {
+				return;
+			}
+			this.result = value;
+			this.done = true;
+		}
+		this.executionContext.dataAvailable();
+	}
+	
+	/**
+	 * Set the failure and notify the engine that data is available.  
+	 * The failure will be thrown from {@link #get()}.
+	 * @param t
+	 */
+	public void setFailure(Throwable t) {
+		synchronized (this) {
+			if (this.done) {
+				return;
+			}
+			this.failure = t;
+			this.done = true;
+		}
+		this.executionContext.dataAvailable();
+	}
+	
+	public synchronized boolean isDone() {
+		return done;
+	}
+	
+	/**
+	 * Get the result of the call
+	 * @return the result
+	 * @throws TranslatorException if the call failed
+	 * @throws DataNotAvailableException if the call has not yet completed
+	 */
+	public synchronized T get() throws TranslatorException, DataNotAvailableException {
+		if (!this.done) {
+			throw DataNotAvailableException.NO_POLLING;
+		}
+		if (this.failure != null) {
+			if (this.failure instanceof TranslatorException) {
+				throw (TranslatorException)this.failure;
+			}
+			if (this.failure instanceof RuntimeException) {
+				throw (RuntimeException)this.failure;
+			}
+			throw new TranslatorException(this.failure);
+		}
+		return this.result;
+	}
+
+}
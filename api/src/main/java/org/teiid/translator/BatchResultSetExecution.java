@@ -0,0 +1,52 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.translator;
+
+import java.util.List;
+
+/**
+ * An optional extension of {@link ResultSetExecution} that returns a block of rows 
+ * per call rather than a single row.  The engine will prefer {@link #nextBatch(int)} 
+ * over {@link #next()} and will perform type correction a column at a time across 
+ * the whole block, which avoids the per row overhead for large results.
+ * <p>
+ * The block is row based rather than a set of column vectors since the engine batches 
+ * are row based - a column vector would only be transposed back into rows. 
+ */
+public interface BatchResultSetExecution extends ResultSetExecution {
+	
+	/**
+	 * Retrieves the next block of rows from the resultset.
+	 * <p>
+	 * The returned list may be reused by the execution on the next call, 
+	 * but the rows themselves are retained by the engine and should not be reused.  
+	 * The rows are expected to be modifiable and must have the same number of 
+	 * columns, with values ordered as in the command.
+	 * @param maxRows the maximum number of rows to return, always greater than 0
+	 * @return a non-empty block of rows or null indicating that there are no more results
+	 * @throws TranslatorException
+	 * @throws DataNotAvailableException if no rows are currently available
+	 */
+	List<? extends List<?>> nextBatch(int maxRows) throws TranslatorException, DataNotAvailableException;
+
+}
@@ -41,16 +41,16 @@ import org.teiid.language.Comparison.Operator;
 import org.teiid.language.visitor.HierarchyVisitor;
 import org.teiid.logging.LogConstants;
 import org.teiid.logging.LogManager;
+import org.teiid.translator.BatchResultSetExecution;
 import org.teiid.translator.DataNotAvailableException;
 import org.teiid.translator.ExecutionContext;
-import org.teiid.translator.ResultSetExecution;
 import org.teiid.translator.TranslatorException;
 
 
 /**
  * 
  */
-public class JDBCQueryExecution extends JDBCBaseExecution implements ResultSetExecution {
+public class JDBCQueryExecution extends JDBCBaseExecution implements BatchResultSetExecution {
 
     private static final class RenamingVisitor extends HierarchyVisitor {
 		private Map<String, String> nameMap;
@@ -82,6 +82,8 @@ public class JDBCQueryExecution extends JDBCBaseExecution implements ResultSetEx
 
 	protected ResultSet results;
     protected Class<?>[] columnDataTypes;
+    private List<List<?>> block;
+    private boolean exhausted;
     protected List<NamedTable> tempTables;
 
     public JDBCQueryExecution(Command command, Connection connection, ExecutionContext context, JDBCExecutionFactory env) {
@@ -336,16 +338,7 @@ public class JDBCQueryExecution extends JDBCBaseExecution implements ResultSetEx
     public List<?> next() throws TranslatorException, DataNotAvailableException {
         try {
             if (results.next()) {
-                // New row for result set
-                List<Object> vals = new ArrayList<Object>(columnDataTypes.length);
-
-                for (int i = 0; i < columnDataTypes.length; i++) {
-                    // Convert from 0-based to 1-based
-                    Object value = this.executionFactory.retrieveValue(results, i+1, columnDataTypes[i]);
-                    vals.add(value); 
-                }
-
-                return vals;
+                return readRow();
             } 
         } catch (SQLException e) {
             throw new TranslatorException(e,
@@ -355,6 +348,73 @@ public class JDBCQueryExecution extends JDBCBaseExecution implements ResultSetEx
         return null;
     }
     
+    @Override
+    public List<? extends List<?>> nextBatch(int maxRows)
+    		throws TranslatorException, DataNotAvailableException {
+    	if (block == null) {
+    		block = new ArrayList<List<?>>(Math.min(maxRows, 1024));
+    	} else {
+    		block.clear();
+    	}
+    	if (getClass() != JDBCQueryExecution.class) {
+    		//subclasses may override next
+    		return nextRows(maxRows);
+    	}
+    	try {
+    		while (!exhausted && block.size() < maxRows) {
+    			if (!results.next()) {
+    				//avoid calling next again as not all drivers allow it
+    				exhausted = true;
+    				break;
+    			}
+    			block.add(readRow());
+    		}
+        } catch (SQLException e) {
+            throw new TranslatorException(e,
+                    JDBCPlugin.Util.getString("JDBCTranslator.Unexpected_exception_translating_results___8", e.getMessage())); //$NON-NLS-1$
+        }
+    	if (block.isEmpty()) {
+    		return null;
+    	}
+    	return block;
+    }
+
+	private List<? extends List<?>> nextRows(int maxRows)
+			throws TranslatorException, DataNotAvailableException {
+		while (!exhausted && block.size() < maxRows) {
+			List<?> row = null;
+			try {
+				row = next();
+			} catch (DataNotAvailableException e) {
+				if (block.isEmpty()) {
+					throw e;
+				}
+				break;
+			}
+			if (row == null) {
+				exhausted = true;
+				break;
+			}
+			block.add(row);
+		}
+		if (block.isEmpty()) {
+			return null;
+		}
+		return block;
+	}
+
+	private List<Object> readRow() throws SQLException {
+		// New row for result set
+		List<Object> vals = new ArrayList<Object>(columnDataTypes.length);
+
+		for (int i = 0; i < columnDataTypes.length; i++) {
+		    // Convert from 0-based to 1-based
+		    Object value = this.executionFactory.retrieveValue(results, i+1, columnDataTypes[i]);
+		    vals.add(value); 
+		}
+		return vals;
+	}
+    
     /**
      * @see org.teiid.translator.jdbc.JDBCBaseExecution#close()
      */
@@ -0,0 +1,69 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.translator.jdbc;
+
+import static org.junit.Assert.*;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.teiid.dqp.internal.datamgr.FakeExecutionContextImpl;
+import org.teiid.language.Command;
+
+@SuppressWarnings("nls")
+public class TestJDBCQueryExecution {
+	
+	@Test public void testNextBatch() throws Exception {
+		Command command = TranslationHelper.helpTranslate(TranslationHelper.BQT_VDB, "select intkey, stringkey from bqt1.smalla"); //$NON-NLS-1$
+		Connection connection = Mockito.mock(Connection.class);
+		Statement stmt = Mockito.mock(Statement.class);
+		ResultSet rs = Mockito.mock(ResultSet.class);
+		
+		Mockito.stub(connection.createStatement()).toReturn(stmt);
+		Mockito.stub(stmt.executeQuery(Mockito.anyString())).toReturn(rs);
+		Mockito.stub(rs.next()).toReturn(true).toReturn(true).toReturn(true).toReturn(false);
+		Mockito.stub(rs.getInt(1)).toReturn(1).toReturn(2).toReturn(3);
+		Mockito.stub(rs.getString(2)).toReturn("a").toReturn("b").toReturn("c");
+		
+		JDBCExecutionFactory ef = new JDBCExecutionFactory();
+		JDBCQueryExecution execution = new JDBCQueryExecution(command, connection, new FakeExecutionContextImpl(), ef);
+		execution.execute();
+		List<? extends List<?>> block = execution.nextBatch(2);
+		assertEquals(Arrays.asList(Arrays.asList(1, "a"), Arrays.asList(2, "b")), block);
+		List<?> first = block.get(0);
+		block = execution.nextBatch(2);
+		assertEquals(Arrays.asList(Arrays.asList(3, "c")), block);
+		//the rows are retained by the engine, only the block is reused
+		assertEquals(Arrays.asList(1, "a"), first);
+		assertNull(execution.nextBatch(2));
+		assertNull(execution.nextBatch(2));
+		//next should not be called once the results are exhausted
+		Mockito.verify(rs, Mockito.times(4)).next();
+	}
+
+}
@@ -33,11 +33,17 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import javax.activation.DataSource;
 import javax.resource.ResourceException;
 import javax.security.auth.Subject;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.InvocationCallback;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response.Status;
 import javax.xml.namespace.QName;
 import javax.xml.ws.AsyncHandler;
@@ -120,6 +126,54 @@ public class WSConnectionImpl extends BasicConnection implements WSConnection {
 		}
 	}
 
+	/**
+	 * A completed {@link Response} for an asynch http invocation
+	 */
+	private static final class HttpResponse implements Response<DataSource> {
+		private DataSource result;
+		private Throwable failure;
+		private Map<String, Object> context;
+
+		private HttpResponse(DataSource result, Throwable failure, Map<String, Object> context) {
+			this.result = result;
+			this.failure = failure;
+			this.context = context;
+		}
+
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			return false;
+		}
+
+		@Override
+		public boolean isCancelled() {
+			return false;
+		}
+
+		@Override
+		public boolean isDone() {
+			return true;
+		}
+
+		@Override
+		public DataSource get() throws ExecutionException {
+			if (this.failure != null) {
+				throw new ExecutionException(this.failure);
+			}
+			return this.result;
+		}
+
+		@Override
+		public DataSource get(long timeout, TimeUnit unit) throws ExecutionException {
+			return get();
+		}
+
+		@Override
+		public Map<String, Object> getContext() {
+			return this.context;
+		}
+	}
+
 	private static final class HttpDispatch implements Dispatch<DataSource> {
 
 		private static final String AUTHORIZATION = "Authorization"; //$NON-NLS-1$
@@ -141,6 +195,18 @@ public class WSConnectionImpl extends BasicConnection implements WSConnection {
 	        return bean.createWebClient();
 	    }	
 	    
+	    /**
+	     * Install the async conduit factory once for the bus.  With its default policy 
+	     * only asynch invocations or clients that request it use the async conduit.
+	     */
+	    static void installAsyncConduitFactory(Bus bus) {
+	        synchronized (bus) {
+	            if (!(bus.getExtension(HTTPConduitFactory.class) instanceof AsyncHTTPConduitFactory)) {
+	                bus.setExtension(new AsyncHTTPConduitFactory(bus), HTTPConduitFactory.class);
+	            }
+	        }
+	    }
+	    
 	    Bus getBus(String configLocation) {
             if (configLocation != null) {
                 SpringBusFactory bf = new SpringBusFactory();
@@ -154,60 +220,10 @@ public class WSConnectionImpl extends BasicConnection implements WSConnection {
 		public DataSource invoke(DataSource msg) {
 			try {
 				final URL url = new URL(this.endpoint);
-				url.toURI(); //ensure this is a valid uri
-				
 				final String httpMethod = (String)this.requestContext.get(MessageContext.HTTP_REQUEST_METHOD);
-
-                // see to use patch
-                // http://stackoverflow.com/questions/32067687/how-to-use-patch-method-in-cxf
-				Bus bus = getBus(this.configFile);
-                if (httpMethod.equals("PATCH")) {
-                    bus.setProperty("use.async.http.conduit", Boolean.TRUE);
-                    bus.setExtension(new AsyncHTTPConduitFactory(bus), HTTPConduitFactory.class);
-                }
-                this.client = createWebClient(this.endpoint, bus);
-                
-				Map<String, List<String>> header = (Map<String, List<String>>)this.requestContext.get(MessageContext.HTTP_REQUEST_HEADERS);
-				for (Map.Entry<String, List<String>> entry : header.entrySet()) {
-					this.client.header(entry.getKey(), entry.getValue().toArray());
-				}
-				
-				if (this.requestContext.get(AuthorizationPolicy.class.getName()) != null) {
-				    HTTPConduit conduit = (HTTPConduit)WebClient.getConfig(this.client).getConduit();
-				    AuthorizationPolicy policy = (AuthorizationPolicy)this.requestContext.get(AuthorizationPolicy.class.getName());
-				    conduit.setAuthorization(policy);
-				}
-				else if (this.requestContext.get(GSSCredential.class.getName()) != null) {
-				    WebClient.getConfig(this.client).getRequestContext().put(GSSCredential.class.getName(), this.requestContext.get(GSSCredential.class.getName()));
-				    WebClient.getConfig(this.client).getRequestContext().put("auth.spnego.requireCredDelegation", true); //$NON-NLS-1$ 
-				}
-                else if (this.requestContext.get(OAuthCredential.class.getName()) != null) {
-                    OAuthCredential credential = (OAuthCredential)this.requestContext.get(OAuthCredential.class.getName());                    
-                    this.client.header(AUTHORIZATION, credential.getAuthorizationHeader(this.endpoint, httpMethod));
-                }
-				
-				InputStream payload = null;
-				if (msg != null) {
-					payload = msg.getInputStream();
-				}
-				
-				HTTPClientPolicy clientPolicy = WebClient.getConfig(this.client).getHttpConduit().getClient();
-				Long timeout = (Long) this.requestContext.get(RECEIVE_TIMEOUT); 
-				if (timeout != null) {
-					clientPolicy.setReceiveTimeout(timeout);
-				}
-				timeout = (Long) this.requestContext.get(CONNECTION_TIMEOUT);
-				if (timeout != null) {
-					clientPolicy.setConnectionTimeout(timeout);
-				}
-				
+				InputStream payload = prepareClient(url, httpMethod, msg, false);
 				javax.ws.rs.core.Response response = this.client.invoke(httpMethod, payload);
-				this.responseContext.put(WSConnection.STATUS_CODE, response.getStatus());
-				this.responseContext.putAll(response.getMetadata());
-
-				ArrayList contentTypes = (ArrayList)this.responseContext.get("content-type"); //$NON-NLS-1$
-				String contentType = contentTypes != null ? (String)contentTypes.get(0):"application/octet-stream"; //$NON-NLS-1$
-				return new HttpDataSource(url, (InputStream)response.getEntity(), contentType);
+				return processResponse(url, response);
 			} catch (IOException e) {
 				throw new WebServiceException(e);
 			} catch (URISyntaxException e) {
@@ -215,6 +231,74 @@ public class WSConnectionImpl extends BasicConnection implements WSConnection {
 			}
 		}
 
+		/**
+		 * Create the client for the request
+		 * @return the payload stream
+		 */
+		private InputStream prepareClient(URL url, String httpMethod, DataSource msg, boolean asynch) 
+				throws URISyntaxException, IOException {
+			url.toURI(); //ensure this is a valid uri
+			
+            // see to use patch
+            // http://stackoverflow.com/questions/32067687/how-to-use-patch-method-in-cxf
+			// the async conduit also allows asynch invocations to not hold a thread while waiting 
+			Bus bus = getBus(this.configFile);
+            boolean useAsync = httpMethod.equals("PATCH") || asynch; //$NON-NLS-1$
+            if (useAsync) {
+                installAsyncConduitFactory(bus);
+            }
+            this.client = createWebClient(this.endpoint, bus);
+            if (useAsync) {
+                //only this client uses the async conduit, other invocations on the bus are not affected
+                WebClient.getConfig(this.client).getRequestContext().put("use.async.http.conduit", Boolean.TRUE); //$NON-NLS-1$
+            }
+            
+			Map<String, List<String>> header = (Map<String, List<String>>)this.requestContext.get(MessageContext.HTTP_REQUEST_HEADERS);
+			for (Map.Entry<String, List<String>> entry : header.entrySet()) {
+				this.client.header(entry.getKey(), entry.getValue().toArray());
+			}
+			
+			if (this.requestContext.get(AuthorizationPolicy.class.getName()) != null) {
+			    HTTPConduit conduit = (HTTPConduit)WebClient.getConfig(this.client).getConduit();
+			    AuthorizationPolicy policy = (AuthorizationPolicy)this.requestContext.get(AuthorizationPolicy.class.getName());
+			    conduit.setAuthorization(policy);
+			}
+			else if (this.requestContext.get(GSSCredential.class.getName()) != null) {
+			    WebClient.getConfig(this.client).getRequestContext().put(GSSCredential.class.getName(), this.requestContext.get(GSSCredential.class.getName()));
+			    WebClient.getConfig(this.client).getRequestContext().put("auth.spnego.requireCredDelegation", true); //$NON-NLS-1$ 
+			}
+            else if (this.requestContext.get(OAuthCredential.class.getName()) != null) {
+                OAuthCredential credential = (OAuthCredential)this.requestContext.get(OAuthCredential.class.getName());                    
+                this.client.header(AUTHORIZATION, credential.getAuthorizationHeader(this.endpoint, httpMethod));
+            }
+			
+			InputStream payload = null;
+			if (msg != null) {
+				payload = msg.getInputStream();
+			}
+			
+			HTTPClientPolicy clientPolicy = WebClient.getConfig(this.client).getHttpConduit().getClient();
+			Long timeout = (Long) this.requestContext.get(RECEIVE_TIMEOUT); 
+			if (timeout != null) {
+				clientPolicy.setReceiveTimeout(timeout);
+			}
+			timeout = (Long) this.requestContext.get(CONNECTION_TIMEOUT);
+			if (timeout != null) {
+				clientPolicy.setConnectionTimeout(timeout);
+			}
+			
+			return payload;
+		}
+
+		private DataSource processResponse(final URL url, javax.ws.rs.core.Response response) {
+			this.responseContext.put(WSConnection.STATUS_CODE, response.getStatus());
+			this.responseContext.putAll(response.getMetadata());
+
+			ArrayList contentTypes = (ArrayList)this.responseContext.get("content-type"); //$NON-NLS-1$
+			String contentType = contentTypes != null ? (String)contentTypes.get(0):"application/octet-stream"; //$NON-NLS-1$
+			return new HttpDataSource(url, (InputStream)response.getEntity(), contentType);
+		}
+
 		@Override
 		public Map<String, Object> getRequestContext() {
 			return this.requestContext;
@@ -246,8 +330,42 @@ public class WSConnectionImpl extends BasicConnection implements WSConnection {
 		}
 
 		@Override
-		public Future<?> invokeAsync(DataSource msg,AsyncHandler<DataSource> handler) {
-			throw new UnsupportedOperationException();
+		public Future<?> invokeAsync(DataSource msg, final AsyncHandler<DataSource> handler) {
+			try {
+				final URL url = new URL(this.endpoint);
+				final String httpMethod = (String)this.requestContext.get(MessageContext.HTTP_REQUEST_METHOD);
+				InputStream payload = prepareClient(url, httpMethod, msg, true);
+				InvocationCallback<javax.ws.rs.core.Response> callback = new InvocationCallback<javax.ws.rs.core.Response>() {
+					@Override
+					public void completed(javax.ws.rs.core.Response response) {
+						DataSource result = null;
+						try {
+							result = processResponse(url, response);
+						} catch (RuntimeException e) {
+							handler.handleResponse(new HttpResponse(null, e, responseContext));
+							return;
+						}
+						handler.handleResponse(new HttpResponse(result, null, responseContext));
+					}
+					
+					@Override
+					public void failed(Throwable t) {
+						handler.handleResponse(new HttpResponse(null, t, responseContext));
+					}
+				};
+				if (payload == null) {
+					return this.client.async().method(httpMethod, callback);
+				}
+				String contentType = this.client.getHeaders().getFirst(HttpHeaders.CONTENT_TYPE);
+				if (contentType == null) {
+					contentType = MediaType.WILDCARD;
+				}
+				return this.client.async().method(httpMethod, Entity.entity(payload, contentType), callback);
+			} catch (IOException e) {
+				throw new WebServiceException(e);
+			} catch (URISyntaxException e) {
+				throw new WebServiceException(e);
+			}
 		}
 
 		@Override
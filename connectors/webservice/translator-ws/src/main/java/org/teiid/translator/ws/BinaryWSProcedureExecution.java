@@ -34,9 +34,13 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import javax.activation.DataSource;
+import javax.xml.ws.AsyncHandler;
 import javax.xml.ws.Dispatch;
+import javax.xml.ws.Response;
 import javax.xml.ws.Service.Mode;
 import javax.xml.ws.WebServiceException;
 import javax.xml.ws.handler.MessageContext;
@@ -54,6 +58,7 @@ import org.teiid.language.Argument.Direction;
 import org.teiid.language.Call;
 import org.teiid.metadata.ProcedureParameter.Type;
 import org.teiid.metadata.RuntimeMetadata;
+import org.teiid.translator.AsynchResult;
 import org.teiid.translator.DataNotAvailableException;
 import org.teiid.translator.ExecutionContext;
 import org.teiid.translator.ProcedureExecution;
@@ -93,6 +98,9 @@ public class BinaryWSProcedureExecution implements ProcedureExecution {
     Map<String, Object> responseContext = Collections.emptyMap();
     int responseCode = 200;
     private boolean useResponseContext;
+    private boolean asynch;
+    private volatile Future<?> asynchFuture;
+    private AsynchResult<DataSource> asynchResult;
 
 	/**
      * @param env
@@ -108,6 +116,15 @@ public class BinaryWSProcedureExecution implements ProcedureExecution {
     public void setUseResponseContext(boolean useResponseContext) {
 		this.useResponseContext = useResponseContext;
 	}
+    
+    /**
+     * Set to true to invoke asynchly.  The results will then not be available
+     * until {@link #next()} has returned.
+     * @param asynch
+     */
+    public void setAsynch(boolean asynch) {
+		this.asynch = asynch;
+	}
 
     public void execute() throws TranslatorException {
         List<Argument> arguments = this.procedure.getArguments();
@@ -153,20 +170,34 @@ public class BinaryWSProcedureExecution implements ProcedureExecution {
 				ds = new InputStreamFactory.BlobInputStreamFactory((Blob)payload);
 			}
 
-			this.returnValue = dispatch.invoke(ds);
-			
-			Map<String, Object> rc = dispatch.getResponseContext();
-			this.responseCode = (Integer)rc.get(WSConnection.STATUS_CODE);
-			if (this.useResponseContext) {
-				//it's presumed that the caller will handle the response codes
-				this.responseContext = rc;
-			} else {
-				//TODO: may need to add logic around some 200/300 codes - cxf should at least be logging this
-				if (this.responseCode >= 400) {
-		    		String message = conn.getStatusMessage(this.responseCode);
-		    		throw new TranslatorException(WSExecutionFactory.Event.TEIID15005, WSExecutionFactory.UTIL.gs(WSExecutionFactory.Event.TEIID15005, this.responseCode, message));
+			if (this.asynch) {
+				final Dispatch<DataSource> asynchDispatch = dispatch;
+				final AsynchResult<DataSource> result = new AsynchResult<DataSource>(this.context);
+				try {
+					this.asynchFuture = dispatch.invokeAsync(ds, new AsyncHandler<DataSource>() {
+						@Override
+						public void handleResponse(Response<DataSource> res) {
+							try {
+								DataSource value = res.get();
+								processResponse(asynchDispatch.getResponseContext());
+								result.setResult(value);
+							} catch (ExecutionException e) {
+								result.setFailure(e.getCause());
+							} catch (Exception e) {
+								result.setFailure(e);
+							}
+						}
+					});
+					this.asynchResult = result;
+					return;
+				} catch (UnsupportedOperationException e) {
+					//the dispatch does not support asynch, fall back to a blocking invocation
 				}
 			}
+			
+			this.returnValue = dispatch.invoke(ds);
+			
+			processResponse(dispatch.getResponseContext());
 		} catch (WebServiceException e) {
 			throw new TranslatorException(e);
 		} catch (ParseException e) {
@@ -178,6 +209,20 @@ public class BinaryWSProcedureExecution implements ProcedureExecution {
 		}
     }
 
+	private void processResponse(Map<String, Object> rc) throws TranslatorException {
+		this.responseCode = (Integer)rc.get(WSConnection.STATUS_CODE);
+		if (this.useResponseContext) {
+			//it's presumed that the caller will handle the response codes
+			this.responseContext = rc;
+		} else {
+			//TODO: may need to add logic around some 200/300 codes - cxf should at least be logging this
+			if (this.responseCode >= 400) {
+	    		String message = conn.getStatusMessage(this.responseCode);
+	    		throw new TranslatorException(WSExecutionFactory.Event.TEIID15005, WSExecutionFactory.UTIL.gs(WSExecutionFactory.Event.TEIID15005, this.responseCode, message));
+			}
+		}
+	}
+
 	static void parseHeader(Map<String, List<String>> httpHeaders,
 			Clob headers) throws ParseException, TranslatorException, IOException, SQLException {
 		SimpleContentHandler sch = new SimpleContentHandler();
@@ -218,6 +263,10 @@ public class BinaryWSProcedureExecution implements ProcedureExecution {
 
 	@Override
     public List<?> next() throws TranslatorException, DataNotAvailableException {
+		if (this.asynchResult != null) {
+			//throws DataNotAvailableException until the invocation completes
+			this.returnValue = this.asynchResult.get();
+		}
     	return null;
     }
 
@@ -237,11 +286,17 @@ public class BinaryWSProcedureExecution implements ProcedureExecution {
     }
 
     public void close() {
-
+    	Future<?> future = this.asynchFuture;
+    	if (future != null) {
+    		future.cancel(true);
+    	}
     }
 
     public void cancel() throws TranslatorException {
-        // no-op
+    	Future<?> future = this.asynchFuture;
+    	if (future != null) {
+    		future.cancel(true);
+    	}
     }
     
     public void setCustomHeaders(Map<String, List<String>> customHeaders) {
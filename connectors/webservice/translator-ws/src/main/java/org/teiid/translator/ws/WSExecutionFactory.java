@@ -86,6 +86,7 @@ public class WSExecutionFactory extends ExecutionFactory<ConnectionFactory, WSCo
 	private Mode defaultServiceMode = Mode.PAYLOAD;
 	private Binding defaultBinding = Binding.SOAP12;
 	private String xmlParamName;
+	private boolean asynchInvokeHttp;
 	
 	public WSExecutionFactory() {
 		setSourceRequiredForMetadata(false);
@@ -119,11 +120,22 @@ public class WSExecutionFactory extends ExecutionFactory<ConnectionFactory, WSCo
 		this.xmlParamName = xmlParamName;
 	}
 	
+	@TranslatorProperty(description="Set to true to have invokeHttp calls not hold an engine thread while waiting on the response.", display="Asynch InvokeHttp", advanced=true)
+	public boolean isAsynchInvokeHttp() {
+		return asynchInvokeHttp;
+	}
+	
+	public void setAsynchInvokeHttp(boolean asynchInvokeHttp) {
+		this.asynchInvokeHttp = asynchInvokeHttp;
+	}
+	
     @Override
     public ProcedureExecution createProcedureExecution(Call command, ExecutionContext executionContext, RuntimeMetadata metadata, WSConnection connection)
     		throws TranslatorException {
     	if (command.getProcedureName().equalsIgnoreCase(INVOKE_HTTP)) {
-    		return new BinaryWSProcedureExecution(command, metadata, executionContext, this, connection);
+    		BinaryWSProcedureExecution execution = new BinaryWSProcedureExecution(command, metadata, executionContext, this, connection);
+    		execution.setAsynch(this.asynchInvokeHttp);
+    		return execution;
     	}
     	if (command.getArguments().size() > 2 || command.getProcedureName().equalsIgnoreCase(INVOKE)) {
     		return new WSProcedureExecution(command, metadata, executionContext, this, connection);
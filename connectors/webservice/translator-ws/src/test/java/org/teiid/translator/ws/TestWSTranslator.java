@@ -36,11 +36,14 @@ import java.util.Properties;
 
 import javax.activation.DataSource;
 import javax.xml.transform.stax.StAXSource;
+import javax.xml.ws.AsyncHandler;
 import javax.xml.ws.Dispatch;
+import javax.xml.ws.Response;
 import javax.xml.ws.Service;
 import javax.xml.ws.handler.MessageContext;
 
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.teiid.cdk.CommandBuilder;
 import org.teiid.core.types.ClobImpl;
@@ -53,6 +56,7 @@ import org.teiid.metadata.ProcedureParameter.Type;
 import org.teiid.query.metadata.SystemMetadata;
 import org.teiid.query.metadata.TransformationMetadata;
 import org.teiid.query.unittest.RealMetadataFactory;
+import org.teiid.translator.DataNotAvailableException;
 import org.teiid.translator.ExecutionContext;
 import org.teiid.translator.TranslatorException;
 import org.teiid.translator.WSConnection;
@@ -168,6 +172,47 @@ public class TestWSTranslator {
 		assertEquals(Arrays.asList("application/json"), headers.get("ContentType"));
 	}
 
+	@Test public void testAsynchInvokeHttp() throws Exception {
+		WSExecutionFactory ef = new WSExecutionFactory();
+		ef.setAsynchInvokeHttp(true);
+		WSConnection mockConnection = Mockito.mock(WSConnection.class);
+    	MetadataFactory mf = new MetadataFactory("vdb", 1, "x", SystemMetadata.getInstance().getRuntimeTypeMap(), new Properties(), null);
+		ef.getMetadata(mf, mockConnection);
+		
+		TransformationMetadata tm = RealMetadataFactory.createTransformationMetadata(mf.asMetadataStore(), "vdb");
+		RuntimeMetadataImpl rm = new RuntimeMetadataImpl(tm);
+		Dispatch<Object> mockDispatch = mockDispatch();
+		DataSource mock = Mockito.mock(DataSource.class);
+		ByteArrayInputStream baos = new ByteArrayInputStream(new byte[100]);
+		Mockito.stub(mock.getInputStream()).toReturn(baos);
+		Mockito.stub(mockConnection.createDispatch(Mockito.any(String.class), Mockito.any(String.class), Mockito.any(Class.class), Mockito.any(Service.Mode.class))).toReturn(mockDispatch);
+		CommandBuilder cb = new CommandBuilder(tm);
+		
+		Call call = (Call)cb.getCommand("call invokeHttp('GET', null, null, true)");
+		ExecutionContext ec = Mockito.mock(ExecutionContext.class);
+		BinaryWSProcedureExecution pe = (BinaryWSProcedureExecution)ef.createProcedureExecution(call, ec, rm, mockConnection);
+		pe.execute();
+		
+		try {
+			pe.next();
+			fail();
+		} catch (DataNotAvailableException e) {
+			//the response has not yet arrived
+		}
+		
+		ArgumentCaptor<AsyncHandler> handler = ArgumentCaptor.forClass(AsyncHandler.class);
+		Mockito.verify(mockDispatch).invokeAsync(Mockito.any(), handler.capture());
+		Response<Object> response = Mockito.mock(Response.class);
+		Mockito.stub(response.get()).toReturn(mock);
+		handler.getValue().handleResponse(response);
+		Mockito.verify(ec).dataAvailable();
+		
+		assertNull(pe.next());
+		List<?> result = pe.getOutputParameterValues();
+		Blob b = (Blob) result.get(0);
+		assertEquals(100, ObjectConverterUtil.convertToByteArray(b.getBinaryStream()).length);
+	}
+	
 	private Dispatch<Object> mockDispatch() {
 		Dispatch<Object> mockDispatch = Mockito.mock(Dispatch.class);
 		Map<String, Object> map = new HashMap<String, Object>();
@@ -36,6 +36,14 @@ public interface BatchManager {
 	
 	void remove(Long batch);
 	
+	/**
+	 * Hint that the batch will be read soon, so that it may be
+	 * asynchronously loaded into memory.
+	 * @param batch
+	 * @param rowCount the approximate number of rows in the batch 
+	 */
+	void prefetch(Long batch, int rowCount);
+	
 	void setPrefersMemory(boolean prefers);
 	
 	boolean prefersMemory();
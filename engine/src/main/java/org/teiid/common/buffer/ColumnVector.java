@@ -0,0 +1,421 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.common.buffer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.teiid.core.types.DataTypeManager;
+
+/**
+ * An append only column of values for a {@link ColumnarTupleBatch}.
+ * <br>
+ * Integer, long and double values are held in primitive arrays and strings
+ * are dictionary encoded.  Null values are tracked by a bitmap.  Values are only
+ * boxed when accessed through {@link #get(int)}.
+ */
+public abstract class ColumnVector {
+
+	private static final int DEFAULT_CAPACITY = 16;
+
+	protected int size;
+	private BitSet nulls;
+
+	/**
+	 * Create a vector appropriate for the given type
+	 * @param type
+	 * @param capacity the expected number of values
+	 * @return
+	 */
+	public static ColumnVector create(Class<?> type, int capacity) {
+		capacity = Math.max(1, capacity);
+		if (type == DataTypeManager.DefaultDataClasses.INTEGER) {
+			return new IntVector(capacity);
+		}
+		if (type == DataTypeManager.DefaultDataClasses.LONG) {
+			return new LongVector(capacity);
+		}
+		if (type == DataTypeManager.DefaultDataClasses.DOUBLE) {
+			return new DoubleVector(capacity);
+		}
+		if (type == DataTypeManager.DefaultDataClasses.STRING) {
+			return new DictionaryVector(capacity);
+		}
+		return new ObjectVector(capacity);
+	}
+
+	public static ColumnVector create(Class<?> type) {
+		return create(type, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @return the number of values
+	 */
+	public int size() {
+		return size;
+	}
+
+	public boolean isNull(int row) {
+		return nulls != null && nulls.get(row);
+	}
+
+	/**
+	 * @return true if any value is null
+	 */
+	public boolean hasNulls() {
+		return nulls != null && !nulls.isEmpty();
+	}
+
+	/**
+	 * Append a null value
+	 */
+	public void addNull() {
+		if (nulls == null) {
+			nulls = new BitSet();
+		}
+		nulls.set(size);
+		ensureCapacity(size + 1);
+		size++;
+	}
+
+	/**
+	 * Append the given value, which is expected to be of the vector type or null
+	 * @param value
+	 */
+	public void add(Object value) {
+		if (value == null) {
+			addNull();
+			return;
+		}
+		ensureCapacity(size + 1);
+		setValue(size, value);
+		size++;
+	}
+
+	/**
+	 * Get the boxed value at the given zero based row
+	 */
+	public Object get(int row) {
+		if (isNull(row)) {
+			return null;
+		}
+		return getValue(row);
+	}
+
+	/**
+	 * Create a new vector of the values at the given rows
+	 * @param selection zero based row indexes
+	 * @param count the number of selected rows
+	 */
+	public ColumnVector select(int[] selection, int count) {
+		ColumnVector result = newInstance(count);
+		for (int i = 0; i < count; i++) {
+			int row = selection[i];
+			if (isNull(row)) {
+				result.addNull();
+			} else {
+				result.ensureCapacity(result.size + 1);
+				result.copyValue(this, row);
+				result.size++;
+			}
+		}
+		return result;
+	}
+
+	protected abstract ColumnVector newInstance(int capacity);
+
+	/**
+	 * Set the value at the current size from the given vector of the same type
+	 */
+	protected abstract void copyValue(ColumnVector other, int row);
+
+	protected abstract Object getValue(int row);
+
+	protected abstract void setValue(int row, Object value);
+
+	protected abstract void ensureCapacity(int capacity);
+
+	static int newCapacity(int current, int needed) {
+		return Math.max(needed, current + (current >> 1) + 1);
+	}
+
+	public static class IntVector extends ColumnVector {
+		private int[] values;
+
+		public IntVector(int capacity) {
+			this.values = new int[capacity];
+		}
+
+		public int getInt(int row) {
+			return values[row];
+		}
+
+		public void addInt(int value) {
+			ensureCapacity(size + 1);
+			values[size++] = value;
+		}
+
+		/**
+		 * The backing array, which may be larger than {@link #size()}
+		 */
+		public int[] getValues() {
+			return values;
+		}
+
+		@Override
+		protected ColumnVector newInstance(int capacity) {
+			return new IntVector(capacity);
+		}
+
+		@Override
+		protected void copyValue(ColumnVector other, int row) {
+			values[size] = ((IntVector)other).values[row];
+		}
+
+		@Override
+		protected Object getValue(int row) {
+			return values[row];
+		}
+
+		@Override
+		protected void setValue(int row, Object value) {
+			values[row] = (Integer)value;
+		}
+
+		@Override
+		protected void ensureCapacity(int capacity) {
+			if (capacity > values.length) {
+				values = Arrays.copyOf(values, newCapacity(values.length, capacity));
+			}
+		}
+	}
+
+	public static class LongVector extends ColumnVector {
+		private long[] values;
+
+		public LongVector(int capacity) {
+			this.values = new long[capacity];
+		}
+
+		public long getLong(int row) {
+			return values[row];
+		}
+
+		public void addLong(long value) {
+			ensureCapacity(size + 1);
+			values[size++] = value;
+		}
+
+		/**
+		 * The backing array, which may be larger than {@link #size()}
+		 */
+		public long[] getValues() {
+			return values;
+		}
+
+		@Override
+		protected ColumnVector newInstance(int capacity) {
+			return new LongVector(capacity);
+		}
+
+		@Override
+		protected void copyValue(ColumnVector other, int row) {
+			values[size] = ((LongVector)other).values[row];
+		}
+
+		@Override
+		protected Object getValue(int row) {
+			return values[row];
+		}
+
+		@Override
+		protected void setValue(int row, Object value) {
+			values[row] = (Long)value;
+		}
+
+		@Override
+		protected void ensureCapacity(int capacity) {
+			if (capacity > values.length) {
+				values = Arrays.copyOf(values, newCapacity(values.length, capacity));
+			}
+		}
+	}
+
+	public static class DoubleVector extends ColumnVector {
+		private double[] values;
+
+		public DoubleVector(int capacity) {
+			this.values = new double[capacity];
+		}
+
+		public double getDouble(int row) {
+			return values[row];
+		}
+
+		public void addDouble(double value) {
+			ensureCapacity(size + 1);
+			values[size++] = value;
+		}
+
+		/**
+		 * The backing array, which may be larger than {@link #size()}
+		 */
+		public double[] getValues() {
+			return values;
+		}
+
+		@Override
+		protected ColumnVector newInstance(int capacity) {
+			return new DoubleVector(capacity);
+		}
+
+		@Override
+		protected void copyValue(ColumnVector other, int row) {
+			values[size] = ((DoubleVector)other).values[row];
+		}
+
+		@Override
+		protected Object getValue(int row) {
+			return values[row];
+		}
+
+		@Override
+		protected void setValue(int row, Object value) {
+			values[row] = (Double)value;
+		}
+
+		@Override
+		protected void ensureCapacity(int capacity) {
+			if (capacity > values.length) {
+				values = Arrays.copyOf(values, newCapacity(values.length, capacity));
+			}
+		}
+	}
+
+	/**
+	 * Holds string values as codes into a dictionary of the distinct values.
+	 */
+	public static class DictionaryVector extends ColumnVector {
+		private int[] codes;
+		private List<String> dictionary = new ArrayList<String>();
+		private Map<String, Integer> dictionaryIndex = new HashMap<String, Integer>();
+
+		public DictionaryVector(int capacity) {
+			this.codes = new int[capacity];
+		}
+
+		/**
+		 * Create a vector that shares the dictionary of the given vector
+		 */
+		DictionaryVector(DictionaryVector other, int capacity) {
+			this.codes = new int[capacity];
+			this.dictionary = other.dictionary;
+			this.dictionaryIndex = other.dictionaryIndex;
+		}
+
+		/**
+		 * Get the dictionary code for the given row
+		 */
+		public int getCode(int row) {
+			return codes[row];
+		}
+
+		public List<String> getDictionary() {
+			return dictionary;
+		}
+
+		@Override
+		protected ColumnVector newInstance(int capacity) {
+			return new DictionaryVector(this, capacity);
+		}
+
+		@Override
+		protected void copyValue(ColumnVector other, int row) {
+			codes[size] = ((DictionaryVector)other).codes[row];
+		}
+
+		@Override
+		protected Object getValue(int row) {
+			return dictionary.get(codes[row]);
+		}
+
+		@Override
+		protected void setValue(int row, Object value) {
+			String string = (String)value;
+			Integer code = dictionaryIndex.get(string);
+			if (code == null) {
+				code = dictionary.size();
+				dictionary.add(string);
+				dictionaryIndex.put(string, code);
+			}
+			codes[row] = code;
+		}
+
+		@Override
+		protected void ensureCapacity(int capacity) {
+			if (capacity > codes.length) {
+				codes = Arrays.copyOf(codes, newCapacity(codes.length, capacity));
+			}
+		}
+	}
+
+	public static class ObjectVector extends ColumnVector {
+		private Object[] values;
+
+		public ObjectVector(int capacity) {
+			this.values = new Object[capacity];
+		}
+
+		@Override
+		protected ColumnVector newInstance(int capacity) {
+			return new ObjectVector(capacity);
+		}
+
+		@Override
+		protected void copyValue(ColumnVector other, int row) {
+			values[size] = ((ObjectVector)other).values[row];
+		}
+
+		@Override
+		protected Object getValue(int row) {
+			return values[row];
+		}
+
+		@Override
+		protected void setValue(int row, Object value) {
+			values[row] = value;
+		}
+
+		@Override
+		protected void ensureCapacity(int capacity) {
+			if (capacity > values.length) {
+				values = Arrays.copyOf(values, newCapacity(values.length, capacity));
+			}
+		}
+	}
+
+}
@@ -0,0 +1,321 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.common.buffer;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+
+import org.teiid.query.sql.symbol.Expression;
+
+/**
+ * A {@link TupleBatch} that holds its values in {@link ColumnVector}s.
+ * <br>
+ * Nodes that understand the columnar form may use {@link #getColumn(int)} directly.
+ * All other access is adapted to the row based API - {@link #getTuple(long)} returns a
+ * lightweight view of the row and {@link #getTuples()} materializes the rows
+ * so that the result may be modified as with any other batch.
+ * <br>
+ * When created from a row based batch the existing rows are retained and the
+ * columns are only created as they are accessed.
+ * <br>
+ * Once there are rows they are the source of the values.  The rows and the row lists obtained 
+ * from them count modifications, and the columns are recreated only after a modification, so a 
+ * column will reflect any modification made through this batch prior to the call to {@link #getColumn(int)}.
+ */
+public class ColumnarTupleBatch extends TupleBatch {
+
+	private static class RowView extends AbstractList<Object> implements RandomAccess {
+		private ColumnVector[] columns;
+		private int row;
+
+		RowView(ColumnVector[] columns, int row) {
+			this.columns = columns;
+			this.row = row;
+		}
+
+		@Override
+		public Object get(int index) {
+			return columns[index].get(row);
+		}
+
+		@Override
+		public int size() {
+			return columns.length;
+		}
+	}
+
+	/**
+	 * The rows of the batch.  Modifications to the list or to the row lists obtained from it are counted.
+	 */
+	private static class Rows extends AbstractList<List<?>> implements RandomAccess {
+		private List<List<?>> tuples;
+		int modifications;
+
+		Rows(List<List<?>> tuples) {
+			this.tuples = tuples;
+		}
+
+		@Override
+		public List<?> get(int index) {
+			return new Row(this, tuples.get(index));
+		}
+
+		@Override
+		public List<?> set(int index, List<?> element) {
+			modifications++;
+			return tuples.set(index, element);
+		}
+
+		@Override
+		public void add(int index, List<?> element) {
+			modifications++;
+			modCount++;
+			tuples.add(index, element);
+		}
+
+		@Override
+		public List<?> remove(int index) {
+			modifications++;
+			modCount++;
+			return tuples.remove(index);
+		}
+
+		@Override
+		public int size() {
+			return tuples.size();
+		}
+	}
+
+	private static class Row extends AbstractList<Object> implements RandomAccess {
+		private Rows rows;
+		private List<Object> tuple;
+
+		@SuppressWarnings("unchecked")
+		Row(Rows rows, List<?> tuple) {
+			this.rows = rows;
+			this.tuple = (List<Object>)tuple;
+		}
+
+		@Override
+		public Object get(int index) {
+			return tuple.get(index);
+		}
+
+		@Override
+		public Object set(int index, Object element) {
+			rows.modifications++;
+			return tuple.set(index, element);
+		}
+
+		@Override
+		public void add(int index, Object element) {
+			rows.modifications++;
+			modCount++;
+			tuple.add(index, element);
+		}
+
+		@Override
+		public Object remove(int index) {
+			rows.modifications++;
+			modCount++;
+			return tuple.remove(index);
+		}
+
+		@Override
+		public int size() {
+			return tuple.size();
+		}
+	}
+
+	/**
+	 * Builds a {@link ColumnarTupleBatch} a row or a value at a time
+	 */
+	public static class Builder {
+		private Class<?>[] types;
+		private ColumnVector[] columns;
+		private int rowCount;
+
+		public Builder(Class<?>[] types, int capacity) {
+			this.types = types;
+			this.columns = new ColumnVector[types.length];
+			for (int i = 0; i < types.length; i++) {
+				this.columns[i] = ColumnVector.create(types[i], capacity);
+			}
+		}
+
+		public void addTuple(List<?> tuple) {
+			for (int i = 0; i < columns.length; i++) {
+				columns[i].add(tuple.get(i));
+			}
+			rowCount++;
+		}
+
+		/**
+		 * Get the column to add values directly.  {@link #endRow()} must
+		 * be called after a value has been added to each column.
+		 */
+		public ColumnVector getColumn(int index) {
+			return columns[index];
+		}
+
+		public void endRow() {
+			rowCount++;
+		}
+
+		public int getRowCount() {
+			return rowCount;
+		}
+
+		public ColumnarTupleBatch build(long beginRow) {
+			ColumnarTupleBatch result = new ColumnarTupleBatch(beginRow, columns, rowCount);
+			result.types = types;
+			this.columns = null;
+			return result;
+		}
+	}
+
+	private ColumnVector[] columns;
+	private int rowCount;
+	private Class<?>[] types;
+	private Rows rows;
+	private int columnModifications;
+
+	public ColumnarTupleBatch(long beginRow, ColumnVector[] columns, int rowCount) {
+		this.setRowOffset(beginRow);
+		this.columns = columns;
+		this.rowCount = rowCount;
+	}
+
+	/**
+	 * Get the types of the given schema
+	 */
+	public static Class<?>[] getTypes(List<? extends Expression> schema) {
+		Class<?>[] types = new Class<?>[schema.size()];
+		for (int i = 0; i < types.length; i++) {
+			types[i] = schema.get(i).getType();
+		}
+		return types;
+	}
+
+	/**
+	 * Return the given batch in columnar form.  A row based batch is converted.
+	 * @param batch
+	 * @param types the column types
+	 * @return
+	 */
+	public static ColumnarTupleBatch asColumnar(TupleBatch batch, Class<?>[] types) {
+		if (batch instanceof ColumnarTupleBatch) {
+			return (ColumnarTupleBatch)batch;
+		}
+		List<List<?>> tuples = batch.getTuples();
+		ColumnarTupleBatch result = new ColumnarTupleBatch(batch.getBeginRow(), new ColumnVector[types.length], tuples.size());
+		result.types = types;
+		result.setRows(tuples);
+		result.setTermination(batch.getTermination());
+		return result;
+	}
+
+	/**
+	 * Get the column at the given zero based index
+	 */
+	public ColumnVector getColumn(int index) {
+		if (this.rows != null && this.rows.modifications != this.columnModifications) {
+			//rows have been modified
+			this.columns = new ColumnVector[this.columns.length];
+			this.rowCount = this.rows.size();
+			this.columnModifications = this.rows.modifications;
+		}
+		ColumnVector result = this.columns[index];
+		if (result == null) {
+			result = createColumn(index);
+			this.columns[index] = result;
+		}
+		return result;
+	}
+
+	public int getColumnCount() {
+		return this.columns.length;
+	}
+
+	private void setRows(List<List<?>> tuples) {
+		this.rows = new Rows(tuples);
+		this.tuples = this.rows;
+	}
+
+	private ColumnVector createColumn(int index) {
+		ColumnVector result = ColumnVector.create(types != null?types[index]:Object.class, this.rowCount);
+		for (List<?> tuple : this.rows.tuples) {
+			result.add(tuple.get(index));
+		}
+		return result;
+	}
+
+	@Override
+	public int getRowCount() {
+		if (this.tuples != null) {
+			return this.tuples.size();
+		}
+		return this.rowCount;
+	}
+
+	@Override
+	public List<?> getTuple(long rowIndex) {
+		if (this.tuples != null) {
+			return super.getTuple(rowIndex);
+		}
+		long base = rowIndex - getBeginRow();
+		int intVal = (int)base;
+		if (base != intVal) {
+			throw new AssertionError("rowIndex overflow " + rowIndex); //$NON-NLS-1$
+		}
+		if (intVal < 0 || intVal >= this.rowCount) {
+			throw new IndexOutOfBoundsException(String.valueOf(rowIndex));
+		}
+		return new RowView(this.columns, intVal);
+	}
+
+	@Override
+	public List<List<?>> getTuples() {
+		if (this.tuples == null) {
+			List<List<?>> result = new ArrayList<List<?>>(this.rowCount);
+			for (int row = 0; row < this.rowCount; row++) {
+				List<Object> tuple = new ArrayList<Object>(this.columns.length);
+				for (int col = 0; col < this.columns.length; col++) {
+					tuple.add(this.columns[col].get(row));
+				}
+				result.add(tuple);
+			}
+			setRows(result);
+		}
+		return this.tuples;
+	}
+
+	@Override
+	public List<?>[] getAllTuples() {
+		List<List<?>> result = getTuples();
+		return result.toArray(new List[result.size()]);
+	}
+
+}
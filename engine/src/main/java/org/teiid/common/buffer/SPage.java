@@ -97,6 +97,10 @@ class SPage implements Cloneable {
 	protected Object trackingObject;
 	protected List<List<?>> values;
 	protected List<SPage> children;
+	/**
+	 * Summary of the leaf values, lazily computed and cleared on modification
+	 */
+	protected ZoneMap zoneMap;
 	
 	SPage(STree stree, boolean leaf) {
 		this.stree = stree;
@@ -185,6 +189,7 @@ class SPage implements Cloneable {
 		if (values instanceof LightWeightCopyOnWriteList<?>) {
 			values = ((LightWeightCopyOnWriteList<List<?>>)values).getList();
 		}
+		this.zoneMap = null;
 		if (values.size() < stree.minPageSize || stree.getRowCount() < stree.minStorageSize) {
 			setDirectValues(values);
 			return;
@@ -204,6 +209,7 @@ class SPage implements Cloneable {
 			managedBatch = null;
 			trackingObject = null;
 		}
+		this.zoneMap = null;
 		this.values = values;
 	}
 	
@@ -217,6 +223,7 @@ class SPage implements Cloneable {
 		}
 		values = null;
 		children = null;
+		zoneMap = null;
 	}
 
 	protected List<List<?>> getValues() throws TeiidComponentException {
@@ -90,7 +90,7 @@ public class TupleBatch {
      * @return the last row contained in this tuple batch
      */
     public long getEndRow() {
-        return rowOffset + tuples.size() - 1;
+        return rowOffset + getRowCount() - 1;
     }
     
     /**
@@ -163,7 +163,7 @@ public class TupleBatch {
         s.append("TupleBatch; beginning row="); //$NON-NLS-1$
         s.append(rowOffset);
         s.append(", number of rows="); //$NON-NLS-1$
-        s.append(tuples.size());
+        s.append(getRowCount());
         s.append(", lastBatch="); //$NON-NLS-1$
         s.append(this.terminationFlag);
         return s.toString();
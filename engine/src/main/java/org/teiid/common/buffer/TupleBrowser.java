@@ -58,6 +58,8 @@ public class TupleBrowser implements TupleSource {
 	private ArrayList<SearchResult> places = new ArrayList<SearchResult>();
 
     private boolean readOnly = true;
+    
+    private ZoneMap.Filter pageFilter;
 
     /**
      * Construct a value based browser.  The {@link TupleSource} should already be in the
@@ -235,7 +237,26 @@ public class TupleBrowser implements TupleSource {
 				return null;
 			}
 			if (values == null) {
-				setValues(page.getValues());
+				if (pageFilter != null && valueSet == null && !inPartial) {
+					ZoneMap zoneMap = page.zoneMap;
+					if (zoneMap != null && !pageFilter.matches(zoneMap)) {
+						//no row on the page can match
+						if (page == bound) {
+							page = null; //terminate
+						} else if (direction) {
+							page = page.next;
+						} else {
+							page = page.prev;
+						}
+						continue;
+					}
+					setValues(page.getValues());
+					if (zoneMap == null) {
+						page.zoneMap = new ZoneMap(values, tree.leafManager.getTypes());
+					}
+				} else {
+					setValues(page.getValues());
+				}
 				if (direction) {
 					index = 0;
 				} else {
@@ -261,6 +282,18 @@ public class TupleBrowser implements TupleSource {
 		}
 	}
 	
+	/**
+	 * Set a filter to skip whole leaf pages during a range scan.  The {@link ZoneMap}
+	 * for a page is computed the first time it is read by a filtered browser.
+	 * Only applies to read only browsers.
+	 * @param pageFilter
+	 */
+	public void setPageFilter(ZoneMap.Filter pageFilter) {
+		if (readOnly) {
+			this.pageFilter = pageFilter;
+		}
+	}
+	
 	public void reset(TupleSource ts) throws TeiidComponentException {
 		this.valueSet = ts;
 		resetState();
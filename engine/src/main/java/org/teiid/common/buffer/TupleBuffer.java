@@ -130,6 +130,11 @@ public class TupleBuffer {
 	private List<List<?>> batchBuffer;
 	private boolean removed;
 	private boolean forwardOnly;
+	
+	//read ahead state
+	private int prefetch;
+	private Long lastBatchRow;
+	private long prefetchedRow;
 
 	private LobManager lobManager;
 	private String uuid;
@@ -285,6 +290,9 @@ public class TupleBuffer {
 			Map.Entry<Long, Long> entry = batches.floorEntry(row);
 			Assertion.isNotNull(entry);
 			Long batch = entry.getValue();
+			if (prefetch > 0) {
+				prefetch(entry.getKey());
+			}
 	    	List<List<?>> rows = manager.getBatch(batch, !forwardOnly);
 	    	result = new TupleBatch(entry.getKey(), rows);
 	    	if (isFinal && result.getEndRow() == rowCount) {
@@ -300,6 +308,38 @@ public class TupleBuffer {
 		return result;
 	}
 	
+	/**
+	 * Once reads are sequential, keep the next batches ahead of the 
+	 * current batch requested from the manager.
+	 */
+	private void prefetch(Long batchRow) {
+		Long last = this.lastBatchRow;
+		this.lastBatchRow = batchRow;
+		if (last == null || batchRow < last) {
+			this.prefetchedRow = batchRow;
+			return;
+		}
+		if (batchRow.equals(last)) {
+			return;
+		}
+		Map.Entry<Long, Long> next = batches.higherEntry(batchRow);
+		for (int i = 0; i < prefetch && next != null; i++) {
+			Long nextRow = batches.higherKey(next.getKey());
+			if (next.getKey() > prefetchedRow) {
+				manager.prefetch(next.getValue(), nextRow != null ? (int)(nextRow - next.getKey()) : batchSize);
+				this.prefetchedRow = next.getKey();
+			}
+			next = nextRow != null ? batches.higherEntry(next.getKey()) : null;
+		}
+	}
+	
+	/**
+	 * Set the number of batches to read ahead once the buffer is being read sequentially
+	 */
+	public void setPrefetch(int prefetch) {
+		this.prefetch = prefetch;
+	}
+	
 	public void remove() {
 		if (!removed) {
 			if (LogManager.isMessageToBeRecorded(LogConstants.CTX_BUFFER_MGR, MessageLevel.DETAIL)) {
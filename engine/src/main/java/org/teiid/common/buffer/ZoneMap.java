@@ -0,0 +1,114 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+
+package org.teiid.common.buffer;
+
+import java.util.List;
+
+import org.teiid.core.types.DataTypeManager;
+import org.teiid.query.sql.symbol.Constant;
+
+/**
+ * Summary of the values held by a single leaf {@link SPage} - the per column min, max, and null count.
+ * <br>
+ * A {@link Filter} may use the summary to skip pages that cannot contain a match
+ * without reading the rest of the page.  Only columns with comparable types are tracked.
+ */
+public class ZoneMap {
+	
+	/**
+	 * Determines if a page may contain matching rows 
+	 */
+	public interface Filter {
+		
+		/**
+		 * @return false only if no row summarized by the zoneMap can match 
+		 */
+		boolean matches(ZoneMap zoneMap);
+		
+	}
+	
+	private Object[] min;
+	private Object[] max;
+	private int[] nullCount;
+	private boolean[] tracked;
+	private int rowCount;
+	
+	ZoneMap(List<? extends List<?>> values, String[] types) {
+		this.rowCount = values.size();
+		this.min = new Object[types.length];
+		this.max = new Object[types.length];
+		this.nullCount = new int[types.length];
+		this.tracked = new boolean[types.length];
+		for (int i = 0; i < types.length; i++) {
+			tracked[i] = !DataTypeManager.isNonComparable(types[i]) 
+					&& !DataTypeManager.isArrayType(types[i]) 
+					&& !DataTypeManager.DefaultDataTypes.OBJECT.equals(types[i]);
+		}
+		for (List<?> tuple : values) {
+			for (int i = 0; i < types.length; i++) {
+				if (!tracked[i]) {
+					continue;
+				}
+				Object value = tuple.get(i);
+				if (value == null) {
+					nullCount[i]++;
+					continue;
+				}
+				if (min[i] == null || Constant.COMPARATOR.compare(value, min[i]) < 0) {
+					min[i] = value;
+				}
+				if (max[i] == null || Constant.COMPARATOR.compare(value, max[i]) > 0) {
+					max[i] = value;
+				}
+			}
+		}
+	}
+	
+	public boolean isTracked(int column) {
+		return tracked[column];
+	}
+	
+	/**
+	 * @return the min non-null value or null if there are no non-null values
+	 */
+	public Object getMin(int column) {
+		return min[column];
+	}
+	
+	/**
+	 * @return the max non-null value or null if there are no non-null values
+	 */
+	public Object getMax(int column) {
+		return max[column];
+	}
+	
+	public int getNullCount(int column) {
+		return nullCount[column];
+	}
+	
+	public int getRowCount() {
+		return rowCount;
+	}
+
+}
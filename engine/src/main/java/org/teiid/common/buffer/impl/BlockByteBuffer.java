@@ -22,27 +22,49 @@
 
 package org.teiid.common.buffer.impl;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.teiid.core.TeiidRuntimeException;
 
 /**
  * Provides buffer slices or blocks off of a central
  * set of buffers.
+ * <br>
+ * The buffers may be on heap, direct, or memory mapped from a file.  Mapped buffers are
+ * neither limited by the max direct memory nor counted against the heap. 
  */
 public class BlockByteBuffer {
 	
 	private static class ByteBufferHolder {
+		long offset;
 		int size;
 		volatile ByteBuffer buffer;
 		
-		public ByteBufferHolder(int size) {
+		public ByteBufferHolder(long offset, int size) {
+			this.offset = offset;
 			this.size = size;
 		}
 
-		public ByteBuffer duplicate(boolean direct) {
+		public ByteBuffer duplicate(BlockByteBufferData data) {
 			if (buffer == null) {
 				synchronized (this) {
 					if (buffer == null) {
-						this.buffer = allocate(size, direct);
+						if (data.channel != null) {
+							try {
+								this.buffer = data.channel.map(MapMode.READ_WRITE, offset, size);
+							} catch (IOException e) {
+								throw new TeiidRuntimeException(e);
+							}
+						} else {
+							this.buffer = allocate(size, data.direct);
+						}
+						data.allocated.addAndGet(size);
 					}
 				}
 			}
@@ -58,6 +80,10 @@ public class BlockByteBuffer {
 		int blockCount;
 		boolean direct;
 		ByteBufferHolder[] origBuffers;
+		AtomicLong allocated = new AtomicLong();
+		File file;
+		RandomAccessFile raf;
+		FileChannel channel;
 	}
 	
 	private BlockByteBufferData data;
@@ -72,6 +98,22 @@ public class BlockByteBuffer {
 	 * @param direct
 	 */
 	public BlockByteBuffer(int segmentAddressBits, int blockCount, int blockAddressBits, boolean direct) {
+		init(segmentAddressBits, blockCount, blockAddressBits, direct);
+	}
+	
+	/**
+	 * Creates a new {@link BlockByteBuffer} where the segments are mapped from the given file.
+	 * The file will be deleted by {@link #close()}.
+	 * @throws IOException 
+	 */
+	public BlockByteBuffer(int segmentAddressBits, int blockCount, int blockAddressBits, File file) throws IOException {
+		init(segmentAddressBits, blockCount, blockAddressBits, true);
+		this.data.file = file;
+		this.data.raf = new RandomAccessFile(file, "rw"); //$NON-NLS-1$
+		this.data.channel = this.data.raf.getChannel();
+	}
+	
+	private void init(int segmentAddressBits, int blockCount, int blockAddressBits, boolean direct) {
 		this.data = new BlockByteBufferData();
 		this.data.segmentAddressBits = segmentAddressBits;
 		this.data.blockAddressBits = blockAddressBits;
@@ -89,10 +131,45 @@ public class BlockByteBuffer {
 		this.data.direct = direct;
 		buffers = new ByteBuffer[segments];
 		for (int i = 0; i < fullSegments; i++) {
-			this.data.origBuffers[i] = new ByteBufferHolder(data.segmentSize);
+			this.data.origBuffers[i] = new ByteBufferHolder(((long)i)<<segmentAddressBits, data.segmentSize);
 		}
 		if (lastSegmentSize > 0) {
-			this.data.origBuffers[fullSegments] = new ByteBufferHolder(lastSegmentSize);
+			this.data.origBuffers[fullSegments] = new ByteBufferHolder(((long)fullSegments)<<segmentAddressBits, lastSegmentSize);
+		}
+	}
+	
+	/**
+	 * Allocate all of the segments rather than on first use
+	 */
+	public void preallocate() {
+		for (ByteBufferHolder holder : this.data.origBuffers) {
+			holder.duplicate(this.data);
+		}
+	}
+	
+	/**
+	 * Get the number of bytes actually allocated for the segments 
+	 */
+	public long getAllocatedBytes() {
+		return this.data.allocated.get();
+	}
+	
+	/**
+	 * Release the mapped file if one is used.  The buffers must not be used after this call.
+	 */
+	public void close() {
+		if (this.data.raf == null) {
+			return;
+		}
+		try {
+			this.data.raf.close();
+		} catch (IOException e) {
+			//ignore
+		}
+		this.data.raf = null;
+		this.data.channel = null;
+		if (!this.data.file.delete()) {
+			this.data.file.deleteOnExit();
 		}
 	}
 	
@@ -138,7 +215,7 @@ public class BlockByteBuffer {
 		int segment = block>>(data.segmentAddressBits-data.blockAddressBits);
 		ByteBuffer bb = buffers[segment];
 		if (bb == null) {
-			bb = buffers[segment] = data.origBuffers[segment].duplicate(data.direct);
+			bb = buffers[segment] = data.origBuffers[segment].duplicate(data);
 		} else {
 			bb.rewind();	
 		}
@@ -0,0 +1,127 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.common.buffer.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import org.teiid.core.TeiidException;
+import org.teiid.core.TeiidRuntimeException;
+import org.teiid.core.util.ReflectionHelper;
+
+/**
+ * A codec applied to the serialized form of cache entries held by the
+ * {@link BufferFrontedFileStoreCache}.
+ * <br>
+ * Implementations must be thread-safe and produce the same output for the same input.
+ */
+public abstract class BlockCodec {
+	
+	public static final String NONE = "none"; //$NON-NLS-1$
+	public static final String DEFLATE = "deflate"; //$NON-NLS-1$
+	
+	/**
+	 * Uses a raw deflate with the fastest compression level 
+	 */
+	static class DeflateCodec extends BlockCodec {
+		
+		@Override
+		public OutputStream compress(OutputStream out) {
+			final Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+			return new DeflaterOutputStream(out, deflater, 1 << 13) {
+				@Override
+				public void close() throws IOException {
+					try {
+						super.close();
+					} finally {
+						deflater.end();
+					}
+				}
+			};
+		}
+		
+		@Override
+		public InputStream decompress(InputStream in) {
+			final Inflater inflater = new Inflater(true);
+			return new InflaterInputStream(in, inflater, 1 << 13) {
+				@Override
+				protected void fill() throws IOException {
+					int n = in.read(buf, 0, buf.length);
+					if (n == -1) {
+						//a raw stream may require an extra byte to finish
+						buf[0] = 0;
+						n = 1;
+					}
+					len = n;
+					inf.setInput(buf, 0, len);
+				}
+				
+				@Override
+				public void close() throws IOException {
+					try {
+						super.close();
+					} finally {
+						inflater.end();
+					}
+				}
+			};
+		}
+		
+	}
+	
+	/**
+	 * Get the codec for the given name, which may be {@link #NONE}, {@link #DEFLATE}, 
+	 * or the name of a {@link BlockCodec} class.
+	 * @return the codec or null if no codec should be used
+	 */
+	public static BlockCodec getCodec(String name) {
+		if (name == null || NONE.equalsIgnoreCase(name)) {
+			return null;
+		}
+		if (DEFLATE.equalsIgnoreCase(name)) {
+			return new DeflateCodec();
+		}
+		try {
+			return (BlockCodec) ReflectionHelper.create(name, null, BlockCodec.class.getClassLoader());
+		} catch (TeiidException e) {
+			throw new TeiidRuntimeException(e);
+		}
+	}
+	
+	/**
+	 * Wrap the stream so that the written bytes are compressed.  Closing the returned 
+	 * stream must close the underlying stream. 
+	 */
+	public abstract OutputStream compress(OutputStream out) throws IOException;
+	
+	/**
+	 * Wrap the stream so that the read bytes are decompressed.
+	 */
+	public abstract InputStream decompress(InputStream in) throws IOException;
+
+}
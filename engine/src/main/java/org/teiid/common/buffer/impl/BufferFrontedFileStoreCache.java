@@ -22,6 +22,8 @@
 
 package org.teiid.common.buffer.impl;
 
+import java.io.File;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInput;
@@ -34,7 +36,6 @@ import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -120,6 +121,9 @@ public class BufferFrontedFileStoreCache implements Cache<PhysicalInfo> {
 	static final int DIRECT_POINTERS = 14;
 	static final int EMPTY_ADDRESS = -1;
 	static final int FREED = -2;
+	//placeholder for a group member that has not yet been written
+	private static final PhysicalInfo RESERVED = new PhysicalInfo(-1l, -1l, EMPTY_ADDRESS, 0);
+	private static final int GROUP_CONCURRENCY_LEVEL = 4;
 	
 	//TODO allow the block size to be configurable. 8k is a reasonable default up to a gig, but we could be more efficient with larger blocks from there.
 	//the rationale for a smaller block size is to reduce internal fragmentation, which is critical when maintaining a relatively small buffer < 256MB
@@ -358,6 +362,11 @@ public class BufferFrontedFileStoreCache implements Cache<PhysicalInfo> {
 	private int maxStorageObjectSize = DEFAuLT_MAX_OBJECT_SIZE;
 	private long memoryBufferSpace = 1 << 26; //64MB
 	private boolean direct;
+	private String memoryMappedDirectory;
+	private boolean preallocate;
+	private BlockCodec codec;
+	private AtomicLong uncompressedBytes = new AtomicLong();
+	private AtomicLong compressedBytes = new AtomicLong();
 	
 	private int maxMemoryBlocks;
 	private AtomicLong readAttempts = new AtomicLong();
@@ -375,7 +384,8 @@ public class BufferFrontedFileStoreCache implements Cache<PhysicalInfo> {
 	private BlockByteBuffer inodeByteBuffer;
 	
 	//root directory
-	private ConcurrentHashMap<Long, Map<Long, PhysicalInfo>> physicalMapping = new ConcurrentHashMap<Long, Map<Long, PhysicalInfo>>(16, .75f, BufferManagerImpl.CONCURRENCY_LEVEL);
+	private ConcurrentHashMap<Long, ConcurrentHashMap<Long, PhysicalInfo>> physicalMapping = new ConcurrentHashMap<Long, ConcurrentHashMap<Long, PhysicalInfo>>(16, .75f, BufferManagerImpl.CONCURRENCY_LEVEL);
+	private AtomicLong contendedMappings = new AtomicLong();
 	private BlockStore[] sizeBasedStores;
 
 	private ExecutorService asynchPool = ExecutorUtils.newFixedThreadPool(2, "FileStore Worker"); //$NON-NLS-1$
@@ -455,7 +465,7 @@ public class BufferFrontedFileStoreCache implements Cache<PhysicalInfo> {
 								continue;
 							}
 							PhysicalInfo info = map.get(oid);
-							if (info == null) {
+							if (info == null || info == RESERVED) {
 								continue;
 							}
 							int bitIndex = relativeBlockToMove + (segment * blockStore.blocksInUse.getBitsPerSegment());
@@ -570,9 +580,24 @@ public class BufferFrontedFileStoreCache implements Cache<PhysicalInfo> {
 		blocks = (int) Math.min(Integer.MAX_VALUE, (memoryBufferSpace>>LOG_BLOCK_SIZE)*ADDRESSES_PER_BLOCK/(ADDRESSES_PER_BLOCK+1));
 		inodesInuse = new ConcurrentBitSet(blocks+1, BufferManagerImpl.CONCURRENCY_LEVEL);
 		blocksInuse = new ConcurrentBitSet(blocks, BufferManagerImpl.CONCURRENCY_LEVEL);
-		this.blockByteBuffer = new BlockByteBuffer(30, blocks, LOG_BLOCK_SIZE, direct);
-		//ensure that we'll run out of blocks first
-		this.inodeByteBuffer = new BlockByteBuffer(30, blocks+1, LOG_INODE_SIZE, direct);
+		if (memoryMappedDirectory != null) {
+			try {
+				File dir = new File(memoryMappedDirectory);
+				this.blockByteBuffer = new BlockByteBuffer(30, blocks, LOG_BLOCK_SIZE, File.createTempFile("memory_buffer_blocks", null, dir)); //$NON-NLS-1$
+				//ensure that we'll run out of blocks first
+				this.inodeByteBuffer = new BlockByteBuffer(30, blocks+1, LOG_INODE_SIZE, File.createTempFile("memory_buffer_inodes", null, dir)); //$NON-NLS-1$
+			} catch (IOException e) {
+				throw new TeiidComponentException(e);
+			}
+		} else {
+			this.blockByteBuffer = new BlockByteBuffer(30, blocks, LOG_BLOCK_SIZE, direct);
+			//ensure that we'll run out of blocks first
+			this.inodeByteBuffer = new BlockByteBuffer(30, blocks+1, LOG_INODE_SIZE, direct);
+		}
+		if (preallocate) {
+			this.blockByteBuffer.preallocate();
+			this.inodeByteBuffer.preallocate();
+		}
 		memoryWritePermits = new Semaphore(blocks);
 		maxMemoryBlocks = Math.min(MAX_DOUBLE_INDIRECT, blocks);
 		maxMemoryBlocks = Math.min(maxMemoryBlocks, (maxStorageObjectSize>>LOG_BLOCK_SIZE) + ((maxStorageObjectSize&BufferFrontedFileStoreCache.BLOCK_MASK)>0?1:0));
@@ -623,22 +648,26 @@ public class BufferFrontedFileStoreCache implements Cache<PhysicalInfo> {
 		boolean success = false;
 		int memoryBlocks = this.maxMemoryBlocks;
 		try {
-			Map<Long, PhysicalInfo> map = physicalMapping.get(s.getId());
+			ConcurrentHashMap<Long, PhysicalInfo> map = physicalMapping.get(s.getId());
 			if (map == null) {
 				return true; //already removed
 			}
 			info = map.get(entry.getId());
 			if (info == null) {
-				synchronized (map) {
+				return true; //already removed
+			}
+			if (info == RESERVED) {
+				PhysicalInfo newInfo = new PhysicalInfo(s.getId(), entry.getId(), EMPTY_ADDRESS, readAttempts.get());
+				newInfo.adding = true;
+				if (map.replace(entry.getId(), RESERVED, newInfo)) {
+					newEntry = true;
+					info = newInfo;
+				} else {
+					//lost the race to another add or a removal
+					contendedMappings.getAndIncrement();
 					info = map.get(entry.getId());
 					if (info == null) {
-						newEntry = true;
-						if (!map.containsKey(entry.getId())) {
-							return true; //already removed
-						}
-						info = new PhysicalInfo(s.getId(), entry.getId(), EMPTY_ADDRESS, readAttempts.get());
-						info.adding = true;
-						map.put(entry.getId(), info);
+						return true; //already removed
 					}
 				}
 			}
@@ -663,19 +692,39 @@ public class BufferFrontedFileStoreCache implements Cache<PhysicalInfo> {
 			BlockOutputStream bos = new BlockOutputStream(blockManager, memoryBlocks);
 			bos.writeLong(s.getId());
 			bos.writeLong(entry.getId());
-			ObjectOutput dos = new ObjectOutputStream(bos);
+			OutputStream os = bos;
+			final long[] uncompressed = new long[1];
+			if (codec != null) {
+				os = new FilterOutputStream(codec.compress(bos)) {
+					@Override
+					public void write(byte[] b, int off, int len) throws IOException {
+						out.write(b, off, len);
+						uncompressed[0] += len;
+					}
+					
+					@Override
+					public void write(int b) throws IOException {
+						out.write(b);
+						uncompressed[0]++;
+					}
+				};
+			}
+			ObjectOutput dos = new ObjectOutputStream(os);
 			dos.writeInt(entry.getSizeEstimate());
             s.serialize(entry.getObject(), dos);
             dos.close();
-        	//synchronized to ensure proper cleanup from a concurrent removal 
-            synchronized (map) {
-            	if (physicalMapping.containsKey(s.getId()) && map.containsKey(entry.getId())) {
-        			synchronized (info) {
-        				//set the size first, since it may raise an exceptional condition
-            			info.setSize(bos.getBytesWritten());
-            			info.inode = blockManager.getInode();
-        				memoryBufferEntries.add(info);
-					}
+            if (codec != null) {
+            	uncompressedBytes.addAndGet(uncompressed[0]);
+            	compressedBytes.addAndGet(bos.getBytesWritten() - HEADER_BYTES);
+            }
+        	//checked under the info lock to ensure proper cleanup from a concurrent removal
+            //a removal takes the entry out of the mapping before freeing it under the same lock
+            synchronized (info) {
+            	if (physicalMapping.get(s.getId()) == map && map.get(entry.getId()) == info) {
+    				//set the size first, since it may raise an exceptional condition
+        			info.setSize(bos.getBytesWritten());
+        			info.inode = blockManager.getInode();
+    				memoryBufferEntries.add(info);
             		success = true;
             	}
 			}
@@ -740,7 +789,7 @@ public class BufferFrontedFileStoreCache implements Cache<PhysicalInfo> {
 			return null;
 		}
 		PhysicalInfo info = map.get(oid);
-		if (info == null) {
+		if (info == null || info == RESERVED) {
 			return null;
 		}
 		info.lockForLoad();
@@ -807,9 +856,13 @@ public class BufferFrontedFileStoreCache implements Cache<PhysicalInfo> {
 			for (int i = 0; i < HEADER_BYTES; i++) {
 				is.read();
 			}
+			if (codec != null) {
+				is = codec.decompress(is);
+			}
 			ObjectInput dis = new ObjectInputStream(is);
 			int sizeEstimate = dis.readInt();
 			CacheEntry ce = new CacheEntry(new CacheKey(oid, 1, 1), sizeEstimate, serializer.deserialize(dis), ref, true);
+			dis.close();
 			return ce;
         } catch(IOException e) {
         	 throw new TeiidComponentException(QueryPlugin.Event.TEIID30048, e, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID30048, info.gid, oid));
@@ -902,19 +955,55 @@ public class BufferFrontedFileStoreCache implements Cache<PhysicalInfo> {
 		this.direct = direct;
 	}
 	
+	/**
+	 * Set the directory that will hold files to memory map for the memory buffer.  
+	 * If set, the direct setting is ignored.
+	 */
+	public void setMemoryMappedDirectory(String memoryMappedDirectory) {
+		this.memoryMappedDirectory = memoryMappedDirectory;
+	}
+	
+	/**
+	 * Set the codec applied to the serialized entries, or null for none 
+	 */
+	public void setCodec(BlockCodec codec) {
+		this.codec = codec;
+	}
+	
+	/**
+	 * Get the serialized bytes of the entries that have been compressed
+	 */
+	public long getUncompressedBytes() {
+		return uncompressedBytes.get();
+	}
+	
+	/**
+	 * Get the compressed bytes of the entries
+	 */
+	public long getCompressedBytes() {
+		return compressedBytes.get();
+	}
+	
+	/**
+	 * Set to allocate the whole memory buffer on initialization rather than as it is first used
+	 */
+	public void setPreallocate(boolean preallocate) {
+		this.preallocate = preallocate;
+	}
+	
 	@Override
 	public boolean addToCacheGroup(Long gid, Long oid) {
 		Map<Long, PhysicalInfo> map = physicalMapping.get(gid);
 		if (map == null) {
 			return false;
 		}
-		map.put(oid, null);
+		map.put(oid, RESERVED);
 		return true;
 	}
 	
 	@Override
 	public void createCacheGroup(Long gid) {
-		physicalMapping.put(gid, Collections.synchronizedMap(new HashMap<Long, PhysicalInfo>()));
+		physicalMapping.put(gid, new ConcurrentHashMap<Long, PhysicalInfo>(16, .75f, GROUP_CONCURRENCY_LEVEL));
 	}
 	
 	@Override
@@ -923,15 +1012,14 @@ public class BufferFrontedFileStoreCache implements Cache<PhysicalInfo> {
 		if (map == null) {
 			return false;
 		}
-		PhysicalInfo info = null;
-		boolean result = false;
-		synchronized (map) {
-			int size = map.size();
-			info = map.remove(id);
-			result = size != map.size();
+		PhysicalInfo info = map.remove(id);
+		if (info == null) {
+			return false;
 		}
-		free(info, false, false);
-		return result;
+		if (info != RESERVED) {
+			free(info, false, false);
+		}
+		return true;
 	}
 
 	@Override
@@ -940,12 +1028,12 @@ public class BufferFrontedFileStoreCache implements Cache<PhysicalInfo> {
 		if (map == null) {
 			return Collections.emptySet();
 		}
-		synchronized (map) {
-			for (Map.Entry<Long, PhysicalInfo> entry : map.entrySet()) {
-				free(entry.getValue(), false, false);
+		for (PhysicalInfo info : map.values()) {
+			if (info != RESERVED) {
+				free(info, false, false);
 			}
-			return map.keySet();
 		}
+		return map.keySet();
 	}
 	
 	/**
@@ -1201,6 +1289,20 @@ public class BufferFrontedFileStoreCache implements Cache<PhysicalInfo> {
 		return storageWrites.get();
 	}
 	
+	/**
+	 * @return the number of times an add lost the race for a new mapping entry
+	 */
+	public long getContendedMappings() {
+		return contendedMappings.get();
+	}
+	
+	/**
+	 * @return the number of memory block and inode allocations that had to wait on a locked segment
+	 */
+	public long getContendedAllocations() {
+		return blocksInuse.getContendedAllocations() + inodesInuse.getContendedAllocations();
+	}
+	
 	public long getMemoryBufferSpace() {
 		return memoryBufferSpace;
 	}
@@ -1214,7 +1316,15 @@ public class BufferFrontedFileStoreCache implements Cache<PhysicalInfo> {
 	}
 	
 	public long getMemoryInUseBytes() {
-		return this.blocksInuse.getBitsSet() * BLOCK_SIZE + this.inodesInuse.getBitsSet() * (1 << LOG_INODE_SIZE);
+		return (long)this.blocksInuse.getBitsSet() * BLOCK_SIZE + (long)this.inodesInuse.getBitsSet() * (1 << LOG_INODE_SIZE);
+	}
+	
+	/**
+	 * Get the bytes allocated for the memory buffer, which will be less than the
+	 * memory buffer space until all of the blocks have been used.
+	 */
+	public long getMemoryAllocatedBytes() {
+		return this.blockByteBuffer.getAllocatedBytes() + this.inodeByteBuffer.getAllocatedBytes();
 	}
 	
 	public void setBufferManager(BufferManagerImpl bufferManager) {
@@ -1239,6 +1349,10 @@ public class BufferFrontedFileStoreCache implements Cache<PhysicalInfo> {
 	@Override
 	public void shutdown() {
 		this.asynchPool.shutdownNow();
+		if (this.blockByteBuffer != null) {
+			this.blockByteBuffer.close();
+			this.inodeByteBuffer.close();
+		}
 	}
 	
 	public void setCompactBufferFiles(boolean compactBufferFiles) {
@@ -37,6 +37,8 @@ import java.lang.ref.SoftReference;
 import java.lang.ref.WeakReference;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -56,6 +58,7 @@ import org.teiid.core.types.DataTypeManager;
 import org.teiid.core.types.DataTypeManager.WeakReferenceHashedValueCache;
 import org.teiid.core.types.Streamable;
 import org.teiid.core.util.Assertion;
+import org.teiid.core.util.ExecutorUtils;
 import org.teiid.dqp.internal.process.DQPConfiguration;
 import org.teiid.dqp.internal.process.RequestWorkItem;
 import org.teiid.logging.LogConstants;
@@ -156,6 +159,7 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 		private LobManager lobManager;
 		private long totalSize;
 		private long rowsSampled;
+		private volatile boolean removed;
 
 		private BatchManagerImpl(Long newID, Class<?>[] types) {
 			this.id = newID;
@@ -339,8 +343,72 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 			BufferManagerImpl.this.remove(id, batch, prefersMemory.get());
 		}
 
+		@Override
+		public void prefetch(final Long batch, int rowCount) {
+			final ExecutorService pool = prefetchPool;
+			int rowSize = getRowSizeEstimate();
+			if (pool == null || removed || rowSize == 0 || memoryEntries.containsKey(batch)) {
+				return;
+			}
+			//hold a reservation for the batch until it's loaded, if we can't get one there's no room to read ahead
+			int sizeEstimate = (int)Math.min(Integer.MAX_VALUE, (long)rowSize * rowCount);
+			final int reserved = reserveBuffers(sizeEstimate, BufferReserveMode.NO_WAIT);
+			if (reserved < sizeEstimate) {
+				releaseBuffers(reserved);
+				return;
+			}
+			final CommandContext context = CommandContext.getThreadLocalContext();
+			try {
+				pool.execute(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							prefetchBatch(batch);
+						} catch (Throwable e) {
+							LogManager.logDetail(LogConstants.CTX_BUFFER_MGR, e, "Could not prefetch batch", id, batch); //$NON-NLS-1$
+						} finally {
+							if (context != null) {
+								context.addAndGetReservedBuffers(-reserved);
+							}
+							releaseBuffers(reserved, false);
+						}
+					}
+				});
+			} catch (RejectedExecutionException e) {
+				releaseBuffers(reserved);
+			}
+		}
+		
+		/**
+		 * Load the batch into memory, if it's still needed
+		 */
+		void prefetchBatch(Long batch) throws TeiidComponentException {
+			if (removed || fastGet(batch, prefersMemory.get(), true) != null) {
+				return;
+			}
+			Object o = cache.lockForLoad(batch, this);
+			try {
+				if (removed || fastGet(batch, prefersMemory.get(), true) != null) {
+					return;
+				}
+				CacheEntry ce = cache.get(o, batch, this.ref);
+				if (ce == null) {
+					return; //already removed
+				}
+				prefetchCount.incrementAndGet();
+				addMemoryEntry(ce, false);
+			} finally {
+				cache.unlockForLoad(o);
+			}
+			if (removed) {
+				//the group was removed concurrently
+				fastGet(batch, prefersMemory.get(), false);
+			}
+		}
+
 		@Override
 		public void remove() {
+			removed = true;
 			if (cleanup != null) {
 				removeCacheGroup(id, prefersMemory.get());
 				AutoCleanupUtil.removeCleanupReference(cleanup);
@@ -395,6 +463,8 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
     private int maxActivePlans = DQPConfiguration.DEFAULT_MAX_ACTIVE_PLANS; //used as a hint to set the reserveBatchKB
     private boolean useWeakReferences = true;
     private boolean inlineLobs = true;
+    private int prefetchBatches;
+    private ExecutorService prefetchPool;
     private int targetBytesPerRow = TARGET_BYTES_PER_ROW;
     private int maxSoftReferences;
     private int nominalProcessingMemoryMax = maxProcessingBytes;
@@ -437,6 +507,7 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
     private AtomicLong readCount = new AtomicLong();
 	private AtomicLong writeCount = new AtomicLong();
 	private AtomicLong referenceHit = new AtomicLong();
+	private AtomicLong prefetchCount = new AtomicLong();
 	
 	//TODO: this does not scale well with multiple embedded instances
 	private static final Timer timer = new Timer("BufferManager Cleaner", true); //$NON-NLS-1$
@@ -522,6 +593,7 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
         	LogManager.logDetail(LogConstants.CTX_BUFFER_MGR, "Creating TupleBuffer:", newID, elements, Arrays.toString(types), "batch size", tupleBuffer.getBatchSize(), "of type", tupleSourceType); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
         }
     	tupleBuffer.setInlineLobs(inlineLobs);
+    	tupleBuffer.setPrefetch(prefetchBatches);
         return tupleBuffer;
     }
     
@@ -625,6 +697,9 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 		}
 		this.maxSoftReferences = 1 << Math.min(30, logSize);
 		this.nominalProcessingMemoryMax = (int)Math.max(Math.min(this.maxReserveBytes, 2*this.maxProcessingBytes), Math.min(Integer.MAX_VALUE, 2*this.maxReserveBytes/maxActivePlans));
+		if (this.prefetchBatches > 0 && this.prefetchPool == null) {
+			this.prefetchPool = ExecutorUtils.newFixedThreadPool(2, 64, "BufferManager Prefetch"); //$NON-NLS-1$
+		}
 	}
 	
 	void setNominalProcessingMemoryMax(int nominalProcessingMemoryMax) {
@@ -1125,6 +1200,10 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 	}
 
 	public void shutdown() {
+		if (this.prefetchPool != null) {
+			this.prefetchPool.shutdownNow();
+			this.prefetchPool = null;
+		}
 		this.cache.shutdown();
 		this.cache = null;
 		this.memoryEntries.clear();
@@ -1268,6 +1347,27 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 	public void setInlineLobs(boolean inlineLobs) {
 		this.inlineLobs = inlineLobs;
 	}
+	
+	/**
+	 * Set the number of batches to asynchronously read ahead of a sequential 
+	 * scan of a {@link TupleBuffer}.  A read ahead is only performed if the batch
+	 * size can be reserved.  0, the default, disables read ahead.
+	 * Should be set prior to {@link #initialize()}
+	 */
+	public void setPrefetchBatches(int prefetchBatches) {
+		this.prefetchBatches = prefetchBatches;
+	}
+	
+	public int getPrefetchBatches() {
+		return prefetchBatches;
+	}
+	
+	/**
+	 * Get the number of batches read from storage ahead of use
+	 */
+	public long getPrefetchCount() {
+		return prefetchCount.get();
+	}
 
 	public int getMaxReserveKB() {
 		return (int)(maxReserveBytes>>10);
@@ -24,6 +24,8 @@ package org.teiid.common.buffer.impl;
 
 import java.util.BitSet;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.teiid.core.util.Assertion;
 
@@ -37,7 +39,8 @@ public class ConcurrentBitSet {
 	private static final int ADDRESS_BITS_PER_TOP_VALUE = 18;
 	private static final int MAX_TOP_VALUE = 1 << ADDRESS_BITS_PER_TOP_VALUE;
 	
-	private static class Segment {
+	@SuppressWarnings("serial")
+	private static class Segment extends ReentrantLock {
 		int offset;
 		int maxBits;
 		int startSearch;
@@ -59,6 +62,7 @@ public class ConcurrentBitSet {
 	private AtomicInteger bitsSet = new AtomicInteger();
 	private Segment[] segments;
 	private boolean compact;
+	private AtomicLong contendedAllocations = new AtomicLong();
 	
 	/**
 	 * @param maxBits
@@ -88,7 +92,8 @@ public class ConcurrentBitSet {
 		checkIndex(bitIndex);
 		Segment s = segments[bitIndex/bitsPerSegment];
 		int segmentBitIndex = bitIndex%bitsPerSegment;
-		synchronized (s) {
+		s.lock();
+		try {
 			if (!s.bitSet.get(segmentBitIndex)) {
 				throw new AssertionError(bitIndex + " not set"); //$NON-NLS-1$
 			}
@@ -98,6 +103,8 @@ public class ConcurrentBitSet {
 			s.bitSet.clear(segmentBitIndex);
 			s.bitsSet--;
 			s.topVals[segmentBitIndex>>ADDRESS_BITS_PER_TOP_VALUE]--;
+		} finally {
+			s.unlock();
 		}
 		bitsSet.decrementAndGet();
 	}
@@ -135,55 +142,43 @@ public class ConcurrentBitSet {
 	}
 	
 	/**
+	 * Segments locked by other threads are initially skipped, and are only waited on
+	 * if no other segment has a clear bit.
 	 * @param segment
 	 * @return the next clear bit index as an absolute index - not relative to a segment
 	 */
 	public int getAndSetNextClearBit(int segment) {
 		int nextBit = -1;
+		boolean contended = false;
+		//first pass skips segments locked by other threads
 		for (int i = 0; i < segments.length; i++) {
 			Segment s = segments[(segment+i)&(segments.length-1)];
-			synchronized (s) {
-				if (s.bitsSet == s.maxBits) {
-					continue;
+			if (!s.tryLock()) {
+				contended = true;
+				continue;
+			}
+			try {
+				nextBit = setNextClearBit(s, segment);
+			} finally {
+				s.unlock();
+			}
+			if (nextBit != -1) {
+				break;
+			}
+		}
+		if (nextBit == -1 && contended) {
+			contendedAllocations.getAndIncrement();
+			for (int i = 0; i < segments.length; i++) {
+				Segment s = segments[(segment+i)&(segments.length-1)];
+				s.lock();
+				try {
+					nextBit = setNextClearBit(s, segment);
+				} finally {
+					s.unlock();
 				}
-				int indexSearchStart = s.startSearch >> ADDRESS_BITS_PER_TOP_VALUE;
-				for (int j = indexSearchStart; j < s.topVals.length; j++) {
-					if (s.topVals[j] == MAX_TOP_VALUE) {
-						continue;
-					}
-					if (s.topVals[j] == 0) {
-						if (j == segment) {
-							nextBit = s.startSearch;
-							break;
-						}
-						nextBit = j * MAX_TOP_VALUE;
-						break;
-					}
-					int index = j * MAX_TOP_VALUE;
-					if (j == indexSearchStart) {
-						index = s.startSearch;
-					}
-					nextBit = s.bitSet.nextClearBit(index);
-					if (s.startSearch > 0 && nextBit >= s.maxBits - 1) {
-						s.startSearch = 0;
-						//fallback full scan
-						nextBit = s.bitSet.nextClearBit(s.startSearch);
-					}
+				if (nextBit != -1) {
 					break;
 				}
-				if (nextBit >= s.maxBits) {
-					throw new AssertionError("could not find clear bit"); //$NON-NLS-1$
-				}
-				s.topVals[nextBit>>ADDRESS_BITS_PER_TOP_VALUE]++;
-				s.bitsSet++;
-				s.bitSet.set(nextBit);
-				s.startSearch = nextBit + 1;
-				s.highestBitSet = Math.max(s.highestBitSet, nextBit);
-				if (s.startSearch == s.maxBits) {
-					s.startSearch = 0;
-				}
-				nextBit += s.offset;
-				break;
 			}
 		}
 		if (nextBit != -1) {
@@ -192,6 +187,55 @@ public class ConcurrentBitSet {
 		return nextBit;
 	}
 	
+	/**
+	 * Must be called holding the segment lock
+	 * @return the absolute index of the set bit or -1 if the segment is full 
+	 */
+	private int setNextClearBit(Segment s, int segment) {
+		if (s.bitsSet == s.maxBits) {
+			return -1;
+		}
+		int nextBit = -1;
+		int indexSearchStart = s.startSearch >> ADDRESS_BITS_PER_TOP_VALUE;
+		for (int j = indexSearchStart; j < s.topVals.length; j++) {
+			if (s.topVals[j] == MAX_TOP_VALUE) {
+				continue;
+			}
+			if (s.topVals[j] == 0) {
+				if (j == segment) {
+					nextBit = s.startSearch;
+					break;
+				}
+				nextBit = j * MAX_TOP_VALUE;
+				break;
+			}
+			int index = j * MAX_TOP_VALUE;
+			if (j == indexSearchStart) {
+				index = s.startSearch;
+			}
+			nextBit = s.bitSet.nextClearBit(index);
+			if (s.startSearch > 0 && nextBit >= s.maxBits - 1) {
+				s.startSearch = 0;
+				//fallback full scan
+				nextBit = s.bitSet.nextClearBit(s.startSearch);
+			}
+			break;
+		}
+		if (nextBit >= s.maxBits) {
+			throw new AssertionError("could not find clear bit"); //$NON-NLS-1$
+		}
+		s.topVals[nextBit>>ADDRESS_BITS_PER_TOP_VALUE]++;
+		s.bitsSet++;
+		s.bitSet.set(nextBit);
+		s.startSearch = nextBit + 1;
+		s.highestBitSet = Math.max(s.highestBitSet, nextBit);
+		if (s.startSearch == s.maxBits) {
+			s.startSearch = 0;
+		}
+		nextBit += s.offset;
+		return nextBit;
+	}
+	
 	private void checkIndex(int bitIndex) {
 		if (bitIndex >= totalBits) {
 			throw new ArrayIndexOutOfBoundsException(bitIndex);
@@ -210,6 +254,13 @@ public class ConcurrentBitSet {
 		return bitsPerSegment;
 	}
 	
+	/**
+	 * @return the number of allocations that had to block on a segment held by another thread
+	 */
+	public long getContendedAllocations() {
+		return contendedAllocations.get();
+	}
+	
 	/**
 	 * Set to always allocate against the first available block in a segment.
 	 * @param compact
@@ -228,14 +279,18 @@ public class ConcurrentBitSet {
 				return result;
 			}
 		}
-		synchronized (s) {
+		s.lock();
+		try {
 			return tryCompactHighestBitSet(s);
+		} finally {
+			s.unlock();
 		}
 	}
 
 	private int tryCompactHighestBitSet(Segment s) {
 		int highestBitSet = 0;
-		synchronized (s) {
+		s.lock();
+		try {
 			highestBitSet = s.highestBitSet;
 			if (highestBitSet < 0) {
 				return -1;
@@ -243,26 +298,34 @@ public class ConcurrentBitSet {
 			if (s.bitSet.get(highestBitSet)) {
 				return highestBitSet;
 			}
+		} finally {
+			s.unlock();
 		}
 		int indexSearchStart = highestBitSet >> ADDRESS_BITS_PER_TOP_VALUE;
 		for (int j = indexSearchStart; j >= 0; j--) {
 			if (s.topVals[j] == 0) {
 				if (j==0) {
-					synchronized (s) {
+					s.lock();
+					try {
 						if (s.highestBitSet != highestBitSet) {
 							return CONCURRENT_MODIFICATION;
 						}
 						s.highestBitSet = -1;
+					} finally {
+						s.unlock();
 					}
 				}
 				continue;
 			}
 			if (s.topVals[j] == MAX_TOP_VALUE) {
-				synchronized (s) {
+				s.lock();
+				try {
 					if (s.highestBitSet != highestBitSet) {
 						return CONCURRENT_MODIFICATION;
 					}
 					s.highestBitSet = ((j + 1) * MAX_TOP_VALUE) -1;
+				} finally {
+					s.unlock();
 				}
 				break;
 			}
@@ -287,12 +350,15 @@ public class ConcurrentBitSet {
 				}
 				index = next + 1;
 			}
-			synchronized (s) {
+			s.lock();
+			try {
 				if (s.highestBitSet != highestBitSet) {
 					return CONCURRENT_MODIFICATION;
 				}
 				s.highestBitSet = index + offset;
 				return s.highestBitSet;
+			} finally {
+				s.unlock();
 			}
 		}			
 		return -1;
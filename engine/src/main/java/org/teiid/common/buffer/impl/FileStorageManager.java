@@ -26,11 +26,16 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.teiid.common.buffer.AutoCleanupUtil;
 import org.teiid.common.buffer.FileStore;
@@ -156,23 +161,11 @@ public class FileStorageManager implements StorageManager {
 				if (!truncate) {
 					return;
 				}
-			} else if (bytesUsed > MB) {
-				//this is a weak check, concurrent access may push us over the max.  we are just trying to prevent large overage allocations
-				long used = usedBufferSpace.get() + bytesUsed;
-				if (used > maxBufferSpace) {
-					System.gc(); //attempt a last ditch effort to cleanup
-					AutoCleanupUtil.doCleanup(false);
-					used = usedBufferSpace.get() + bytesUsed;
-					if (used > maxBufferSpace) {
-						throw new OutOfDiskException(QueryPlugin.Util.getString("FileStoreageManager.space_exhausted", bytesUsed, used, maxBufferSpace)); //$NON-NLS-1$
-					}
-				}
+			} else {
+				checkBufferSpace(bytesUsed);
 			}
 			fileAccess.setLength(newLength);
-			long used = usedBufferSpace.addAndGet(bytesUsed);
-			if (LogManager.isMessageToBeRecorded(org.teiid.logging.LogConstants.CTX_BUFFER_MGR, MessageLevel.DETAIL) && (sample.getAndIncrement() % 100) == 0) {
-				LogManager.logDetail(LogConstants.CTX_BUFFER_MGR, "sampling bytes used:", used); //$NON-NLS-1$
-			}
+			long used = addBufferSpace(bytesUsed);
 			if (bytesUsed > 0 && used > maxBufferSpace) {
 				System.gc(); //attempt a last ditch effort to cleanup
 				AutoCleanupUtil.doCleanup(false);
@@ -206,6 +199,226 @@ public class FileStorageManager implements StorageManager {
 		}
 	    
 	}
+	
+	/**
+	 * A {@link FileStore} using positional {@link FileChannel} reads and writes.
+	 * <br>
+	 * Reads and writes within the allocated length of the file do not hold the store monitor, 
+	 * so concurrent access to the same file is not serialized.  Only growth, truncation, and
+	 * removal are synchronized.  The file is grown in multiples of the extent size, if set.
+	 * <br>
+	 * Channels are closed in open order once the max open files is exceeded.  An access that sees a 
+	 * closed channel, either from that or from the interruption of another thread, will reopen it.
+	 * A removed store will not be reopened.
+	 * Callers are expected to not truncate concurrently with writes past the truncation point.
+	 */
+	public class ChannelDiskStore extends FileStore {
+		private String name;
+		private volatile File file;
+		private AtomicReference<FileChannel> channel = new AtomicReference<FileChannel>();
+		private AtomicLong length = new AtomicLong();
+		private volatile long allocated;
+		private boolean removed;
+		
+		public ChannelDiskStore(String name) {
+			this.name = name;
+		}
+		
+		@Override
+		public long getLength() {
+			return length.get();
+		}
+		
+		@Override
+		protected int readWrite(long fileOffset, byte[] b, int offSet,
+				int len, boolean write) throws IOException {
+			if (!write) {
+				long available = length.get() - fileOffset;
+				if (file == null || available <= 0) {
+					return -1;
+				}
+				if (available < len) {
+					len = (int)available;
+				}
+			} else {
+				long newLength = fileOffset + len;
+				if (newLength > allocated) {
+					allocate(newLength);
+				}
+			}
+			ByteBuffer bb = ByteBuffer.wrap(b, offSet, len);
+			while (true) {
+				FileChannel fc = getChannel();
+				try {
+					if (!write) {
+						bb.position(offSet);
+						return fc.read(bb, fileOffset);
+					}
+					//the file position is derived from the buffer so that a retry resumes after the bytes already written
+					while (bb.hasRemaining()) {
+						fc.write(bb, fileOffset + bb.position() - offSet);
+					}
+					break;
+				} catch (ClosedByInterruptException e) {
+					throw e;
+				} catch (ClosedChannelException e) {
+					//closed by another thread, reopen
+					channel.compareAndSet(fc, null);
+				}
+			}
+			long newLength = fileOffset + len;
+			long current = length.get();
+			while (newLength > current && !length.compareAndSet(current, newLength)) {
+				current = length.get();
+			}
+			return len;
+		}
+		
+		private FileChannel getChannel() throws IOException {
+			FileChannel fc = channel.get();
+			if (fc != null) {
+				return fc;
+			}
+			synchronized (this) {
+				fc = channel.get();
+				if (fc != null) {
+					return fc;
+				}
+				if (removed) {
+					throw new IOException("already removed"); //$NON-NLS-1$
+				}
+				if (file == null) {
+					file = createFile(name);
+				}
+				fc = new RandomAccessFile(file, "rw").getChannel(); //$NON-NLS-1$
+				channel.set(fc);
+				openChannels.put(this, this);
+			}
+			return fc;
+		}
+		
+		void closeChannel() {
+			FileChannel fc = channel.get();
+			if (fc != null && channel.compareAndSet(fc, null)) {
+				try {
+					fc.close();
+				} catch (IOException e) {
+				}
+			}
+		}
+		
+		/**
+		 * Grow the allocated length to at least the given length
+		 */
+		private synchronized void allocate(long newLength) throws IOException {
+			if (newLength <= allocated) {
+				return;
+			}
+			if (extentSize > 0) {
+				newLength = ((newLength + extentSize - 1)/extentSize)*extentSize;
+			}
+			resize(newLength);
+		}
+
+		private void resize(long newLength) throws IOException {
+			long bytesUsed = newLength - allocated;
+			if (bytesUsed == 0) {
+				return;
+			}
+			if (bytesUsed > 0) {
+				checkBufferSpace(bytesUsed);
+			}
+			long used = addBufferSpace(bytesUsed);
+			if (bytesUsed > 0 && used > maxBufferSpace) {
+				System.gc(); //attempt a last ditch effort to cleanup
+				AutoCleanupUtil.doCleanup(false);
+				used = usedBufferSpace.get();
+				if (used > maxBufferSpace) {
+					usedBufferSpace.addAndGet(-bytesUsed);
+					throw new OutOfDiskException(QueryPlugin.Util.getString("FileStoreageManager.space_exhausted", bytesUsed, used, maxBufferSpace)); //$NON-NLS-1$
+				}
+			}
+			try {
+				setFileLength(newLength);
+			} catch (IOException e) {
+				usedBufferSpace.addAndGet(-bytesUsed);
+				throw e;
+			}
+			allocated = newLength;
+		}
+		
+		private void setFileLength(long newLength) throws IOException {
+			while (true) {
+				FileChannel fc = getChannel();
+				try {
+					if (newLength < fc.size()) {
+						fc.truncate(newLength);
+					} else if (newLength > 0) {
+						//extend the file by writing the last byte
+						fc.write(ByteBuffer.wrap(new byte[1]), newLength - 1);
+					}
+					return;
+				} catch (ClosedByInterruptException e) {
+					throw e;
+				} catch (ClosedChannelException e) {
+					channel.compareAndSet(fc, null);
+				}
+			}
+		}
+		
+		@Override
+		public synchronized void setLength(long newLength) throws IOException {
+			if (newLength < length.get()) {
+				length.set(newLength);
+			}
+			resize(newLength);
+			length.set(newLength);
+		}
+		
+		@Override
+		protected void removeDirect() {
+			synchronized (this) {
+				removed = true;
+				usedBufferSpace.addAndGet(-allocated);
+				allocated = 0;
+				length.set(0);
+				closeChannel();
+				openChannels.remove(this);
+				if (file != null) {
+					file.delete();
+					file = null;
+				}
+			}
+		}
+		
+	}
+	
+	/**
+	 * This is a weak check, concurrent access may push us over the max.  
+	 * We are just trying to prevent large overage allocations.
+	 */
+	private void checkBufferSpace(long bytesUsed) throws OutOfDiskException {
+		if (bytesUsed <= MB) {
+			return;
+		}
+		long used = usedBufferSpace.get() + bytesUsed;
+		if (used > maxBufferSpace) {
+			System.gc(); //attempt a last ditch effort to cleanup
+			AutoCleanupUtil.doCleanup(false);
+			used = usedBufferSpace.get() + bytesUsed;
+			if (used > maxBufferSpace) {
+				throw new OutOfDiskException(QueryPlugin.Util.getString("FileStoreageManager.space_exhausted", bytesUsed, used, maxBufferSpace)); //$NON-NLS-1$
+			}
+		}
+	}
+	
+	private long addBufferSpace(long bytesUsed) {
+		long used = usedBufferSpace.addAndGet(bytesUsed);
+		if (LogManager.isMessageToBeRecorded(org.teiid.logging.LogConstants.CTX_BUFFER_MGR, MessageLevel.DETAIL) && (sample.getAndIncrement() % 100) == 0) {
+			LogManager.logDetail(LogConstants.CTX_BUFFER_MGR, "sampling bytes used:", used); //$NON-NLS-1$
+		}
+		return used;
+	}
 
     // Initialization
     private int maxOpenFiles = DEFAULT_MAX_OPEN_FILES;
@@ -214,6 +427,8 @@ public class FileStorageManager implements StorageManager {
     //use subdirectories to hold the files since we may create a relatively unbounded amount of lob files and 
     //fs performance will typically degrade if a single directory is too large
     private File[] subDirectories = new File[256];
+    private boolean positionalIO;
+    private long extentSize;
 
     // State
     private Map<File, RandomAccessFile> fileCache = Collections.synchronizedMap(new LinkedHashMap<File, RandomAccessFile>() {
@@ -231,6 +446,18 @@ public class FileStorageManager implements StorageManager {
     	}
     });
     
+    private Map<ChannelDiskStore, ChannelDiskStore> openChannels = Collections.synchronizedMap(new LinkedHashMap<ChannelDiskStore, ChannelDiskStore>() {
+    	@Override
+    	protected boolean removeEldestEntry(
+    			java.util.Map.Entry<ChannelDiskStore, ChannelDiskStore> eldest) {
+    		if (this.size() > maxOpenFiles) {
+    			eldest.getKey().closeChannel();
+    			return true;
+    		}
+    		return false;
+    	}
+    });
+    
     /**
      * Initialize
      */
@@ -275,9 +502,32 @@ public class FileStorageManager implements StorageManager {
     }
     
     public FileStore createFileStore(String name) {
+    	if (positionalIO) {
+    		return new ChannelDiskStore(name);
+    	}
     	return new DiskStore(name);
     }
     
+    /**
+     * Set to use {@link FileChannel} positional reads and writes that allow for
+     * concurrent access to the same file.
+     */
+    public void setPositionalIO(boolean positionalIO) {
+		this.positionalIO = positionalIO;
+	}
+    
+    public boolean isPositionalIO() {
+		return positionalIO;
+	}
+    
+    /**
+     * Set the size in bytes of the extents by which positional IO files are grown.
+     * 0 or less indicates that files should be grown only as needed.
+     */
+    public void setExtentSize(long extentSize) {
+		this.extentSize = extentSize;
+	}
+    
     public String getDirectory() {
 		return directory;
 	}
@@ -287,7 +537,7 @@ public class FileStorageManager implements StorageManager {
 	}
     
     public int getOpenFiles() {
-    	return this.fileCache.size();
+    	return this.fileCache.size() + this.openChannels.size();
     }
     
     /**
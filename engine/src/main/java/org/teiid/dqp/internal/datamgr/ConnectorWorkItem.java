@@ -104,6 +104,7 @@ public class ConnectorWorkItem implements ConnectorWork {
     private Object connectionFactory;
     private ExecutionContextImpl securityContext;
     private volatile ResultSetExecution execution;
+    private BatchResultSetExecution batchExecution;
     private ProcedureBatchHandler procedureBatchHandler;
     private int expectedColumns;
         
@@ -381,6 +382,9 @@ public class ConnectorWorkItem implements ConnectorWork {
 			}
 		} else if (command instanceof QueryCommand){
 			this.execution = Assertion.isInstanceOf(exec, ResultSetExecution.class, "QueryExpression Executions are expected to be ResultSetExecutions"); //$NON-NLS-1$
+			if (exec instanceof BatchResultSetExecution) {
+				this.batchExecution = (BatchResultSetExecution)exec;
+			}
 		} else {
 			final boolean singleUpdateCount = connector.returnsSingleUpdateCount() 
 					&& (translatedCommand instanceof BatchedUpdates || (translatedCommand instanceof BatchedCommand && ((BatchedCommand)translatedCommand).getParameterValues() != null));
@@ -431,6 +435,17 @@ public class ConnectorWorkItem implements ConnectorWork {
         
         try {
 	        while (batchSize < this.requestMsg.getFetchSize()) {
+	        	if (this.batchExecution != null) {
+	        		int count = readBlock(rows, this.requestMsg.getFetchSize() - batchSize);
+	        		if (count < 0) {
+	        			break;
+	        		}
+	        		batchSize += count;
+	        		if (isMaxRowsReached()) {
+	        			break;
+	        		}
+	        		continue;
+	        	}
 	        	
         		List<?> row = this.execution.next();
             	if (row == null) {
@@ -441,21 +456,10 @@ public class ConnectorWorkItem implements ConnectorWork {
             		throw new AssertionError("Inproper results returned.  Expected " + this.expectedColumns + " columns, but was " + row.size()); //$NON-NLS-1$ //$NON-NLS-2$
         		}
             	try {
-	            	try {
-	            		if (unmodifiableList) {
-	                		row = new ArrayList<Object>(row);
-	            		}
-						row = correctTypes(row);
-	            	} catch (UnsupportedOperationException | ArrayStoreException e) {
-	            		//it's generally expected that the returned list from 
-	            		//the translator should be modifiable, but we should be lax
-	            		if (unmodifiableList) {
-	            			throw e;
-	            		}
-	            		unmodifiableList = true;
-	            		row = new ArrayList<Object>(row);
-	            		row = correctTypes(row);
-	            	}
+            		if (unmodifiableList) {
+                		row = new ArrayList<Object>(row);
+            		}
+					row = correctTypes(row);
 				} catch (TeiidException e) {
 					conversionError = e;
 					break;
@@ -466,18 +470,9 @@ public class ConnectorWorkItem implements ConnectorWork {
             	this.rowCount += 1;
             	batchSize++;
             	rows.add(row);
-	            // Check for max result rows exceeded
-	            if(this.requestMsg.getMaxResultRows() > -1 && this.rowCount >= this.requestMsg.getMaxResultRows()){
-	                if (this.rowCount == this.requestMsg.getMaxResultRows() && !this.requestMsg.isExceptionOnMaxRows()) {
-		                LogManager.logDetail(LogConstants.CTX_CONNECTOR, new Object[] {this.id, "Exceeded max, returning", this.requestMsg.getMaxResultRows()}); //$NON-NLS-1$
-		        		this.lastBatch = true;
-		        		break;
-	            	} else if (this.rowCount > this.requestMsg.getMaxResultRows() && this.requestMsg.isExceptionOnMaxRows()) {
-	                    String msg = QueryPlugin.Util.getString("ConnectorWorker.MaxResultRowsExceed", this.requestMsg.getMaxResultRows()); //$NON-NLS-1$
-	                     throw new TranslatorException(QueryPlugin.Event.TEIID30478, msg);
-	                }
+	            if (isMaxRowsReached()) {
+	            	break;
 	            }
-	            
 	        }
     	} catch (DataNotAvailableException e) {
     		if (rows.size() == 0) {
@@ -535,6 +530,70 @@ public class ConnectorWorkItem implements ConnectorWork {
 		return response;
 	}
     
+    /**
+     * Check for max result rows exceeded
+     * @return true if the last batch has been reached
+     */
+	private boolean isMaxRowsReached() throws TranslatorException {
+		if(this.requestMsg.getMaxResultRows() > -1 && this.rowCount >= this.requestMsg.getMaxResultRows()){
+		    if (this.rowCount == this.requestMsg.getMaxResultRows() && !this.requestMsg.isExceptionOnMaxRows()) {
+		        LogManager.logDetail(LogConstants.CTX_CONNECTOR, new Object[] {this.id, "Exceeded max, returning", this.requestMsg.getMaxResultRows()}); //$NON-NLS-1$
+				this.lastBatch = true;
+				return true;
+			} else if (this.rowCount > this.requestMsg.getMaxResultRows() && this.requestMsg.isExceptionOnMaxRows()) {
+		        String msg = QueryPlugin.Util.getString("ConnectorWorker.MaxResultRowsExceed", this.requestMsg.getMaxResultRows()); //$NON-NLS-1$
+		         throw new TranslatorException(QueryPlugin.Event.TEIID30478, msg);
+		    }
+		}
+		return false;
+	}
+	
+	/**
+	 * Read a block of rows from the {@link BatchResultSetExecution}, correcting the types
+	 * a column at a time.
+	 * @return the number of rows read or -1 if no more rows should be read for this batch
+	 */
+	private int readBlock(List<List<?>> rows, int maxRows) throws TranslatorException {
+		if (this.requestMsg.getMaxResultRows() > -1) {
+			//don't read past the point where the max rows handling will take effect
+			long remaining = this.requestMsg.getMaxResultRows() - this.rowCount + (this.requestMsg.isExceptionOnMaxRows()?1:0);
+			maxRows = (int)Math.max(1, Math.min(maxRows, remaining));
+		}
+		List<? extends List<?>> block = this.batchExecution.nextBatch(maxRows);
+		if (block == null) {
+			this.lastBatch = true;
+			return -1;
+		}
+		if (block.isEmpty()) {
+			return -1;
+		}
+		if (block.size() > maxRows) {
+			throw new AssertionError("Inproper results returned.  Expected at most " + maxRows + " rows, but was " + block.size()); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		//the block itself may be reused by the translator
+		List<List<?>> result = new ArrayList<List<?>>(block.size());
+		for (List<?> row : block) {
+			if (row.size() != this.expectedColumns) {
+        		throw new AssertionError("Inproper results returned.  Expected " + this.expectedColumns + " columns, but was " + row.size()); //$NON-NLS-1$ //$NON-NLS-2$
+    		}
+			if (unmodifiableList) {
+				row = new ArrayList<Object>(row);
+			}
+			result.add(row);
+		}
+		int corrected = correctColumnTypes(result);
+		if (corrected < result.size()) {
+			//as with row based results keep the rows prior to the conversion error
+			result = result.subList(0, corrected);
+		}
+		this.rowCount += corrected;
+		rows.addAll(result);
+		if (conversionError != null) {
+			return -1;
+		}
+		return corrected;
+	}
+    
     public static AtomicResultsMessage createResultsMessage(List<?>[] batch) {
         return new AtomicResultsMessage(batch);
     }    
@@ -571,52 +630,118 @@ public class ConnectorWorkItem implements ConnectorWork {
 		return this.connector.isThreadBound();
 	}
 	
-	private List<?> correctTypes(List row) throws TeiidException {
-		//TODO: add a proper intermediate schema
+	private List<?> correctTypes(List<?> row) throws TeiidException {
 		for (int i = 0; i < row.size(); i++) {
-			try {
-				Object value = row.get(i);
-				if (value == null) {
-					continue;
+			row = correctType(row, i);
+		}
+		return row;
+	}
+	
+	/**
+	 * Correct the types of a block of rows by column, which allows
+	 * for columns that need no correction to be skipped entirely.
+	 * <br>
+	 * A conversion error sets the conversionError and stops the correction of the 
+	 * failed row and the rows after it.  The rows prior are still corrected for all columns. 
+	 * @return the number of leading rows that were fully corrected
+	 */
+	private int correctColumnTypes(List<List<?>> block) {
+		boolean canonicalize = DataTypeManager.isValueCacheEnabled();
+		int corrected = block.size();
+		for (int i = 0; i < this.schema.length; i++) {
+			for (int j = 0; j < corrected; j++) {
+				if (!convertToRuntimeType[i] && !convertToDesiredRuntimeType[i] && !canonicalize) {
+					break;
 				}
-				if (convertToRuntimeType[i]) {
-					Object result = convertToRuntimeType(requestMsg.getBufferManager(), value, this.schema[i], this.requestMsg.getCommandContext());
-					if (value == result && !DataTypeManager.DefaultDataClasses.OBJECT.equals(this.schema[i])) {
-						convertToRuntimeType[i] = false;
-					} else {
-						if (!explicitClose && isLob[i] && !copyLobs && !areLobsUsableAfterClose && DataTypeManager.isLOB(result.getClass()) 
-								&& DataTypeManager.isLOB(DataTypeManager.convertToRuntimeType(value, false).getClass())) {
-							explicitClose = true;
-						}				
-						row.set(i, result);
-						value = result;
+				List<?> row = block.get(j);
+				try {
+					List<?> result = correctType(row, i);
+					if (result != row) {
+						//the translator rows are unmodifiable, so copy the rest of the block
+						for (int k = 0; k < block.size(); k++) {
+							block.set(k, k == j ? result : new ArrayList<Object>(block.get(k)));
+						}
 					}
+				} catch (TeiidException e) {
+					//any later failure will be for an earlier row
+					conversionError = e;
+					corrected = j;
 				}
-				if (convertToDesiredRuntimeType[i]) {
-					if (value != null) {
-						Object result = DataTypeManager.transformValue(value, value.getClass(), this.schema[i]);
-						if (isLob[i] && copyLobs) {
-							if (lobStore == null) {
-								lobStore = requestMsg.getBufferManager().createFileStore("lobs"); //$NON-NLS-1$
-								lobBuffer = new byte[1 << 14];
-							}
-							requestMsg.getBufferManager().persistLob((Streamable<?>) result, lobStore, lobBuffer);
-						} else if (value == result) {
-							convertToDesiredRuntimeType[i] = false;
-							continue;
+			}
+		}
+		return corrected;
+	}
+	
+	/**
+	 * Correct the type of the value at the given column
+	 * @return the row, which will be a modifiable copy if the row could not be modified
+	 */
+	private List<?> correctType(List<?> row, int i) throws TeiidException {
+		//TODO: add a proper intermediate schema
+		try {
+			Object value = row.get(i);
+			if (value == null) {
+				return row;
+			}
+			if (convertToRuntimeType[i]) {
+				Object result = convertToRuntimeType(requestMsg.getBufferManager(), value, this.schema[i], this.requestMsg.getCommandContext());
+				if (value == result && !DataTypeManager.DefaultDataClasses.OBJECT.equals(this.schema[i])) {
+					convertToRuntimeType[i] = false;
+				} else {
+					if (!explicitClose && isLob[i] && !copyLobs && !areLobsUsableAfterClose && DataTypeManager.isLOB(result.getClass()) 
+							&& DataTypeManager.isLOB(DataTypeManager.convertToRuntimeType(value, false).getClass())) {
+						explicitClose = true;
+					}				
+					row = setValue(row, i, result);
+					value = result;
+				}
+			}
+			if (convertToDesiredRuntimeType[i]) {
+				if (value != null) {
+					Object result = DataTypeManager.transformValue(value, value.getClass(), this.schema[i]);
+					if (isLob[i] && copyLobs) {
+						if (lobStore == null) {
+							lobStore = requestMsg.getBufferManager().createFileStore("lobs"); //$NON-NLS-1$
+							lobBuffer = new byte[1 << 14];
 						}
-						row.set(i, result);
+						requestMsg.getBufferManager().persistLob((Streamable<?>) result, lobStore, lobBuffer);
+					} else if (value == result) {
+						convertToDesiredRuntimeType[i] = false;
+						return row;
 					}
-				} else if (DataTypeManager.isValueCacheEnabled()) {
-					row.set(i, DataTypeManager.getCanonicalValue(value));
+					row = setValue(row, i, result);
 				}
-			} catch (TeiidComponentException e) {
-				throw new TeiidComponentException(QueryPlugin.Event.TEIID31176, e, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID31176, this.requestMsg.getCommand().getProjectedSymbols().get(i), DataTypeManager.getDataTypeName(this.schema[i])));
-			} catch (TransformationException e) {
-				throw new TeiidException(QueryPlugin.Event.TEIID31176, e, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID31176, this.requestMsg.getCommand().getProjectedSymbols().get(i), DataTypeManager.getDataTypeName(this.schema[i])));
+			} else if (DataTypeManager.isValueCacheEnabled()) {
+				row = setValue(row, i, DataTypeManager.getCanonicalValue(value));
 			}
+			return row;
+		} catch (TeiidComponentException e) {
+			throw new TeiidComponentException(QueryPlugin.Event.TEIID31176, e, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID31176, this.requestMsg.getCommand().getProjectedSymbols().get(i), DataTypeManager.getDataTypeName(this.schema[i])));
+		} catch (TransformationException e) {
+			throw new TeiidException(QueryPlugin.Event.TEIID31176, e, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID31176, this.requestMsg.getCommand().getProjectedSymbols().get(i), DataTypeManager.getDataTypeName(this.schema[i])));
+		}
+	}
+	
+	/**
+	 * Set the corrected value, copying the row if it can't be modified so that the 
+	 * value is not corrected again.
+	 */
+	@SuppressWarnings("unchecked")
+	private List<?> setValue(List<?> row, int i, Object value) {
+		try {
+			((List<Object>)row).set(i, value);
+			return row;
+		} catch (UnsupportedOperationException | ArrayStoreException e) {
+			//it's generally expected that the returned list from 
+			//the translator should be modifiable, but we should be lax
+			if (unmodifiableList) {
+				throw e;
+			}
+			unmodifiableList = true;
+			List<Object> copy = new ArrayList<Object>(row);
+			copy.set(i, value);
+			return copy;
 		}
-		return row;
 	}
 	
 	static Object convertToRuntimeType(BufferManager bm, Object value, Class<?> desiredType, CommandContext context) throws TransformationException {
@@ -25,6 +25,9 @@ import java.util.Properties;
 
 import org.teiid.PreParser;
 import org.teiid.client.RequestMessage;
+import org.teiid.logging.LogConstants;
+import org.teiid.logging.LogManager;
+import org.teiid.query.QueryPlugin;
 import org.teiid.query.util.Options;
 
 
@@ -36,11 +39,13 @@ public class DQPConfiguration{
     static final int DEFAULT_MAX_RESULTSET_CACHE_ENTRIES = 1024;
     static final int DEFAULT_QUERY_THRESHOLD = 600000;
     static final String PROCESS_PLAN_QUEUE_NAME = "QueryProcessorQueue"; //$NON-NLS-1$
+    static final String SOURCE_QUEUE_NAME = "SourceQueue"; //$NON-NLS-1$
     public static final int DEFAULT_MAX_PROCESS_WORKERS = 64;
 	public static final int DEFAULT_MAX_SOURCE_ROWS = -1;
 	public static final int DEFAULT_MAX_ACTIVE_PLANS = 20;
 	public static final int DEFAULT_USER_REQUEST_SOURCE_CONCURRENCY = 0;
 	public static final int DEFAULT_MAX_STALENESS_SECONDS = 0;
+	public static final int DEFAULT_MAX_PARALLELISM = 1;
 
     
 	private int maxThreads = DEFAULT_MAX_PROCESS_WORKERS;
@@ -53,8 +58,14 @@ public class DQPConfiguration{
 	private int maxActivePlans = DEFAULT_MAX_ACTIVE_PLANS;
 	
     private int userRequestSourceConcurrency = DEFAULT_USER_REQUEST_SOURCE_CONCURRENCY;
+    private int maxParallelism = DEFAULT_MAX_PARALLELISM;
     private boolean detectingChangeEvents = true;
     private long queryTimeout;
+    private boolean memoryAdmissionControl;
+    private int userMemoryBudgetKB = -1;
+    private boolean semanticResultSetCache;
+    private boolean shareSourceQueries;
+    private boolean useVirtualSourceThreads;
     
     private transient AuthorizationValidator authorizationValidator;
     private transient PreParser preParser;
@@ -77,6 +88,86 @@ public class DQPConfiguration{
 		this.userRequestSourceConcurrency = userRequestSourceConcurrency;
 	}
 	
+	/**
+	 * The max number of threads that may process a single user request plan.  
+	 * 1, the default, will process each plan with a single thread.
+	 * May be overriden by the vdb property max-parallelism.
+	 * @return
+	 */
+	public int getMaxParallelism() {
+		return maxParallelism;
+	}
+	
+	public void setMaxParallelism(int maxParallelism) {
+		this.maxParallelism = maxParallelism;
+	}
+	
+	/**
+	 * If true user plans are held after planning until the estimated memory needed for
+	 * their sorts, groupings, and joins is available.
+	 * @return
+	 */
+	public boolean isMemoryAdmissionControl() {
+		return memoryAdmissionControl;
+	}
+	
+	public void setMemoryAdmissionControl(boolean memoryAdmissionControl) {
+		this.memoryAdmissionControl = memoryAdmissionControl;
+	}
+	
+	/**
+	 * The max estimated memory in KB that may be held by the admitted plans of a single user.
+	 * -1, the default, indicates no per user limit.
+	 * A vdb may set a limit for all of its plans with the vdb property memory-budget-kb.
+	 * @return
+	 */
+	public int getUserMemoryBudgetKB() {
+		return userMemoryBudgetKB;
+	}
+	
+	public void setUserMemoryBudgetKB(int userMemoryBudgetKB) {
+		this.userMemoryBudgetKB = userMemoryBudgetKB;
+	}
+	
+	/**
+	 * If true, result set cache entries may be used to answer queries whose results are a subset of the 
+	 * cached results, rather than only exact matches of the query string.
+	 * @return
+	 */
+	public boolean isSemanticResultSetCache() {
+		return semanticResultSetCache;
+	}
+	
+	public void setSemanticResultSetCache(boolean semanticResultSetCache) {
+		this.semanticResultSetCache = semanticResultSetCache;
+	}
+	
+	/**
+	 * If true, identical deterministic source queries issued concurrently by the same user
+	 * will be executed once and the results shared between the requests.
+	 * @return
+	 */
+	public boolean isShareSourceQueries() {
+		return shareSourceQueries;
+	}
+	
+	public void setShareSourceQueries(boolean shareSourceQueries) {
+		this.shareSourceQueries = shareSourceQueries;
+	}
+	
+	/**
+	 * If true and the vm supports virtual threads, source work will be executed on virtual threads 
+	 * rather than on the bounded processing pool, which is then only used for engine processing.
+	 * @return
+	 */
+	public boolean isUseVirtualSourceThreads() {
+		return useVirtualSourceThreads;
+	}
+	
+	public void setUseVirtualSourceThreads(boolean useVirtualSourceThreads) {
+		this.useVirtualSourceThreads = useVirtualSourceThreads;
+	}
+	
 	public int getMaxThreads() {
 		return maxThreads;
 	}
@@ -178,6 +269,20 @@ public class DQPConfiguration{
 		return new ThreadReuseExecutor(DQPConfiguration.PROCESS_PLAN_QUEUE_NAME, getMaxThreads());
 	}
 	
+	/**
+	 * @return the executor for source work or null if source work should use the {@link #getTeiidExecutor()}
+	 */
+	public TeiidExecutor getSourceTeiidExecutor() {
+		if (!useVirtualSourceThreads) {
+			return null;
+		}
+		if (!VirtualThreadExecutor.isSupported()) {
+			LogManager.logWarning(LogConstants.CTX_DQP, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID31264));
+			return null;
+		}
+		return new VirtualThreadExecutor(DQPConfiguration.SOURCE_QUEUE_NAME);
+	}
+	
 	public void setPreParser(PreParser preParser) {
 		this.preParser = preParser;
 	}
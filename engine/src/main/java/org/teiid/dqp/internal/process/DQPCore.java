@@ -94,11 +94,15 @@ import org.teiid.query.util.Options;
  */
 public class DQPCore implements DQP {
 	
+	public static final String MAX_PARALLELISM = "max-parallelism"; //$NON-NLS-1$
+	public static final String MEMORY_BUDGET_KB = "memory-budget-kb"; //$NON-NLS-1$
+	
 	public interface CompletionListener<T> {
 		void onCompletion(FutureWork<T> future);
 	}
 	
 	private TeiidExecutor processWorkerPool;
+	private TeiidExecutor sourceWorkerPool;
     
     // Resources
     private BufferManager bufferManager;
@@ -119,7 +123,11 @@ public class DQPCore implements DQP {
     private int currentlyActivePlans;
     private int userRequestSourceConcurrency;
     private LinkedList<RequestWorkItem> waitingPlans = new LinkedList<RequestWorkItem>();
+    //plans admitted by memory that are waiting on an active plan slot
+    private LinkedList<RequestWorkItem> admittedPlans = new LinkedList<RequestWorkItem>();
     private int maxWaitingPlans = 0;
+    private MemoryAdmissionController admissionController;
+    private SemanticResultsCache semanticCache;
 	private AuthorizationValidator authorizationValidator;
 	
 	private EnhancedTimer cancellationTimer;
@@ -143,8 +151,14 @@ public class DQPCore implements DQP {
             }
         }
     	processWorkerPool.shutdownNow();
+    	if (sourceWorkerPool != null) {
+    		sourceWorkerPool.shutdownNow();
+    	}
     	try {
 			processWorkerPool.awaitTermination(10, TimeUnit.SECONDS);
+			if (sourceWorkerPool != null) {
+				sourceWorkerPool.awaitTermination(10, TimeUnit.SECONDS);
+			}
 		} catch (InterruptedException e) {
 		}
     	this.timeoutExecutor.shutdownNow();
@@ -279,9 +293,13 @@ public class DQPCore implements DQP {
 	    request.setOptions(options);
 	    request.setExecutor(this.processWorkerPool);
 		request.setResultSetCacheEnabled(this.rsCache != null);
+		if (!(request instanceof PreparedStatementRequest)) {
+			request.setSemanticCache(this.semanticCache);
+		}
 		request.setAuthorizationValidator(this.authorizationValidator);
 		request.setPreParser(this.config.getPreParser());
 		request.setUserRequestConcurrency(this.getUserRequestSourceConcurrency());
+		request.setMaxParallelism(getMaxParallelism(workContext.getVDB()));
         ResultsFuture<ResultsMessage> resultsFuture = new ResultsFuture<ResultsMessage>();
         final RequestWorkItem workItem = new RequestWorkItem(this, requestMsg, request, resultsFuture.getResultsReceiver(), requestID, workContext);
     	logMMCommand(workItem, Event.NEW, null, null); 
@@ -349,7 +367,7 @@ public class DQPCore implements DQP {
 		state.addRequest(requestID);
 	}
 
-	private void startActivePlan(RequestWorkItem workItem, boolean addToQueue) {
+	void startActivePlan(RequestWorkItem workItem, boolean addToQueue) {
 		boolean continuous = workItem.requestMsg.getRequestOptions().isContinuous();
 		workItem.active = !continuous;
 		if (addToQueue) {
@@ -361,22 +379,95 @@ public class DQPCore implements DQP {
 	}
 	
     void finishProcessing(final RequestWorkItem workItem) {
+    	List<RequestWorkItem> resumed = null;
+    	boolean wasActive = false;
     	synchronized (waitingPlans) {
-    		if (!workItem.active) {
-        		return;
-        	}
-        	workItem.active = false;
-    		currentlyActivePlans--;
-			if (!waitingPlans.isEmpty()) {
+    		if (admissionController != null) {
+    			List<RequestWorkItem> admitted = admissionController.release(workItem);
+    			if (admitted != null) {
+    				admittedPlans.addAll(admitted);
+    			}
+    		}
+    		if (workItem.heldForAdmission) {
+    			admittedPlans.remove(workItem);
+    			workItem.heldForAdmission = false;
+    		}
+    		if (workItem.active) {
+    			wasActive = true;
+	        	workItem.active = false;
+	    		currentlyActivePlans--;
+    		}
+    		//plans waiting on memory take precedence
+    		resumed = startAdmittedPlans();
+    		if (wasActive && resumed == null && admittedPlans.isEmpty() && !waitingPlans.isEmpty()) {
 				RequestWorkItem work = waitingPlans.remove();
 				startActivePlan(work, true);
-			}
+    		}
 		}
-    	if (LogManager.isMessageToBeRecorded(LogConstants.CTX_DQP, MessageLevel.DETAIL)) {
+    	resumeAdmittedPlans(resumed);
+    	if (wasActive && LogManager.isMessageToBeRecorded(LogConstants.CTX_DQP, MessageLevel.DETAIL)) {
             LogManager.logDetail(LogConstants.CTX_DQP, workItem.requestID, "Finished Processing");  //$NON-NLS-1$
         }
     }
     
+    /**
+     * Called after planning to determine if there is enough memory to continue processing.
+     * If not the work item gives up its active plan slot until it is admitted.
+     */
+    boolean admitPlan(RequestWorkItem workItem) {
+    	if (admissionController == null || workItem.useCallingThread) {
+    		return true;
+    	}
+    	List<RequestWorkItem> resumed = null;
+    	synchronized (waitingPlans) {
+    		if (!workItem.active) {
+    			return true; //not counted as an active plan - such as a continuous plan
+    		}
+    		if (admissionController.admit(workItem, workItem.getProcessor().getProcessorPlan(), getMemoryBudget(workItem.getDqpWorkContext().getVDB()))) {
+    			return true;
+    		}
+    		workItem.active = false;
+    		workItem.heldForAdmission = true;
+    		currentlyActivePlans--;
+    		resumed = startAdmittedPlans();
+			if (resumed == null && admittedPlans.isEmpty() && !waitingPlans.isEmpty()) {
+				RequestWorkItem work = waitingPlans.remove();
+				startActivePlan(work, true);
+			}
+    	}
+    	resumeAdmittedPlans(resumed);
+    	return false;
+    }
+    
+    /**
+     * Make plans admitted by memory active, up to the max active plans.
+     * Must be called holding the plan lock.
+     * @return the plans to resume or null if none
+     */
+    private List<RequestWorkItem> startAdmittedPlans() {
+    	List<RequestWorkItem> result = null;
+    	while (!admittedPlans.isEmpty() && currentlyActivePlans < maxActivePlans) {
+    		RequestWorkItem work = admittedPlans.remove();
+    		work.heldForAdmission = false;
+    		work.active = true;
+    		currentlyActivePlans++;
+    		if (result == null) {
+    			result = new ArrayList<RequestWorkItem>(2);
+    		}
+    		result.add(work);
+    	}
+    	return result;
+    }
+    
+    private void resumeAdmittedPlans(List<RequestWorkItem> resumed) {
+    	if (resumed != null) {
+    		//the admitted plans may not have finished their last pass, so use more work rather than adding directly 
+    		for (RequestWorkItem work : resumed) {
+    			work.moreWork();
+    		}
+    	}
+    }
+    
     public int getActivePlanCount() {
     	return this.currentlyActivePlans;
     }
@@ -401,6 +492,54 @@ public class DQPCore implements DQP {
     	return this.maxWaitingPlans;
     }
     
+    /**
+     * @return the number of planned requests currently waiting on memory
+     */
+    public int getMemoryWaitingPlanCount() {
+    	synchronized (waitingPlans) {
+    		if (admissionController == null) {
+    			return 0;
+    		}
+    		return admissionController.getQueuedCount();
+    	}
+    }
+    
+    /**
+     * @return the total number of planned requests that have waited on memory
+     */
+    public long getMemoryQueuedPlanCount() {
+    	synchronized (waitingPlans) {
+    		if (admissionController == null) {
+    			return 0;
+    		}
+    		return admissionController.getTotalQueuedCount();
+    	}
+    }
+    
+    /**
+     * @return the total time in milliseconds that admitted requests have waited on memory
+     */
+    public long getMemoryQueuedTime() {
+    	synchronized (waitingPlans) {
+    		if (admissionController == null) {
+    			return 0;
+    		}
+    		return admissionController.getTotalQueuedMillis();
+    	}
+    }
+    
+    /**
+     * @return the longest time in milliseconds that an admitted request has waited on memory
+     */
+    public long getMaxMemoryQueuedTime() {
+    	synchronized (waitingPlans) {
+    		if (admissionController == null) {
+    			return 0;
+    		}
+    		return admissionController.getMaxQueuedMillis();
+    	}
+    }
+    
     void removeRequest(final RequestWorkItem workItem) {
     	finishProcessing(workItem);
     	this.requests.remove(workItem.requestID);
@@ -411,15 +550,31 @@ public class DQPCore implements DQP {
     }
     
     void addWork(Runnable work) {
-        try {
-            this.processWorkerPool.execute(work);
+    	addWork(this.processWorkerPool, work);
+    }
+    
+    /**
+     * Add work that will execute against a source, which may use
+     * a separate executor from engine processing.
+     */
+    void addSourceWork(Runnable work) {
+    	if (this.sourceWorkerPool == null) {
+    		addWork(this.processWorkerPool, work);
+    	} else {
+    		addWork(this.sourceWorkerPool, work);
+    	}
+    }
+
+	private void addWork(TeiidExecutor executor, Runnable work) {
+		try {
+            executor.execute(work);
         } catch (RejectedExecutionException e) {
             if (!shutdown) {
                 throw e;
             }
             LogManager.logDetail(LogConstants.CTX_DQP, e, "In the process of shutting down, work will not be started"); //$NON-NLS-1$
         }
-    }
+	}
     
     Future<Void> scheduleWork(final Runnable r, long delay) {
     	return this.cancellationTimer.add(r, delay);
@@ -466,6 +621,16 @@ public class DQPCore implements DQP {
     public WorkerPoolStatisticsMetadata getWorkerPoolStatistics() {
     	return this.processWorkerPool.getStats();
     }
+    
+    /**
+     * @return the source worker pool stats or null if source work uses the processing pool
+     */
+    public WorkerPoolStatisticsMetadata getSourceWorkerPoolStatistics() {
+    	if (this.sourceWorkerPool == null) {
+    		return null;
+    	}
+    	return this.sourceWorkerPool.getStats();
+    }
            
     public void terminateSession(String sessionId) {
         // sometimes there will not be any atomic requests pending, in that
@@ -617,6 +782,10 @@ public class DQPCore implements DQP {
 		return rsCache;
 	}
 	
+	SemanticResultsCache getSemanticCache() {
+		return semanticCache;
+	}
+	
 	int getProcessorTimeSlice() {
 		return this.config.getTimeSliceInMilli();
 	}	
@@ -631,6 +800,7 @@ public class DQPCore implements DQP {
         this.chunkSize = config.getLobChunkSizeInKB() * 1024;
 
         this.processWorkerPool = config.getTeiidExecutor();
+        this.sourceWorkerPool = config.getSourceTeiidExecutor();
         //we don't want cancellations waiting on normal processing, so they get a small dedicated pool
         //TODO: overflow to the worker pool
         timeoutExecutor = ExecutorUtils.newFixedThreadPool(3, "Server Side Timeout"); //$NON-NLS-1$
@@ -650,6 +820,15 @@ public class DQPCore implements DQP {
 			 throw new TeiidRuntimeException(QueryPlugin.Event.TEIID30496, e);
 		}
         
+        if (config.isMemoryAdmissionControl()) {
+        	long userBudget = config.getUserMemoryBudgetKB();
+        	this.admissionController = new MemoryAdmissionController(this.bufferManager, userBudget < 0?-1:userBudget<<10);
+        }
+        
+        if (config.isSemanticResultSetCache() && this.rsCache != null) {
+        	this.semanticCache = new SemanticResultsCache(this.rsCache);
+        }
+        
         this.userRequestSourceConcurrency = config.getUserRequestSourceConcurrency();
         if (this.userRequestSourceConcurrency < 1) {
         	this.userRequestSourceConcurrency = Math.min(config.getMaxThreads(), 2*config.getMaxThreads()/this.maxActivePlans);
@@ -879,6 +1058,10 @@ public class DQPCore implements DQP {
 		return this.config.getMaxSourceRows();
 	}
 	
+	boolean isShareSourceQueries() {
+		return this.config.isShareSourceQueries();
+	}
+	
 	public int getMaxRowsFetchSize() {
 		return this.config.getMaxRowsFetchSize();
 	}
@@ -895,6 +1078,41 @@ public class DQPCore implements DQP {
 		return userRequestSourceConcurrency;
 	}
 	
+	/**
+	 * Get the max parallelism for the vdb, which may override the configured value
+	 * up to the max threads.
+	 */
+	int getMaxParallelism(VDBMetaData vdb) {
+		int result = this.config.getMaxParallelism();
+		String value = vdb.getPropertyValue(MAX_PARALLELISM);
+		if (value != null) {
+			try {
+				result = Integer.parseInt(value);
+			} catch (NumberFormatException e) {
+				LogManager.logDetail(LogConstants.CTX_DQP, e, "Improper value for", MAX_PARALLELISM); //$NON-NLS-1$
+			}
+		}
+		return Math.max(1, Math.min(result, this.config.getMaxThreads()));
+	}
+	
+	/**
+	 * @return the vdb memory budget in bytes or -1 if there is none
+	 */
+	long getMemoryBudget(VDBMetaData vdb) {
+		String value = vdb.getPropertyValue(MEMORY_BUDGET_KB);
+		if (value != null) {
+			try {
+				long result = Long.parseLong(value);
+				if (result >= 0) {
+					return result<<10;
+				}
+			} catch (NumberFormatException e) {
+				LogManager.logDetail(LogConstants.CTX_DQP, e, "Improper value for", MEMORY_BUDGET_KB); //$NON-NLS-1$
+			}
+		}
+		return -1;
+	}
+	
 	void setUserRequestSourceConcurrency(int userRequestSourceConcurrency) {
 		this.userRequestSourceConcurrency = userRequestSourceConcurrency;
 	}
@@ -30,6 +30,7 @@ import java.sql.Timestamp;
 import java.util.*;
 import java.util.Map.Entry;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -99,12 +100,16 @@ import org.teiid.query.resolver.util.ResolverUtil;
 import org.teiid.query.sql.lang.Command;
 import org.teiid.query.sql.lang.Criteria;
 import org.teiid.query.sql.lang.Query;
+import org.teiid.query.sql.lang.QueryCommand;
 import org.teiid.query.sql.lang.StoredProcedure;
 import org.teiid.query.sql.lang.UnaryFromClause;
 import org.teiid.query.sql.navigator.PreOrPostOrderNavigator;
 import org.teiid.query.sql.symbol.Constant;
 import org.teiid.query.sql.symbol.ElementSymbol;
+import org.teiid.query.sql.symbol.Expression;
+import org.teiid.query.sql.symbol.Function;
 import org.teiid.query.sql.symbol.GroupSymbol;
+import org.teiid.query.sql.visitor.FunctionCollectorVisitor;
 import org.teiid.query.sql.visitor.GroupCollectorVisitor;
 import org.teiid.query.tempdata.BaseIndexInfo;
 import org.teiid.query.tempdata.GlobalTableStore;
@@ -242,6 +247,7 @@ public class DataTierManagerImpl implements ProcessorDataManager {
     private BufferManager bufferManager;
     private EventDistributor eventDistributor;
     private boolean detectChangeEvents;
+    private ConcurrentHashMap<Object, SharedSourceQuery> sharedSourceQueries = new ConcurrentHashMap<Object, SharedSourceQuery>();
     
     private Map<SystemTables, BaseExtractionTable<?>> systemTables = new HashMap<SystemTables, BaseExtractionTable<?>>();
     private Map<SystemAdminTables, BaseExtractionTable<?>> systemAdminTables = new HashMap<SystemAdminTables, BaseExtractionTable<?>>();
@@ -1087,6 +1093,17 @@ public class DataTierManagerImpl implements ProcessorDataManager {
 			LogManager.logDetail(LogConstants.CTX_DQP, "source", aqr.getConnectorName(), "no longer exists, returning dummy results"); //$NON-NLS-1$ //$NON-NLS-2$
 			return CollectionTupleSource.createNullTupleSource();
 		}
+		Object shareKey = getShareKey(workItem, command, aqr, parameterObject);
+		if (shareKey != null) {
+			SharedSourceQuery shared = this.sharedSourceQueries.get(shareKey);
+			if (shared != null) {
+				TupleSource result = shared.createReader(workItem);
+				if (result != null) {
+					LogManager.logDetail(LogConstants.CTX_DQP, aqr.getAtomicRequestID(), "Reading the results of an identical in-flight source query"); //$NON-NLS-1$
+					return result;
+				}
+			}
+		}
 		ConnectorWork work = connectorManager.registerRequest(aqr);
 		if (!work.isForkable()) {
     		aqr.setSerial(true);
@@ -1131,6 +1148,12 @@ public class DataTierManagerImpl implements ProcessorDataManager {
 			}
 		}
 		DataTierTupleSource dtts = new DataTierTupleSource(aqr, workItem, work, this, parameterObject.limit);
+		if (shareKey != null && cid == null && !work.isThreadBound()) {
+			TupleSource result = shareSourceQuery(shareKey, workItem, aqr, dtts);
+			if (result != null) {
+				return result;
+			}
+		}
 		TupleSource result = dtts;
 		TupleBuffer tb = null;
         if (cid != null) {
@@ -1145,6 +1168,63 @@ public class DataTierManagerImpl implements ProcessorDataManager {
 		return result;
 	}
 
+	/**
+	 * @return the key for sharing the source query with other requests, or null if it should not be shared
+	 */
+	private Object getShareKey(RequestWorkItem workItem, Command command,
+			AtomicRequestMessage aqr, RegisterRequestParameter parameterObject) {
+		if (!requestMgr.isShareSourceQueries() || workItem.useCallingThread || aqr.isTransactional() 
+				|| aqr.supportsPartialResults() || parameterObject.limit > 0 
+				|| !(command instanceof QueryCommand) || !command.areResultsCachable()) {
+			return null;
+		}
+		for (Expression ex : command.getProjectedSymbols()) {
+			//source backed lobs may not be usable once the source is closed
+			if (DataTypeManager.isLOB(ex.getType()) || ex.getType() == DataTypeManager.DefaultDataClasses.OBJECT) {
+				return null;
+			}
+		}
+		CachableVisitor cv = new CachableVisitor();
+		PreOrPostOrderNavigator.doVisit(command, cv, PreOrPostOrderNavigator.PRE_ORDER, true);
+		if (!cv.cacheable || cv.parameters != null) {
+			return null;
+		}
+		for (Function function : FunctionCollectorVisitor.getFunctions(command, false, true)) {
+			if (function.getFunctionDescriptor().getDeterministic().compareTo(Determinism.USER_DETERMINISTIC) < 0) {
+				return null;
+			}
+		}
+		DQPWorkContext workContext = workItem.getDqpWorkContext();
+		return Arrays.asList(workContext.getVdbName(), workContext.getVdbVersion(), aqr.getConnectorName(), workContext.getUserName(), command.toString());
+	}
+	
+	/**
+	 * Read the source results through a {@link SharedSourceQuery} that is not tied to the 
+	 * lifecycle of the registering request, so that other requests may read the same results.
+	 * @return the reader for the registering request or null if the query cannot be shared
+	 */
+	private TupleSource shareSourceQuery(Object key, RequestWorkItem workItem,
+			AtomicRequestMessage aqr, DataTierTupleSource dtts) throws TeiidComponentException {
+		if (this.sharedSourceQueries.containsKey(key)) {
+			//lost the race with an identical query
+			return null;
+		}
+		TupleBuffer tb = getBufferManager().createTupleBuffer(aqr.getCommand().getProjectedSymbols(), aqr.getCommandContext().getConnectionId(), TupleSourceType.PROCESSOR);
+		SharedSourceQuery shared = new SharedSourceQuery(key, this.sharedSourceQueries, tb, dtts, workItem, this.requestMgr);
+		TupleSource result = shared.createReader(workItem);
+		if (this.sharedSourceQueries.putIfAbsent(key, shared) != null) {
+			//lost the race with an identical query
+			tb.remove();
+			return null;
+		}
+		workItem.addSharedSourceQuery(shared);
+		//cancelling the registering request should not affect the other readers
+		workItem.closeAtomicRequest(aqr.getAtomicRequestID());
+		//the source is read by the readers as they need rows
+		aqr.setSerial(true);
+		return result;
+	}
+
 	/**
 	 * thread bound work is tricky for our execution model
 	 * 
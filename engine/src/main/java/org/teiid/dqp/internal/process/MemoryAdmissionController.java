@@ -0,0 +1,265 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+package org.teiid.dqp.internal.process;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.teiid.common.buffer.BufferManager;
+import org.teiid.common.buffer.impl.BufferManagerImpl;
+import org.teiid.logging.LogConstants;
+import org.teiid.logging.LogManager;
+import org.teiid.logging.MessageLevel;
+import org.teiid.query.processor.ProcessorPlan;
+import org.teiid.query.processor.relational.DupRemoveNode;
+import org.teiid.query.processor.relational.GroupingNode;
+import org.teiid.query.processor.relational.JoinNode;
+import org.teiid.query.processor.relational.RelationalNode;
+import org.teiid.query.processor.relational.RelationalPlan;
+import org.teiid.query.processor.relational.SortNode;
+import org.teiid.query.processor.relational.WindowFunctionProjectNode;
+
+/**
+ * Holds planned user requests until the memory estimated for their plans is available.
+ * <br>
+ * The estimate only considers the nodes that buffer their input - sorts, groupings, joins, 
+ * and window functions - using the planning cardinality estimates.  The global budget is the 
+ * buffer manager reserve less any reserve in use by work that has not been admitted.  A plan is 
+ * always admitted if nothing else holds the relevant budget so that a large plan cannot wait forever.
+ * <br>
+ * Not thread-safe - the {@link DQPCore} calls all methods while holding its plan lock.
+ */
+class MemoryAdmissionController {
+	
+	private static final long MAX_BUFFERED_SIZE = 1l << 50;
+	
+	private BufferManager bufferManager;
+	private long globalBudget;
+	private long userBudget;
+	
+	private long reserved;
+	private Map<String, Long> userReserved = new HashMap<String, Long>();
+	private Map<String, Long> vdbReserved = new HashMap<String, Long>();
+	private LinkedList<RequestWorkItem> queue = new LinkedList<RequestWorkItem>();
+	private boolean globalWait;
+	
+	private long queuedCount;
+	private long totalQueuedMillis;
+	private long maxQueuedMillis;
+	
+	/**
+	 * @param bufferManager
+	 * @param userBudget in bytes, or -1 for no per user budget
+	 */
+	MemoryAdmissionController(BufferManager bufferManager, long userBudget) {
+		this.bufferManager = bufferManager;
+		this.userBudget = userBudget;
+		this.globalBudget = Long.MAX_VALUE;
+		if (bufferManager instanceof BufferManagerImpl && ((BufferManagerImpl)bufferManager).getMaxReserveKB() >= 0) {
+			this.globalBudget = ((long)((BufferManagerImpl)bufferManager).getMaxReserveKB())<<10;
+		}
+	}
+	
+	/**
+	 * Admit or queue the planned work item.
+	 * @param vdbBudget in bytes, or -1 for no vdb budget
+	 * @return true if the item may continue processing
+	 */
+	boolean admit(RequestWorkItem item, ProcessorPlan plan, long vdbBudget) {
+		item.memoryEstimate = estimateMemory(plan, bufferManager, globalBudget);
+		item.memoryVdbBudget = vdbBudget;
+		if ((!globalWait || reserved == 0) && canAdmit(item)) {
+			reserve(item);
+			return true;
+		}
+		if (LogManager.isMessageToBeRecorded(LogConstants.CTX_DQP, MessageLevel.DETAIL)) {
+            LogManager.logDetail(LogConstants.CTX_DQP, item.requestID, "Queuing plan with an estimated memory of", item.memoryEstimate, "bytes, since the memory budget has been reached.");  //$NON-NLS-1$ //$NON-NLS-2$
+        }
+		item.memoryQueuedStart = System.currentTimeMillis();
+		queuedCount++;
+		queue.add(item);
+		return false;
+	}
+	
+	/**
+	 * Release the memory held by the item, or remove it from the queue
+	 * @return the queued items that are now admitted
+	 */
+	List<RequestWorkItem> release(RequestWorkItem item) {
+		if (item.memoryAdmitted) {
+			item.memoryAdmitted = false;
+			reserved -= item.memoryEstimate;
+			decrement(userReserved, getUserKey(item), item.memoryEstimate);
+			decrement(vdbReserved, getVdbKey(item), item.memoryEstimate);
+		} else if (item.memoryQueuedStart != 0) {
+			queue.remove(item);
+			item.memoryQueuedStart = 0;
+		}
+		if (queue.isEmpty()) {
+			globalWait = false;
+			return null;
+		}
+		List<RequestWorkItem> result = null;
+		globalWait = false;
+		for (Iterator<RequestWorkItem> iter = queue.iterator(); iter.hasNext();) {
+			RequestWorkItem queued = iter.next();
+			if (reserved > 0 && reserved + queued.memoryEstimate > getAvailableBudget()) {
+				//preserve the queue order for the global budget
+				globalWait = true;
+				break;
+			}
+			if (!canAdmit(queued)) {
+				continue;
+			}
+			iter.remove();
+			long queuedMillis = System.currentTimeMillis() - queued.memoryQueuedStart;
+			queued.memoryQueuedStart = 0;
+			totalQueuedMillis += queuedMillis;
+			maxQueuedMillis = Math.max(maxQueuedMillis, queuedMillis);
+			reserve(queued);
+			if (result == null) {
+				result = new ArrayList<RequestWorkItem>(2);
+			}
+			result.add(queued);
+		}
+		return result;
+	}
+
+	private boolean canAdmit(RequestWorkItem item) {
+		if (reserved > 0 && reserved + item.memoryEstimate > getAvailableBudget()) {
+			globalWait = true;
+			return false;
+		}
+		if (!withinBudget(userReserved.get(getUserKey(item)), item.memoryEstimate, userBudget)) {
+			return false;
+		}
+		return withinBudget(vdbReserved.get(getVdbKey(item)), item.memoryEstimate, item.memoryVdbBudget);
+	}
+	
+	private static boolean withinBudget(Long current, long estimate, long budget) {
+		return budget < 0 || current == null || current + estimate <= budget;
+	}
+	
+	/**
+	 * The global budget less the reserve used by work that was not admitted - 
+	 * such as the processing of plans that were admitted without a memory estimate 
+	 * or internal materialization loads.
+	 */
+	private long getAvailableBudget() {
+		if (globalBudget == Long.MAX_VALUE) {
+			return globalBudget;
+		}
+		long inUse = globalBudget - ((BufferManagerImpl)bufferManager).getReserveBatchBytes();
+		return globalBudget - Math.max(0, inUse - reserved);
+	}
+	
+	private void reserve(RequestWorkItem item) {
+		item.memoryAdmitted = true;
+		reserved += item.memoryEstimate;
+		increment(userReserved, getUserKey(item), item.memoryEstimate);
+		increment(vdbReserved, getVdbKey(item), item.memoryEstimate);
+	}
+	
+	private static void increment(Map<String, Long> map, String key, long value) {
+		Long current = map.get(key);
+		map.put(key, current == null?value:current + value);
+	}
+
+	private static void decrement(Map<String, Long> map, String key, long value) {
+		Long current = map.get(key);
+		if (current == null) {
+			return;
+		}
+		if (current - value <= 0) {
+			map.remove(key);
+		} else {
+			map.put(key, current - value);
+		}
+	}
+	
+	private static String getUserKey(RequestWorkItem item) {
+		return item.getDqpWorkContext().getUserName();
+	}
+	
+	private static String getVdbKey(RequestWorkItem item) {
+		return item.getDqpWorkContext().getVdbName() + "." + item.getDqpWorkContext().getVdbVersion(); //$NON-NLS-1$
+	}
+	
+	/**
+	 * Estimate the bytes buffered by the plan from the planning cardinalities
+	 */
+	static long estimateMemory(ProcessorPlan plan, BufferManager bufferManager, long max) {
+		if (!(plan instanceof RelationalPlan)) {
+			return 0;
+		}
+		return Math.min(max, estimateMemory(((RelationalPlan)plan).getRootNode(), bufferManager));
+	}
+
+	private static long estimateMemory(RelationalNode node, BufferManager bufferManager) {
+		long result = 0;
+		boolean buffers = node instanceof SortNode || node instanceof GroupingNode || node instanceof JoinNode 
+				|| node instanceof DupRemoveNode || node instanceof WindowFunctionProjectNode; 
+		for (RelationalNode child : node.getChildren()) {
+			if (child == null) {
+				break;
+			}
+			result += estimateMemory(child, bufferManager);
+			if (buffers) {
+				result += estimateBufferedSize(child, bufferManager);
+			}
+		}
+		return result;
+	}
+	
+	private static long estimateBufferedSize(RelationalNode input, BufferManager bufferManager) {
+		Number cardinality = input.getEstimateNodeCardinality();
+		if (cardinality == null || cardinality.doubleValue() < 0) {
+			//unknown, assume the working size of a single operation
+			return bufferManager.getMaxProcessingSize();
+		}
+		int batchSize = bufferManager.getProcessorBatchSize(input.getElements());
+		long rowBytes = Math.max(1, bufferManager.getSchemaSize(input.getElements())/batchSize);
+		//limit the size so that the sum of a plan cannot overflow
+		return (long)Math.min(MAX_BUFFERED_SIZE, cardinality.doubleValue() * rowBytes);
+	}
+	
+	int getQueuedCount() {
+		return queue.size();
+	}
+	
+	long getTotalQueuedCount() {
+		return queuedCount;
+	}
+	
+	long getTotalQueuedMillis() {
+		return totalQueuedMillis;
+	}
+	
+	long getMaxQueuedMillis() {
+		return maxQueuedMillis;
+	}
+	
+}
@@ -100,6 +100,7 @@ import org.teiid.query.validator.ValidatorReport;
 public class Request {
     
 	private static final String CLEAN_LOBS_ONCLOSE = "clean_lobs_onclose"; //$NON-NLS-1$
+	private static final String MAX_PARALLELISM = "maxParallelism"; //$NON-NLS-1$
 	// init state
     protected RequestMessage requestMsg;
     private String vdbName;
@@ -133,10 +134,14 @@ public class Request {
 	private SessionAwareCache<PreparedPlan> planCache;
 	private boolean resultSetCacheEnabled = true;
 	private int userRequestConcurrency;
+	private int maxParallelism = 1;
 	private AuthorizationValidator authorizationValidator;
 	private Executor executor;
 	protected Options options;
 	protected PreParser preParser;
+	private SemanticResultsCache semanticCache;
+	SemanticResultsCache.Entry semanticCacheEntry;
+	boolean semanticCacheHit;
 
     void initialize(RequestMessage requestMsg,
                               BufferManager bufferManager,
@@ -172,6 +177,10 @@ public class Request {
 		this.resultSetCacheEnabled = resultSetCacheEnabled;
 	}
 	
+	void setSemanticCache(SemanticResultsCache semanticCache) {
+		this.semanticCache = semanticCache;
+	}
+	
 	public void setAuthorizationValidator(
 			AuthorizationValidator authorizationValidator) {
 		this.authorizationValidator = authorizationValidator;
@@ -254,6 +263,7 @@ public class Request {
         context.setPreparedPlanCache(planCache);
         context.setResultSetCacheEnabled(this.resultSetCacheEnabled);
         context.setUserRequestSourceConcurrency(this.userRequestConcurrency);
+        context.setMaxParallelism(getMaxParallelism());
         context.setSubject(workContext.getSubject());
         this.context.setOptions(options);
         this.context.setSession(workContext.getSession());
@@ -266,6 +276,27 @@ public class Request {
     public void setUserRequestConcurrency(int userRequestConcurrency) {
 		this.userRequestConcurrency = userRequestConcurrency;
 	}
+    
+    public void setMaxParallelism(int maxParallelism) {
+		this.maxParallelism = maxParallelism;
+	}
+    
+    /**
+     * The session may request a lower max parallelism than allowed by the vdb
+     */
+    private int getMaxParallelism() {
+    	Object value = this.workContext.getSession().getSessionVariables().get(MAX_PARALLELISM);
+    	if (value == null) {
+    		return this.maxParallelism;
+    	}
+		try {
+			value = DataTypeManager.transformValue(DataTypeManager.convertToRuntimeType(value, false), DataTypeManager.DefaultDataClasses.INTEGER);
+			return Math.max(1, Math.min(this.maxParallelism, (Integer)value));
+		} catch (TransformationException e) {
+			LogManager.logDetail(LogConstants.CTX_DQP, e, "Improper value for", MAX_PARALLELISM); //$NON-NLS-1$
+		}
+		return this.maxParallelism;
+    }
 
     protected void checkReferences(List<Reference> references) throws QueryValidatorException {
     	referenceCheck(references);
@@ -430,6 +461,17 @@ public class Request {
         
         command = QueryRewriter.rewrite(command, metadata, context);
         
+        boolean useSemanticCache = this.semanticCache != null && !prepared && !requestMsg.getRequestOptions().isContinuous() 
+        		&& (requestMsg.useResultSetCache() || command.getCacheHint() != null);
+        if (useSemanticCache && this.semanticCache.isTransactional()) {
+        	//the cached results are not visible outside of the transaction the lookup would need to resume
+        	TransactionContext tc = getTransactionContext(false);
+        	useSemanticCache = tc == null || tc.getTransactionType() == Scope.NONE;
+        }
+        if (useSemanticCache) {
+        	this.semanticCacheEntry = SemanticResultsCache.createEntry(command, createParseInfo(this.requestMsg, this.workContext.getSession()), requestMsg.getCommandString(), workContext);
+        }
+        
         /*
          * Adds a row limit to a query if Statement.setMaxRows has been called and the command
          * doesn't already have a limit clause.
@@ -447,6 +489,14 @@ public class Request {
 			analysisRecord.println("\n============================================================================"); //$NON-NLS-1$
             analysisRecord.println("USER COMMAND:\n" + command);		 //$NON-NLS-1$
         }
+        if (useSemanticCache) {
+        	processPlan = this.semanticCache.getPlan(command, this);
+        	if (processPlan != null) {
+        		this.semanticCacheHit = true;
+        		LogManager.logDetail(LogConstants.CTX_DQP, new Object[] { QueryPlugin.Util.getString("BasicInterceptor.ProcessTree_for__4"), requestId, processPlan }); //$NON-NLS-1$
+        		return;
+        	}
+        }
         // Run the optimizer
         try {
 			CommandContext.pushThreadLocalContext(context);
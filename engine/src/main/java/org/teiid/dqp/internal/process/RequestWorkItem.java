@@ -34,6 +34,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -154,7 +155,7 @@ public class RequestWorkItem extends AbstractWorkItem implements PrioritizedRunn
 				}
 			}
 			if (nextWork != null) {
-				dqpCore.addWork(nextWork.work);
+				dqpCore.addSourceWork(nextWork.work);
 			}    		
 		}
 	}
@@ -182,6 +183,18 @@ public class RequestWorkItem extends AbstractWorkItem implements PrioritizedRunn
 	private final DQPWorkContext dqpWorkContext;
 	boolean active;
 	
+	/*
+	 * memory admission state, guarded by the DQPCore plan lock
+	 */
+	long memoryEstimate;
+	long memoryVdbBudget = -1;
+	boolean memoryAdmitted;
+	long memoryQueuedStart;
+	/*
+	 * true while the plan is waiting on memory admission or an active plan slot
+	 */
+	volatile boolean heldForAdmission;
+	
     /*
      * obtained during new
      */
@@ -202,6 +215,10 @@ public class RequestWorkItem extends AbstractWorkItem implements PrioritizedRunn
     private volatile boolean isClosed;
     private volatile boolean isCanceled;
     private volatile boolean closeRequested;
+    /*
+     * shared source queries registered by this request, which receive its source notifications
+     */
+    private List<SharedSourceQuery> sharedSourceQueries = new CopyOnWriteArrayList<SharedSourceQuery>();
 
 	//results request
 	private ResultsReceiver<ResultsMessage> resultsReceiver;
@@ -333,13 +350,27 @@ public class RequestWorkItem extends AbstractWorkItem implements PrioritizedRunn
 	protected void process() {
         LogManager.logDetail(LogConstants.CTX_DQP, "Request Thread", requestID, "with state", state); //$NON-NLS-1$ //$NON-NLS-2$
         try {
+        	if (this.heldForAdmission) {
+        		if (!this.isCanceled && !this.closeRequested) {
+        			//processing will resume once the plan is admitted
+        			return;
+        		}
+        		//close without processing, the hold is removed by finishProcessing
+        		if (this.isCanceled) {
+        			setCanceledException();
+        		}
+        		this.state = ProcessingState.CLOSE;
+        	}
             if (this.state == ProcessingState.NEW) {
                 state = ProcessingState.PROCESSING;
         		processNew();
                 if (isCanceled) {
                 	setCanceledException();
                     state = ProcessingState.CLOSE;
-                } 
+                } else if (processor != null && !dqpCore.admitPlan(this)) {
+                	//processing will resume once there is enough memory
+                	return;
+                }
         	}
         	
             resume();
@@ -459,7 +490,7 @@ public class RequestWorkItem extends AbstractWorkItem implements PrioritizedRunn
 			synchronized (queue) {
 				while (!queue.isEmpty() && totalThreads < dqpCore.getUserRequestSourceConcurrency()) {
 					WorkWrapper<?> w = queue.removeFirst();
-	        		dqpCore.addWork(w.work);
+	        		dqpCore.addSourceWork(w.work);
 	        		w.submitted = true;
 	        		totalThreads++;
 	        	}
@@ -659,7 +690,7 @@ public class RequestWorkItem extends AbstractWorkItem implements PrioritizedRunn
 			analysisRecord = request.analysisRecord;
 		}
 		originalCommand = request.userCommand;
-        if (cachable && (requestMsg.useResultSetCache() || originalCommand.getCacheHint() != null) && rsCache != null && originalCommand.areResultsCachable()) {
+        if (cachable && (requestMsg.useResultSetCache() || originalCommand.getCacheHint() != null) && rsCache != null && originalCommand.areResultsCachable() && !request.semanticCacheHit) {
         	this.cid = cacheId;
         	//turn on the collection of data objects used
         	request.processor.getContext().setDataObjects(new HashSet<Object>(4));
@@ -841,6 +872,10 @@ public class RequestWorkItem extends AbstractWorkItem implements PrioritizedRunn
 			LogManager.logDetail(LogConstants.CTX_DQP, e, QueryPlugin.Util.getString("failed_to_cache")); //$NON-NLS-1$
 		}
         dqpCore.getRsCache().put(cid, determinismLevel, cr, originalCommand.getCacheHint() != null?originalCommand.getCacheHint().getTtl():null);
+        SemanticResultsCache semanticCache = dqpCore.getSemanticCache();
+        if (semanticCache != null && request.semanticCacheEntry != null && cr.getRowLimit() == 0) {
+        	semanticCache.register(request.semanticCacheEntry);
+        }
 	}
 	
 	public SessionAwareCache<CachedResults> getRsCache() {
@@ -1243,6 +1278,23 @@ public class RequestWorkItem extends AbstractWorkItem implements PrioritizedRunn
         LogManager.logTrace(LogConstants.CTX_DQP, new Object[] {"closed atomic-request:", atomicRequestId});  //$NON-NLS-1$
     }
     
+	void addSharedSourceQuery(SharedSourceQuery shared) {
+		this.sharedSourceQueries.add(shared);
+	}
+	
+	void removeSharedSourceQuery(SharedSourceQuery shared) {
+		this.sharedSourceQueries.remove(shared);
+	}
+	
+	@Override
+	public void moreWork() {
+		super.moreWork();
+		//the source notifications for a shared source query are delivered to the registering request
+		for (SharedSourceQuery shared : this.sharedSourceQueries) {
+			shared.sourceMoreWork();
+		}
+	}
+    
 	public void addConnectorRequest(AtomicRequestID atomicRequestId, DataTierTupleSource connInfo) {
 		this.explicitSourceClose |= connInfo.isExplicitClose();
 		connectorInfo.put(atomicRequestId, connInfo);
@@ -1346,7 +1398,7 @@ public class RequestWorkItem extends AbstractWorkItem implements PrioritizedRunn
     	work.addCompletionListener(listener);
     	synchronized (queue) {
         	if (totalThreads < dqpCore.getUserRequestSourceConcurrency()) {
-        		dqpCore.addWork(work);
+        		dqpCore.addSourceWork(work);
         		totalThreads++;
         		wl.submitted = true;
         	} else {
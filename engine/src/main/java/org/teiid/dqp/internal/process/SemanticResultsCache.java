@@ -0,0 +1,601 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.dqp.internal.process;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.teiid.common.buffer.TupleBuffer;
+import org.teiid.core.TeiidComponentException;
+import org.teiid.core.TeiidProcessingException;
+import org.teiid.core.types.DataTypeManager;
+import org.teiid.core.util.LRUCache;
+import org.teiid.dqp.internal.process.AuthorizationValidator.CommandType;
+import org.teiid.dqp.internal.process.SessionAwareCache.CacheID;
+import org.teiid.logging.LogConstants;
+import org.teiid.logging.LogManager;
+import org.teiid.metadata.FunctionMethod.PushDown;
+import org.teiid.query.function.FunctionLibrary;
+import org.teiid.query.parser.ParseInfo;
+import org.teiid.query.processor.ProcessorPlan;
+import org.teiid.query.processor.relational.BufferScanNode;
+import org.teiid.query.processor.relational.DupRemoveNode;
+import org.teiid.query.processor.relational.LimitNode;
+import org.teiid.query.processor.relational.RelationalNode;
+import org.teiid.query.processor.relational.RelationalPlan;
+import org.teiid.query.processor.relational.SortNode;
+import org.teiid.query.processor.relational.SortUtility.Mode;
+import org.teiid.query.sql.LanguageVisitor;
+import org.teiid.query.sql.lang.AbstractCompareCriteria;
+import org.teiid.query.sql.lang.BetweenCriteria;
+import org.teiid.query.sql.lang.Command;
+import org.teiid.query.sql.lang.CompareCriteria;
+import org.teiid.query.sql.lang.Criteria;
+import org.teiid.query.sql.lang.DependentSetCriteria;
+import org.teiid.query.sql.lang.ExistsCriteria;
+import org.teiid.query.sql.lang.FromClause;
+import org.teiid.query.sql.lang.IsDistinctCriteria;
+import org.teiid.query.sql.lang.IsNullCriteria;
+import org.teiid.query.sql.lang.Limit;
+import org.teiid.query.sql.lang.MatchCriteria;
+import org.teiid.query.sql.lang.OrderBy;
+import org.teiid.query.sql.lang.OrderByItem;
+import org.teiid.query.sql.lang.Query;
+import org.teiid.query.sql.lang.SetCriteria;
+import org.teiid.query.sql.lang.SubqueryCompareCriteria;
+import org.teiid.query.sql.lang.SubquerySetCriteria;
+import org.teiid.query.sql.lang.UnaryFromClause;
+import org.teiid.query.sql.navigator.PreOrderNavigator;
+import org.teiid.query.sql.symbol.AggregateSymbol;
+import org.teiid.query.sql.symbol.Constant;
+import org.teiid.query.sql.symbol.ElementSymbol;
+import org.teiid.query.sql.symbol.Expression;
+import org.teiid.query.sql.symbol.Function;
+import org.teiid.query.sql.symbol.GroupSymbol;
+import org.teiid.query.sql.symbol.Reference;
+import org.teiid.query.sql.symbol.ScalarSubquery;
+import org.teiid.query.sql.symbol.WindowFunction;
+import org.teiid.query.sql.util.SymbolMap;
+import org.teiid.query.sql.visitor.ElementCollectorVisitor;
+import org.teiid.vdb.runtime.VDBKey;
+
+/**
+ * An index over the result set cache that allows a query to be answered from the cached
+ * results of a different query that subsumes it.
+ * <br>
+ * Only single group queries without grouping, subqueries, references, string comparisons, or a limit are registered.  
+ * A query over the same group is answered from a registered entry if the entry projects every 
+ * column the query uses and every conjunct of the entry criteria is implied by a conjunct of the query criteria.
+ * The full query criteria, projection, ordering, distinct, and limit are then evaluated against the cached rows.
+ * <br>
+ * The cached results are always retrieved through the result set cache, so scoping, determinism, 
+ * ttl, and invalidation are the same as for an exact match.
+ */
+public class SemanticResultsCache {
+	
+	static final int MAX_ENTRIES_PER_GROUP = 16;
+	static final int DEFAULT_MAX_GROUPS = 512;
+	
+	/**
+	 * The defining information for a cached result
+	 */
+	static class Entry {
+		VDBKey vdbKey;
+		String groupName;
+		String sql;
+		ParseInfo parseInfo;
+		List<ElementSymbol> columns;
+		Set<ElementSymbol> columnSet;
+		List<Criteria> conjuncts;
+		boolean distinct;
+	}
+	
+	private static class EligibilityVisitor extends LanguageVisitor {
+		boolean eligible = true;
+		
+		private void notEligible() {
+			this.eligible = false;
+			setAbort(true);
+		}
+		
+		@Override
+		public void visit(AggregateSymbol obj) {
+			notEligible();
+		}
+		
+		@Override
+		public void visit(WindowFunction windowFunction) {
+			notEligible();
+		}
+		
+		@Override
+		public void visit(Reference obj) {
+			notEligible();
+		}
+		
+		@Override
+		public void visit(ScalarSubquery obj) {
+			notEligible();
+		}
+		
+		@Override
+		public void visit(ExistsCriteria obj) {
+			notEligible();
+		}
+		
+		@Override
+		public void visit(SubquerySetCriteria obj) {
+			notEligible();
+		}
+		
+		@Override
+		public void visit(SubqueryCompareCriteria obj) {
+			notEligible();
+		}
+		
+		@Override
+		public void visit(DependentSetCriteria obj) {
+			notEligible();
+		}
+		
+		/*
+		 * String comparisons depend on the source collation, which 
+		 * may not match the engine evaluation against the cached rows
+		 */
+		
+		private void checkCollation(Expression ex) {
+			if (ex.getType() == DataTypeManager.DefaultDataClasses.STRING 
+					|| ex.getType() == DataTypeManager.DefaultDataClasses.CHAR
+					|| ex.getType() == DataTypeManager.DefaultDataClasses.CLOB) {
+				notEligible();
+			}
+		}
+		
+		@Override
+		public void visit(CompareCriteria obj) {
+			checkCollation(obj.getLeftExpression());
+		}
+		
+		@Override
+		public void visit(SetCriteria obj) {
+			checkCollation(obj.getExpression());
+		}
+		
+		@Override
+		public void visit(BetweenCriteria obj) {
+			checkCollation(obj.getExpression());
+		}
+		
+		@Override
+		public void visit(MatchCriteria obj) {
+			notEligible();
+		}
+		
+		@Override
+		public void visit(IsDistinctCriteria obj) {
+			notEligible();
+		}
+		
+		@Override
+		public void visit(Function obj) {
+			//the function must be evaluatable against the cached rows
+			if (obj.getFunctionDescriptor() == null 
+					|| obj.getFunctionDescriptor().getPushdown() == PushDown.MUST_PUSHDOWN 
+					|| obj.getFunctionDescriptor().getProcedure() != null
+					|| obj.getName().equalsIgnoreCase(FunctionLibrary.LOOKUP)) {
+				notEligible();
+			}
+		}
+	}
+	
+	private SessionAwareCache<CachedResults> rsCache;
+	private LRUCache<List<Object>, LinkedList<Entry>> entries;
+	private AtomicLong requestCount = new AtomicLong();
+	private AtomicLong hitCount = new AtomicLong();
+	
+	public SemanticResultsCache(SessionAwareCache<CachedResults> rsCache) {
+		this(rsCache, DEFAULT_MAX_GROUPS);
+	}
+	
+	public SemanticResultsCache(SessionAwareCache<CachedResults> rsCache, int maxGroups) {
+		this.rsCache = rsCache;
+		this.entries = new LRUCache<List<Object>, LinkedList<Entry>>(maxGroups);
+	}
+	
+	/**
+	 * Create the entry for the rewritten command
+	 * @return the entry or null if the command results cannot be used to answer other queries
+	 */
+	static Entry createEntry(Command command, ParseInfo parseInfo, String sql, DQPWorkContext workContext) {
+		GroupSymbol group = getGroup(command);
+		if (group == null) {
+			return null;
+		}
+		Query query = (Query)command;
+		if (query.getLimit() != null) {
+			return null;
+		}
+		Entry entry = new Entry();
+		entry.columns = new ArrayList<ElementSymbol>(query.getSelect().getProjectedSymbols().size());
+		for (Expression ex : query.getSelect().getProjectedSymbols()) {
+			ex = SymbolMap.getExpression(ex);
+			if (!(ex instanceof ElementSymbol)) {
+				return null;
+			}
+			entry.columns.add(((ElementSymbol)ex).clone());
+		}
+		entry.columnSet = new HashSet<ElementSymbol>(entry.columns);
+		entry.conjuncts = new ArrayList<Criteria>();
+		if (query.getCriteria() != null) {
+			for (Criteria crit : Criteria.separateCriteriaByAnd(query.getCriteria())) {
+				entry.conjuncts.add((Criteria)crit.clone());
+			}
+		}
+		entry.distinct = query.getSelect().isDistinct();
+		entry.groupName = group.getName();
+		entry.vdbKey = new VDBKey(workContext.getVdbName(), workContext.getVdbVersion());
+		entry.sql = sql;
+		entry.parseInfo = parseInfo;
+		return entry;
+	}
+	
+	/**
+	 * @return the single group of the query or null if the query is not eligible
+	 */
+	private static GroupSymbol getGroup(Command command) {
+		if (!(command instanceof Query)) {
+			return null;
+		}
+		Query query = (Query)command;
+		if (query.getIsXML() || query.getInto() != null || query.getOption() != null 
+				|| query.getGroupBy() != null || query.getHaving() != null || query.getFrom() == null) {
+			return null;
+		}
+		List<FromClause> clauses = query.getFrom().getClauses();
+		if (clauses.size() != 1 || !(clauses.get(0) instanceof UnaryFromClause)) {
+			return null;
+		}
+		GroupSymbol group = ((UnaryFromClause)clauses.get(0)).getGroup();
+		if (group.getDefinition() != null || group.isProcedure()) {
+			return null;
+		}
+		EligibilityVisitor visitor = new EligibilityVisitor();
+		PreOrderNavigator.doVisit(query, visitor);
+		if (!visitor.eligible) {
+			return null;
+		}
+		return group;
+	}
+	
+	/**
+	 * Register an entry after its results have been added to the result set cache
+	 */
+	void register(Entry entry) {
+		List<Object> key = Arrays.asList(entry.vdbKey, entry.groupName);
+		synchronized (this.entries) {
+			LinkedList<Entry> groupEntries = this.entries.get(key);
+			if (groupEntries == null) {
+				groupEntries = new LinkedList<Entry>();
+				this.entries.put(key, groupEntries);
+			}
+			for (Iterator<Entry> iter = groupEntries.iterator(); iter.hasNext();) {
+				Entry existing = iter.next();
+				if (existing.sql.equals(entry.sql) && existing.parseInfo.equals(entry.parseInfo)) {
+					iter.remove();
+				}
+			}
+			groupEntries.addFirst(entry);
+			if (groupEntries.size() > MAX_ENTRIES_PER_GROUP) {
+				groupEntries.removeLast();
+			}
+		}
+	}
+	
+	private void remove(Entry entry) {
+		List<Object> key = Arrays.asList(entry.vdbKey, entry.groupName);
+		synchronized (this.entries) {
+			LinkedList<Entry> groupEntries = this.entries.get(key);
+			if (groupEntries != null) {
+				groupEntries.remove(entry);
+				if (groupEntries.isEmpty()) {
+					this.entries.remove(key);
+				}
+			}
+		}
+	}
+	
+	boolean isTransactional() {
+		return this.rsCache.isTransactional();
+	}
+	
+	/**
+	 * Create a plan that answers the rewritten command from subsuming cached results
+	 * @return the plan or null if there are no usable cached results
+	 * @throws TeiidProcessingException 
+	 * @throws TeiidComponentException 
+	 */
+	ProcessorPlan getPlan(Command command, Request request) throws TeiidComponentException, TeiidProcessingException {
+		DQPWorkContext workContext = request.workContext;
+		GroupSymbol group = getGroup(command);
+		if (group == null) {
+			return null;
+		}
+		Query query = (Query)command;
+		List<Object> key = Arrays.asList(new VDBKey(workContext.getVdbName(), workContext.getVdbVersion()), group.getName());
+		List<Entry> candidates = null;
+		synchronized (this.entries) {
+			LinkedList<Entry> groupEntries = this.entries.get(key);
+			if (groupEntries == null) {
+				return null;
+			}
+			candidates = new ArrayList<Entry>(groupEntries);
+		}
+		this.requestCount.getAndIncrement();
+		Collection<ElementSymbol> elements = ElementCollectorVisitor.getElements(query, true);
+		List<Criteria> conjuncts = Criteria.separateCriteriaByAnd(query.getCriteria());
+		for (Entry entry : candidates) {
+			if (!subsumes(entry, query, elements, conjuncts)) {
+				continue;
+			}
+			CachedResults cr = this.rsCache.get(new CacheID(workContext, entry.parseInfo, entry.sql));
+			if (cr == null) {
+				//the results are no longer available
+				remove(entry);
+				continue;
+			}
+			if (cr.getRowLimit() != 0) {
+				continue;
+			}
+			//same as an exact match, the cached results are only usable if they would not be modified for the user
+			if (request.validateAccess(request.requestMsg.getCommands(), cr.getCommand(entry.sql, request.metadata, entry.parseInfo), CommandType.CACHED)) {
+				continue;
+			}
+			this.hitCount.getAndIncrement();
+			LogManager.logDetail(LogConstants.CTX_DQP, "Using subsuming result set cached results", entry.sql, "for", query); //$NON-NLS-1$ //$NON-NLS-2$
+			return createPlan(query, entry, cr.getResults());
+		}
+		return null;
+	}
+	
+	static boolean subsumes(Entry entry, Query query, Collection<ElementSymbol> elements, List<Criteria> conjuncts) {
+		if (entry.distinct && !query.getSelect().isDistinct()) {
+			return false;
+		}
+		if (!entry.columnSet.containsAll(elements)) {
+			return false;
+		}
+		for (Criteria required : entry.conjuncts) {
+			boolean implied = false;
+			for (Criteria crit : conjuncts) {
+				if (implies(crit, required)) {
+					implied = true;
+					break;
+				}
+			}
+			if (!implied) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * @return true if every row satisfying crit also satisfies required
+	 */
+	static boolean implies(Criteria crit, Criteria required) {
+		if (crit.equals(required)) {
+			return true;
+		}
+		if (required instanceof IsNullCriteria) {
+			IsNullCriteria inc = (IsNullCriteria)required;
+			//comparisons are not true for null values
+			return inc.isNegated() && (getComparison(crit, inc.getExpression()) != null || getValues(crit, inc.getExpression()) != null);
+		}
+		if (required instanceof CompareCriteria) {
+			CompareCriteria cc = (CompareCriteria)required;
+			Constant c = getConstant(cc.getRightExpression(), cc.getLeftExpression());
+			if (c == null) {
+				return false;
+			}
+			List<Constant> values = getValues(crit, cc.getLeftExpression());
+			if (values != null) {
+				for (Constant value : values) {
+					if (!test(cc.getOperator(), Constant.COMPARATOR.compare(value.getValue(), c.getValue()))) {
+						return false;
+					}
+				}
+				return true;
+			}
+			CompareCriteria bound = getComparison(crit, cc.getLeftExpression());
+			if (bound == null) {
+				return false;
+			}
+			int cmp = Constant.COMPARATOR.compare(((Constant)bound.getRightExpression()).getValue(), c.getValue());
+			switch (bound.getOperator()) {
+			case AbstractCompareCriteria.GT:
+				return cmp >= 0 && (cc.getOperator() == AbstractCompareCriteria.GT || cc.getOperator() == AbstractCompareCriteria.GE || cc.getOperator() == AbstractCompareCriteria.NE);
+			case AbstractCompareCriteria.GE:
+				return (cc.getOperator() == AbstractCompareCriteria.GE && cmp >= 0) || ((cc.getOperator() == AbstractCompareCriteria.GT || cc.getOperator() == AbstractCompareCriteria.NE) && cmp > 0);
+			case AbstractCompareCriteria.LT:
+				return cmp <= 0 && (cc.getOperator() == AbstractCompareCriteria.LT || cc.getOperator() == AbstractCompareCriteria.LE || cc.getOperator() == AbstractCompareCriteria.NE);
+			case AbstractCompareCriteria.LE:
+				return (cc.getOperator() == AbstractCompareCriteria.LE && cmp <= 0) || ((cc.getOperator() == AbstractCompareCriteria.LT || cc.getOperator() == AbstractCompareCriteria.NE) && cmp < 0);
+			case AbstractCompareCriteria.NE:
+				return cc.getOperator() == AbstractCompareCriteria.NE && cmp == 0;
+			}
+			return false;
+		}
+		if (required instanceof SetCriteria) {
+			SetCriteria sc = (SetCriteria)required;
+			if (sc.isNegated()) {
+				return false;
+			}
+			List<Constant> values = getValues(crit, sc.getExpression());
+			if (values == null) {
+				return false;
+			}
+			for (Constant value : values) {
+				if (!sc.getValues().contains(value)) {
+					return false;
+				}
+			}
+			return true;
+		}
+		return false;
+	}
+	
+	private static boolean test(int operator, int cmp) {
+		switch (operator) {
+		case AbstractCompareCriteria.EQ:
+			return cmp == 0;
+		case AbstractCompareCriteria.NE:
+			return cmp != 0;
+		case AbstractCompareCriteria.LT:
+			return cmp < 0;
+		case AbstractCompareCriteria.LE:
+			return cmp <= 0;
+		case AbstractCompareCriteria.GT:
+			return cmp > 0;
+		case AbstractCompareCriteria.GE:
+			return cmp >= 0;
+		}
+		return false;
+	}
+	
+	/**
+	 * @return the non-equality comparison of the expression to a constant or null
+	 */
+	private static CompareCriteria getComparison(Criteria crit, Expression ex) {
+		if (!(crit instanceof CompareCriteria)) {
+			return null;
+		}
+		CompareCriteria cc = (CompareCriteria)crit;
+		if (!cc.getLeftExpression().equals(ex) || getConstant(cc.getRightExpression(), ex) == null) {
+			return null;
+		}
+		return cc;
+	}
+	
+	/**
+	 * @return the finite set of values the criteria restricts the expression to or null
+	 */
+	private static List<Constant> getValues(Criteria crit, Expression ex) {
+		if (crit instanceof CompareCriteria) {
+			CompareCriteria cc = (CompareCriteria)crit;
+			if (cc.getOperator() != AbstractCompareCriteria.EQ || !cc.getLeftExpression().equals(ex)) {
+				return null;
+			}
+			Constant c = getConstant(cc.getRightExpression(), ex);
+			if (c == null) {
+				return null;
+			}
+			return Arrays.asList(c);
+		}
+		if (crit instanceof SetCriteria) {
+			SetCriteria sc = (SetCriteria)crit;
+			if (sc.isNegated() || !sc.getExpression().equals(ex) || !sc.isAllConstants()) {
+				return null;
+			}
+			List<Constant> values = new ArrayList<Constant>(sc.getValues().size());
+			for (Object o : sc.getValues()) {
+				Constant c = getConstant((Expression)o, ex);
+				if (c == null) {
+					return null;
+				}
+				values.add(c);
+			}
+			return values;
+		}
+		return null;
+	}
+	
+	private static Constant getConstant(Expression value, Expression ex) {
+		if (!(value instanceof Constant)) {
+			return null;
+		}
+		Constant c = (Constant)value;
+		if (c.isNull() || c.isMultiValued() || c.getType() != ex.getType()) {
+			return null;
+		}
+		return c;
+	}
+	
+	static ProcessorPlan createPlan(Query query, Entry entry, TupleBuffer results) {
+		int id = 0;
+		List<Expression> projected = query.getSelect().getProjectedSymbols();
+		List<Expression> scanElements = projected;
+		OrderBy orderBy = query.getOrderBy();
+		if (orderBy != null && orderBy.hasUnrelated()) {
+			scanElements = new ArrayList<Expression>(projected);
+			for (OrderByItem item : orderBy.getOrderByItems()) {
+				if (item.isUnrelated()) {
+					scanElements.add(item.getSymbol());
+				}
+			}
+		}
+		BufferScanNode scan = new BufferScanNode(++id);
+		scan.setBuffer(results, entry.columns);
+		scan.setCriteria(query.getCriteria());
+		scan.setElements(scanElements);
+		RelationalNode root = scan;
+		if (orderBy != null) {
+			SortNode sort = new SortNode(++id);
+			sort.setSortElements(orderBy.getOrderByItems());
+			if (query.getSelect().isDistinct()) {
+				sort.setMode(Mode.DUP_REMOVE_SORT);
+			}
+			root = addParent(root, sort, projected);
+		} else if (query.getSelect().isDistinct()) {
+			root = addParent(root, new DupRemoveNode(++id), projected);
+		}
+		Limit limit = query.getLimit();
+		if (limit != null) {
+			LimitNode ln = new LimitNode(++id, limit.getRowLimit(), limit.getOffset());
+			ln.setImplicit(limit.isImplicit());
+			root = addParent(root, ln, projected);
+		}
+		return new RelationalPlan(root);
+	}
+
+	private static RelationalNode addParent(RelationalNode child, RelationalNode parent, List<? extends Expression> elements) {
+		parent.setElements(elements);
+		parent.addChild(child);
+		return parent;
+	}
+	
+	public long getRequestCount() {
+		return requestCount.get();
+	}
+	
+	public long getHitCount() {
+		return hitCount.get();
+	}
+	
+}
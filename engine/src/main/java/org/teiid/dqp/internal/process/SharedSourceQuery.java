@@ -0,0 +1,339 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.dqp.internal.process;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+import org.teiid.common.buffer.BlockedException;
+import org.teiid.common.buffer.TupleBatch;
+import org.teiid.common.buffer.TupleBuffer;
+import org.teiid.common.buffer.TupleSource;
+import org.teiid.core.TeiidComponentException;
+import org.teiid.core.TeiidProcessingException;
+
+/**
+ * A source query that is read by multiple requests.
+ * <br>
+ * There is no separate read task.  A reader that needs rows past what has been read 
+ * reads the next batch from the source in its own processing thread, so the source is 
+ * read no faster than the fastest reader - the same flow control as an unshared query.
+ * The rows are saved to a {@link TupleBuffer} so that each reader consumes them at its 
+ * own pace starting from the first row.  Readers that get ahead of the source, or wait 
+ * on another reader's read, are blocked and signaled as more batches become available.
+ * <br>
+ * If no other reader attaches while the first {@link #SHARE_WINDOW_BATCHES} batches 
+ * are read, the query is no longer shared and the remaining rows are read directly 
+ * without being buffered.
+ * <br>
+ * The source notifications are delivered to the registering request, which forwards 
+ * them with {@link #sourceMoreWork()} to wake the reader that is blocked on the source.
+ * <br>
+ * Access to the buffer is guarded by the buffer itself, so that readers only contend 
+ * with the source read when they move to a new batch and not for each row or the state checks.
+ * <br>
+ * The source query is not owned by any request, it is closed once the results are fully 
+ * read, the read fails, or there are no more readers.  
+ */
+class SharedSourceQuery {
+	
+	/**
+	 * The number of batches read for a single reader before the query is no longer shared
+	 */
+	static final int SHARE_WINDOW_BATCHES = 4;
+	
+	private class Reader implements TupleSource {
+		private RequestWorkItem workItem;
+		private long rowNumber = 1;
+		private TupleBatch batch;
+		private boolean closed;
+		private boolean direct;
+		
+		private Reader(RequestWorkItem workItem) {
+			this.workItem = workItem;
+		}
+		
+		@Override
+		public List<?> nextTuple() throws TeiidComponentException,
+				TeiidProcessingException {
+			while (true) {
+				if (batch != null && rowNumber <= batch.getEndRow()) {
+					return batch.getTuple(rowNumber++);
+				}
+				if (direct) {
+					return readDirect(this);
+				}
+				boolean read = false;
+				synchronized (SharedSourceQuery.this) {
+					if (rowNumber > rowCount) {
+						checkFailure();
+						if (isFinal) {
+							return null;
+						}
+						if (reading) {
+							waiting.add(workItem);
+							throw BlockedException.block(workItem.getRequestID(), "Blocking on shared source query"); //$NON-NLS-1$
+						}
+						if (readers == 1 && pending.isEmpty() && rowCount >= (long)buffer.getBatchSize() * SHARE_WINDOW_BATCHES) {
+							//no other reader attached, so stop buffering the results
+							direct = true;
+							shareable = false;
+						} else {
+							reading = true;
+							read = true;
+						}
+					}
+				}
+				if (direct) {
+					sharedQueries.remove(key, SharedSourceQuery.this);
+					buffer.remove();
+					batch = null;
+				} else if (read) {
+					readBatch(this);
+				} else {
+					synchronized (buffer) {
+						batch = buffer.getBatch(rowNumber);
+					}
+				}
+			}
+		}
+		
+		@Override
+		public void closeSource() {
+			readerClosed(this);
+		}
+	}
+	
+	private Object key;
+	private ConcurrentMap<Object, SharedSourceQuery> sharedQueries;
+	private TupleBuffer buffer;
+	private DataTierTupleSource dtts;
+	private RequestWorkItem registeringWorkItem;
+	private DQPCore dqpCore;
+	
+	private long rowCount;
+	private boolean isFinal;
+	private int readers;
+	private boolean shareable = true;
+	private boolean reading;
+	private boolean sourceClosed;
+	private Exception failure;
+	private Set<RequestWorkItem> waiting = new LinkedHashSet<RequestWorkItem>();
+	/*
+	 * the rows read from the source that are not yet in the buffer, only accessed by the reading reader
+	 */
+	private List<List<?>> pending = new ArrayList<List<?>>();
+	private volatile boolean sourceBlocked;
+	private volatile boolean sourceNotified;
+	private Runnable signalTask = new Runnable() {
+		@Override
+		public void run() {
+			signalSourceAvailable();
+		}
+	};
+	
+	SharedSourceQuery(Object key, ConcurrentMap<Object, SharedSourceQuery> sharedQueries, TupleBuffer buffer, DataTierTupleSource dtts, RequestWorkItem registeringWorkItem, DQPCore dqpCore) {
+		this.key = key;
+		this.sharedQueries = sharedQueries;
+		this.buffer = buffer;
+		this.dtts = dtts;
+		this.registeringWorkItem = registeringWorkItem;
+		this.dqpCore = dqpCore;
+	}
+	
+	/**
+	 * @return a new reader positioned at the first row or null if the query can no longer be shared
+	 */
+	synchronized TupleSource createReader(RequestWorkItem workItem) {
+		if (!shareable || failure != null) {
+			return null;
+		}
+		readers++;
+		return new Reader(workItem);
+	}
+	
+	private void checkFailure() throws TeiidComponentException, TeiidProcessingException {
+		if (failure == null) {
+			return;
+		}
+		if (failure instanceof TeiidComponentException) {
+			throw (TeiidComponentException)failure;
+		}
+		if (failure instanceof TeiidProcessingException) {
+			throw (TeiidProcessingException)failure;
+		}
+		throw new TeiidComponentException(failure);
+	}
+	
+	/**
+	 * Read the next batch from the source and make it visible to the other readers
+	 */
+	private void readBatch(Reader reader) throws TeiidComponentException, TeiidProcessingException {
+		boolean last = false;
+		sourceNotified = false;
+		try {
+			while (pending.size() < buffer.getBatchSize()) {
+				List<?> row = dtts.nextTuple();
+				if (row == null) {
+					last = true;
+					break;
+				}
+				pending.add(row);
+			}
+			long count = 0;
+			synchronized (buffer) {
+				if (!pending.isEmpty()) {
+					buffer.addTupleBatch(new TupleBatch(buffer.getRowCount() + 1, pending), true);
+				}
+				if (last) {
+					buffer.close();
+				}
+				count = buffer.getRowCount();
+			}
+			pending = new ArrayList<List<?>>();
+			synchronized (this) {
+				rowCount = count;
+				isFinal = last;
+				reading = false;
+				if (last) {
+					shareable = false;
+				}
+			}
+		} catch (BlockedException e) {
+			//the pending rows are kept until the read resumes
+			sourceBlocked(reader);
+			throw e;
+		} catch (TeiidComponentException | TeiidProcessingException | RuntimeException e) {
+			synchronized (this) {
+				failure = e;
+				reading = false;
+				shareable = false;
+			}
+			sharedQueries.remove(key, this);
+			signalWaiting();
+			closeSource();
+			throw e;
+		}
+		signalWaiting();
+		if (last) {
+			sharedQueries.remove(key, this);
+			if (!dtts.isExplicitClose()) {
+				closeSource();
+			}
+		}
+	}
+	
+	private List<?> readDirect(Reader reader) throws TeiidComponentException, TeiidProcessingException {
+		sourceNotified = false;
+		try {
+			return dtts.nextTuple();
+		} catch (BlockedException e) {
+			sourceBlocked(reader);
+			throw e;
+		}
+	}
+	
+	/**
+	 * Wait for a source notification.  The blocked state is set before checking for a 
+	 * notification, and the reverse in {@link #sourceMoreWork()}, so that one is not missed.
+	 */
+	private void sourceBlocked(Reader reader) {
+		boolean notified = false;
+		synchronized (this) {
+			reading = false;
+			waiting.add(reader.workItem);
+			sourceBlocked = true;
+			notified = sourceNotified;
+		}
+		if (notified) {
+			signalSourceAvailable();
+		}
+	}
+	
+	/**
+	 * Called when the registering request receives more work, which includes the source notifications.
+	 * The caller may hold the lock of the registering request, so the readers are signaled from another thread.
+	 */
+	void sourceMoreWork() {
+		sourceNotified = true;
+		if (sourceBlocked) {
+			dqpCore.scheduleWork(signalTask, 0);
+		}
+	}
+	
+	private void signalSourceAvailable() {
+		synchronized (this) {
+			if (!sourceBlocked) {
+				return;
+			}
+			sourceBlocked = false;
+		}
+		signalWaiting();
+	}
+	
+	private void readerClosed(Reader reader) {
+		synchronized (this) {
+			if (reader.closed) {
+				return;
+			}
+			reader.closed = true;
+			waiting.remove(reader.workItem);
+			if (--readers > 0) {
+				return;
+			}
+			shareable = false;
+		}
+		sharedQueries.remove(key, this);
+		closeSource();
+		buffer.remove();
+	}
+	
+	private void closeSource() {
+		synchronized (this) {
+			if (sourceClosed) {
+				return;
+			}
+			sourceClosed = true;
+		}
+		registeringWorkItem.removeSharedSourceQuery(this);
+		dtts.fullyCloseSource();
+	}
+	
+	private void signalWaiting() {
+		List<RequestWorkItem> toSignal = null;
+		synchronized (this) {
+			if (waiting.isEmpty()) {
+				return;
+			}
+			toSignal = new ArrayList<RequestWorkItem>(waiting);
+			waiting.clear();
+		}
+		for (RequestWorkItem workItem : toSignal) {
+			workItem.moreWork();
+		}
+	}
+	
+}
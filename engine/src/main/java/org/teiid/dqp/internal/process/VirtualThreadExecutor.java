@@ -0,0 +1,144 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.dqp.internal.process;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.teiid.adminapi.impl.WorkerPoolStatisticsMetadata;
+import org.teiid.core.TeiidRuntimeException;
+import org.teiid.logging.LogConstants;
+import org.teiid.logging.LogManager;
+import org.teiid.query.QueryPlugin;
+
+/**
+ * A {@link TeiidExecutor} that runs each task on a new virtual thread.
+ * <br/>
+ * Intended for source work that spends most of its time blocked on the source, so that the 
+ * concurrency is not bounded by the size of the processing pool.  
+ * Virtual threads require a Java 21 or later runtime and are created reflectively - 
+ * see {@link #isSupported()}.
+ * <br/>
+ * Note that prior to Java 24 a virtual thread that blocks while holding a monitor will pin its 
+ * carrier thread, so translators that block in synchronized code will see less benefit.
+ */
+public class VirtualThreadExecutor implements TeiidExecutor {
+	
+	private static Method newVirtualThreadPerTaskExecutor;
+	
+	static {
+		try {
+			newVirtualThreadPerTaskExecutor = java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor"); //$NON-NLS-1$
+		} catch (NoSuchMethodException e) {
+			//not supported by this vm
+		} catch (SecurityException e) {
+			//not supported by this vm
+		}
+	}
+	
+	/**
+	 * @return true if the vm supports virtual threads
+	 */
+	public static boolean isSupported() {
+		return newVirtualThreadPerTaskExecutor != null;
+	}
+	
+	private final ExecutorService executor;
+	private final String poolName;
+	
+	private AtomicInteger activeCount = new AtomicInteger();
+	private AtomicInteger highestActiveCount = new AtomicInteger();
+	private AtomicInteger submittedCount = new AtomicInteger();
+	private AtomicInteger completedCount = new AtomicInteger();
+	
+	public VirtualThreadExecutor(String name) {
+		if (!isSupported()) {
+			throw new UnsupportedOperationException();
+		}
+		this.poolName = name;
+		try {
+			this.executor = (ExecutorService) newVirtualThreadPerTaskExecutor.invoke(null);
+		} catch (Exception e) {
+			throw new TeiidRuntimeException(e);
+		}
+	}
+	
+	@Override
+	public void execute(Runnable command) {
+		final ThreadReuseExecutor.RunnableWrapper wrapper = new ThreadReuseExecutor.RunnableWrapper(command);
+		submittedCount.incrementAndGet();
+		try {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					int active = activeCount.incrementAndGet();
+					int highest = highestActiveCount.get();
+					while (active > highest && !highestActiveCount.compareAndSet(highest, active)) {
+						highest = highestActiveCount.get();
+					}
+					try {
+						wrapper.run();
+					} catch (Throwable t) {
+						LogManager.logError(LogConstants.CTX_RUNTIME, t, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID30021));
+					} finally {
+						activeCount.decrementAndGet();
+						completedCount.incrementAndGet();
+					}
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			submittedCount.decrementAndGet();
+			throw e;
+		}
+	}
+	
+	@Override
+	public WorkerPoolStatisticsMetadata getStats() {
+		WorkerPoolStatisticsMetadata stats = new WorkerPoolStatisticsMetadata();
+		stats.setName(poolName);
+		stats.setQueued(0);
+		stats.setHighestQueued(0);
+		stats.setActiveThreads(activeCount.get());
+		stats.setMaxThreads(Integer.MAX_VALUE);
+		stats.setTotalSubmitted(submittedCount.get());
+		stats.setHighestActiveThreads(highestActiveCount.get());
+		stats.setTotalCompleted(completedCount.get());
+		return stats;
+	}
+	
+	@Override
+	public List<Runnable> shutdownNow() {
+		return executor.shutdownNow();
+	}
+	
+	@Override
+	public boolean awaitTermination(long timeout, TimeUnit unit)
+			throws InterruptedException {
+		return executor.awaitTermination(timeout, unit);
+	}
+
+}
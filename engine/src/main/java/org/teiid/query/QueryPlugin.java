@@ -655,6 +655,13 @@ public class QueryPlugin { // extends Plugin {
         TEIID31253,
         TEIID31254,
         TEIID31255,
-        TEIID31256
+        TEIID31256,
+        TEIID31257,
+        TEIID31258,
+        TEIID31259,
+        TEIID31260,
+        TEIID31261,
+        TEIID31262,
+        TEIID31264
 	}
 }
@@ -0,0 +1,860 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.query.eval;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.teiid.api.exception.query.ExpressionEvaluationException;
+import org.teiid.api.exception.query.FunctionExecutionException;
+import org.teiid.common.buffer.BlockedException;
+import org.teiid.common.buffer.ColumnVector;
+import org.teiid.common.buffer.ColumnVector.DictionaryVector;
+import org.teiid.common.buffer.ColumnVector.DoubleVector;
+import org.teiid.common.buffer.ColumnVector.IntVector;
+import org.teiid.common.buffer.ColumnVector.LongVector;
+import org.teiid.common.buffer.ColumnarTupleBatch;
+import org.teiid.core.TeiidComponentException;
+import org.teiid.core.types.DataTypeManager;
+import org.teiid.query.QueryPlugin;
+import org.teiid.query.function.FunctionDescriptor;
+import org.teiid.query.function.FunctionMethods;
+import org.teiid.query.sql.LanguageObject;
+import org.teiid.query.sql.lang.CompareCriteria;
+import org.teiid.query.sql.lang.CompoundCriteria;
+import org.teiid.query.sql.lang.Criteria;
+import org.teiid.query.sql.lang.IsNullCriteria;
+import org.teiid.query.sql.lang.NotCriteria;
+import org.teiid.query.sql.symbol.Constant;
+import org.teiid.query.sql.symbol.ElementSymbol;
+import org.teiid.query.sql.symbol.Expression;
+import org.teiid.query.sql.symbol.Function;
+import org.teiid.query.sql.visitor.ElementCollectorVisitor;
+import org.teiid.query.sql.visitor.FunctionCollectorVisitor;
+import org.teiid.query.sql.visitor.ValueIteratorProviderCollectorVisitor;
+import org.teiid.translator.SourceSystemFunctions;
+
+/**
+ * Evaluates criteria and expressions a batch at a time over a {@link ColumnarTupleBatch}.
+ * <br>
+ * Comparisons, null checks, and/or/not, and integral/double arithmetic are evaluated with
+ * tight loops over the column values.  Deterministic criteria and expressions over a single
+ * string column are evaluated once per dictionary value.  Anything else is delegated to the
+ * row based {@link Evaluator}.
+ * <br>
+ * Rows are addressed by a selection vector of zero based row indexes into the batch.
+ * Criteria reduce the selection in place to the rows that evaluate to TRUE, while
+ * expressions produce a vector aligned with the selection.
+ */
+public class BatchEvaluator {
+
+	public static abstract class BatchCriteria {
+
+		/**
+		 * Reduce the selection to those rows for which the criteria is TRUE, retaining the order.
+		 * @return the new selection count
+		 */
+		public abstract int select(ColumnarTupleBatch batch, int[] selection, int count, Evaluator eval)
+				throws ExpressionEvaluationException, BlockedException, TeiidComponentException;
+
+		/**
+		 * @return true if the criteria is evaluated a row at a time
+		 */
+		boolean isRowBased() {
+			return false;
+		}
+	}
+
+	public static abstract class BatchExpression {
+
+		protected Class<?> type;
+
+		/**
+		 * Evaluate the expression for the selected rows
+		 * @return a vector with a value for each selected row
+		 */
+		public abstract ColumnVector evaluate(ColumnarTupleBatch batch, int[] selection, int count, Evaluator eval)
+				throws ExpressionEvaluationException, BlockedException, TeiidComponentException;
+
+		public Class<?> getType() {
+			return type;
+		}
+
+		/**
+		 * @return true if the expression is evaluated a row at a time
+		 */
+		public boolean isRowBased() {
+			return false;
+		}
+	}
+
+	static class ColumnReference extends BatchExpression {
+		private int index;
+
+		ColumnReference(int index, Class<?> type) {
+			this.index = index;
+			this.type = type;
+		}
+
+		@Override
+		public ColumnVector evaluate(ColumnarTupleBatch batch, int[] selection,
+				int count, Evaluator eval) {
+			ColumnVector column = batch.getColumn(index);
+			if (count == batch.getRowCount()) {
+				//selection must be the identity
+				return column;
+			}
+			return column.select(selection, count);
+		}
+	}
+
+	static class ConstantValue extends BatchExpression {
+		private Object value;
+
+		ConstantValue(Object value, Class<?> type) {
+			this.value = value;
+			this.type = type;
+		}
+
+		@Override
+		public ColumnVector evaluate(ColumnarTupleBatch batch, int[] selection,
+				int count, Evaluator eval) {
+			ColumnVector result = ColumnVector.create(type, count);
+			for (int i = 0; i < count; i++) {
+				result.add(value);
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * System +, -, * over integer, long, or double values
+	 */
+	static class Arithmetic extends BatchExpression {
+		private static final int PLUS = 0;
+		private static final int MINUS = 1;
+		private static final int MULTIPLY = 2;
+
+		private FunctionDescriptor fd;
+		private int op;
+		private BatchExpression left;
+		private BatchExpression right;
+
+		Arithmetic(FunctionDescriptor fd, int op, BatchExpression left, BatchExpression right) {
+			this.fd = fd;
+			this.op = op;
+			this.left = left;
+			this.right = right;
+			this.type = fd.getReturnType();
+		}
+
+		@Override
+		public ColumnVector evaluate(ColumnarTupleBatch batch, int[] selection,
+				int count, Evaluator eval) throws ExpressionEvaluationException,
+				BlockedException, TeiidComponentException {
+			ColumnVector l = left.evaluate(batch, selection, count, eval);
+			ColumnVector r = right.evaluate(batch, selection, count, eval);
+			boolean nulls = l.hasNulls() || r.hasNulls();
+			try {
+				if (type == DataTypeManager.DefaultDataClasses.INTEGER) {
+					IntVector li = (IntVector)l;
+					IntVector ri = (IntVector)r;
+					IntVector result = new IntVector(count);
+					for (int i = 0; i < count; i++) {
+						if (nulls && (li.isNull(i) || ri.isNull(i))) {
+							result.addNull();
+							continue;
+						}
+						int x = li.getInt(i);
+						int y = ri.getInt(i);
+						switch (op) {
+						case PLUS:
+							result.addInt(FunctionMethods.plus(x, y));
+							break;
+						case MINUS:
+							result.addInt(FunctionMethods.minus(x, y));
+							break;
+						default:
+							result.addInt(FunctionMethods.multiply(x, y));
+						}
+					}
+					return result;
+				}
+				if (type == DataTypeManager.DefaultDataClasses.LONG) {
+					LongVector ll = (LongVector)l;
+					LongVector rl = (LongVector)r;
+					LongVector result = new LongVector(count);
+					for (int i = 0; i < count; i++) {
+						if (nulls && (ll.isNull(i) || rl.isNull(i))) {
+							result.addNull();
+							continue;
+						}
+						long x = ll.getLong(i);
+						long y = rl.getLong(i);
+						switch (op) {
+						case PLUS:
+							result.addLong(FunctionMethods.plus(x, y));
+							break;
+						case MINUS:
+							result.addLong(FunctionMethods.minus(x, y));
+							break;
+						default:
+							result.addLong(FunctionMethods.multiply(x, y));
+						}
+					}
+					return result;
+				}
+				DoubleVector ld = (DoubleVector)l;
+				DoubleVector rd = (DoubleVector)r;
+				DoubleVector result = new DoubleVector(count);
+				for (int i = 0; i < count; i++) {
+					if (nulls && (ld.isNull(i) || rd.isNull(i))) {
+						result.addNull();
+						continue;
+					}
+					double x = ld.getDouble(i);
+					double y = rd.getDouble(i);
+					switch (op) {
+					case PLUS:
+						result.addDouble(x + y);
+						break;
+					case MINUS:
+						result.addDouble(x - y);
+						break;
+					default:
+						result.addDouble(x * y);
+					}
+				}
+				return result;
+			} catch (FunctionExecutionException e) {
+				//same as the row based invocation
+				throw new FunctionExecutionException(QueryPlugin.Event.TEIID30384, e, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID30384, fd.getFullName()));
+			}
+		}
+	}
+
+	/**
+	 * A deterministic expression of a single string column that is
+	 * evaluated once per dictionary value
+	 */
+	static class DictionaryExpression extends BatchExpression {
+		private Expression expression;
+		private int index;
+
+		DictionaryExpression(Expression expression, int index) {
+			this.expression = expression;
+			this.index = index;
+			this.type = expression.getType();
+		}
+
+		@Override
+		public ColumnVector evaluate(ColumnarTupleBatch batch, int[] selection,
+				int count, Evaluator eval) throws ExpressionEvaluationException,
+				BlockedException, TeiidComponentException {
+			DictionaryVector column = (DictionaryVector)batch.getColumn(index);
+			List<String> dictionary = column.getDictionary();
+			Object[] values = new Object[dictionary.size()];
+			boolean[] evaluated = new boolean[dictionary.size()];
+			Object nullValue = null;
+			boolean nullEvaluated = false;
+			Object[] row = new Object[batch.getColumnCount()];
+			List<Object> tuple = Arrays.asList(row);
+			ColumnVector result = ColumnVector.create(type, count);
+			for (int i = 0; i < count; i++) {
+				int rowIndex = selection[i];
+				if (column.isNull(rowIndex)) {
+					if (!nullEvaluated) {
+						row[index] = null;
+						nullValue = eval.evaluate(expression, tuple);
+						nullEvaluated = true;
+					}
+					result.add(nullValue);
+					continue;
+				}
+				int code = column.getCode(rowIndex);
+				if (!evaluated[code]) {
+					row[index] = dictionary.get(code);
+					values[code] = eval.evaluate(expression, tuple);
+					evaluated[code] = true;
+				}
+				result.add(values[code]);
+			}
+			return result;
+		}
+	}
+
+	static class RowExpression extends BatchExpression {
+		private Expression expression;
+
+		RowExpression(Expression expression) {
+			this.expression = expression;
+			this.type = expression.getType();
+		}
+
+		@Override
+		public ColumnVector evaluate(ColumnarTupleBatch batch, int[] selection,
+				int count, Evaluator eval) throws ExpressionEvaluationException,
+				BlockedException, TeiidComponentException {
+			ColumnVector result = ColumnVector.create(type, count);
+			long begin = batch.getBeginRow();
+			for (int i = 0; i < count; i++) {
+				result.add(eval.evaluate(expression, batch.getTuple(begin + selection[i])));
+			}
+			return result;
+		}
+
+		@Override
+		public boolean isRowBased() {
+			return true;
+		}
+	}
+
+	static class Compare extends BatchCriteria {
+		private CompareCriteria criteria;
+		private int op;
+		private BatchExpression left;
+		private BatchExpression right;
+		private Object value;
+
+		Compare(CompareCriteria criteria, int op, BatchExpression left, BatchExpression right) {
+			this.criteria = criteria;
+			this.op = op;
+			this.left = left;
+			this.right = right;
+			if (right instanceof ConstantValue) {
+				this.value = ((ConstantValue)right).value;
+			}
+		}
+
+		@Override
+		public int select(ColumnarTupleBatch batch, int[] selection, int count,
+				Evaluator eval) throws ExpressionEvaluationException,
+				BlockedException, TeiidComponentException {
+			ColumnVector l = null;
+			try {
+				l = left.evaluate(batch, selection, count, eval);
+			} catch (ExpressionEvaluationException e) {
+				throw new ExpressionEvaluationException(QueryPlugin.Event.TEIID30312, e, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID30312, "left", criteria)); //$NON-NLS-1$
+			}
+			if (right instanceof ConstantValue) {
+				if (value == null) {
+					return 0;
+				}
+				return selectConstant(l, selection, count);
+			}
+			if (l.hasNulls()) {
+				//as with row evaluation the right side is only evaluated for non-null left values
+				int[] positions = new int[count];
+				int nonNull = 0;
+				for (int i = 0; i < count; i++) {
+					if (!l.isNull(i)) {
+						positions[nonNull] = i;
+						selection[nonNull++] = selection[i];
+					}
+				}
+				l = l.select(positions, nonNull);
+				count = nonNull;
+			}
+			ColumnVector r = null;
+			try {
+				r = right.evaluate(batch, selection, count, eval);
+			} catch (ExpressionEvaluationException e) {
+				throw new ExpressionEvaluationException(QueryPlugin.Event.TEIID30312, e, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID30312, "right", criteria)); //$NON-NLS-1$
+			}
+			int result = 0;
+			if (l instanceof IntVector && r instanceof IntVector) {
+				IntVector li = (IntVector)l;
+				IntVector ri = (IntVector)r;
+				for (int i = 0; i < count; i++) {
+					if (!ri.isNull(i) && test(op, Integer.compare(li.getInt(i), ri.getInt(i)))) {
+						selection[result++] = selection[i];
+					}
+				}
+				return result;
+			}
+			for (int i = 0; i < count; i++) {
+				Object rightValue = r.get(i);
+				if (rightValue != null && Boolean.TRUE.equals(Evaluator.compare(op, l.get(i), rightValue))) {
+					selection[result++] = selection[i];
+				}
+			}
+			return result;
+		}
+
+		private int selectConstant(ColumnVector l, int[] selection, int count) {
+			int result = 0;
+			boolean nulls = l.hasNulls();
+			if (l instanceof IntVector && value instanceof Integer) {
+				IntVector li = (IntVector)l;
+				int c = (Integer)value;
+				for (int i = 0; i < count; i++) {
+					if ((!nulls || !li.isNull(i)) && test(op, Integer.compare(li.getInt(i), c))) {
+						selection[result++] = selection[i];
+					}
+				}
+			} else if (l instanceof LongVector && value instanceof Long) {
+				LongVector ll = (LongVector)l;
+				long c = (Long)value;
+				for (int i = 0; i < count; i++) {
+					if ((!nulls || !ll.isNull(i)) && test(op, Long.compare(ll.getLong(i), c))) {
+						selection[result++] = selection[i];
+					}
+				}
+			} else if (l instanceof DoubleVector && value instanceof Double) {
+				DoubleVector ld = (DoubleVector)l;
+				double c = (Double)value;
+				for (int i = 0; i < count; i++) {
+					if ((!nulls || !ld.isNull(i)) && test(op, Double.compare(ld.getDouble(i), c))) {
+						selection[result++] = selection[i];
+					}
+				}
+			} else if (l instanceof DictionaryVector && value instanceof String) {
+				//compare each distinct value only once
+				DictionaryVector ls = (DictionaryVector)l;
+				List<String> dictionary = ls.getDictionary();
+				byte[] matches = new byte[dictionary.size()];
+				for (int i = 0; i < count; i++) {
+					if (nulls && ls.isNull(i)) {
+						continue;
+					}
+					int code = ls.getCode(i);
+					if (matches[code] == 0) {
+						matches[code] = (byte)(test(op, Constant.COMPARATOR.compare(dictionary.get(code), value))?1:-1);
+					}
+					if (matches[code] > 0) {
+						selection[result++] = selection[i];
+					}
+				}
+			} else {
+				for (int i = 0; i < count; i++) {
+					Object leftValue = l.get(i);
+					if (leftValue != null && Boolean.TRUE.equals(Evaluator.compare(op, leftValue, value))) {
+						selection[result++] = selection[i];
+					}
+				}
+			}
+			return result;
+		}
+	}
+
+	static class IsNull extends BatchCriteria {
+		private BatchExpression expression;
+		private boolean negated;
+
+		IsNull(BatchExpression expression, boolean negated) {
+			this.expression = expression;
+			this.negated = negated;
+		}
+
+		@Override
+		public int select(ColumnarTupleBatch batch, int[] selection, int count,
+				Evaluator eval) throws ExpressionEvaluationException,
+				BlockedException, TeiidComponentException {
+			ColumnVector v = expression.evaluate(batch, selection, count, eval);
+			if (!v.hasNulls()) {
+				return negated?count:0;
+			}
+			int result = 0;
+			for (int i = 0; i < count; i++) {
+				if (v.isNull(i) != negated) {
+					selection[result++] = selection[i];
+				}
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * Each criteria must be TRUE
+	 */
+	static class All extends BatchCriteria {
+		private List<BatchCriteria> criteria;
+
+		All(List<BatchCriteria> criteria) {
+			this.criteria = criteria;
+		}
+
+		@Override
+		public int select(ColumnarTupleBatch batch, int[] selection, int count,
+				Evaluator eval) throws ExpressionEvaluationException,
+				BlockedException, TeiidComponentException {
+			for (int i = 0; i < criteria.size() && count > 0; i++) {
+				count = criteria.get(i).select(batch, selection, count, eval);
+			}
+			return count;
+		}
+	}
+
+	/**
+	 * Any criteria must be TRUE
+	 */
+	static class Any extends BatchCriteria {
+		private List<BatchCriteria> criteria;
+
+		Any(List<BatchCriteria> criteria) {
+			this.criteria = criteria;
+		}
+
+		@Override
+		public int select(ColumnarTupleBatch batch, int[] selection, int count,
+				Evaluator eval) throws ExpressionEvaluationException,
+				BlockedException, TeiidComponentException {
+			boolean[] selected = new boolean[batch.getRowCount()];
+			int[] remaining = Arrays.copyOf(selection, count);
+			int remainingCount = count;
+			for (int i = 0; i < criteria.size() && remainingCount > 0; i++) {
+				int[] working = Arrays.copyOf(remaining, remainingCount);
+				int matched = criteria.get(i).select(batch, working, remainingCount, eval);
+				if (matched == 0) {
+					continue;
+				}
+				for (int j = 0; j < matched; j++) {
+					selected[working[j]] = true;
+				}
+				//only evaluate the remaining criteria against the unmatched rows
+				int next = 0;
+				for (int j = 0; j < remainingCount; j++) {
+					if (!selected[remaining[j]]) {
+						remaining[next++] = remaining[j];
+					}
+				}
+				remainingCount = next;
+			}
+			int result = 0;
+			for (int i = 0; i < count; i++) {
+				if (selected[selection[i]]) {
+					selection[result++] = selection[i];
+				}
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * A deterministic criteria of a single string column that is
+	 * evaluated once per dictionary value
+	 */
+	static class DictionaryCriteria extends BatchCriteria {
+		private Criteria criteria;
+		private int index;
+		private boolean negated;
+
+		DictionaryCriteria(Criteria criteria, int index, boolean negated) {
+			this.criteria = criteria;
+			this.index = index;
+			this.negated = negated;
+		}
+
+		@Override
+		public int select(ColumnarTupleBatch batch, int[] selection, int count,
+				Evaluator eval) throws ExpressionEvaluationException,
+				BlockedException, TeiidComponentException {
+			DictionaryVector column = (DictionaryVector)batch.getColumn(index);
+			List<String> dictionary = column.getDictionary();
+			byte[] matches = new byte[dictionary.size()];
+			byte nullMatch = 0;
+			Object[] row = new Object[batch.getColumnCount()];
+			List<Object> tuple = Arrays.asList(row);
+			int result = 0;
+			for (int i = 0; i < count; i++) {
+				int rowIndex = selection[i];
+				boolean match = false;
+				if (column.isNull(rowIndex)) {
+					if (nullMatch == 0) {
+						row[index] = null;
+						nullMatch = evaluate(eval, tuple);
+					}
+					match = nullMatch > 0;
+				} else {
+					int code = column.getCode(rowIndex);
+					if (matches[code] == 0) {
+						row[index] = dictionary.get(code);
+						matches[code] = evaluate(eval, tuple);
+					}
+					match = matches[code] > 0;
+				}
+				if (match) {
+					selection[result++] = rowIndex;
+				}
+			}
+			return result;
+		}
+
+		private byte evaluate(Evaluator eval, List<Object> tuple)
+				throws ExpressionEvaluationException, BlockedException,
+				TeiidComponentException {
+			Boolean b = eval.evaluateTVL(criteria, tuple);
+			return (byte)(b != null && b.booleanValue() != negated?1:-1);
+		}
+	}
+
+	static class RowCriteria extends BatchCriteria {
+		private Criteria criteria;
+		private boolean negated;
+
+		RowCriteria(Criteria criteria, boolean negated) {
+			this.criteria = criteria;
+			this.negated = negated;
+		}
+
+		@Override
+		public int select(ColumnarTupleBatch batch, int[] selection, int count,
+				Evaluator eval) throws ExpressionEvaluationException,
+				BlockedException, TeiidComponentException {
+			long begin = batch.getBeginRow();
+			int result = 0;
+			for (int i = 0; i < count; i++) {
+				Boolean b = eval.evaluateTVL(criteria, batch.getTuple(begin + selection[i]));
+				if (b != null && b.booleanValue() != negated) {
+					selection[result++] = selection[i];
+				}
+			}
+			return result;
+		}
+
+		@Override
+		boolean isRowBased() {
+			return true;
+		}
+	}
+
+	/**
+	 * Create an identity selection
+	 */
+	public static int[] identity(int count) {
+		int[] result = new int[count];
+		for (int i = 0; i < count; i++) {
+			result[i] = i;
+		}
+		return result;
+	}
+
+	/**
+	 * Compile the criteria for batch evaluation
+	 * @param criteria
+	 * @param elementMap the lookup map of the batch columns
+	 * @return the compiled criteria or null if the criteria cannot or should not be evaluated in batch
+	 */
+	public static BatchCriteria compile(Criteria criteria, Map<Expression, Integer> elementMap) {
+		if (!isSupported(criteria, elementMap)) {
+			return null;
+		}
+		BatchCriteria result = compile(criteria, elementMap, false);
+		if (result.isRowBased()) {
+			return null;
+		}
+		return result;
+	}
+
+	/**
+	 * Compile the expression for batch evaluation
+	 * @param expression
+	 * @param elementMap the lookup map of the batch columns
+	 * @return the compiled expression or null if the expression cannot be evaluated in batch
+	 */
+	public static BatchExpression compile(Expression expression, Map<Expression, Integer> elementMap) {
+		if (!isSupported(expression, elementMap)) {
+			return null;
+		}
+		return compileExpression(expression, elementMap);
+	}
+
+	/**
+	 * Subqueries are handled by the nodes and are not evaluated in batch.
+	 */
+	private static boolean isSupported(LanguageObject obj, Map<Expression, Integer> elementMap) {
+		if (!ValueIteratorProviderCollectorVisitor.getValueIteratorProviders(obj).isEmpty()) {
+			return false;
+		}
+		for (ElementSymbol es : ElementCollectorVisitor.getElements(obj, true)) {
+			if (!elementMap.containsKey(es)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static BatchCriteria compile(Criteria criteria, Map<Expression, Integer> elementMap, boolean negated) {
+		if (criteria instanceof NotCriteria) {
+			return compile(((NotCriteria)criteria).getCriteria(), elementMap, !negated);
+		}
+		if (criteria instanceof CompoundCriteria) {
+			CompoundCriteria cc = (CompoundCriteria)criteria;
+			List<BatchCriteria> children = new ArrayList<BatchCriteria>(cc.getCriteria().size());
+			boolean rowBased = true;
+			for (Criteria crit : cc.getCriteria()) {
+				BatchCriteria child = compile(crit, elementMap, negated);
+				rowBased &= child.isRowBased();
+				children.add(child);
+			}
+			if (rowBased) {
+				return new RowCriteria(criteria, negated);
+			}
+			//by de morgan's law not (a and b) = not a or not b, which holds under three valued logic as well
+			if ((cc.getOperator() == CompoundCriteria.AND) != negated) {
+				return new All(children);
+			}
+			return new Any(children);
+		}
+		if (criteria instanceof CompareCriteria) {
+			CompareCriteria cc = (CompareCriteria)criteria;
+			BatchExpression left = compileExpression(cc.getLeftExpression(), elementMap);
+			BatchExpression right = compileExpression(cc.getRightExpression(), elementMap);
+			if (!left.isRowBased() && !right.isRowBased() && !(left instanceof ConstantValue)) {
+				int op = cc.getOperator();
+				if (negated) {
+					op = invert(op);
+				}
+				return new Compare(cc, op, left, right);
+			}
+		} else if (criteria instanceof IsNullCriteria) {
+			IsNullCriteria inc = (IsNullCriteria)criteria;
+			BatchExpression expr = compileExpression(inc.getExpression(), elementMap);
+			if (!expr.isRowBased()) {
+				return new IsNull(expr, inc.isNegated() != negated);
+			}
+		}
+		Integer index = getDictionaryColumn(criteria, elementMap);
+		if (index != null) {
+			return new DictionaryCriteria(criteria, index, negated);
+		}
+		return new RowCriteria(criteria, negated);
+	}
+
+	/**
+	 * The inverse of the operator such that not (a op b) = a inverse b for non-null values
+	 */
+	static int invert(int op) {
+		switch (op) {
+		case CompareCriteria.EQ:
+			return CompareCriteria.NE;
+		case CompareCriteria.NE:
+			return CompareCriteria.EQ;
+		case CompareCriteria.LT:
+			return CompareCriteria.GE;
+		case CompareCriteria.GE:
+			return CompareCriteria.LT;
+		case CompareCriteria.GT:
+			return CompareCriteria.LE;
+		case CompareCriteria.LE:
+			return CompareCriteria.GT;
+		default:
+			throw new AssertionError();
+		}
+	}
+
+	static boolean test(int op, int compare) {
+		switch (op) {
+		case CompareCriteria.EQ:
+			return compare == 0;
+		case CompareCriteria.NE:
+			return compare != 0;
+		case CompareCriteria.LT:
+			return compare < 0;
+		case CompareCriteria.LE:
+			return compare <= 0;
+		case CompareCriteria.GT:
+			return compare > 0;
+		case CompareCriteria.GE:
+			return compare >= 0;
+		default:
+			throw new AssertionError();
+		}
+	}
+
+	private static BatchExpression compileExpression(Expression expression, Map<Expression, Integer> elementMap) {
+		Integer index = elementMap.get(expression);
+		if (index != null) {
+			return new ColumnReference(index, expression.getType());
+		}
+		if (expression instanceof Constant) {
+			Constant c = (Constant)expression;
+			if (!c.isMultiValued()) {
+				return new ConstantValue(c.getValue(), c.getType());
+			}
+		} else if (expression instanceof Function) {
+			BatchExpression result = compileArithmetic((Function)expression, elementMap);
+			if (result != null) {
+				return result;
+			}
+		}
+		index = getDictionaryColumn(expression, elementMap);
+		if (index != null) {
+			return new DictionaryExpression(expression, index);
+		}
+		return new RowExpression(expression);
+	}
+
+	private static BatchExpression compileArithmetic(Function function, Map<Expression, Integer> elementMap) {
+		FunctionDescriptor fd = function.getFunctionDescriptor();
+		Expression[] args = function.getArgs();
+		if (fd == null || args.length != 2) {
+			return null;
+		}
+		Class<?> type = fd.getReturnType();
+		if (type != DataTypeManager.DefaultDataClasses.INTEGER
+				&& type != DataTypeManager.DefaultDataClasses.LONG
+				&& type != DataTypeManager.DefaultDataClasses.DOUBLE) {
+			return null;
+		}
+		int op = 0;
+		if (fd.isSystemFunction(SourceSystemFunctions.ADD_OP)) {
+			op = Arithmetic.PLUS;
+		} else if (fd.isSystemFunction(SourceSystemFunctions.SUBTRACT_OP)) {
+			op = Arithmetic.MINUS;
+		} else if (fd.isSystemFunction(SourceSystemFunctions.MULTIPLY_OP)) {
+			op = Arithmetic.MULTIPLY;
+		} else {
+			return null;
+		}
+		if (args[0].getType() != type || args[1].getType() != type) {
+			return null;
+		}
+		BatchExpression left = compileExpression(args[0], elementMap);
+		BatchExpression right = compileExpression(args[1], elementMap);
+		if (left.isRowBased() || right.isRowBased()) {
+			return null;
+		}
+		return new Arithmetic(fd, op, left, right);
+	}
+
+	/**
+	 * Get the index of the only column referenced by the deterministic object if it is a string column
+	 */
+	private static Integer getDictionaryColumn(LanguageObject obj, Map<Expression, Integer> elementMap) {
+		Collection<ElementSymbol> elements = ElementCollectorVisitor.getElements(obj, true);
+		if (elements.size() != 1) {
+			return null;
+		}
+		ElementSymbol es = elements.iterator().next();
+		if (es.getType() != DataTypeManager.DefaultDataClasses.STRING
+				|| FunctionCollectorVisitor.isNonDeterministic(obj)) {
+			return null;
+		}
+		return elementMap.get(es);
+	}
+
+}
@@ -23,9 +23,13 @@
 package org.teiid.query.function;
 
 import java.io.Serializable;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Array;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.util.Arrays;
 
 import org.teiid.api.exception.query.FunctionExecutionException;
@@ -68,6 +72,10 @@ public class FunctionDescriptor implements Serializable, Cloneable {
     // a different VM.  This function descriptor can be used to look up 
     // the real VM descriptor for execution.
     private transient Method invocationMethod;
+    // Bound on first use to avoid the per call checks of Method.invoke.  Takes the
+    // target and the argument array.  Null if the method is not publicly accessible.
+    private transient MethodHandle invocationHandle;
+    private transient volatile boolean handleBound;
     
     private ClassLoader classLoader;
 
@@ -276,7 +284,12 @@ public class FunctionDescriptor implements Serializable, Cloneable {
         	    if (this.classLoader != null) {
         	        Thread.currentThread().setContextClassLoader(this.classLoader);
         	    }
-        	    result = invocationMethod.invoke(functionTarget, values);
+        	    MethodHandle handle = getInvocationHandle();
+        	    if (handle != null) {
+        	    	result = invoke(handle, functionTarget, values);
+        	    } else {
+        	    	result = invocationMethod.invoke(functionTarget, values);
+        	    }
         	} finally {
         	    Thread.currentThread().setContextClassLoader(originalCL);
         	}
@@ -298,6 +311,44 @@ public class FunctionDescriptor implements Serializable, Cloneable {
 		}
 	}
 
+    private Object invoke(MethodHandle handle, Object functionTarget, Object[] values) throws FunctionExecutionException, BlockedException {
+    	try {
+    		return (Object)handle.invokeExact(functionTarget, values);
+    	} catch (BlockedException e) {
+    		throw e;
+    	} catch (Throwable e) {
+    		//consistent with the reflective invocation, all exceptions raised by the function are wrapped
+    		throw new FunctionExecutionException(QueryPlugin.Event.TEIID30384, e, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID30384, getFullName()));
+    	}
+    }
+
+    /**
+     * Get a {@link MethodHandle} with the type (Object target, Object[] args)Object
+     * for the invocation method.
+     * @return the handle or null if the method should be invoked reflectively
+     */
+    MethodHandle getInvocationHandle() {
+    	if (!this.handleBound) {
+    		MethodHandle handle = null;
+    		try {
+    			handle = MethodHandles.publicLookup().unreflect(this.invocationMethod).asFixedArity();
+    			int paramCount = this.invocationMethod.getParameterTypes().length;
+    			if (Modifier.isStatic(this.invocationMethod.getModifiers())) {
+    				handle = handle.asType(MethodType.genericMethodType(paramCount)).asSpreader(Object[].class, paramCount);
+    				handle = MethodHandles.dropArguments(handle, 0, Object.class);
+    			} else {
+    				handle = handle.asType(MethodType.genericMethodType(paramCount + 1)).asSpreader(Object[].class, paramCount);
+    			}
+    		} catch (IllegalAccessException e) {
+    			//not accessible - the reflective invocation will report the error
+    			handle = null;
+    		}
+    		this.invocationHandle = handle;
+    		this.handleBound = true;
+    	}
+    	return this.invocationHandle;
+    }
+
     private void checkMethod() throws FunctionExecutionException {
         // If descriptor is missing invokable method, find this VM's descriptor
         // give name and types from fd
@@ -57,6 +57,11 @@ public class MaterializationMetadataRepository extends MetadataRepository {
 	
 	public static final String MATVIEW_WRITE_THROUGH = "{http://www.teiid.org/ext/relational/2012}MATVIEW_WRITE_THROUGH"; //$NON-NLS-1$
 	public static final String MATVIEW_MAX_STALENESS_PCT = "{http://www.teiid.org/ext/relational/2012}MATVIEW_MAX_STALENESS_PCT"; //$NON-NLS-1$
+	/**
+	 * A query returning the primary key values of the changed view rows followed by a high water mark column,
+	 * which allows an internal materialized view to be refreshed incrementally.
+	 */
+	public static final String MATVIEW_DELTA_QUERY = "{http://www.teiid.org/ext/relational/2012}MATVIEW_DELTA_QUERY"; //$NON-NLS-1$
 	
 	public enum LoadStates {NEEDS_LOADING, LOADING, LOADED, FAILED_LOAD};
 	public enum Scope {IMPORTED, FULL};
@@ -80,6 +80,7 @@ import org.teiid.query.sql.visitor.EvaluatableVisitor;
 import org.teiid.query.sql.visitor.EvaluatableVisitor.EvaluationLevel;
 import org.teiid.query.sql.visitor.GroupCollectorVisitor;
 import org.teiid.query.sql.visitor.ReferenceCollectorVisitor;
+import org.teiid.query.sql.visitor.ValueIteratorProviderCollectorVisitor;
 import org.teiid.query.util.CommandContext;
 import org.teiid.translator.ExecutionFactory.TransactionSupport;
 
@@ -127,6 +128,9 @@ public class PlanToProcessConverter {
 				}
 				throw new QueryPlannerException(e);
 			}
+			if (context != null && context.getMaxParallelism() > 1) {
+				addExchangeNodes(processNode);
+			}
 	        if(debug) {
 	            analysisRecord.println("\nPROCESS PLAN = \n" + processNode); //$NON-NLS-1$
 	            analysisRecord.println("============================================================================"); //$NON-NLS-1$
@@ -172,11 +176,76 @@ public class PlanToProcessConverter {
 				nextParent.addChild(child);
 			}
 		}
+		
+		if (convertedNode instanceof LimitNode && convertedNode.getChildren()[0] instanceof SortNode) {
+			SortNode sortNode = (SortNode)convertedNode.getChildren()[0];
+			//only the limit + offset rows need to be retained
+			sortNode.setTopN(sortNode.getMode() == Mode.SORT);
+		}
 
         // Return root of tree for top node
 		return convertedNode;
 	}
 
+    /**
+     * Wrap the independent children of unions and joins in {@link ExchangeNode}s
+     * so that they may be processed in parallel
+     */
+	private void addExchangeNodes(RelationalNode node) {
+		boolean parallel = node instanceof UnionAllNode || (node.getClass() == JoinNode.class && isParallelSafe(node, false));
+		RelationalNode[] children = node.getChildren();
+		for (int i = 0; i < children.length && children[i] != null; i++) {
+			RelationalNode child = children[i];
+			addExchangeNodes(child);
+			//a lone access node is already processed asynchly
+			if (parallel && child.getClass() != AccessNode.class && isParallelSafe(child, true)) {
+				ExchangeNode exchange = new ExchangeNode(getID());
+				exchange.setElements(child.getElements());
+				exchange.addChild(child);
+				exchange.setParent(node);
+				children[i] = exchange;
+			}
+		}
+	}
+
+	/**
+	 * Conservatively determine if the node may be processed by a thread other than the
+	 * processing thread - only nodes without dependent, correlated, shared, or subquery 
+	 * processing are allowed.
+	 */
+	private static boolean isParallelSafe(RelationalNode node, boolean checkChildren) {
+		Class<?> clazz = node.getClass();
+		if (clazz == AccessNode.class) {
+			if (((AccessNode)node).info != null) {
+				return false;
+			}
+		} else if (clazz == JoinNode.class) {
+			JoinNode join = (JoinNode)node;
+			if (join.isDependent() || join.getJoinStrategy() instanceof NestedTableJoinStrategy) {
+				return false;
+			}
+		} else if (clazz != ProjectNode.class && clazz != SelectNode.class && clazz != GroupingNode.class
+				&& clazz != SortNode.class && clazz != DupRemoveNode.class && clazz != LimitNode.class
+				&& clazz != UnionAllNode.class && clazz != ExchangeNode.class) {
+			return false;
+		}
+		if (node instanceof SubqueryAwareRelationalNode 
+				&& !ValueIteratorProviderCollectorVisitor.getValueIteratorProviders(((SubqueryAwareRelationalNode)node).getObjects()).isEmpty()) {
+			return false;
+		}
+		if (checkChildren) {
+			for (RelationalNode child : node.getChildren()) {
+				if (child == null) {
+					break;
+				}
+				if (!isParallelSafe(child, true)) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
     protected int getID() {
         return idGenerator.nextInt();
     }
@@ -293,6 +362,12 @@ public class PlanToProcessConverter {
                     List rightExpressions = (List) node.getProperty(NodeConstants.Info.RIGHT_EXPRESSIONS);
                     jnode.setJoinExpressions(leftExpressions, rightExpressions);
                     joinCrits = (List) node.getProperty(NodeConstants.Info.NON_EQUI_JOIN_CRITERIA);
+                } else if (stype == JoinStrategyType.HASH) {
+                	jnode.setJoinStrategy(new HashJoinStrategy(node.hasBooleanProperty(Info.IS_HASH_BUILD_LEFT)));
+                    List leftExpressions = (List) node.getProperty(NodeConstants.Info.LEFT_EXPRESSIONS);
+                    List rightExpressions = (List) node.getProperty(NodeConstants.Info.RIGHT_EXPRESSIONS);
+                    jnode.setJoinExpressions(leftExpressions, rightExpressions);
+                    joinCrits = (List) node.getProperty(NodeConstants.Info.NON_EQUI_JOIN_CRITERIA);
                 } else if (stype == JoinStrategyType.NESTED_TABLE) {
                 	NestedTableJoinStrategy ntjStrategy = new NestedTableJoinStrategy();
                 	jnode.setJoinStrategy(ntjStrategy);
@@ -546,6 +621,7 @@ public class PlanToProcessConverter {
 			case NodeConstants.Types.GROUP:
 				GroupingNode gnode = new GroupingNode(getID());
 				gnode.setRollup(node.hasBooleanProperty(Info.ROLLUP));
+				gnode.setHashAggregation(node.hasBooleanProperty(Info.IS_HASH_AGGREGATION));
 				SymbolMap groupingMap = (SymbolMap)node.getProperty(NodeConstants.Info.SYMBOL_MAP);
 				gnode.setOutputMapping(groupingMap);
 				gnode.setRemoveDuplicates(node.hasBooleanProperty(NodeConstants.Info.IS_DUP_REMOVAL));
@@ -98,6 +98,7 @@ public final class NodeConstants {
         IS_LEFT_DISTINCT, 	// Boolean
         IS_RIGHT_DISTINCT, 	// Boolean
         IS_SEMI_DEP,		// Boolean
+        IS_HASH_BUILD_LEFT,	// Boolean
         PRESERVE,
         RIGHT_NESTED_REFERENCES,
         LEFT_NESTED_REFERENCES,
@@ -144,6 +145,7 @@ public final class NodeConstants {
         // Group node properties
         GROUP_COLS,         // List <Expression>
         ROLLUP,             // Boolean
+        IS_HASH_AGGREGATION, // Boolean
 
         // Special constant used in converting plan to process for all nodes
         OUTPUT_COLS,        // List <SingleElementSymbol>
@@ -34,6 +34,7 @@ import java.util.Set;
 import org.teiid.api.exception.query.QueryMetadataException;
 import org.teiid.api.exception.query.QueryPlannerException;
 import org.teiid.core.TeiidComponentException;
+import org.teiid.core.types.DataTypeManager;
 import org.teiid.query.analysis.AnalysisRecord;
 import org.teiid.query.metadata.QueryMetadataInterface;
 import org.teiid.query.optimizer.capabilities.CapabilitiesFinder;
@@ -214,6 +215,9 @@ public class RuleImplementJoinStrategy implements OptimizerRule {
 			}
 
 			boolean pushedRight = insertSort(joinNode.getLastChild(), rightExpressions, joinNode, metadata, capabilitiesFinder, pushRight, context);
+			if (!pushedLeft && !pushedRight && useHashJoin(joinNode, joinType, leftExpressions, rightExpressions, metadata, context)) {
+				continue;
+			}
         	if ((!pushedRight || !pushedLeft) && (joinType == JoinType.JOIN_INNER || (joinType == JoinType.JOIN_LEFT_OUTER && !pushedLeft))) {
         		joinNode.setProperty(NodeConstants.Info.JOIN_STRATEGY, JoinStrategyType.ENHANCED_SORT);
         	}
@@ -222,6 +226,42 @@ public class RuleImplementJoinStrategy implements OptimizerRule {
         return plan;
     }
 
+    /**
+     * Determine if a hash join should be used rather than sorting both sides.
+     * Requires hashable join expressions and cardinality estimates for both sides.
+     * Small sides are left to the enhanced sort join, which will index them.
+     */
+    static boolean useHashJoin(PlanNode joinNode, JoinType joinType, List<Expression> leftExpressions, List<Expression> rightExpressions, 
+    		QueryMetadataInterface metadata, CommandContext context) throws QueryMetadataException, TeiidComponentException {
+    	if (context == null || !context.getOptions().isHashJoin()
+    			|| (joinType != JoinType.JOIN_INNER && joinType != JoinType.JOIN_LEFT_OUTER)
+    			|| joinNode.getProperty(NodeConstants.Info.DEPENDENT_VALUE_SOURCE) != null
+    			|| joinNode.hasBooleanProperty(Info.IS_SEMI_DEP)
+    			|| joinNode.getProperty(NodeConstants.Info.SORT_LEFT) != SortOption.SORT
+    			|| joinNode.getProperty(NodeConstants.Info.SORT_RIGHT) != SortOption.SORT) {
+    		return false;
+    	}
+    	for (int i = 0; i < leftExpressions.size(); i++) {
+    		if (!DataTypeManager.isHashable(leftExpressions.get(i).getType()) || !DataTypeManager.isHashable(rightExpressions.get(i).getType())) {
+    			return false;
+    		}
+    	}
+    	float leftCost = NewCalculateCostUtil.computeCostForTree(joinNode.getFirstChild(), metadata);
+    	float rightCost = NewCalculateCostUtil.computeCostForTree(joinNode.getLastChild(), metadata);
+    	if (leftCost == NewCalculateCostUtil.UNKNOWN_VALUE || rightCost == NewCalculateCostUtil.UNKNOWN_VALUE) {
+    		return false;
+    	}
+    	boolean buildLeft = joinType == JoinType.JOIN_INNER && leftCost < rightCost;
+    	if ((buildLeft?leftCost:rightCost) <= context.getProcessorBatchSize()) {
+    		return false;
+    	}
+    	joinNode.setProperty(NodeConstants.Info.JOIN_STRATEGY, JoinStrategyType.HASH);
+    	if (buildLeft) {
+    		joinNode.setProperty(Info.IS_HASH_BUILD_LEFT, Boolean.TRUE);
+    	}
+    	return true;
+    }
+
     /**
      * Insert a sort node under the merge join node.  If necessary, also insert a project
      * node to handle function evaluation.  
@@ -29,6 +29,7 @@ import java.util.List;
 import org.teiid.api.exception.query.QueryMetadataException;
 import org.teiid.api.exception.query.QueryPlannerException;
 import org.teiid.core.TeiidComponentException;
+import org.teiid.core.types.DataTypeManager;
 import org.teiid.query.analysis.AnalysisRecord;
 import org.teiid.query.metadata.QueryMetadataInterface;
 import org.teiid.query.optimizer.capabilities.CapabilitiesFinder;
@@ -60,6 +61,15 @@ import org.teiid.query.util.CommandContext;
  */
 public class RulePlanSorts implements OptimizerRule {
 	
+	/**
+	 * The minimum ratio of input rows to groups for hash aggregation
+	 */
+	static final int HASH_AGGREGATION_MIN_REDUCTION = 4;
+	/**
+	 * The maximum estimated number of groups, in processor batches, for hash aggregation
+	 */
+	static final int HASH_AGGREGATION_MAX_BATCHES = 256;
+	
 	@Override
 	public PlanNode execute(PlanNode plan, QueryMetadataInterface metadata,
 			CapabilitiesFinder capabilitiesFinder, RuleStack rules,
@@ -170,12 +180,16 @@ public class RulePlanSorts implements OptimizerRule {
 					}
 				}
 			}
+			if (!node.hasBooleanProperty(NodeConstants.Info.IS_DUP_REMOVAL) && useHashAggregation(node, metadata, context)) {
+				node.setProperty(Info.IS_HASH_AGGREGATION, true);
+			}
 			//TODO: check the join interesting order
 			parentBlocking = true;
 			break;
 		case NodeConstants.Types.JOIN:
 			if (node.getProperty(NodeConstants.Info.JOIN_STRATEGY) == JoinStrategyType.NESTED_LOOP 
-					|| node.getProperty(NodeConstants.Info.JOIN_STRATEGY) == JoinStrategyType.NESTED_TABLE) {
+					|| node.getProperty(NodeConstants.Info.JOIN_STRATEGY) == JoinStrategyType.NESTED_TABLE
+					|| node.getProperty(NodeConstants.Info.JOIN_STRATEGY) == JoinStrategyType.HASH) {
 				break;
 			}
 			/*
@@ -217,6 +231,56 @@ public class RulePlanSorts implements OptimizerRule {
 		return root;
 	}
 
+	/**
+	 * Determine if the grouping should be performed with a hash table rather than a sort.
+	 * The output order must not be needed, all of the aggregates must expose their state, 
+	 * and the estimated number of groups must be small relative to the input.
+	 */
+	static boolean useHashAggregation(PlanNode node, QueryMetadataInterface metadata, CommandContext context) throws QueryMetadataException, TeiidComponentException {
+		if (context == null || !context.getOptions().isHashAggregation() 
+				|| node.hasBooleanProperty(Info.ROLLUP) 
+				|| node.getProperty(Info.SORT_ORDER) != null) {
+			return false;
+		}
+		SymbolMap map = (SymbolMap)node.getProperty(Info.SYMBOL_MAP);
+		for (Expression ex : map.asMap().values()) {
+			if (!(ex instanceof AggregateSymbol)) {
+				continue;
+			}
+			AggregateSymbol agg = (AggregateSymbol)ex;
+			if (agg.isDistinct() || agg.getOrderBy() != null) {
+				return false;
+			}
+			switch (agg.getAggregateFunction()) {
+			case COUNT:
+			case SUM:
+			case AVG:
+			case MIN:
+			case MAX:
+			case STDDEV_POP:
+			case STDDEV_SAMP:
+			case VAR_POP:
+			case VAR_SAMP:
+				break;
+			default:
+				return false;
+			}
+		}
+		List<Expression> groupCols = (List<Expression>)node.getProperty(Info.GROUP_COLS);
+		for (Expression ex : groupCols) {
+			if (!DataTypeManager.isHashable(ex.getType())) {
+				return false;
+			}
+		}
+		float groups = NewCalculateCostUtil.computeCostForTree(node, metadata);
+		float input = node.getFirstChild().getCardinality();
+		if (groups == NewCalculateCostUtil.UNKNOWN_VALUE || input == NewCalculateCostUtil.UNKNOWN_VALUE) {
+			return false;
+		}
+		return groups * HASH_AGGREGATION_MIN_REDUCTION <= input 
+				&& groups <= (long)context.getProcessorBatchSize() * HASH_AGGREGATION_MAX_BATCHES;
+	}
+
 	static PlanNode checkForProjectOptimization(PlanNode node, PlanNode root, 
 			QueryMetadataInterface metadata, CapabilitiesFinder capFinder, AnalysisRecord record, CommandContext context) throws QueryMetadataException, TeiidComponentException, QueryPlannerException {
 		PlanNode projectNode = node.getFirstChild();
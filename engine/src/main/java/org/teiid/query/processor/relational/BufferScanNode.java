@@ -0,0 +1,172 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.query.processor.relational;
+
+import static org.teiid.query.analysis.AnalysisRecord.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.teiid.client.plan.PlanNode;
+import org.teiid.common.buffer.BlockedException;
+import org.teiid.common.buffer.BufferManager;
+import org.teiid.common.buffer.TupleBatch;
+import org.teiid.common.buffer.TupleBuffer;
+import org.teiid.common.buffer.TupleSource;
+import org.teiid.core.TeiidComponentException;
+import org.teiid.core.TeiidProcessingException;
+import org.teiid.query.analysis.AnalysisRecord;
+import org.teiid.query.eval.Evaluator;
+import org.teiid.query.processor.ProcessorDataManager;
+import org.teiid.query.sql.LanguageObject;
+import org.teiid.query.sql.lang.Criteria;
+import org.teiid.query.sql.symbol.Expression;
+import org.teiid.query.sql.util.SymbolMap;
+import org.teiid.query.util.CommandContext;
+
+/**
+ * Filters and projects the rows of an existing {@link TupleBuffer}.
+ * The buffer is only read, it is not removed when the node is closed.
+ */
+public class BufferScanNode extends SubqueryAwareRelationalNode {
+
+	private TupleBuffer buffer;
+	private List<? extends Expression> bufferElements;
+	private Criteria criteria;
+	
+	//initialized state
+	private Map<Expression, Integer> elementMap;
+	private List<Expression> projectedExpressions;
+	
+	//processing state
+	private TupleSource tupleSource;
+	private List<?> currentTuple;
+	
+	public BufferScanNode(int nodeID) {
+		super(nodeID);
+	}
+	
+	public void setBuffer(TupleBuffer buffer, List<? extends Expression> bufferElements) {
+		this.buffer = buffer;
+		this.bufferElements = bufferElements;
+	}
+	
+	public void setCriteria(Criteria criteria) {
+		this.criteria = criteria;
+	}
+	
+	@Override
+	public void initialize(CommandContext context, BufferManager bufferManager,
+			ProcessorDataManager dataMgr) {
+		super.initialize(context, bufferManager, dataMgr);
+		if (this.elementMap != null) {
+			return;
+		}
+		this.elementMap = createLookupMap(this.bufferElements);
+		this.projectedExpressions = new ArrayList<Expression>(getElements().size());
+		for (Expression ex : (List<? extends Expression>)getElements()) {
+			this.projectedExpressions.add(SymbolMap.getExpression(ex));
+		}
+	}
+	
+	@Override
+	public void reset() {
+		super.reset();
+		closeTupleSource();
+	}
+	
+	@Override
+	public void closeDirect() {
+		super.closeDirect();
+		closeTupleSource();
+	}
+
+	private void closeTupleSource() {
+		if (this.tupleSource != null) {
+			this.tupleSource.closeSource();
+			this.tupleSource = null;
+		}
+		this.currentTuple = null;
+	}
+	
+	@Override
+	protected TupleBatch nextBatchDirect() throws BlockedException,
+			TeiidComponentException, TeiidProcessingException {
+		if (this.tupleSource == null) {
+			this.tupleSource = this.buffer.createIndexedTupleSource();
+		}
+		Evaluator eval = getEvaluator(this.elementMap);
+		while (!isBatchFull()) {
+			if (this.currentTuple == null) {
+				this.currentTuple = this.tupleSource.nextTuple();
+				if (this.currentTuple == null) {
+					terminateBatches();
+					break;
+				}
+			}
+			if (this.criteria == null || eval.evaluate(this.criteria, this.currentTuple)) {
+				List<Object> row = new ArrayList<Object>(this.projectedExpressions.size());
+				for (Expression ex : this.projectedExpressions) {
+					row.add(eval.evaluate(ex, this.currentTuple));
+				}
+				addBatchRow(row);
+			}
+			this.currentTuple = null;
+		}
+		return pullBatch();
+	}
+	
+	@Override
+	public Object clone() {
+		BufferScanNode clone = new BufferScanNode(getID());
+		this.copyTo(clone);
+		clone.buffer = this.buffer;
+		clone.bufferElements = this.bufferElements;
+		clone.criteria = this.criteria;
+		clone.elementMap = this.elementMap;
+		clone.projectedExpressions = this.projectedExpressions;
+		return clone;
+	}
+	
+	@Override
+	public Collection<? extends LanguageObject> getObjects() {
+		if (this.criteria == null) {
+			return Collections.emptyList();
+		}
+		return Arrays.asList(this.criteria);
+	}
+	
+	@Override
+	public PlanNode getDescriptionProperties() {
+		PlanNode props = super.getDescriptionProperties();
+		if (this.criteria != null) {
+			AnalysisRecord.addLanaguageObjects(props, PROP_CRITERIA, Arrays.asList(this.criteria));
+		}
+		return props;
+	}
+
+}
@@ -0,0 +1,265 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.query.processor.relational;
+
+import java.util.LinkedList;
+import java.util.concurrent.Future;
+
+import org.teiid.common.buffer.BlockedException;
+import org.teiid.common.buffer.TupleBatch;
+import org.teiid.core.TeiidComponentException;
+import org.teiid.core.TeiidProcessingException;
+import org.teiid.core.TeiidRuntimeException;
+import org.teiid.dqp.internal.process.RequestWorkItem;
+import org.teiid.query.util.CommandContext;
+
+/**
+ * Allows the child subtree to be processed by a task on the {@link CommandContext#getExecutor()}
+ * so that independent subtrees, such as the branches of a union or the sides of a join,
+ * may run concurrently up to the {@link CommandContext#getMaxParallelism()}.
+ * <br>
+ * Only a single thread works against the child at a time.  If there are no prefetched
+ * batches and the task is not running, the child is processed inline as with any other node.
+ * So a child that blocks, or a request that is already at its max parallelism, simply
+ * reverts to serial processing.  A task is only started again once the prefetched batches
+ * fall to the low water mark, and not at all once the child has blocked.
+ * <br>
+ * Closing or resetting cancels a task that has not yet started and only waits for one that has.
+ */
+public class ExchangeNode extends RelationalNode {
+
+	static final int MAX_QUEUED_BATCHES = 4;
+	static final int LOW_WATER_BATCHES = MAX_QUEUED_BATCHES/2;
+
+	//state guarded by this
+	private LinkedList<TupleBatch> batches = new LinkedList<TupleBatch>();
+	private boolean running;
+	private Future<?> task;
+	private boolean waiting;
+	private boolean stopped;
+	private boolean done;
+	private boolean serial;
+	private Throwable asynchException;
+
+	public ExchangeNode(int nodeID) {
+		super(nodeID);
+	}
+
+	@Override
+	public void reset() {
+		stopTask();
+		super.reset();
+		synchronized (this) {
+			batches.clear();
+			stopped = false;
+			done = false;
+			serial = false;
+			asynchException = null;
+		}
+	}
+
+	@Override
+	public void open() throws TeiidComponentException,
+			TeiidProcessingException {
+		super.open();
+		processAsynch();
+	}
+
+	@Override
+	protected TupleBatch nextBatchDirect() throws BlockedException,
+			TeiidComponentException, TeiidProcessingException {
+		synchronized (this) {
+			if (asynchException != null) {
+				unwrapException(asynchException);
+			}
+			TupleBatch batch = batches.poll();
+			if (batch != null) {
+				if (batches.size() <= LOW_WATER_BATCHES) {
+					processAsynch(); // read ahead
+				}
+				return batch;
+			}
+			if (running) {
+				if (this.getContext().getWorkItem() == null) {
+					//this is for compatibility with engine tests that are below the level of using the work item
+					while (running && batches.isEmpty()) {
+						try {
+							this.wait();
+						} catch (InterruptedException e) {
+							throw new TeiidRuntimeException(e);
+						}
+					}
+				} else {
+					waiting = true;
+					throw BlockedException.block("Blocking on parallel results for node", getID()); //$NON-NLS-1$
+				}
+				return nextBatchDirect();
+			}
+		}
+		TupleBatch batch = this.getChildren()[0].nextBatch();
+		if (!batch.getTerminationFlag()) {
+			processAsynch();
+		}
+		return batch;
+	}
+
+	private void unwrapException(Throwable e) throws TeiidComponentException, TeiidProcessingException {
+		if (e instanceof TeiidComponentException) {
+			throw (TeiidComponentException)e;
+		}
+		if (e instanceof TeiidProcessingException) {
+			throw (TeiidProcessingException)e;
+		}
+		if (e instanceof RuntimeException) {
+			throw (RuntimeException)e;
+		}
+		if (e instanceof Error) {
+			throw (Error)e;
+		}
+		throw new TeiidComponentException(e);
+	}
+
+	/**
+	 * Start the background task if we are allowed another thread
+	 */
+	private synchronized void processAsynch() {
+		if (running || stopped || done || serial || batches.size() >= MAX_QUEUED_BATCHES) {
+			return;
+		}
+		running = true;
+		task = null;
+		try {
+			task = getContext().submitParallel(new Runnable() {
+				@Override
+				public void run() {
+					process();
+				}
+			}, new Runnable() {
+				@Override
+				public void run() {
+					finished();
+				}
+			});
+		} finally {
+			if (task == null) {
+				running = false;
+			}
+		}
+	}
+
+	private void process() {
+		try {
+			while (true) {
+				synchronized (this) {
+					if (stopped || batches.size() >= MAX_QUEUED_BATCHES) {
+						break;
+					}
+				}
+				TupleBatch batch = this.getChildren()[0].nextBatch();
+				boolean notify = false;
+				synchronized (this) {
+					if (batch.getRowCount() > 0 || batch.getTerminationFlag()) {
+						batches.add(batch);
+						notify = waiting;
+						waiting = false;
+						this.notifyAll();
+					}
+					if (batch.getTerminationFlag()) {
+						done = true;
+						break;
+					}
+				}
+				if (notify) {
+					moreWork();
+				}
+			}
+		} catch (BlockedException e) {
+			//the processing thread will resume inline
+			synchronized (this) {
+				serial = true;
+			}
+		} catch (Throwable e) {
+			synchronized (this) {
+				asynchException = e;
+			}
+		}
+	}
+	
+	/**
+	 * Called after the parallel thread has been released
+	 */
+	private void finished() {
+		boolean notify = false;
+		synchronized (this) {
+			running = false;
+			notify = waiting || asynchException != null;
+			waiting = false;
+			this.notifyAll();
+		}
+		if (notify) {
+			moreWork();
+		}
+	}
+
+	private void moreWork() {
+		RequestWorkItem workItem = this.getContext().getWorkItem();
+		if (workItem != null) {
+			workItem.moreWork();
+		}
+	}
+
+	/**
+	 * Prevent further asynch work, cancel a task that has not started, 
+	 * and wait for a started task to finish
+	 */
+	private synchronized void stopTask() {
+		stopped = true;
+		if (task != null && task.cancel(false)) {
+			running = false;
+		}
+		task = null;
+		while (running) {
+			try {
+				this.wait();
+			} catch (InterruptedException e) {
+				throw new TeiidRuntimeException(e);
+			}
+		}
+	}
+
+	@Override
+	public void closeDirect() {
+		stopTask();
+		synchronized (this) {
+			batches.clear();
+		}
+	}
+
+	@Override
+	public Object clone() {
+		ExchangeNode clonedNode = new ExchangeNode(super.getID());
+		super.copyTo(clonedNode);
+		return clonedNode;
+	}
+
+}
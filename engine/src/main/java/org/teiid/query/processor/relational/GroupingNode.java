@@ -28,7 +28,9 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
@@ -38,6 +40,8 @@ import org.teiid.api.exception.query.FunctionExecutionException;
 import org.teiid.client.plan.PlanNode;
 import org.teiid.common.buffer.BlockedException;
 import org.teiid.common.buffer.BufferManager;
+import org.teiid.common.buffer.BufferManager.BufferReserveMode;
+import org.teiid.common.buffer.BufferManager.TupleSourceType;
 import org.teiid.common.buffer.STree;
 import org.teiid.common.buffer.STree.InsertMode;
 import org.teiid.common.buffer.TupleBatch;
@@ -48,6 +52,9 @@ import org.teiid.core.TeiidProcessingException;
 import org.teiid.core.TeiidRuntimeException;
 import org.teiid.core.types.DataTypeManager;
 import org.teiid.language.SortSpecification.NullOrdering;
+import org.teiid.logging.LogConstants;
+import org.teiid.logging.LogManager;
+import org.teiid.logging.MessageLevel;
 import org.teiid.query.eval.Evaluator;
 import org.teiid.query.function.aggregate.*;
 import org.teiid.query.processor.BatchCollector;
@@ -136,12 +143,33 @@ public class GroupingNode extends SubqueryAwareRelationalNode {
     private int[] accumulatorStateCount;
     private TupleSource groupSortTupleSource;
     private int[] projection;
+    
+    // Hash aggregation
+    private boolean hashAggregation;
+    private Map<List<?>, List<Object>> groups;
+    private Iterator<Map.Entry<List<?>, List<Object>>> groupIterator;
+    private int groupBatchSize;
+    private int groupBatchBytes;
+    private int groupCapacity;
+    private int reserved;
+    private int hashPass;
+    private boolean hashPartitioned;
+    private TupleBuffer[] hashPartitions;
+    private TupleBuffer currentPartition;
+    private LinkedList<TupleBuffer> pendingPartitions = new LinkedList<TupleBuffer>();
 
     private static final int COLLECTION = 1;
     private static final int SORT = 2;
     private static final int GROUP = 3;
     private static final int GROUP_SORT = 4;
     private static final int GROUP_SORT_OUTPUT = 5;
+    private static final int HASH_GROUP = 6;
+    private static final int HASH_GROUP_OUTPUT = 7;
+    
+    /**
+     * The number of partitions used when the hash aggregation reservation is exhausted
+     */
+    static final int HASH_PARTITIONS = 16;
 	private int[] indexes;
 	private boolean rollup;
 	private HashMap<Integer, Integer> indexMap;
@@ -161,6 +189,11 @@ public class GroupingNode extends SubqueryAwareRelationalNode {
         lastRow = null;
         currentGroupTuple = null;
         
+        groups = null;
+        groupIterator = null;
+        hashPass = 0;
+        hashPartitioned = false;
+        
         if (this.functions != null) {
 	    	for (AggregateFunction[] functions : this.functions) {
 	    		for (AggregateFunction function : functions) {
@@ -181,6 +214,18 @@ public class GroupingNode extends SubqueryAwareRelationalNode {
     public void setOutputMapping(SymbolMap outputMapping) {
 		this.outputMapping = outputMapping;
 	}
+    
+    /**
+     * Use a hash table of accumulator states rather than sorting the input.
+     * The output will not be ordered by the grouping columns.
+     */
+    public void setHashAggregation(boolean hashAggregation) {
+		this.hashAggregation = hashAggregation;
+	}
+    
+    public boolean isHashAggregation() {
+		return hashAggregation;
+	}
 
 	@Override
 	public void initialize(CommandContext context, BufferManager bufferManager,
@@ -348,6 +393,10 @@ public class GroupingNode extends SubqueryAwareRelationalNode {
     AggregateFunction[][] getFunctions() {
 		return functions;
 	}
+    
+    boolean isHashPartitioned() {
+		return hashPartitioned;
+	}
 
 	public TupleBatch nextBatchDirect()
 		throws BlockedException, TeiidComponentException, TeiidProcessingException {
@@ -375,6 +424,16 @@ public class GroupingNode extends SubqueryAwareRelationalNode {
         	return groupSortOutputPhase();
         }
         
+        while (this.phase == HASH_GROUP || this.phase == HASH_GROUP_OUTPUT) {
+        	if (this.phase == HASH_GROUP) {
+        		hashGroupPhase();
+        	}
+        	TupleBatch batch = hashGroupOutputPhase();
+        	if (batch != null) {
+        		return batch;
+        	}
+        }
+        
         this.terminateBatches();
         return pullBatch();
     }
@@ -468,6 +527,16 @@ public class GroupingNode extends SubqueryAwareRelationalNode {
 			    		schema.add(es);
 		    		}
 		    		
+		    		if (hashAggregation) {
+		    			this.groups = new HashMap<List<?>, List<Object>>();
+		    			this.groupBatchSize = this.getBufferManager().getProcessorBatchSize(schema);
+		    			//account for the hash entry and the copy of the key 
+		    			this.groupBatchBytes = 2 * this.getBufferManager().getSchemaSize(schema);
+			    		this.groupSortTupleSource = this.getGroupSortTupleSource();
+			    		this.phase = HASH_GROUP;
+			    		return;
+		    		}
+		    		
 		    		tree = this.getBufferManager().createSTree(schema, this.getConnectionID(), orderBy.size());
 		    		//non-default order needs to update the comparator
 		    		tree.getComparator().setNullOrdering(nullOrdering);
@@ -556,6 +625,162 @@ public class GroupingNode extends SubqueryAwareRelationalNode {
 		return pullBatch();
 	}
 
+	/**
+	 * Process the input into the hash table of accumulator states.  Once the memory reservation 
+	 * is exhausted the rows for new groups are partitioned to be processed in a later pass. 
+	 * @throws TeiidComponentException
+	 * @throws TeiidProcessingException
+	 */
+	private void hashGroupPhase() throws TeiidComponentException, TeiidProcessingException {
+		int size = orderBy.size();
+		List<Object> accumulated = new ArrayList<Object>();
+		while (true) {
+			if (currentGroupTuple == null) {
+				currentGroupTuple = this.groupSortTupleSource.nextTuple();
+				if (currentGroupTuple == null) {
+					break;
+				}
+			}
+			List<?> key = currentGroupTuple.subList(0, size);
+			List<Object> current = this.groups.get(key);
+			if (current == null && !reserveGroup()) {
+				this.hashPartitions[getPartition(key, this.hashPass, this.hashPartitions.length)].addTuple(currentGroupTuple);
+				currentGroupTuple = null;
+				continue;
+			}
+			accumulated.clear();
+			int index = 0;
+			for (int i = 0; i < this.groupSortfunctions.length; i++) {
+				AggregateFunction aggregateFunction = this.groupSortfunctions[i];
+				if (current != null) {
+					aggregateFunction.setState(current, index);
+				} else {
+					aggregateFunction.reset();
+				}
+				index+=this.accumulatorStateCount[i];
+				aggregateFunction.addInput(currentGroupTuple, getContext());
+				aggregateFunction.getState(accumulated);
+			}
+			if (current == null) {
+				this.groups.put(new ArrayList<Object>(key), new ArrayList<Object>(accumulated));
+			} else {
+				for (int i = 0; i < accumulated.size(); i++) {
+					current.set(i, accumulated.get(i));
+				}
+			}
+			currentGroupTuple = null;
+		}
+		this.groupSortTupleSource.closeSource();
+		this.groupSortTupleSource = null;
+		if (this.currentPartition != null) {
+			this.currentPartition.remove();
+			this.currentPartition = null;
+		}
+		if (this.hashPartitions != null) {
+			for (TupleBuffer tb : this.hashPartitions) {
+				tb.close();
+				if (tb.getRowCount() == 0) {
+					tb.remove();
+				} else {
+					this.pendingPartitions.add(tb);
+				}
+			}
+			this.hashPartitions = null;
+		}
+		this.groupIterator = this.groups.entrySet().iterator();
+		this.phase = HASH_GROUP_OUTPUT;
+	}
+	
+	/**
+	 * Ensure that there is reserved space for a new group
+	 * @return true if the group can be held in memory
+	 * @throws TeiidComponentException
+	 */
+	private boolean reserveGroup() throws TeiidComponentException {
+		if (this.groups.size() < this.groupCapacity) {
+			return true;
+		}
+		if (this.hashPartitions != null) {
+			return false;
+		}
+		BufferManager bm = this.getBufferManager();
+		//always force the first batch so that each pass makes progress
+		boolean force = this.reserved == 0 || this.reserved < bm.getMaxProcessingSize();
+		int toReserve = bm.reserveBuffers(this.groupBatchBytes, force?BufferReserveMode.FORCE:BufferReserveMode.NO_WAIT);
+		this.reserved += toReserve;
+		this.groupCapacity += (int)((long)this.groupBatchSize * toReserve / this.groupBatchBytes);
+		if (toReserve < this.groupBatchBytes) {
+			if (LogManager.isMessageToBeRecorded(LogConstants.CTX_DQP, MessageLevel.DETAIL)) {
+				LogManager.logDetail(LogConstants.CTX_DQP, "Hash aggregation partitioning new groups after", this.groups.size(), "groups", this.getID()); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+			this.hashPartitioned = true;
+			this.hashPartitions = new TupleBuffer[HASH_PARTITIONS];
+			List<Expression> schema = new ArrayList<Expression>(collectedExpressions.keySet());
+			for (int i = 0; i < this.hashPartitions.length; i++) {
+				this.hashPartitions[i] = bm.createTupleBuffer(schema, this.getConnectionID(), TupleSourceType.PROCESSOR);
+				this.hashPartitions[i].setForwardOnly(true);
+			}
+		}
+		return this.groups.size() < this.groupCapacity;
+	}
+	
+	/**
+	 * Get the partition for the given key.  The pass is used to vary the
+	 * hash so that a partition is split again if it must be re-partitioned.
+	 */
+	static int getPartition(List<?> key, int pass, int partitionCount) {
+		int h = Integer.rotateLeft(key.hashCode() * 0x9E3779B9, pass * 8);
+		return (h >>> 1) % partitionCount;
+	}
+	
+	/**
+	 * Output the groups in the hash table.  
+	 * @return the next batch or null if another pass is needed for the partitioned rows
+	 * @throws TeiidComponentException
+	 * @throws TeiidProcessingException
+	 */
+	private TupleBatch hashGroupOutputPhase() throws TeiidComponentException, TeiidProcessingException {
+		int size = orderBy.size();
+		List<Object> vals = Arrays.asList(new Object[size + groupSortfunctions.length]);
+		while (this.groupIterator.hasNext()) {
+			Map.Entry<List<?>, List<Object>> entry = this.groupIterator.next();
+			List<?> key = entry.getKey();
+			for (int i = 0; i < size; i++) {
+				vals.set(i, key.get(i));
+			}
+			int index = 0;
+			for (int i = 0; i < this.groupSortfunctions.length; i++) {
+				AggregateFunction aggregateFunction = this.groupSortfunctions[i];
+				aggregateFunction.setState(entry.getValue(), index);
+				index+=this.accumulatorStateCount[i];
+				vals.set(size + i, aggregateFunction.getResult(getContext()));
+			}
+			List<?> result = RelationalNode.projectTuple(projection, vals);
+			addBatchRow(result);
+			if (isBatchFull()) {
+				return pullBatch();
+			}
+		}
+		this.groups.clear();
+		this.groupIterator = null;
+		releaseReserved();
+		if (!this.pendingPartitions.isEmpty()) {
+			this.currentPartition = this.pendingPartitions.removeFirst();
+			this.groupSortTupleSource = this.currentPartition.createIndexedTupleSource(true);
+			this.hashPass++;
+			this.phase = HASH_GROUP;
+			return null;
+		}
+		terminateBatches();
+		return pullBatch();
+	}
+
+	private void releaseReserved() {
+		this.getBufferManager().releaseBuffers(this.reserved);
+		this.reserved = 0;
+		this.groupCapacity = 0;
+	}
+
     private void sortPhase() throws BlockedException, TeiidComponentException, TeiidProcessingException {
         this.sortBuffer = this.sortUtility.sort();
         this.sortBuffer.setForwardOnly(true);
@@ -679,6 +904,25 @@ public class GroupingNode extends SubqueryAwareRelationalNode {
     		this.tree.remove();
     		this.tree = null;
     	}
+    	if (this.hashPartitions != null) {
+    		for (TupleBuffer tb : this.hashPartitions) {
+    			tb.remove();
+    		}
+    		this.hashPartitions = null;
+    	}
+    	if (this.currentPartition != null) {
+    		this.currentPartition.remove();
+    		this.currentPartition = null;
+    	}
+    	for (TupleBuffer tb : this.pendingPartitions) {
+    		tb.remove();
+    	}
+    	this.pendingPartitions.clear();
+    	this.groups = null;
+    	this.groupIterator = null;
+    	if (this.reserved > 0) {
+    		releaseReserved();
+    	}
     }
 
 	protected void getNodeString(StringBuffer str) {
@@ -696,6 +940,7 @@ public class GroupingNode extends SubqueryAwareRelationalNode {
 		clonedNode.outputMapping = outputMapping;
 		clonedNode.orderBy = orderBy;
 		clonedNode.rollup = rollup;
+		clonedNode.hashAggregation = hashAggregation;
 		return clonedNode;
 	}
 
@@ -722,6 +967,9 @@ public class GroupingNode extends SubqueryAwareRelationalNode {
         if (rollup) {
         	props.addProperty(PROP_ROLLUP, Boolean.TRUE.toString());
         }
+        if (hashAggregation) {
+        	props.addProperty(PROP_HASH_AGGREGATION, Boolean.TRUE.toString());
+        }
         return props;
     }
 
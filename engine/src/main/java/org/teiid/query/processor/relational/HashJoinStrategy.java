@@ -0,0 +1,566 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.query.processor.relational;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.teiid.common.buffer.BufferManager;
+import org.teiid.common.buffer.BufferManager.BufferReserveMode;
+import org.teiid.common.buffer.BufferManager.TupleSourceType;
+import org.teiid.common.buffer.TupleBuffer;
+import org.teiid.common.buffer.TupleSource;
+import org.teiid.core.TeiidComponentException;
+import org.teiid.core.TeiidProcessingException;
+import org.teiid.logging.LogConstants;
+import org.teiid.logging.LogManager;
+import org.teiid.logging.MessageLevel;
+import org.teiid.query.processor.relational.SourceState.ImplicitBuffer;
+import org.teiid.query.sql.lang.JoinType;
+
+
+/**
+ * A hybrid/grace hash join for inner and left outer equi-joins.
+ * <br>
+ * The build side is fully buffered and loaded into an in memory hash table if it fits
+ * within the memory that can be reserved.  Otherwise both sides are partitioned by the hash
+ * of the join expressions into {@link TupleBuffer}s and each pair of partitions is joined
+ * in turn.
+ * <br>
+ * A build partition that still exceeds the reservation is recursively partitioned with a 
+ * different hash.  If that does not split the partition, as happens when the rows share a 
+ * join key, the build partition is loaded in chunks that fit the reservation and the probe 
+ * partition is read once per chunk.
+ * <br>
+ * Only the left side may be the probe side of a left outer join.  Join expression values must
+ * be hashable - see {@link org.teiid.core.types.DataTypeManager#isHashable(Class)}.
+ */
+public class HashJoinStrategy extends JoinStrategy {
+
+	private enum HashState {
+		BUILD, PARTITION, PROBE, NEXT_PARTITION, DONE
+	}
+	
+	private static class Partition {
+		TupleBuffer build;
+		TupleBuffer probe;
+		int level;
+		
+		Partition(TupleBuffer build, TupleBuffer probe, int level) {
+			this.build = build;
+			this.probe = probe;
+			this.level = level;
+		}
+		
+		void remove() {
+			this.build.remove();
+			this.probe.remove();
+		}
+	}
+
+	/**
+	 * The maximum number of partitions used for a single pass
+	 */
+	static final int MAX_PARTITIONS = 64;
+	
+	/**
+	 * The maximum number of times a partition will be repartitioned
+	 */
+	static final int MAX_LEVELS = 3;
+
+	private boolean buildLeft;
+
+	//processing state
+	private HashState state;
+	private SourceState buildSource;
+	private SourceState probeSource;
+	private Map<Object, List<List<?>>> table;
+	private TupleBuffer[] buildPartitions;
+	private TupleBuffer[] probePartitions;
+	private LinkedList<Partition> partitions;
+	private Partition partition;
+	private int partitionReserved;
+	private TupleSource probeTs;
+	private List<?> probeTuple;
+	private List<List<?>> matches;
+	private int matchIndex;
+	private boolean matched;
+	private boolean partitioned;
+	
+	//chunked processing state
+	private TupleSource buildTs;
+	private boolean lastChunk;
+	private BitSet probeMatched;
+	private int probeIndex;
+
+	public HashJoinStrategy(boolean buildLeft) {
+		this.buildLeft = buildLeft;
+	}
+
+	@Override
+	public HashJoinStrategy clone() {
+		return new HashJoinStrategy(buildLeft);
+	}
+
+	@Override
+	public void initialize(JoinNode joinNode) {
+		super.initialize(joinNode);
+		if (joinNode.getJoinType() != JoinType.JOIN_INNER) {
+			//the left must be the probe side to produce the outer rows
+			this.buildLeft = false;
+		}
+		if (buildLeft) {
+			this.buildSource = this.leftSource;
+			this.probeSource = this.rightSource;
+		} else {
+			this.buildSource = this.rightSource;
+			this.probeSource = this.leftSource;
+		}
+		this.state = HashState.BUILD;
+		this.partitioned = false;
+	}
+
+	@Override
+	public void close() {
+		if (joinNode == null) {
+			return;
+		}
+		super.close();
+		removePartitions(this.buildPartitions);
+		removePartitions(this.probePartitions);
+		this.buildPartitions = null;
+		this.probePartitions = null;
+		if (this.partitions != null) {
+			for (Partition p : this.partitions) {
+				p.remove();
+			}
+			this.partitions = null;
+		}
+		if (this.partition != null) {
+			this.partition.remove();
+			this.partition = null;
+		}
+		this.table = null;
+		this.matches = null;
+		this.probeTuple = null;
+		this.probeMatched = null;
+		if (this.probeTs != null) {
+			this.probeTs.closeSource();
+			this.probeTs = null;
+		}
+		if (this.buildTs != null) {
+			this.buildTs.closeSource();
+			this.buildTs = null;
+		}
+	}
+
+	private void removePartitions(TupleBuffer[] partitions) {
+		if (partitions == null) {
+			return;
+		}
+		for (TupleBuffer tb : partitions) {
+			if (tb != null) {
+				tb.remove();
+			}
+		}
+	}
+
+	@Override
+	protected void loadLeft() throws TeiidComponentException,
+			TeiidProcessingException {
+		if (buildLeft) {
+			this.leftSource.getTupleBuffer();
+		}
+	}
+
+	@Override
+	protected void loadRight() throws TeiidComponentException,
+			TeiidProcessingException {
+		if (buildLeft) {
+			this.rightSource.setImplicitBuffer(ImplicitBuffer.NONE);
+		} else {
+			this.rightSource.getTupleBuffer();
+		}
+	}
+
+	@Override
+	protected void process() throws TeiidComponentException,
+			TeiidProcessingException {
+		if (state == HashState.BUILD) {
+			build();
+		}
+		if (state == HashState.PARTITION) {
+			partitionProbe();
+		}
+		while (state != HashState.DONE) {
+			if (state == HashState.NEXT_PARTITION) {
+				nextPartition();
+				continue;
+			}
+			probe();
+		}
+	}
+
+	/**
+	 * Determine if the build side can be held in memory, if not
+	 * partition it.
+	 */
+	private void build() throws TeiidComponentException, TeiidProcessingException {
+		TupleBuffer buffer = this.buildSource.getTupleBuffer();
+		BufferManager bm = this.joinNode.getBufferManager();
+		long memorySpaceNeeded = buffer.getRowCount() * buffer.getRowSizeEstimate();
+		int toReserve = (int)Math.min(memorySpaceNeeded, bm.getMaxProcessingSize());
+		int tableReserved = bm.reserveBuffers(toReserve, BufferReserveMode.FORCE);
+		if (memorySpaceNeeded > tableReserved) {
+			tableReserved += bm.reserveBuffers((int)Math.min(Integer.MAX_VALUE, memorySpaceNeeded - tableReserved), BufferReserveMode.NO_WAIT);
+		}
+		this.reserved += tableReserved;
+		TupleSource ts = buffer.createIndexedTupleSource(!this.joinNode.isDependent());
+		if (memorySpaceNeeded <= tableReserved) {
+			this.table = createTable((int)Math.min(buffer.getRowCount(), Integer.MAX_VALUE));
+			loadTable(ts, this.table, Long.MAX_VALUE);
+			ts.closeSource();
+			this.probeTs = this.probeSource.getIterator();
+			this.state = HashState.PROBE;
+			return;
+		}
+		int partitionCount = getPartitionCount(memorySpaceNeeded, tableReserved);
+		if (LogManager.isMessageToBeRecorded(LogConstants.CTX_DQP, MessageLevel.DETAIL)) {
+			LogManager.logDetail(LogConstants.CTX_DQP, "Hash join partitioning into", partitionCount, "partitions", this.joinNode.getID()); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		this.partitioned = true;
+		this.buildPartitions = createPartitions(this.buildSource, partitionCount);
+		this.probePartitions = createPartitions(this.probeSource, partitionCount);
+		splitPartitions(ts, this.buildSource.getExpressionIndexes(), this.buildPartitions, 0);
+		ts.closeSource();
+		//release the reservation beyond what a single partition should need
+		int perPartition = (int)Math.min(tableReserved, 2 * memorySpaceNeeded / partitionCount);
+		bm.releaseBuffers(tableReserved - perPartition);
+		this.reserved -= tableReserved - perPartition;
+		this.partitionReserved = perPartition;
+		this.probeTs = this.probeSource.getIterator();
+		this.state = HashState.PARTITION;
+	}
+	
+	private static int getPartitionCount(long memorySpaceNeeded, int reserved) {
+		return (int)Math.min(MAX_PARTITIONS, 2 * (memorySpaceNeeded / Math.max(1, reserved) + 1));
+	}
+
+	private TupleBuffer[] createPartitions(SourceState source, int partitionCount) throws TeiidComponentException {
+		TupleBuffer[] result = new TupleBuffer[partitionCount];
+		for (int i = 0; i < partitionCount; i++) {
+			result[i] = this.joinNode.getBufferManager().createTupleBuffer(source.getSource().getElements(), this.joinNode.getConnectionID(), TupleSourceType.PROCESSOR);
+			result[i].setForwardOnly(true);
+		}
+		return result;
+	}
+	
+	/**
+	 * Add the rows with non-null keys to the partitions for the given level 
+	 */
+	private void splitPartitions(TupleSource ts, int[] indexes, TupleBuffer[] result, int level) throws TeiidComponentException, TeiidProcessingException {
+		List<?> tuple = null;
+		while ((tuple = ts.nextTuple()) != null) {
+			Object key = getKey(tuple, indexes);
+			if (key == null) {
+				continue; //can never match
+			}
+			result[getPartition(key, result.length, level)].addTuple(tuple);
+		}
+		for (TupleBuffer tb : result) {
+			tb.close();
+		}
+	}
+
+	private void partitionProbe() throws TeiidComponentException, TeiidProcessingException {
+		int[] indexes = this.probeSource.getExpressionIndexes();
+		while (true) {
+			List<?> tuple = this.probeTs.nextTuple();
+			if (tuple == null) {
+				break;
+			}
+			Object key = getKey(tuple, indexes);
+			if (key == null) {
+				if (this.joinNode.getJoinType() == JoinType.JOIN_LEFT_OUTER) {
+					this.joinNode.addBatchRow(outputTuple(tuple, this.rightSource.getOuterVals()));
+				}
+				continue;
+			}
+			this.probePartitions[getPartition(key, this.probePartitions.length, 0)].addTuple(tuple);
+		}
+		this.partitions = new LinkedList<Partition>();
+		for (int i = 0; i < this.probePartitions.length; i++) {
+			this.probePartitions[i].close();
+			this.partitions.add(new Partition(this.buildPartitions[i], this.probePartitions[i], 0));
+		}
+		this.buildPartitions = null;
+		this.probePartitions = null;
+		this.probeTs = null;
+		this.state = HashState.NEXT_PARTITION;
+	}
+
+	private void nextPartition() throws TeiidComponentException, TeiidProcessingException {
+		if (this.buildTs != null) {
+			//continue with the next chunk of the current build partition
+			buildChunk();
+			return;
+		}
+		this.table = null;
+		this.probeMatched = null;
+		if (this.partition != null) {
+			this.partition.remove();
+			this.partition = null;
+		}
+		if (this.partitions.isEmpty()) {
+			this.state = HashState.DONE;
+			return;
+		}
+		Partition p = this.partitions.removeFirst();
+		this.partition = p;
+		if (p.probe.getRowCount() == 0 || (p.build.getRowCount() == 0 && this.joinNode.getJoinType() != JoinType.JOIN_LEFT_OUTER)) {
+			return;
+		}
+		long memorySpaceNeeded = p.build.getRowCount() * p.build.getRowSizeEstimate();
+		if (memorySpaceNeeded > this.partitionReserved) {
+			int additional = this.joinNode.getBufferManager().reserveBuffers((int)Math.min(Integer.MAX_VALUE, memorySpaceNeeded - this.partitionReserved), BufferReserveMode.NO_WAIT);
+			this.partitionReserved += additional;
+			this.reserved += additional;
+		}
+		if (memorySpaceNeeded <= this.partitionReserved) {
+			this.table = createTable((int)p.build.getRowCount());
+			TupleSource ts = p.build.createIndexedTupleSource(true);
+			loadTable(ts, this.table, Long.MAX_VALUE);
+			ts.closeSource();
+			this.probeTs = p.probe.createIndexedTupleSource(true);
+			this.state = HashState.PROBE;
+			return;
+		}
+		if (p.level < MAX_LEVELS && repartition(p, memorySpaceNeeded)) {
+			this.partition = null;
+			return;
+		}
+		//the partition cannot be split further, so read the build side in chunks that fit the reservation
+		if (LogManager.isMessageToBeRecorded(LogConstants.CTX_DQP, MessageLevel.DETAIL)) {
+			LogManager.logDetail(LogConstants.CTX_DQP, "Hash join processing a skewed partition with", p.build.getRowCount(), "rows in chunks", this.joinNode.getID()); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		p.probe.setForwardOnly(false);
+		this.buildTs = p.build.createIndexedTupleSource(true);
+		if (this.joinNode.getJoinType() == JoinType.JOIN_LEFT_OUTER) {
+			this.probeMatched = new BitSet();
+		}
+		buildChunk();
+	}
+	
+	/**
+	 * Split the partition using the hash for the next level. 
+	 * @return false if the build partition would not be split into smaller partitions
+	 */
+	private boolean repartition(Partition p, long memorySpaceNeeded) throws TeiidComponentException, TeiidProcessingException {
+		int partitionCount = getPartitionCount(memorySpaceNeeded, this.partitionReserved);
+		int level = p.level + 1;
+		TupleBuffer[] builds = createPartitions(this.buildSource, partitionCount);
+		//read without removing the batches in case the split is not useful
+		p.build.setForwardOnly(false);
+		TupleSource ts = p.build.createIndexedTupleSource();
+		try {
+			splitPartitions(ts, this.buildSource.getExpressionIndexes(), builds, level);
+		} finally {
+			ts.closeSource();
+		}
+		for (TupleBuffer tb : builds) {
+			if (tb.getRowCount() == p.build.getRowCount()) {
+				removePartitions(builds);
+				return false;
+			}
+		}
+		if (LogManager.isMessageToBeRecorded(LogConstants.CTX_DQP, MessageLevel.DETAIL)) {
+			LogManager.logDetail(LogConstants.CTX_DQP, "Hash join repartitioning a partition with", p.build.getRowCount(), "rows into", partitionCount, "partitions", this.joinNode.getID()); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		}
+		TupleBuffer[] probes = createPartitions(this.probeSource, partitionCount);
+		boolean success = false;
+		ts = p.probe.createIndexedTupleSource(true);
+		try {
+			splitPartitions(ts, this.probeSource.getExpressionIndexes(), probes, level);
+			success = true;
+		} finally {
+			ts.closeSource();
+			if (!success) {
+				removePartitions(builds);
+				removePartitions(probes);
+			}
+		}
+		p.remove();
+		for (int i = 0; i < partitionCount; i++) {
+			this.partitions.addFirst(new Partition(builds[i], probes[i], level));
+		}
+		return true;
+	}
+	
+	/**
+	 * Load the next chunk of the build partition and probe with the whole probe partition
+	 */
+	private void buildChunk() throws TeiidComponentException, TeiidProcessingException {
+		long maxRows = Math.max(1, this.partitionReserved / Math.max(1, this.partition.build.getRowSizeEstimate()));
+		this.table = createTable((int)Math.min(maxRows, this.partition.build.getRowCount()));
+		this.lastChunk = loadTable(this.buildTs, this.table, maxRows) < maxRows;
+		if (this.lastChunk) {
+			this.buildTs.closeSource();
+			this.buildTs = null;
+		}
+		this.probeTs = this.partition.probe.createIndexedTupleSource(this.lastChunk);
+		this.probeIndex = -1;
+		this.state = HashState.PROBE;
+	}
+	
+	private static Map<Object, List<List<?>>> createTable(int rowCount) {
+		return new HashMap<Object, List<List<?>>>(Math.max(16, (int)(rowCount / .75f) + 1));
+	}
+
+	/**
+	 * Load up to maxRows with non-null keys from the source into the hash table
+	 * @return the number of rows loaded
+	 */
+	private long loadTable(TupleSource ts, Map<Object, List<List<?>>> result, long maxRows) throws TeiidComponentException, TeiidProcessingException {
+		int[] indexes = this.buildSource.getExpressionIndexes();
+		List<?> tuple = null;
+		long rows = 0;
+		while (rows < maxRows && (tuple = ts.nextTuple()) != null) {
+			Object key = getKey(tuple, indexes);
+			if (key == null) {
+				continue; //can never match
+			}
+			rows++;
+			List<List<?>> existing = result.get(key);
+			if (existing == null) {
+				result.put(key, Collections.<List<?>>singletonList(tuple));
+			} else {
+				if (existing.size() == 1) {
+					existing = new ArrayList<List<?>>(existing);
+					result.put(key, existing);
+				}
+				existing.add(tuple);
+			}
+		}
+		return rows;
+	}
+
+	/**
+	 * Probe the current table using the current probe source
+	 */
+	private void probe() throws TeiidComponentException, TeiidProcessingException {
+		int[] indexes = this.probeSource.getExpressionIndexes();
+		while (true) {
+			if (this.probeTuple == null) {
+				this.probeTuple = this.probeTs.nextTuple();
+				if (this.probeTuple == null) {
+					this.probeTs.closeSource();
+					this.probeTs = null;
+					this.state = partitioned?HashState.NEXT_PARTITION:HashState.DONE;
+					return;
+				}
+				this.probeIndex++;
+				this.matched = false;
+				this.matchIndex = 0;
+				Object key = getKey(this.probeTuple, indexes);
+				this.matches = null;
+				if (key != null && this.table != null) {
+					this.matches = this.table.get(key);
+				}
+			}
+			if (this.matches == null || this.matchIndex >= this.matches.size()) {
+				List<?> tuple = this.probeTuple;
+				this.probeTuple = null;
+				if (this.probeMatched != null) {
+					//outer rows are only known after the last chunk
+					if (this.matched) {
+						this.probeMatched.set(this.probeIndex);
+					} else if (this.lastChunk && !this.probeMatched.get(this.probeIndex)) {
+						this.joinNode.addBatchRow(outputTuple(tuple, this.rightSource.getOuterVals()));
+					}
+				} else if (!this.matched && this.joinNode.getJoinType() == JoinType.JOIN_LEFT_OUTER) {
+					this.joinNode.addBatchRow(outputTuple(tuple, this.rightSource.getOuterVals()));
+				}
+				continue;
+			}
+			List<?> buildTuple = this.matches.get(this.matchIndex);
+			List outputTuple = buildLeft?outputTuple(buildTuple, this.probeTuple):outputTuple(this.probeTuple, buildTuple);
+			boolean matches = this.joinNode.matchesCriteria(outputTuple);
+			this.matchIndex++;
+			if (matches) {
+				this.matched = true;
+				this.joinNode.addBatchRow(outputTuple);
+			}
+		}
+	}
+
+	/**
+	 * Get the hash key for the given tuple or null if any of the key values are null.
+	 */
+	static Object getKey(List<?> tuple, int[] indexes) {
+		if (indexes.length == 1) {
+			return tuple.get(indexes[0]);
+		}
+		Object[] key = new Object[indexes.length];
+		for (int i = 0; i < indexes.length; i++) {
+			Object value = tuple.get(indexes[i]);
+			if (value == null) {
+				return null;
+			}
+			key[i] = value;
+		}
+		return Arrays.asList(key);
+	}
+
+	/**
+	 * Spread the hash bits so that partitioning is not correlated
+	 * with the hash table bucket selection.  The level is used to vary the 
+	 * hash so that a partition is split again if it must be repartitioned.
+	 */
+	static int getPartition(Object key, int partitionCount, int level) {
+		int h = Integer.rotateLeft(key.hashCode() * 0x9E3779B9, level * 8);
+		return (h >>> 1) % partitionCount;
+	}
+
+	public boolean isBuildLeft() {
+		return buildLeft;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder result = new StringBuilder("HASH JOIN"); //$NON-NLS-1$
+		if (buildLeft) {
+			result.append(" [BUILD LEFT]"); //$NON-NLS-1$
+		}
+		if (partitioned) {
+			result.append(" RAN AS PARTITIONED"); //$NON-NLS-1$
+		}
+		return result.toString();
+	}
+
+}
@@ -25,6 +25,7 @@ package org.teiid.query.processor.relational;
 import java.util.Collections;
 import java.util.List;
 
+import org.teiid.core.types.DataTypeManager;
 import org.teiid.language.SortSpecification.NullOrdering;
 import org.teiid.query.sql.symbol.Constant;
 import org.teiid.translator.ExecutionFactory.NullOrder;
@@ -132,6 +133,32 @@ public class ListNestedSortComparator<T extends Comparable<? super T>> implement
 		this.nullOrdering = nullOrdering;
 	}
 
+    /**
+     * Initialize the null ordering.  This is performed lazily by compare, but
+     * must be called prior to concurrent use.
+     */
+    void initialize() {
+    	if (init) {
+    		return;
+    	}
+    	if (nullOrdering == null) {
+    		nullOrdering = Collections.nCopies(sortParameters.length, null);
+    	}
+    	for (int i = 0; i < sortParameters.length; i++) {
+    		if (nullOrdering.get(i) == null) {
+    			if (defaultNullOrder == NullOrder.FIRST) {
+    				nullOrdering.set(i, NullOrdering.FIRST);
+    			} else if (defaultNullOrder == NullOrder.LAST) {
+    				nullOrdering.set(i, NullOrdering.LAST);
+    			}
+    		}
+    	}
+    	if (defaultNullOrder == NullOrder.HIGH) {
+    		nullValue = 1;
+    	}
+    	init = true;
+    }
+
     /**
      * Compares its two arguments for order.  Returns a negative integer,
      * zero, or a positive integer as the first argument is less than,
@@ -147,25 +174,9 @@ public class ListNestedSortComparator<T extends Comparable<? super T>> implement
      * @param o1 The first object being compared
      * @param o2 The second object being compared
      */
-    
     public int compare(java.util.List<T> list1, java.util.List<T> list2) {
     	if (!init) {
-    		if (nullOrdering == null) {
-    			nullOrdering = Collections.nCopies(sortParameters.length, null);
-    		}
-    		for (int i = 0; i < sortParameters.length; i++) {
-    			if (nullOrdering.get(i) == null) {
-    				if (defaultNullOrder == NullOrder.FIRST) {
-    					nullOrdering.set(i, NullOrdering.FIRST);
-    				} else if (defaultNullOrder == NullOrder.LAST) {
-    					nullOrdering.set(i, NullOrdering.LAST);
-    				}
-    			}
-    		}
-    		if (defaultNullOrder == NullOrder.HIGH) {
-    			nullValue = 1;
-    		}
-    		init = true;
+    		initialize();
     	}
         int compare = 0;
         for (int k = 0; k < sortParameters.length; k++) {
@@ -220,6 +231,91 @@ public class ListNestedSortComparator<T extends Comparable<? super T>> implement
 		return nullOrdering.get(index);
     }
     
+    /**
+     * Return true if values of the given type can be represented by a normalized
+     * long prefix.  Strings are only supported with the default collation.
+     */
+    public static boolean isPrefixSupported(Class<?> type) {
+    	if (type == DataTypeManager.DefaultDataClasses.STRING) {
+    		return DataTypeManager.COLLATION_LOCALE == null && !DataTypeManager.PAD_SPACE;
+    	}
+    	return type == DataTypeManager.DefaultDataClasses.INTEGER
+    			|| type == DataTypeManager.DefaultDataClasses.LONG
+    			|| type == DataTypeManager.DefaultDataClasses.SHORT
+    			|| type == DataTypeManager.DefaultDataClasses.BYTE
+    			|| type == DataTypeManager.DefaultDataClasses.CHAR
+    			|| type == DataTypeManager.DefaultDataClasses.BOOLEAN
+    			|| type == DataTypeManager.DefaultDataClasses.DOUBLE
+    			|| type == DataTypeManager.DefaultDataClasses.FLOAT
+    			|| type == DataTypeManager.DefaultDataClasses.DATE
+    			|| type == DataTypeManager.DefaultDataClasses.TIME
+    			|| type == DataTypeManager.DefaultDataClasses.TIMESTAMP;
+    }
+    
+    /**
+     * Get the normalized prefix of the leading sort value, which must be of a type 
+     * supported by {@link #isPrefixSupported(Class)}.  The ordering direction and null 
+     * ordering are applied such that a lesser prefix always sorts first.  
+     * Equal prefixes do not imply equal values.
+     */
+    public long getPrefix(List<?> tuple) {
+    	if (!init) {
+    		initialize();
+    	}
+    	Object value = tuple.get(sortParameters[0]);
+    	boolean asc = orderTypes != null?orderTypes.get(0):this.ascendingOrder;
+    	if (value == null) {
+    		NullOrdering no = getNullOrdering(0);
+    		boolean first = no == NullOrdering.FIRST || (no == null && (nullValue < 0) == asc);
+    		return first?Long.MIN_VALUE:Long.MAX_VALUE;
+    	}
+    	long result = normalize(value);
+    	return asc?result:~result;
+    }
+    
+    /**
+     * Encode the value so that the signed ordering of the result is consistent
+     * with the natural ordering of the value.
+     */
+    static long normalize(Object value) {
+    	if (value instanceof String) {
+    		String s = (String)value;
+    		long result = 0;
+    		for (int i = 0; i < 4; i++) {
+    			result <<= 16;
+    			if (i < s.length()) {
+    				result |= s.charAt(i);
+    			}
+    		}
+    		return result ^ Long.MIN_VALUE;
+    	}
+    	if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+    		return ((Number)value).longValue();
+    	}
+    	if (value instanceof Double || value instanceof Float) {
+    		long bits = Double.doubleToLongBits(((Number)value).doubleValue());
+    		return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+    	}
+    	if (value instanceof Character) {
+    		return ((Character)value).charValue();
+    	}
+    	if (value instanceof Boolean) {
+    		return ((Boolean)value).booleanValue()?1:0;
+    	}
+    	return ((java.util.Date)value).getTime();
+    }
+    
+    /**
+     * Compares using the prefixes obtained from {@link #getPrefix(List)}, and only 
+     * if they are equal the full tuples.
+     */
+    public int compare(long prefix1, List<T> list1, long prefix2, List<T> list2) {
+    	if (prefix1 != prefix2) {
+    		return prefix1 < prefix2?-1:1;
+    	}
+    	return compare(list1, list2);
+    }
+    
     public int[] getSortParameters() {
 		return sortParameters;
 	}
@@ -34,15 +34,23 @@ import java.util.Map;
 import org.teiid.api.exception.query.ExpressionEvaluationException;
 import org.teiid.client.plan.PlanNode;
 import org.teiid.common.buffer.BlockedException;
+import org.teiid.common.buffer.BufferManager;
+import org.teiid.common.buffer.ColumnVector;
+import org.teiid.common.buffer.ColumnarTupleBatch;
 import org.teiid.common.buffer.TupleBatch;
 import org.teiid.common.buffer.TupleBuffer;
 import org.teiid.core.TeiidComponentException;
 import org.teiid.core.TeiidProcessingException;
 import org.teiid.query.analysis.AnalysisRecord;
+import org.teiid.query.eval.BatchEvaluator;
+import org.teiid.query.eval.BatchEvaluator.BatchExpression;
+import org.teiid.query.eval.Evaluator;
+import org.teiid.query.processor.ProcessorDataManager;
 import org.teiid.query.sql.LanguageObject;
 import org.teiid.query.sql.symbol.AliasSymbol;
 import org.teiid.query.sql.symbol.Expression;
 import org.teiid.query.sql.util.SymbolMap;
+import org.teiid.query.util.CommandContext;
 
 
 public class ProjectNode extends SubqueryAwareRelationalNode {
@@ -61,6 +69,11 @@ public class ProjectNode extends SubqueryAwareRelationalNode {
     private TupleBatch currentBatch;
     private int currentRow = 1;
     
+    // Batch evaluation of the expressions
+    private BatchExpression[] batchExpressions;
+    private Class<?>[] types;
+    private ColumnVector[] batchResults;
+    
     protected ProjectNode() {
     	super();
     }
@@ -74,6 +87,7 @@ public class ProjectNode extends SubqueryAwareRelationalNode {
 
         currentBatch = null;
         currentRow = 1;
+        batchResults = null;
     }
 
     /**
@@ -136,6 +150,34 @@ public class ProjectNode extends SubqueryAwareRelationalNode {
         }
 	}
 	
+	@Override
+	public void initialize(CommandContext context, BufferManager bufferManager,
+			ProcessorDataManager dataMgr) {
+		super.initialize(context, bufferManager, dataMgr);
+		this.batchExpressions = null;
+		if (!needsProject || this.getChildren()[0] == null || context == null || !context.getOptions().isBatchEvaluation()) {
+			return;
+		}
+		BatchExpression[] compiled = new BatchExpression[this.expressions.size()];
+		boolean rowBased = true;
+		for (int i = 0; i < compiled.length; i++) {
+			if (this.projectionIndexes[i] != -1) {
+				continue;
+			}
+			compiled[i] = BatchEvaluator.compile(this.expressions.get(i), this.elementMap);
+			if (compiled[i] == null) {
+				return;
+			}
+			rowBased &= compiled[i].isRowBased();
+		}
+		if (rowBased) {
+			//no benefit
+			return;
+		}
+		this.batchExpressions = compiled;
+		this.types = ColumnarTupleBatch.getTypes(this.getChildren()[0].getElements());
+	}
+	
 	public TupleBatch nextBatchDirect()
 		throws BlockedException, TeiidComponentException, TeiidProcessingException {
 		
@@ -157,6 +199,13 @@ public class ProjectNode extends SubqueryAwareRelationalNode {
                 return result;
             }
         }
+        
+        if (this.batchExpressions != null && this.batchResults == null) {
+        	ColumnarTupleBatch batch = evaluateBatch();
+        	if (!hasPendingRows() && batch.getRowCount() <= getBatchSize()) {
+        		return pullColumnarBatch(batch);
+        	}
+        }
 
         while (currentRow <= currentBatch.getEndRow() && !isBatchFull()) {
     		List<?> tuple = currentBatch.getTuple(currentRow);
@@ -165,6 +214,10 @@ public class ProjectNode extends SubqueryAwareRelationalNode {
 
 			// Walk through symbols
             for(int i=0; i<expressions.size(); i++) {
+            	if (this.batchResults != null && this.batchResults[i] != null) {
+            		projectedTuple.add(this.batchResults[i].get((int)(currentRow - currentBatch.getBeginRow())));
+            		continue;
+            	}
 				Expression symbol = expressions.get(i);
 				updateTuple(symbol, i, tuple, projectedTuple);
 			}
@@ -179,11 +232,49 @@ public class ProjectNode extends SubqueryAwareRelationalNode {
 	            terminateBatches();
 	        }
 	        currentBatch = null;
+	        batchResults = null;
         }
         
     	return pullBatch();
 	}
 
+	/**
+	 * Evaluate the expressions against the whole batch.  The results are
+	 * then used as the rows are projected.
+	 */
+	private ColumnarTupleBatch evaluateBatch() throws BlockedException,
+			TeiidComponentException, ExpressionEvaluationException {
+		ColumnarTupleBatch batch = ColumnarTupleBatch.asColumnar(currentBatch, this.types);
+		int[] rows = BatchEvaluator.identity(batch.getRowCount());
+		Evaluator eval = getEvaluator(this.elementMap);
+		ColumnVector[] results = new ColumnVector[this.batchExpressions.length];
+		for (int i = 0; i < results.length; i++) {
+			if (this.batchExpressions[i] != null) {
+				results[i] = this.batchExpressions[i].evaluate(batch, rows, rows.length, eval);
+			}
+		}
+		this.batchResults = results;
+		return batch;
+	}
+	
+	/**
+	 * Output the whole batch in columnar form so that a parent using batch
+	 * evaluation does not need to convert it
+	 */
+	private TupleBatch pullColumnarBatch(ColumnarTupleBatch batch) {
+		ColumnVector[] columns = new ColumnVector[this.batchResults.length];
+		for (int i = 0; i < columns.length; i++) {
+			columns[i] = this.batchResults[i] != null ? this.batchResults[i] : batch.getColumn(this.projectionIndexes[i]);
+		}
+		if (currentBatch.getTerminationFlag()) {
+			terminateBatches();
+		}
+		currentRow = (int)(currentBatch.getEndRow() + 1);
+		currentBatch = null;
+		batchResults = null;
+		return pullBatch(new ColumnarTupleBatch(1, columns, batch.getRowCount()));
+	}
+
 	private void updateTuple(Expression symbol, int projectionIndex, List<?> values, List<Object> tuple)
 		throws BlockedException, TeiidComponentException, ExpressionEvaluationException {
 
@@ -247,6 +247,18 @@ public abstract class RelationalNode implements Cloneable, BatchProducer {
         return batch;
     }
 
+    /**
+     * Return the given batch rather than the individually added rows.
+     * There must not be pending rows.
+     */
+    protected TupleBatch pullBatch(TupleBatch batch) {
+    	batch.setRowOffset(this.getProcessingState().beginBatch);
+    	getProcessingState().beginBatch += batch.getRowCount();
+    	batch.setTerminationFlag(this.getProcessingState().lastBatch);
+    	this.getProcessingState().lastBatch = false;
+    	return batch;
+    }
+
 	public void open()
 		throws TeiidComponentException, TeiidProcessingException {
 
@@ -32,10 +32,13 @@ import java.util.Map;
 import org.teiid.client.plan.PlanNode;
 import org.teiid.common.buffer.BlockedException;
 import org.teiid.common.buffer.BufferManager;
+import org.teiid.common.buffer.ColumnarTupleBatch;
 import org.teiid.common.buffer.TupleBatch;
 import org.teiid.core.TeiidComponentException;
 import org.teiid.core.TeiidProcessingException;
 import org.teiid.query.analysis.AnalysisRecord;
+import org.teiid.query.eval.BatchEvaluator;
+import org.teiid.query.eval.BatchEvaluator.BatchCriteria;
 import org.teiid.query.processor.ProcessorDataManager;
 import org.teiid.query.sql.LanguageObject;
 import org.teiid.query.sql.lang.Criteria;
@@ -55,6 +58,13 @@ public class SelectNode extends SubqueryAwareRelationalNode {
     // State if blocked on evaluating a criteria
     private TupleBatch currentBatch;
     private int currentRow = 1;
+    
+    // Batch evaluation of the criteria
+    private BatchCriteria batchCriteria;
+    private Class<?>[] types;
+    private int[] selection;
+    private int selectionCount;
+    private int selectionIndex;
 
 	protected SelectNode() {
 		super();
@@ -69,6 +79,7 @@ public class SelectNode extends SubqueryAwareRelationalNode {
         
         currentBatch = null;
         currentRow = 1;
+        selection = null;
     }
 
 	public void setCriteria(Criteria criteria) { 
@@ -92,6 +103,11 @@ public class SelectNode extends SubqueryAwareRelationalNode {
             this.elementMap = createLookupMap(this.getChildren()[0].getElements());
             this.projectionIndexes = getProjectionIndexes(this.elementMap, projectedExpressions!=null?projectedExpressions:getElements());
         }
+        this.batchCriteria = null;
+        if (context != null && context.getOptions().isBatchEvaluation()) {
+        	this.batchCriteria = BatchEvaluator.compile(this.criteria, this.elementMap);
+        	this.types = ColumnarTupleBatch.getTypes(this.getChildren()[0].getElements());
+        }
 	}
 	
     /**
@@ -103,6 +119,10 @@ public class SelectNode extends SubqueryAwareRelationalNode {
         if(currentBatch == null) {
         	currentBatch = this.getChildren()[0].nextBatch();
         }
+        
+        if (this.batchCriteria != null) {
+        	return nextBatchSelection();
+        }
 
         while (currentRow <= currentBatch.getEndRow() && !isBatchFull()) {
     		List<?> tuple = currentBatch.getTuple(currentRow);
@@ -122,6 +142,33 @@ public class SelectNode extends SubqueryAwareRelationalNode {
         
     	return pullBatch();
 	}
+
+	/**
+	 * Evaluate the criteria against the whole batch, then output the selected rows
+	 */
+	private TupleBatch nextBatchSelection() throws BlockedException,
+			TeiidComponentException, TeiidProcessingException {
+		if (this.selection == null) {
+			ColumnarTupleBatch batch = ColumnarTupleBatch.asColumnar(currentBatch, this.types);
+			int[] rows = BatchEvaluator.identity(batch.getRowCount());
+			this.selectionCount = this.batchCriteria.select(batch, rows, rows.length, getEvaluator(this.elementMap));
+			this.selection = rows;
+			this.selectionIndex = 0;
+		}
+		long beginRow = currentBatch.getBeginRow();
+		while (this.selectionIndex < this.selectionCount && !isBatchFull()) {
+			List<?> tuple = currentBatch.getTuple(beginRow + this.selection[this.selectionIndex++]);
+			addBatchRow(projectTuple(this.projectionIndexes, tuple));
+		}
+		if (this.selectionIndex >= this.selectionCount) {
+			if(currentBatch.getTerminationFlag()) {
+				terminateBatches();
+			}
+			currentBatch = null;
+			this.selection = null;
+		}
+		return pullBatch();
+	}
     
 	protected void getNodeString(StringBuffer str) {
 		super.getNodeString(str);
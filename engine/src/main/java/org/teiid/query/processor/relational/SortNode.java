@@ -51,6 +51,7 @@ public class SortNode extends RelationalNode {
     private boolean usingOutput;
     
     private int rowLimit = -1;
+    private boolean topN;
 
     private static final int SORT = 2;
     private static final int OUTPUT = 3;
@@ -108,6 +109,7 @@ public class SortNode extends RelationalNode {
 	        if (ts == null) {
 	        	this.sortUtility.setWorkingBuffer(working);
 	        }
+	        this.sortUtility.setTopN(topN);
 		}
 		this.output = this.sortUtility.sort(rowLimit);
 		if (this.outputTs == null) {
@@ -168,6 +170,7 @@ public class SortNode extends RelationalNode {
 		super.copyTo(target);
 		target.items = items;
 		target.mode = mode;
+		target.topN = topN;
 	}
 
 	public Object clone(){
@@ -185,6 +188,9 @@ public class SortNode extends RelationalNode {
         }
         
         props.addProperty(PROP_SORT_MODE, this.mode.toString());
+        if (topN) {
+        	props.addProperty(PROP_TOP_N, Boolean.TRUE.toString());
+        }
         
         return props;
     }
@@ -219,4 +225,15 @@ public class SortNode extends RelationalNode {
 		this.rowLimit = rowLimit;
 	}
     
+    /**
+     * Set to use a bounded heap when there is a row limit from the parent {@link LimitNode}
+     */
+    public void setTopN(boolean topN) {
+		this.topN = topN;
+	}
+    
+    public boolean isTopN() {
+		return topN;
+	}
+    
 }
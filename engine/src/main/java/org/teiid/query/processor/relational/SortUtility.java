@@ -23,21 +23,29 @@
 package org.teiid.query.processor.relational;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.PriorityQueue;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 import org.teiid.common.buffer.BlockedException;
 import org.teiid.common.buffer.BufferManager;
 import org.teiid.common.buffer.BufferManager.BufferReserveMode;
 import org.teiid.common.buffer.BufferManager.TupleSourceType;
+import org.teiid.common.buffer.TupleBatch;
 import org.teiid.common.buffer.TupleBuffer;
 import org.teiid.common.buffer.TupleBuffer.TupleBufferTupleSource;
 import org.teiid.common.buffer.TupleSource;
 import org.teiid.core.TeiidComponentException;
 import org.teiid.core.TeiidProcessingException;
+import org.teiid.core.TeiidRuntimeException;
 import org.teiid.core.util.Assertion;
 import org.teiid.core.util.PropertiesUtils;
 import org.teiid.language.SortSpecification.NullOrdering;
@@ -47,10 +55,15 @@ import org.teiid.logging.MessageLevel;
 import org.teiid.query.sql.lang.OrderBy;
 import org.teiid.query.sql.lang.OrderByItem;
 import org.teiid.query.sql.symbol.Expression;
+import org.teiid.query.util.CommandContext;
 
 
 /**
  * Implements several modes of a multi-pass sort.
+ * <br>
+ * If the thread local {@link CommandContext} allows for parallelism, then the in memory sorts 
+ * of the initial runs, intermediate merge passes, and reading the runs in the final merge pass
+ * will utilize additional threads.
  * 
  * TODO: could consider using an index for dup_removal and maintaining a separate output buffer
  * TODO: release the tuple buffer in the last merge pass if sublists will fit in processing batch size
@@ -72,12 +85,16 @@ public class SortUtility {
 	 */
 	private class SortedSublist implements Comparable<SortedSublist> {
 		List<?> tuple;
+		long prefix;
 		int index;
-		TupleBufferTupleSource its;
+		TupleSource its;
 		
 		@Override
 		public int compareTo(SortedSublist o) {
 			//reverse the comparison, so that removal of the lowest is a low cost operation
+			if (usePrefix) {
+				return -comparator.compare(this.prefix, this.tuple, o.prefix, o.tuple);
+			}
 			return -comparator.compare(this.tuple, o.tuple);
 		}
 		
@@ -86,6 +103,96 @@ public class SortUtility {
 			return index + " " + tuple; //$NON-NLS-1$
 		}
 	}
+	
+	/**
+	 * A tuple with the normalized prefix of its leading sort value
+	 */
+	private static class PrefixedTuple {
+		long prefix;
+		List<?> tuple;
+		
+		PrefixedTuple(long prefix, List<?> tuple) {
+			this.prefix = prefix;
+			this.tuple = tuple;
+		}
+	}
+	
+	/**
+	 * A candidate top n tuple, with its input position to keep the sort stable
+	 */
+	private static class TopNEntry {
+		List<?> tuple;
+		long seq;
+		
+		TopNEntry(List<?> tuple, long seq) {
+			this.tuple = tuple;
+			this.seq = seq;
+		}
+	}
+	
+	/**
+	 * Reads a sorted sublist, loading the next batch on another thread ahead of consumption
+	 */
+	private class PrefetchingTupleSource implements TupleSource {
+		private TupleBuffer buffer;
+		private long rowCount;
+		private long nextRow = 1;
+		private TupleBatch batch;
+		private FutureTask<TupleBatch> pending;
+		
+		PrefetchingTupleSource(TupleBuffer buffer) {
+			this.buffer = buffer;
+			this.rowCount = buffer.getRowCount();
+		}
+		
+		@Override
+		public List<?> nextTuple() throws TeiidComponentException,
+				TeiidProcessingException {
+			if (nextRow > rowCount) {
+				return null;
+			}
+			if (batch == null || nextRow > batch.getEndRow()) {
+				if (pending == null) {
+					batch = buffer.getBatch(nextRow);
+				} else {
+					//run inline if not yet started
+					pending.run();
+					batch = getResult(pending);
+					pending = null;
+				}
+				if (batch.getEndRow() < rowCount) {
+					final long row = batch.getEndRow() + 1;
+					pending = new FutureTask<TupleBatch>(new Callable<TupleBatch>() {
+						@Override
+						public TupleBatch call() throws Exception {
+							return buffer.getBatch(row);
+						}
+					});
+					if (!context.executeParallel(pending)) {
+						pending = null;
+					}
+				}
+			}
+			return batch.getTuple(nextRow++);
+		}
+		
+		@Override
+		public void closeSource() {
+			if (pending != null) {
+				//the buffer cannot be removed while a read is in progress
+				pending.run();
+				try {
+					pending.get();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				} catch (ExecutionException e) {
+					//ignore
+				}
+				pending = null;
+			}
+			batch = null;
+		}
+	}
 
 	//constructor state
     private TupleSource source;
@@ -112,6 +219,13 @@ public class SortUtility {
 	private static boolean STABLE_SORT = PropertiesUtils.getBooleanProperty(System.getProperties(), "org.teiid.requireStableSort", false); //$NON-NLS-1$
 	
 	private boolean stableSort = STABLE_SORT;
+	private CommandContext context;
+	private boolean usePrefix;
+	
+	private boolean topN;
+	private PriorityQueue<TopNEntry> topNHeap;
+	private int topNReserved;
+	private long topNCount;
     
     public SortUtility(TupleSource sourceID, List<OrderByItem> items, Mode mode, BufferManager bufferMgr,
                         String groupName, List<? extends Expression> schema) {
@@ -180,6 +294,9 @@ public class SortUtility {
         int distinctIndex = cols.length - 1;
         this.comparator.setDistinctIndex(distinctIndex);
         this.comparator.setNullOrdering(nullOrderings);
+        this.context = CommandContext.getThreadLocalContext();
+        this.usePrefix = cols.length > 0 && bufferMgr.getOptions().isSortKeyPrefix() 
+        		&& ListNestedSortComparator.isPrefixSupported(schema.get(cols[0]).getType());
     }
     
     public SortUtility(TupleSource ts, List<? extends Expression> expressions, List<Boolean> types,
@@ -195,7 +312,7 @@ public class SortUtility {
         throws TeiidComponentException, TeiidProcessingException {
     	boolean success = false;
     	try {
-	        if(this.phase == INITIAL_SORT) {
+	        if(this.phase == INITIAL_SORT && (!topN || rowLimit < 0 || this.mode != Mode.SORT || !topNSort(rowLimit))) {
 	            initialSort(false, false, rowLimit);
 	        }
 	        
@@ -354,11 +471,12 @@ public class SortUtility {
 		
 		        TupleBuffer sublist = createTupleBuffer();
 		        activeTupleBuffers.add(sublist);
+		        Collection<List<?>> sorted = workingTuples;
 		        if (this.mode == Mode.SORT) {
 		        	//perform a stable sort
-		    		Collections.sort((List<List<?>>)workingTuples, comparator);
+		        	sorted = sortTuples((List<List<?>>)workingTuples);
 		        }
-		        for (List<?> list : workingTuples) {
+		        for (List<?> list : sorted) {
 					sublist.addTuple(list);
 					
 					if (checkLimit && sublist.getRowCount() == rowLimit) {
@@ -387,6 +505,100 @@ public class SortUtility {
         this.phase = MERGE;
     }
 
+    /**
+     * Sort by retaining only the best rowLimit tuples in a bounded heap.  
+     * The whole input is read without creating intermediate buffers.
+     * @return false if the heap could not be reserved and a normal sort should be performed
+     */
+    private boolean topNSort(int rowLimit) throws TeiidComponentException, TeiidProcessingException {
+    	if (this.topNHeap == null) {
+    		long needed = ((long)rowLimit/this.batchSize + 1) * this.schemaSize;
+    		if (needed > this.bufferManager.getMaxProcessingSize()) {
+    			return false;
+    		}
+    		this.topNReserved = this.bufferManager.reserveBuffers((int)needed, BufferReserveMode.NO_WAIT);
+    		if (this.topNReserved < needed) {
+    			this.bufferManager.releaseBuffers(this.topNReserved);
+    			this.topNReserved = 0;
+    			this.topN = false;
+    			return false;
+    		}
+    		//the worst tuple is at the head
+    		this.topNHeap = new PriorityQueue<TopNEntry>(Math.max(1, Math.min(rowLimit, this.batchSize)), new Comparator<TopNEntry>() {
+    			@Override
+    			public int compare(TopNEntry o1, TopNEntry o2) {
+    				return -compareTopN(o1, o2);
+    			}
+			});
+    		if (this.source == null) {
+    			this.source = this.workingBuffer.createIndexedTupleSource();
+    			this.workingBuffer = null;
+    		}
+    	}
+    	boolean success = false;
+    	try {
+	    	while (true) {
+	    		List<?> tuple = this.source.nextTuple();
+	    		if (tuple == null) {
+	    			break;
+	    		}
+	    		TopNEntry entry = new TopNEntry(tuple, topNCount++);
+	    		if (topNHeap.size() < rowLimit) {
+	    			topNHeap.add(entry);
+	    		} else if (rowLimit > 0 && compareTopN(entry, topNHeap.peek()) < 0) {
+	    			topNHeap.poll();
+	    			topNHeap.add(entry);
+	    		}
+	    	}
+	    	this.doneReading = true;
+	    	TopNEntry[] entries = topNHeap.toArray(new TopNEntry[topNHeap.size()]);
+	    	Arrays.sort(entries, new Comparator<TopNEntry>() {
+	    		@Override
+	    		public int compare(TopNEntry o1, TopNEntry o2) {
+	    			return compareTopN(o1, o2);
+	    		}
+			});
+	    	TupleBuffer result = createTupleBuffer();
+	    	this.activeTupleBuffers.add(result);
+	    	for (TopNEntry entry : entries) {
+	    		result.addTuple(entry.tuple);
+	    	}
+	    	result.saveBatch();
+	    	this.phase = MERGE;
+	    	success = true;
+	    	return true;
+    	} catch (BlockedException e) {
+    		success = true;
+    		throw e;
+    	} finally {
+    		//retain the heap only if blocked
+    		if (!success || this.phase == MERGE) {
+    			releaseTopN();
+    		}
+    	}
+    }
+    
+    private int compareTopN(TopNEntry o1, TopNEntry o2) {
+    	int result = comparator.compare(o1.tuple, o2.tuple);
+    	if (result != 0) {
+    		return result;
+    	}
+    	return o1.seq < o2.seq?-1:(o1.seq > o2.seq?1:0);
+    }
+    
+    private void releaseTopN() {
+    	this.topNHeap = null;
+    	this.bufferManager.releaseBuffers(this.topNReserved);
+    	this.topNReserved = 0;
+    }
+    
+    /**
+     * Use a bounded heap rather than a full sort when {@link #sort(int)} is called with a row limit
+     */
+    public void setTopN(boolean topN) {
+		this.topN = topN;
+	}
+    
     public void setWorkingBuffer(TupleBuffer workingBuffer) {
 		this.workingBuffer = workingBuffer;
 	}
@@ -447,10 +659,6 @@ public class SortUtility {
         
         try {
         	while(this.activeTupleBuffers.size() > 1) {    		
-	    		ArrayList<SortedSublist> sublists = new ArrayList<SortedSublist>(activeTupleBuffers.size());
-	            
-	            TupleBuffer merged = createTupleBuffer();
-
 	            desiredSpace = activeTupleBuffers.size() * (long)schemaSize;
 	            if (desiredSpace < reserved) {
 	            	bufferManager.releaseBuffers(reserved - (int)desiredSpace);
@@ -461,42 +669,252 @@ public class SortUtility {
             	if (LogManager.isMessageToBeRecorded(org.teiid.logging.LogConstants.CTX_DQP, MessageLevel.TRACE)) {
 	            	LogManager.logTrace(org.teiid.logging.LogConstants.CTX_DQP, "Merging", maxSortIndex, "sublists out of", activeTupleBuffers.size()); //$NON-NLS-1$ //$NON-NLS-2$
 	            }
-	        	// initialize the sublists with the min value
-	            for(int i = 0; i<maxSortIndex; i++) { 
-	             	TupleBuffer activeID = activeTupleBuffers.get(i);
-	             	SortedSublist sortedSublist = new SortedSublist();
-	            	sortedSublist.its = activeID.createIndexedTupleSource();
-	            	sortedSublist.its.setNoBlocking(true);
-	            	sortedSublist.index = i;
-	            	incrementWorkingTuple(sublists, sortedSublist);
-	            }
+            	
+            	int parallelism = getParallelism();
+            	if (maxSortIndex < activeTupleBuffers.size() && parallelism > 1) {
+            		//intermediate pass - merge as many groups concurrently as we can reserve space for
+            		int groups = Math.min(parallelism, activeTupleBuffers.size() / maxSortIndex);
+            		int groupSpace = maxSortIndex * schemaSize;
+            		if (groups > 1) {
+            			int additional = bufferManager.reserveBuffers((int)Math.min(Integer.MAX_VALUE, (groups - 1) * (long)groupSpace), BufferReserveMode.NO_WAIT);
+            			reserved += additional;
+            			groups = 1 + additional / groupSpace;
+            		}
+            		if (groups > 1) {
+            			mergeGroups(groups, maxSortIndex);
+            			continue;
+            		}
+            	}
 	            
-	            boolean checkLimit = maxSortIndex == activeTupleBuffers.size() && rowLimit > -1;
+	            boolean finalPass = maxSortIndex == activeTupleBuffers.size();
+	            int prefetch = 0;
+	            if (finalPass && parallelism > 1) {
+	            	//reserve space to read ahead of the merge
+	            	int additional = bufferManager.reserveBuffers((int)Math.min(Integer.MAX_VALUE, maxSortIndex * (long)schemaSize), BufferReserveMode.NO_WAIT);
+	            	reserved += additional;
+	            	prefetch = additional / schemaSize;
+	            }
 	            
-	            // iteratively process the lowest tuple
-	            while (sublists.size() > 0) {
-	            	SortedSublist sortedSublist = sublists.remove(sublists.size() - 1);
-	        		merged.addTuple(sortedSublist.tuple);
-	            	incrementWorkingTuple(sublists, sortedSublist);
-	            	
-	            	if (checkLimit && merged.getRowCount() == rowLimit) {
-	            		//early exit for row limit
-	            		break;
-	            	}
-	            }                
+	            TupleBuffer merged = merge(activeTupleBuffers.subList(0, maxSortIndex), finalPass?rowLimit:-1, prefetch);
 	
 	            // Remove merged sublists
 	            for(int i=0; i<maxSortIndex; i++) {
 	            	TupleBuffer id = activeTupleBuffers.remove(0);
             		id.remove();
 	            }
-	            merged.saveBatch();
 	            this.activeTupleBuffers.add(merged);           
     		}
         } finally {
         	this.bufferManager.releaseBuffers(reserved);
         }
     }
+    
+    /**
+     * Merge the given sublists into a new buffer
+     * @param rowLimit the max number of rows to merge or -1 
+     * @param prefetch the number of sublists that should be read ahead
+     */
+    private TupleBuffer merge(List<TupleBuffer> toMerge, int rowLimit, int prefetch) throws TeiidComponentException, TeiidProcessingException {
+		ArrayList<SortedSublist> sublists = new ArrayList<SortedSublist>(toMerge.size());
+		List<TupleSource> sources = new ArrayList<TupleSource>(toMerge.size());
+        TupleBuffer merged = createTupleBuffer();
+        boolean success = false;
+        try {
+	    	// initialize the sublists with the min value
+	        for(int i = 0; i<toMerge.size(); i++) { 
+	         	TupleBuffer activeID = toMerge.get(i);
+	         	SortedSublist sortedSublist = new SortedSublist();
+	         	if (i < prefetch) {
+	         		sortedSublist.its = new PrefetchingTupleSource(activeID);
+	         	} else {
+		         	TupleBufferTupleSource its = activeID.createIndexedTupleSource();
+		         	its.setNoBlocking(true);
+		         	sortedSublist.its = its;
+	         	}
+	         	sources.add(sortedSublist.its);
+	        	sortedSublist.index = i;
+	        	incrementWorkingTuple(sublists, sortedSublist);
+	        }
+	        
+	        // iteratively process the lowest tuple
+	        while (sublists.size() > 0) {
+	        	SortedSublist sortedSublist = sublists.remove(sublists.size() - 1);
+	    		merged.addTuple(sortedSublist.tuple);
+	        	incrementWorkingTuple(sublists, sortedSublist);
+	        	
+	        	if (rowLimit > -1 && merged.getRowCount() == rowLimit) {
+	        		//early exit for row limit
+	        		break;
+	        	}
+	        }                
+	        merged.saveBatch();
+	        success = true;
+	        return merged;
+        } finally {
+        	for (TupleSource ts : sources) {
+        		ts.closeSource();
+        	}
+        	if (!success) {
+        		merged.remove();
+        	}
+        }
+    }
+    
+    /**
+     * Concurrently merge the leading groups of sublists
+     */
+    private void mergeGroups(int groups, int groupSize) throws TeiidComponentException, TeiidProcessingException {
+    	List<FutureTask<TupleBuffer>> tasks = new ArrayList<FutureTask<TupleBuffer>>(groups);
+    	for (int i = 0; i < groups; i++) {
+    		final List<TupleBuffer> group = new ArrayList<TupleBuffer>(activeTupleBuffers.subList(i * groupSize, (i + 1) * groupSize));
+    		tasks.add(new FutureTask<TupleBuffer>(new Callable<TupleBuffer>() {
+    			@Override
+    			public TupleBuffer call() throws Exception {
+    				return merge(group, -1, 0);
+    			}
+			}));
+		}
+    	runTasks(tasks);
+    	List<TupleBuffer> merged = new ArrayList<TupleBuffer>(groups);
+    	boolean success = false;
+    	try {
+    		for (FutureTask<TupleBuffer> task : tasks) {
+    			merged.add(getResult(task));
+    		}
+    		success = true;
+    	} finally {
+    		if (!success) {
+    			//remove the results of the successful merges
+    			for (FutureTask<TupleBuffer> task : tasks) {
+    				try {
+						task.get().remove();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					} catch (ExecutionException e) {
+						//ignore
+					}
+    			}
+    		}
+    	}
+    	for (int i = 0; i < groups * groupSize; i++) {
+    		TupleBuffer id = activeTupleBuffers.remove(0);
+    		id.remove();
+    	}
+    	this.activeTupleBuffers.addAll(merged);
+    }
+    
+    /**
+     * Perform a stable sort of the tuples.  If enabled, the tuples are sorted
+     * using the cached normalized prefix of the leading sort column.
+     */
+    private List<List<?>> sortTuples(List<List<?>> tuples) throws TeiidComponentException, TeiidProcessingException {
+    	if (!usePrefix) {
+    		return sort(tuples, comparator);
+    	}
+    	List<PrefixedTuple> keyed = new ArrayList<PrefixedTuple>(tuples.size());
+    	for (List<?> tuple : tuples) {
+    		keyed.add(new PrefixedTuple(comparator.getPrefix(tuple), tuple));
+    	}
+    	keyed = sort(keyed, new Comparator<PrefixedTuple>() {
+    		@Override
+    		public int compare(PrefixedTuple o1, PrefixedTuple o2) {
+    			return comparator.compare(o1.prefix, o1.tuple, o2.prefix, o2.tuple);
+    		}
+		});
+    	for (int i = 0; i < keyed.size(); i++) {
+    		tuples.set(i, keyed.get(i).tuple);
+    	}
+    	return tuples;
+    }
+    
+    /**
+     * Perform a stable sort.  If parallelism is allowed, contiguous 
+     * slices are sorted concurrently and then merged in slice order. 
+     */
+    private <E> List<E> sort(List<E> items, final Comparator<? super E> c) throws TeiidComponentException, TeiidProcessingException {
+    	int parallelism = Math.min(getParallelism(), items.size() / this.batchSize);
+    	if (parallelism < 2) {
+    		Collections.sort(items, c);
+    		return items;
+    	}
+    	comparator.initialize();
+    	final Object[] array = items.toArray();
+    	int[] bounds = new int[parallelism + 1];
+    	List<FutureTask<Void>> tasks = new ArrayList<FutureTask<Void>>(parallelism);
+    	for (int i = 0; i < parallelism; i++) {
+    		bounds[i + 1] = (int)((long)array.length * (i + 1) / parallelism);
+    		final int from = bounds[i];
+    		final int to = bounds[i + 1];
+    		tasks.add(new FutureTask<Void>(new Runnable() {
+    			@Override
+    			public void run() {
+    				Arrays.sort(array, from, to, (Comparator<Object>)c);
+    			}
+    		}, null));
+    	}
+    	runTasks(tasks);
+    	for (FutureTask<Void> task : tasks) {
+    		getResult(task);
+    	}
+    	List<E> result = new ArrayList<E>(array.length);
+    	int[] positions = Arrays.copyOf(bounds, parallelism);
+    	for (int i = 0; i < array.length; i++) {
+    		int min = -1;
+    		for (int j = 0; j < parallelism; j++) {
+    			//ties go to the earlier slice
+    			if (positions[j] < bounds[j + 1] && (min == -1 || c.compare((E)array[positions[j]], (E)array[positions[min]]) < 0)) {
+    				min = j;
+    			}
+    		}
+    		result.add((E)array[positions[min]++]);
+    	}
+    	return result;
+    }
+    
+    private int getParallelism() {
+    	if (context == null) {
+    		return 1;
+    	}
+    	return context.getMaxParallelism();
+    }
+    
+    /**
+     * Run the tasks using the available parallelism.  The calling thread will
+     * run any task that has not already been started by the executor.
+     */
+    private void runTasks(List<? extends FutureTask<?>> tasks) {
+    	for (int i = 1; i < tasks.size(); i++) {
+    		if (!context.executeParallel(tasks.get(i))) {
+    			break;
+    		}
+    	}
+    	for (FutureTask<?> task : tasks) {
+    		task.run();
+    	}
+    }
+    
+    private static <T> T getResult(FutureTask<T> task) throws TeiidComponentException, TeiidProcessingException {
+    	try {
+			return task.get();
+		} catch (InterruptedException e) {
+			throw new TeiidRuntimeException(e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof TeiidComponentException) {
+				throw (TeiidComponentException)cause;
+			}
+			if (cause instanceof TeiidProcessingException) {
+				throw (TeiidProcessingException)cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException)cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error)cause;
+			}
+			throw new TeiidComponentException(cause);
+		}
+    }
 
 	private void incrementWorkingTuple(ArrayList<SortedSublist> subLists, SortedSublist sortedSublist) throws TeiidComponentException, TeiidProcessingException {
 		while (true) {
@@ -504,6 +922,9 @@ public class SortUtility {
 			sortedSublist.tuple = sortedSublist.its.nextTuple();
 	        if (sortedSublist.tuple == null) {
 	        	return; // done with this sublist
+	        }
+	        if (usePrefix) {
+	        	sortedSublist.prefix = comparator.getPrefix(sortedSublist.tuple);
 	        }
 			int index = Collections.binarySearch(subLists, sortedSublist);
 			if (index < 0) {
@@ -522,6 +943,9 @@ public class SortUtility {
     }
 
 	public void remove() {
+		if (this.topNHeap != null) {
+			releaseTopN();
+		}
 		if (workingBuffer != null && source != null) {
 			workingBuffer.remove();
 			workingBuffer = null;
@@ -65,5 +65,12 @@ public interface GlobalTableStore {
 	
 	@Replicated(replicateState=ReplicationMode.PUSH)
 	void loaded(String matTableName, TempTable table);
+	
+	/**
+	 * Mark the existing table as loaded after an incremental refresh.  
+	 * The row changes are distributed separately.
+	 */
+	@Replicated
+	void refreshed(String matTableName);
 
 }
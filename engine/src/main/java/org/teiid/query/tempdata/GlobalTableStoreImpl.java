@@ -22,6 +22,14 @@
 
 package org.teiid.query.tempdata;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
@@ -37,13 +45,18 @@ import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
 
 import org.teiid.adminapi.impl.VDBMetaData;
 import org.teiid.api.exception.query.QueryMetadataException;
 import org.teiid.api.exception.query.QueryResolverException;
 import org.teiid.api.exception.query.QueryValidatorException;
 import org.teiid.common.buffer.BufferManager;
+import org.teiid.common.buffer.TupleBuffer;
 import org.teiid.core.TeiidComponentException;
 import org.teiid.core.TeiidProcessingException;
 import org.teiid.core.TeiidRuntimeException;
@@ -86,6 +99,14 @@ import org.teiid.query.tempdata.TempTableStore.TransactionMode;
 public class GlobalTableStoreImpl implements GlobalTableStore, ReplicatedObject<String> {
 	
 	private static final String TEIID_FBI = "teiid:fbi"; //$NON-NLS-1$
+	//written in place of the state for a change set, which older members will fail to load rather than misread
+	private static final String TEIID_CHANGES = "teiid:changes"; //$NON-NLS-1$
+	
+	private static final int SNAPSHOT_MAGIC = 0x544d5653;
+	private static final int SNAPSHOT_VERSION = 3;
+	private static final String SNAPSHOT_SUFFIX = ".snapshot"; //$NON-NLS-1$
+	
+	private static final Random VERSIONS = new Random();
 
 	public enum MatState {
 		NEEDS_LOADING,
@@ -101,6 +122,12 @@ public class GlobalTableStoreImpl implements GlobalTableStore, ReplicatedObject<
 		private long ttl = -1;
 		private boolean valid;
 		private boolean asynch; //sub state of loading
+		private Object deltaMark; //high water mark of the last incremental refresh
+		private boolean snapshot; //the local snapshot reflects the loaded state
+		private long version; //identifies the loaded state across the cluster, 0 if unknown
+		private WeakReference<TempTable> deltaBase; //the prior state to compute the pushed changes against
+		private long deltaBaseVersion;
+		private long deltaVersion; //the version the changes from the delta base lead to
 		private Map<RequestID, WeakReference<RequestWorkItem>> waiters = new HashMap<RequestID, WeakReference<RequestWorkItem>>(2);
 		
 		protected MatTableInfo() {}
@@ -202,6 +229,18 @@ public class GlobalTableStoreImpl implements GlobalTableStore, ReplicatedObject<
             asynch = false;
             return result;
         }
+        
+        public synchronized Object getDeltaMark() {
+			return deltaMark;
+		}
+        
+        public synchronized void setDeltaMark(Object deltaMark) {
+			this.deltaMark = deltaMark;
+		}
+        
+        public synchronized long getVersion() {
+			return version;
+		}
 		
 	}
 	
@@ -211,12 +250,26 @@ public class GlobalTableStoreImpl implements GlobalTableStore, ReplicatedObject<
 	private QueryMetadataInterface metadata;
 	private volatile Serializable localAddress;
 	private VDBMetaData vdbMetaData;
+	private File snapshotDirectory;
 	
 	public GlobalTableStoreImpl(BufferManager bufferManager, VDBMetaData vdbMetaData, QueryMetadataInterface metadata) {
 		this.bufferManager = bufferManager;
 		this.vdbMetaData = vdbMetaData;
 		this.metadata = new TempMetadataAdapter(metadata, new TempMetadataStore());
 	}
+	
+	/**
+	 * Set the directory used to keep a snapshot of each loaded materialized view,
+	 * which is restored in place of the initial load after a restart if the vdb 
+	 * and view definition are unchanged.  Snapshots are not kept if null.
+	 */
+	public void setSnapshotDirectory(File snapshotDirectory) {
+		this.snapshotDirectory = snapshotDirectory;
+	}
+	
+	public File getSnapshotDirectory() {
+		return snapshotDirectory;
+	}
 
 	public synchronized MatTableInfo getMatTableInfo(final String tableName) {
 		MatTableInfo info = matTables.get(tableName);
@@ -240,6 +293,12 @@ public class GlobalTableStoreImpl implements GlobalTableStore, ReplicatedObject<
 	@Override
 	public boolean needsLoading(String matTableName, Serializable loadingAddress, boolean firstPass, boolean refresh, boolean invalidate) {
 		MatTableInfo info = getMatTableInfo(matTableName);
+		if (firstPass && !invalidate && (!refresh || hasDeltaQuery(matTableName))) {
+			//the restored state stands in for an implicit initial load, or is brought current with an incremental refresh
+			if (restoreSnapshot(matTableName, info) && !refresh) {
+				return false;
+			}
+		}
 		return info.shouldLoad(loadingAddress, firstPass, refresh, invalidate);
 	}
 			
@@ -400,6 +459,9 @@ public class GlobalTableStoreImpl implements GlobalTableStore, ReplicatedObject<
 		String updatableString = metadata.getExtensionProperty(viewId, MaterializationMetadataRepository.MATVIEW_UPDATABLE, false);
 		if (updatableString != null) {
 			hint.setUpdatable(Boolean.valueOf(updatableString));
+		} else if (metadata.getExtensionProperty(viewId, MaterializationMetadataRepository.MATVIEW_DELTA_QUERY, false) != null) {
+			//incremental refresh is performed with row updates
+			hint.setUpdatable(true);
 		}
 		String scope = metadata.getExtensionProperty(viewId, MaterializationMetadataRepository.MATVIEW_SCOPE, false);
 		if (scope != null) {
@@ -422,7 +484,30 @@ public class GlobalTableStoreImpl implements GlobalTableStore, ReplicatedObject<
 
 	@Override
 	public void loaded(String matTableName, TempTable table) {
-		swapTempTable(matTableName, table);
+		MatTableInfo info = this.getMatTableInfo(matTableName);
+		TempTable base = this.tableStore.getTempTable(matTableName);
+		synchronized (info) {
+			info.deltaBase = null;
+			long version = 0;
+			while (version == 0) {
+				version = VERSIONS.nextLong();
+			}
+			if (localAddress != null && base != null && info.version != 0 
+					&& base.getPkLength() > 0 && !base.isUpdatable() && !table.isUpdatable()) {
+				//the state push for this version may send just the changes to peers with the prior version
+				info.deltaBase = new WeakReference<TempTable>(base);
+				info.deltaBaseVersion = info.version;
+				info.deltaVersion = version;
+			}
+			info.version = version;
+			swapTempTable(matTableName, table);
+			info.setState(MatState.LOADED, true);
+		}
+		writeSnapshot(matTableName);
+	}
+	
+	@Override
+	public void refreshed(String matTableName) {
 		this.getMatTableInfo(matTableName).setState(MatState.LOADED, true);
 	}
 	
@@ -445,6 +530,7 @@ public class GlobalTableStoreImpl implements GlobalTableStore, ReplicatedObject<
 				if (clone) {
 					swapTempTable(matTableName, tempTable);
 				}
+				invalidateSnapshot(matTableName);
 				return result;
 			}
 		}
@@ -529,10 +615,16 @@ public class GlobalTableStoreImpl implements GlobalTableStore, ReplicatedObject<
 	public void getState(OutputStream ostream) {
 		try {
 			ObjectOutputStream oos = new ObjectOutputStream(ostream);
+			HashMap<String, Long> versions = new HashMap<String, Long>();
 			for (Map.Entry<String, TempTable> entry : tableStore.getTempTables().entrySet()) {
-				sendTable(entry.getKey(), oos, true);
+				long version = sendTable(entry.getKey(), oos, true, false);
+				if (version != 0) {
+					versions.put(entry.getKey(), version);
+				}
 			}
 			oos.writeObject(null);
+			//after the end marker so that older members ignore it
+			oos.writeObject(versions);
 			oos.close();
 		} catch (IOException e) {
 			 throw new TeiidRuntimeException(QueryPlugin.Event.TEIID30217, e);
@@ -541,6 +633,7 @@ public class GlobalTableStoreImpl implements GlobalTableStore, ReplicatedObject<
 		}
 	}
 
+	@SuppressWarnings("unchecked")
 	@Override
 	public void setState(InputStream istream) {
 		try {
@@ -550,7 +643,24 @@ public class GlobalTableStoreImpl implements GlobalTableStore, ReplicatedObject<
 				if (tableName == null) {
 					break;
 				}
-				loadTable(tableName, ois);
+				loadTable(tableName, ois, false, false);
+			}
+			Map<String, Long> versions = null;
+			try {
+				versions = (Map<String, Long>)ois.readObject();
+			} catch (EOFException e) {
+				//not sent by older members
+			}
+			if (versions != null) {
+				for (Map.Entry<String, Long> entry : versions.entrySet()) {
+					MatTableInfo info = this.getMatTableInfo(entry.getKey());
+					synchronized (info) {
+						//unless already replaced by a newer state
+						if (info.version == 0) {
+							info.version = entry.getValue();
+						}
+					}
+				}
 			}
 			ois.close();
 		} catch (Exception e) {
@@ -562,7 +672,11 @@ public class GlobalTableStoreImpl implements GlobalTableStore, ReplicatedObject<
 	public void getState(String stateId, OutputStream ostream) {
 		try {
 			ObjectOutputStream oos = new ObjectOutputStream(ostream);
-			sendTable(stateId, oos, false);
+			long version = sendTable(stateId, oos, false, true);
+			if (version != 0) {
+				//trailing so that older members ignore it
+				oos.writeLong(version);
+			}
 			oos.close();
 		} catch (IOException e) {
 			 throw new TeiidRuntimeException(QueryPlugin.Event.TEIID30220, e);
@@ -571,31 +685,72 @@ public class GlobalTableStoreImpl implements GlobalTableStore, ReplicatedObject<
 		}
 	}
 
-	private void sendTable(String stateId, ObjectOutputStream oos, boolean writeName)
+	/**
+	 * Write the table state in the form older members expect.  If allowed, only the changes from the prior version 
+	 * are written when this is the state push following a reload, which is marked so that older members reject it.
+	 * @return the version of the full state written, which the caller should send after the state, or 0 if the
+	 * state was not written in full or the version is not known.
+	 */
+	private long sendTable(String stateId, ObjectOutputStream oos, boolean writeName, boolean allowChanges)
 			throws IOException, TeiidComponentException {
-		TempTable tempTable = this.tableStore.getTempTable(stateId);
+		MatTableInfo info = getMatTableInfo(stateId);
+		TempTable tempTable = null;
+		long version = 0;
+		TempTable base = null;
+		long baseVersion = 0;
+		synchronized (info) {
+			tempTable = this.tableStore.getTempTable(stateId);
+			version = info.version;
+			if (allowChanges && info.deltaBase != null && info.deltaVersion == version) {
+				base = info.deltaBase.get();
+				baseVersion = info.deltaBaseVersion;
+				info.deltaBase = null;
+			}
+		}
 		if (tempTable == null) {
-			return;
+			return 0;
 		}
-		MatTableInfo info = getMatTableInfo(stateId);
 		if (!info.isValid()) {
-			return;
+			return 0;
 		}
 		if (writeName) {
 			oos.writeObject(stateId);
 		}
 		oos.writeLong(info.updateTime);
 		oos.writeObject(info.loadingAddress);
+		if (base != null) {
+			TupleBuffer changes = null;
+			try {
+				changes = tempTable.getChanges(base, tempTable.getRowCount() / 2);
+			} catch (TeiidProcessingException e) {
+				throw new TeiidComponentException(e);
+			}
+			if (changes != null) {
+				try {
+					LogManager.logDetail(LogConstants.CTX_MATVIEWS, "sending", changes.getRowCount(), "changed rows for", stateId, "rather than", tempTable.getRowCount()); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+					oos.writeObject(TEIID_CHANGES);
+					oos.writeObject(info.state);
+					oos.writeLong(version);
+					oos.writeLong(baseVersion);
+					TempTable.writeChanges(changes, oos);
+				} finally {
+					changes.remove();
+				}
+				return 0;
+			}
+		}
 		oos.writeObject(info.state);
 		tempTable.writeTo(oos);
+		return version;
 	}
 
 	@Override
 	public void setState(String stateId, InputStream istream) {
 		try {
 			ObjectInputStream ois = new ObjectInputStream(istream);
-			loadTable(stateId, ois);
+			loadTable(stateId, ois, false, true);
 			ois.close();
+			writeSnapshot(stateId);
 		} catch (Exception e) {
 			MatTableInfo info = this.getMatTableInfo(stateId);
 			if (!info.isUpToDate()) {
@@ -605,14 +760,30 @@ public class GlobalTableStoreImpl implements GlobalTableStore, ReplicatedObject<
 		}
 	}
 
-	private void loadTable(String stateId, ObjectInputStream ois)
+	/**
+	 * @param onlyIfNeedsLoading if true the table is not used unless it still needs loading once it has been read
+	 * @param trailingVersion if true the full state may be followed by its version
+	 * @return true if the loaded table was swapped in
+	 */
+	private boolean loadTable(String stateId, ObjectInputStream ois, boolean onlyIfNeedsLoading, boolean trailingVersion)
 			throws TeiidComponentException, QueryMetadataException,
 			IOException,
 			ClassNotFoundException, TeiidProcessingException {
 		LogManager.logDetail(LogConstants.CTX_DQP, "loading table from remote stream", stateId); //$NON-NLS-1$
 		long updateTime = ois.readLong();
 		Serializable loadingAddress = (Serializable) ois.readObject();
-		MatState state = (MatState)ois.readObject();
+		Object stateOrMarker = ois.readObject();
+		boolean changes = TEIID_CHANGES.equals(stateOrMarker);
+		MatState state = null;
+		long version = 0;
+		long baseVersion = 0;
+		if (changes) {
+			state = (MatState)ois.readObject();
+			version = ois.readLong();
+			baseVersion = ois.readLong();
+		} else {
+			state = (MatState)stateOrMarker;
+		}
 		GroupSymbol group = new GroupSymbol(stateId);
 		if (stateId.startsWith(RelationalPlanner.MAT_PREFIX)) {
 			String viewName = stateId.substring(RelationalPlanner.MAT_PREFIX.length());
@@ -629,13 +800,69 @@ public class GlobalTableStoreImpl implements GlobalTableStore, ReplicatedObject<
 			group.setMetadataID(getCodeTableMetadataId(viewName, returnElementName, keyElementName, stateId));
 		}
 		TempTable tempTable = this.createMatTable(stateId, group);
-		tempTable.readFrom(ois);
 		MatTableInfo info = this.getMatTableInfo(stateId);
+		TempTable base = null;
+		if (changes) {
+			long localVersion = 0;
+			synchronized (info) {
+				base = this.tableStore.getTempTable(stateId);
+				localVersion = info.version;
+			}
+			if (base == null || localVersion == 0 || localVersion != baseVersion) {
+				//we don't have the prior state, so invalidate to load on the next use
+				LogManager.logDetail(LogConstants.CTX_MATVIEWS, "ignoring changes to", stateId, "from version", baseVersion, "local version", localVersion); //$NON-NLS-1$ //$NON-NLS-2$
+				tempTable.remove();
+				info.setState(MatState.NEEDS_LOADING, false);
+				return false;
+			}
+			tempTable.readChangesFrom(base, ois);
+		} else {
+			tempTable.readFrom(ois);
+			addValueIndexes(group, tempTable);
+			if (trailingVersion) {
+				try {
+					version = ois.readLong();
+				} catch (EOFException e) {
+					//not sent by older members
+				}
+			}
+		}
 		synchronized (info) {
+			if (onlyIfNeedsLoading && (info.state != MatState.NEEDS_LOADING || this.tableStore.getTempTable(stateId) != null)) {
+				tempTable.remove();
+				return false;
+			}
+			if (changes && this.tableStore.getTempTable(stateId) != base) {
+				//replaced while the changes were merged
+				tempTable.remove();
+				return false;
+			}
 			swapTempTable(stateId, tempTable);
 			info.setState(state, true);
 			info.updateTime = updateTime;
 			info.loadingAddress = loadingAddress;
+			info.version = version;
+		}
+		return true;
+	}
+
+	/**
+	 * Value indexes are not part of the transferred state, so they are rebuilt from the index metadata
+	 */
+	private void addValueIndexes(GroupSymbol group, TempTable tempTable) throws TeiidComponentException, QueryMetadataException, TeiidProcessingException {
+		if (tempTable.isUpdatable()) {
+			return;
+		}
+		List<ElementSymbol> allColumns = null;
+		for (Object index : metadata.getIndexesInGroup(group.getMetadataID())) {
+			ValueIndex.Type type = TempTableDataManager.getIndexType(metadata, index);
+			if (type == ValueIndex.Type.BTREE) {
+				continue;
+			}
+			if (allColumns == null) {
+				allColumns = ResolverUtil.resolveElementsInGroup(group, metadata);
+			}
+			tempTable.addIndex(resolveIndex(metadata, allColumns, index), false, type);
 		}
 	}
 
@@ -665,5 +892,219 @@ public class GlobalTableStoreImpl implements GlobalTableStore, ReplicatedObject<
 	public TempTable getTempTable(String matTableName) {
 		return this.tableStore.getTempTable(matTableName);
 	}
+	
+	private File getSnapshotFile(String matTableName) {
+		if (snapshotDirectory == null || vdbMetaData == null || !matTableName.startsWith(RelationalPlanner.MAT_PREFIX)) {
+			return null;
+		}
+		String name = vdbMetaData.getName() + '_' + vdbMetaData.getVersion() + '_' + matTableName;
+		return new File(snapshotDirectory, name.replaceAll("[^\\w.-]", "_") + SNAPSHOT_SUFFIX); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+	
+	/**
+	 * Get a string that changes along with anything affecting the stored form of the view -  
+	 * the defining query, the columns and types, the keys and indexes, and the extension properties.
+	 */
+	private String getSnapshotDefinition(String matTableName) throws TeiidComponentException, QueryMetadataException {
+		Object viewId = this.metadata.getGroupID(matTableName.substring(RelationalPlanner.MAT_PREFIX.length()));
+		StringBuilder sb = new StringBuilder();
+		sb.append(this.metadata.getFullName(viewId));
+		QueryNode node = this.metadata.getVirtualPlan(viewId);
+		if (node != null) {
+			sb.append('\n').append(node.getQuery());
+		}
+		for (Object element : this.metadata.getElementIDsInGroupID(viewId)) {
+			sb.append('\n').append(this.metadata.getName(element)).append(' ').append(this.metadata.getElementRuntimeTypeName(element));
+		}
+		appendKey(sb, "PRIMARY KEY", this.metadata.getPrimaryKey(viewId)); //$NON-NLS-1$
+		for (Object key : this.metadata.getUniqueKeysInGroup(viewId)) {
+			appendKey(sb, "UNIQUE", key); //$NON-NLS-1$
+		}
+		for (Object key : this.metadata.getIndexesInGroup(viewId)) {
+			appendKey(sb, "INDEX", key); //$NON-NLS-1$
+		}
+		if (viewId instanceof Table) {
+			sb.append('\n').append(new TreeMap<String, String>(((Table)viewId).getProperties()));
+		}
+		return sb.toString();
+	}
+
+	private void appendKey(StringBuilder sb, String type, Object key)
+			throws TeiidComponentException, QueryMetadataException {
+		if (key == null) {
+			return;
+		}
+		sb.append('\n').append(type);
+		for (Object element : this.metadata.getElementIDsInKey(key)) {
+			sb.append(' ').append(this.metadata.getName(element));
+		}
+		if (key instanceof KeyRecord) {
+			sb.append(' ').append(new TreeMap<String, String>(((KeyRecord)key).getProperties()));
+		}
+	}
+	
+	/**
+	 * Write the loaded state of the mat table to its snapshot file.  The file holds a header identifying the vdb and 
+	 * view definition followed by the same serialized form used for replication, and ends with a CRC32 of the preceding bytes.
+	 * The file is written under a temporary name and renamed so that a partial write is never read back.
+	 */
+	private void writeSnapshot(String matTableName) {
+		File file = getSnapshotFile(matTableName);
+		if (file == null) {
+			return;
+		}
+		MatTableInfo info = getMatTableInfo(matTableName);
+		File temp = new File(file.getPath() + ".tmp"); //$NON-NLS-1$
+		try {
+			snapshotDirectory.mkdirs();
+			String definition = getSnapshotDefinition(matTableName);
+			CRC32 crc = new CRC32();
+			OutputStream out = new BufferedOutputStream(new FileOutputStream(temp));
+			try {
+				ObjectOutputStream oos = new ObjectOutputStream(new CheckedOutputStream(out, crc));
+				oos.writeInt(SNAPSHOT_MAGIC);
+				oos.writeInt(SNAPSHOT_VERSION);
+				oos.writeObject(vdbMetaData.getName());
+				oos.writeObject(vdbMetaData.getVersion());
+				oos.writeObject(definition);
+				oos.writeLong(sendTable(matTableName, oos, false, false));
+				oos.flush();
+				DataOutputStream dos = new DataOutputStream(out);
+				dos.writeLong(crc.getValue());
+				dos.flush();
+			} finally {
+				out.close();
+			}
+			synchronized (info) {
+				file.delete();
+				if (!temp.renameTo(file)) {
+					throw new IOException(temp.getPath());
+				}
+				info.snapshot = true;
+			}
+			LogManager.logDetail(LogConstants.CTX_MATVIEWS, "wrote snapshot", file, "for", matTableName); //$NON-NLS-1$ //$NON-NLS-2$
+		} catch (Exception e) {
+			temp.delete();
+			LogManager.logWarning(LogConstants.CTX_MATVIEWS, e, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID31261, matTableName, file));
+		}
+	}
+	
+	/**
+	 * Remove the snapshot once it no longer reflects the loaded state.  Views with a delta query are exempt
+	 * as the restored state will be brought current by the next incremental refresh.
+	 */
+	private void invalidateSnapshot(String matTableName) {
+		MatTableInfo info = getMatTableInfo(matTableName);
+		synchronized (info) {
+			if (!info.snapshot || hasDeltaQuery(matTableName)) {
+				return;
+			}
+			info.snapshot = false;
+			File file = getSnapshotFile(matTableName);
+			if (file != null) {
+				file.delete();
+			}
+		}
+	}
+	
+	private boolean hasDeltaQuery(String matTableName) {
+		try {
+			Object viewId = this.metadata.getGroupID(matTableName.substring(RelationalPlanner.MAT_PREFIX.length()));
+			return this.metadata.getExtensionProperty(viewId, MaterializationMetadataRepository.MATVIEW_DELTA_QUERY, false) != null;
+		} catch (TeiidComponentException e) {
+			return false;
+		} catch (QueryMetadataException e) {
+			return false;
+		}
+	}
+	
+	/**
+	 * Restore the mat table from its snapshot if it has not yet been loaded.
+	 * The snapshot is read without holding the lock on the info and is only swapped in if 
+	 * the table still needs loading.
+	 * @return true if the snapshot was restored
+	 */
+	private boolean restoreSnapshot(String matTableName, MatTableInfo info) {
+		File file = getSnapshotFile(matTableName);
+		if (file == null) {
+			return false;
+		}
+		synchronized (info) {
+			if (info.state != MatState.NEEDS_LOADING || this.tableStore.getTempTable(matTableName) != null || !file.exists()) {
+				return false;
+			}
+		}
+		try {
+			ObjectInputStream ois = openSnapshot(matTableName, file);
+			if (ois != null) {
+				try {
+					if (!loadTable(matTableName, ois, true, true)) {
+						//loaded by another thread
+						return false;
+					}
+				} finally {
+					ois.close();
+				}
+				synchronized (info) {
+					info.loadingAddress = localAddress;
+					info.snapshot = true;
+				}
+				LogManager.logInfo(LogConstants.CTX_MATVIEWS, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID31260, matTableName, file));
+				return true;
+			}
+			LogManager.logWarning(LogConstants.CTX_MATVIEWS, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID31262, matTableName, file));
+		} catch (Exception e) {
+			LogManager.logWarning(LogConstants.CTX_MATVIEWS, e, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID31262, matTableName, file));
+		}
+		synchronized (info) {
+			file.delete();
+		}
+		return false;
+	}
+
+	/**
+	 * @return the stream positioned at the table state, or null if the snapshot is not valid for this vdb and table
+	 */
+	private ObjectInputStream openSnapshot(String matTableName, File file) throws Exception {
+		if (!verifyChecksum(file)) {
+			return null;
+		}
+		ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)));
+		boolean valid = false;
+		try {
+			valid = ois.readInt() == SNAPSHOT_MAGIC && ois.readInt() == SNAPSHOT_VERSION
+					&& vdbMetaData.getName().equals(ois.readObject())
+					&& vdbMetaData.getVersion().equals(ois.readObject())
+					&& getSnapshotDefinition(matTableName).equals(ois.readObject());
+		} finally {
+			if (!valid) {
+				ois.close();
+			}
+		}
+		return valid?ois:null;
+	}
+
+	private static boolean verifyChecksum(File file) throws IOException {
+		long remaining = file.length() - 8;
+		if (remaining <= 0) {
+			return false;
+		}
+		CRC32 crc = new CRC32();
+		InputStream in = new BufferedInputStream(new FileInputStream(file));
+		try {
+			byte[] bytes = new byte[1 << 16];
+			while (remaining > 0) {
+				int read = in.read(bytes, 0, (int)Math.min(bytes.length, remaining));
+				if (read < 0) {
+					return false;
+				}
+				crc.update(bytes, 0, read);
+				remaining -= read;
+			}
+			return new DataInputStream(in).readLong() == crc.getValue();
+		} finally {
+			in.close();
+		}
+	}
 
 }
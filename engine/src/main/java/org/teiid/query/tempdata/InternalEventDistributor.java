@@ -0,0 +1,52 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+
+package org.teiid.query.tempdata;
+
+import java.util.List;
+
+import org.teiid.Replicated;
+import org.teiid.events.EventDistributor;
+
+/**
+ * Engine only extensions of the {@link EventDistributor}, which are not part of the public api.
+ * Callers should fall back to the {@link EventDistributor} methods if the distributor does not implement this.
+ */
+public interface InternalEventDistributor extends EventDistributor {
+	
+	/**
+	 * Update the given materialized view rows as a single event.
+	 * Each tuple is handled as with {@link #updateMatViewRow(String, String, String, String, List, boolean)}
+	 * using the delete flag at the same position.
+	 * 
+	 * @param vdbName
+	 * @param vdbVersion
+	 * @param schema
+	 * @param viewName
+	 * @param tuples
+	 * @param deletes
+	 */
+	@Replicated(remoteOnly=true)
+	void updateMatViewRows(String vdbName, String vdbVersion, String schema, String viewName, List<? extends List<?>> tuples, boolean[] deletes);
+
+}
@@ -40,6 +40,7 @@ import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.teiid.api.exception.query.ExpressionEvaluationException;
+import org.teiid.client.BatchSerializer;
 import org.teiid.common.buffer.*;
 import org.teiid.common.buffer.BufferManager.BufferReserveMode;
 import org.teiid.common.buffer.BufferManager.TupleSourceType;
@@ -56,6 +57,7 @@ import org.teiid.query.QueryPlugin;
 import org.teiid.query.eval.Evaluator;
 import org.teiid.query.metadata.TempMetadataID;
 import org.teiid.query.processor.CollectionTupleSource;
+import org.teiid.query.processor.relational.ListNestedSortComparator;
 import org.teiid.query.processor.relational.RelationalNode;
 import org.teiid.query.processor.relational.SortUtility;
 import org.teiid.query.processor.relational.SortUtility.Mode;
@@ -374,6 +376,12 @@ public class TempTable implements Cloneable, SearchableTable {
 	private ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
 	private boolean updatable = true;
 	private LinkedHashMap<List<ElementSymbol>, TempTable> indexTables;
+	private LinkedHashMap<List<ElementSymbol>, ValueIndex> valueIndexes;
+	//the keys and reservation are shared with clones and removed by the last reference
+	private TupleBuffer valueIndexKeys;
+	private AtomicInteger valueIndexReserved;
+	private AtomicInteger valueIndexReferences;
+	private AtomicLong valueIndexUses = new AtomicLong();
 	
 	private int keyBatchSize;
 	private int leafBatchSize;
@@ -455,6 +463,11 @@ public class TempTable implements Cloneable, SearchableTable {
 				}
 			}
 			clone.tree = tree.clone();
+			//the value indexes are immutable and may be shared
+			if (clone.valueIndexes != null) {
+				clone.valueIndexes = new LinkedHashMap<List<ElementSymbol>, ValueIndex>(clone.valueIndexes);
+				clone.valueIndexReferences.incrementAndGet();
+			}
 			clone.activeReaders = new AtomicInteger();
 			return clone;
 		} catch (CloneNotSupportedException e) {
@@ -469,10 +482,26 @@ public class TempTable implements Cloneable, SearchableTable {
 	}
 	
 	void addIndex(List<ElementSymbol> indexColumns, boolean unique) throws TeiidComponentException, TeiidProcessingException {
+		addIndex(indexColumns, unique, ValueIndex.Type.BTREE);
+	}
+	
+	/**
+	 * Add an index of the given type.  Hash and bitmap indexes are only supported on non-updatable 
+	 * tables with column types that use java equality, otherwise a btree index is created. 
+	 */
+	void addIndex(List<ElementSymbol> indexColumns, boolean unique, ValueIndex.Type type) throws TeiidComponentException, TeiidProcessingException {
 		List<ElementSymbol> keyColumns = columns.subList(0, tree.getKeyLength());
-		if (keyColumns.equals(indexColumns) || (indexTables != null && indexTables.containsKey(indexColumns))) {
+		if (keyColumns.equals(indexColumns) || (indexTables != null && indexTables.containsKey(indexColumns)) 
+				|| (valueIndexes != null && valueIndexes.containsKey(indexColumns))) {
 			return;
 		}
+		if (type != ValueIndex.Type.BTREE) {
+			if (!unique && !updatable && tree.getRowCount() <= Integer.MAX_VALUE && ValueIndex.isSupported(indexColumns)
+					&& addValueIndex(indexColumns, type)) {
+				return;
+			}
+			LogManager.logDetail(LogConstants.CTX_DQP, "Using a btree index rather than", type, "for", indexColumns, "on", this); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		}
 		TempTable indexTable = createIndexTable(indexColumns, unique);
 		//TODO: ordered insert optimization
 		TupleSource ts = createTupleSource(indexTable.getColumns(), null, null);
@@ -496,12 +525,144 @@ public class TempTable implements Cloneable, SearchableTable {
 		}
 		if (indexTables == null) {
 			indexTables = new LinkedHashMap<List<ElementSymbol>, TempTable>();
-			indexTables.put(indexColumns, indexTable);
 		}
+		indexTables.put(indexColumns, indexTable);
 		indexTable.setUpdatable(this.updatable);
 		return indexTable;
 	}
 	
+	/**
+	 * Build a value index, reserving the estimated size of its postings as it grows.
+	 * @return false if the postings would exceed the memory that could be reserved
+	 */
+	private boolean addValueIndex(List<ElementSymbol> indexColumns, ValueIndex.Type type) throws TeiidComponentException, TeiidProcessingException {
+		List<ElementSymbol> keyColumns = columns.subList(0, tree.getKeyLength());
+		List<ElementSymbol> allColumns = new ArrayList<ElementSymbol>(indexColumns);
+		allColumns.addAll(keyColumns);
+		//all value indexes share the positions of the keys
+		boolean addKeys = valueIndexKeys == null;
+		if (addKeys) {
+			valueIndexKeys = bm.createTupleBuffer(keyColumns, sessionID, TupleSourceType.PROCESSOR);
+			valueIndexKeys.setPrefersMemory(this.tree.isPreferMemory());
+			valueIndexReserved = new AtomicInteger();
+			valueIndexReferences = new AtomicInteger(1);
+		}
+		ValueIndex index = new ValueIndex(indexColumns, type, bm.getSchemaSize(indexColumns) / bm.getProcessorBatchSize(indexColumns));
+		TupleSource ts = createTupleSource(allColumns, null, null);
+		int indexLength = indexColumns.size();
+		int reserved = 0;
+		boolean success = false;
+		try {
+			int position = 0;
+			List<?> tuple = null;
+			while ((tuple = ts.nextTuple()) != null) {
+				if (addKeys) {
+					valueIndexKeys.addTuple(new ArrayList<Object>(tuple.subList(indexLength, tuple.size())));
+				}
+				index.add(tuple.subList(0, indexLength), position++);
+				if ((position & 1023) == 0) {
+					int newReserved = reserveValueIndex(index, reserved);
+					if (newReserved < 0) {
+						break;
+					}
+					reserved = newReserved;
+				}
+			}
+			if (tuple == null) {
+				int newReserved = reserveValueIndex(index, reserved);
+				if (newReserved >= 0) {
+					reserved = newReserved;
+					success = true;
+				}
+			}
+		} finally {
+			ts.closeSource();
+			if (!success) {
+				if (reserved > 0) {
+					bm.releaseBuffers(reserved);
+				}
+				if (addKeys) {
+					valueIndexKeys.remove();
+					valueIndexKeys = null;
+					valueIndexReserved = null;
+					valueIndexReferences = null;
+				}
+			}
+		}
+		if (!success) {
+			LogManager.logDetail(LogConstants.CTX_DQP, "Not enough memory for the", type, "index on", indexColumns, "estimated size", index.getSizeEstimate()); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			return false;
+		}
+		if (addKeys) {
+			valueIndexKeys.close();
+		}
+		if (valueIndexes == null) {
+			valueIndexes = new LinkedHashMap<List<ElementSymbol>, ValueIndex>();
+		}
+		valueIndexes.put(indexColumns, index);
+		valueIndexReserved.addAndGet(reserved);
+		return true;
+	}
+	
+	/**
+	 * Reserve up to the current size estimate of the index 
+	 * @return the new reserved amount or -1 if the memory could not be reserved, in which case the prior amount is still reserved
+	 */
+	private int reserveValueIndex(ValueIndex index, int reserved) {
+		long needed = index.getSizeEstimate() - reserved;
+		if (needed <= 0) {
+			return reserved;
+		}
+		if (needed > Integer.MAX_VALUE - reserved) {
+			return -1;
+		}
+		int additional = bm.reserveBuffers((int)needed, BufferReserveMode.NO_WAIT);
+		if (additional < needed) {
+			bm.releaseBuffers(additional);
+			return -1;
+		}
+		return reserved + additional;
+	}
+	
+	private void dropValueIndexes() {
+		if (valueIndexes == null) {
+			return;
+		}
+		LogManager.logDetail(LogConstants.CTX_DQP, "Removing the value indexes on", this); //$NON-NLS-1$
+		if (valueIndexReferences.decrementAndGet() == 0) {
+			valueIndexKeys.remove();
+			bm.releaseBuffers(valueIndexReserved.get());
+		}
+		valueIndexes = null;
+		valueIndexKeys = null;
+		valueIndexReserved = null;
+		valueIndexReferences = null;
+	}
+	
+	/**
+	 * Intersect the matches of all value indexes that can be used for the condition
+	 * @return the matches or null if no value index applies
+	 */
+	private ValueIndex.Matches getValueIndexMatches(Criteria condition) {
+		List<Criteria> conjuncts = Criteria.separateCriteriaByAnd(condition);
+		ValueIndex.Matches result = null;
+		for (ValueIndex index : valueIndexes.values()) {
+			ValueIndex.Matches matches = index.getMatches(conjuncts);
+			if (matches == null) {
+				continue;
+			}
+			if (result == null) {
+				result = matches;
+			} else {
+				result = result.and(matches);
+			}
+			if (result.size() == 0) {
+				break;
+			}
+		}
+		return result;
+	}
+	
 	private int reserveBuffers() {
 		return bm.reserveBuffers(leafBatchSize + (tree.getHeight() - 1)*keyBatchSize, BufferReserveMode.FORCE);
 	}
@@ -524,16 +685,32 @@ public class TempTable implements Cloneable, SearchableTable {
 		}
 		IndexInfo primary = new IndexInfo(this, projectedCols, condition, orderBy, true);
 		IndexInfo ii = primary;
-		if (indexTables != null && (condition != null || orderBy != null) && ii.valueSet.size() != 1) {
+		if ((indexTables != null || valueIndexes != null) && (condition != null || orderBy != null) && ii.valueSet.size() != 1) {
 			LogManager.logDetail(LogConstants.CTX_DQP, "Considering indexes on table", this, "for query", projectedCols, condition, orderBy); //$NON-NLS-1$ //$NON-NLS-2$
 			long rowCost = this.tree.getRowCount();
 			long bestCost = estimateCost(orderBy, ii, rowCost);
-			for (TempTable table : this.indexTables.values()) {
-				IndexInfo secondary = new IndexInfo(table, projectedCols, condition, orderBy, false);
-				long cost = estimateCost(orderBy, secondary, rowCost);
-				if (cost < bestCost) {
-					ii = secondary;
-					bestCost = cost;
+			if (indexTables != null) {
+				for (TempTable table : this.indexTables.values()) {
+					IndexInfo secondary = new IndexInfo(table, projectedCols, condition, orderBy, false);
+					long cost = estimateCost(orderBy, secondary, rowCost);
+					if (cost < bestCost) {
+						ii = secondary;
+						bestCost = cost;
+					}
+				}
+			}
+			if (valueIndexes != null && condition != null) {
+				ValueIndex.Matches matches = getValueIndexMatches(condition);
+				if (matches != null) {
+					long matchCount = matches.size();
+					//the matches are already known, so the only additional cost is the primary lookup
+					long cost = matchCount + matchCount * (64 - Long.numberOfLeadingZeros(rowCost - 1));
+					if (cost < bestCost) {
+						LogManager.logDetail(LogConstants.CTX_DQP, "Choose value indexes on table", this, "matching rows:", matchCount); //$NON-NLS-1$ //$NON-NLS-2$
+						valueIndexUses.incrementAndGet();
+						primary.valueTs = matches.createTupleSource(valueIndexKeys, primary.ordering == null || primary.ordering);
+						return createTupleSource(projectedCols, condition, orderBy, primary, agg);
+					}
 				}
 			}
 			LogManager.logDetail(LogConstants.CTX_DQP, "Choose index", ii.table, "covering:", ii.coveredCriteria,"ordering:", ii.ordering); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
@@ -565,6 +742,10 @@ public class TempTable implements Cloneable, SearchableTable {
 			final Criteria condition, OrderBy orderBy, IndexInfo ii, boolean agg)
 			throws TeiidComponentException, TeiidProcessingException {
 		TupleBrowser browser = ii.createTupleBrowser(bm.getOptions().getDefaultNullOrder(), true);
+		if (ii.valueTs == null && ii.valueSet.isEmpty()) {
+			//range scan - skip pages that cannot match
+			browser.setPageFilter(ZoneMapFilter.create(condition, columnMap));
+		}
 		TupleSource ts = new QueryTupleSource(browser, columnMap, agg?getColumns():projectedCols, condition);
 		
 		boolean usingQueryTupleSource = false;
@@ -656,6 +837,13 @@ public class TempTable implements Cloneable, SearchableTable {
 		return tree.getRowCount();
 	}
 	
+	/**
+	 * @return the number of times value indexes were used to answer a query against this table
+	 */
+	public long getValueIndexUseCount() {
+		return valueIndexUses.get();
+	}
+	
 	public long truncate(boolean force) {
 		this.tid.getTableData().dataModified(tree.getRowCount());
 		return tree.truncate(force);
@@ -666,6 +854,7 @@ public class TempTable implements Cloneable, SearchableTable {
 		try {
 			tid.getTableData().removed();
 			tree.remove();
+			dropValueIndexes();
 			if (this.indexTables != null) {
 				for (TempTable indexTable : this.indexTables.values()) {
 					indexTable.remove();
@@ -901,6 +1090,143 @@ public class TempTable implements Cloneable, SearchableTable {
 		}
 	}
 	
+	private List<ElementSymbol> getChangeColumns() {
+		List<ElementSymbol> changeColumns = new ArrayList<ElementSymbol>(columns);
+		ElementSymbol delete = new ElementSymbol("delete"); //$NON-NLS-1$
+		delete.setType(DataTypeManager.DefaultDataClasses.BOOLEAN);
+		changeColumns.add(delete);
+		return changeColumns;
+	}
+	
+	/**
+	 * Get the rows that differ from a base table with the same structure, in key order.
+	 * Each change is the row followed by a delete flag - deleted rows only have the key values.
+	 * @return the changes or null if there are more than maxChanges
+	 */
+	TupleBuffer getChanges(TempTable base, long maxChanges) throws TeiidComponentException, TeiidProcessingException {
+		int keyLength = tree.getKeyLength();
+		ListNestedSortComparator comparator = tree.getComparator();
+		TupleBuffer changes = bm.createTupleBuffer(getChangeColumns(), sessionID, TupleSourceType.PROCESSOR);
+		boolean success = false;
+		this.lock.readLock().lock();
+		base.lock.readLock().lock();
+		try {
+			TupleSource ts = tree.getTupleSource(false);
+			TupleSource baseTs = base.tree.getTupleSource(false);
+			List<?> row = ts.nextTuple();
+			List<?> baseRow = baseTs.nextTuple();
+			while (row != null || baseRow != null) {
+				if (changes.getRowCount() > maxChanges) {
+					return null;
+				}
+				int compare = 0;
+				if (row == null) {
+					compare = 1;
+				} else if (baseRow == null) {
+					compare = -1;
+				} else {
+					compare = comparator.compare(row, baseRow);
+				}
+				if (compare > 0) {
+					List<Object> change = new ArrayList<Object>(columns.size() + 1);
+					change.addAll(baseRow.subList(0, keyLength));
+					change.addAll(Collections.nCopies(columns.size() - keyLength, null));
+					change.add(Boolean.TRUE);
+					changes.addTuple(change);
+					baseRow = baseTs.nextTuple();
+					continue;
+				}
+				if (compare < 0 || !row.equals(baseRow)) {
+					List<Object> change = new ArrayList<Object>(row);
+					change.add(Boolean.FALSE);
+					changes.addTuple(change);
+				}
+				if (compare == 0) {
+					baseRow = baseTs.nextTuple();
+				}
+				row = ts.nextTuple();
+			}
+			changes.close();
+			success = true;
+			return changes;
+		} finally {
+			base.lock.readLock().unlock();
+			this.lock.readLock().unlock();
+			if (!success) {
+				changes.remove();
+			}
+		}
+	}
+	
+	static void writeChanges(TupleBuffer changes, ObjectOutputStream oos) throws TeiidComponentException, IOException {
+		oos.writeLong(changes.getRowCount());
+		for (long row = 1; row <= changes.getRowCount();) {
+			TupleBatch batch = changes.getBatch(row);
+			BatchSerializer.writeBatch(oos, changes.getTypes(), batch.getTuples());
+			row = batch.getEndRow() + 1;
+		}
+	}
+	
+	/**
+	 * Populate this empty table by merging the base table with the changes from {@link #writeChanges(TupleBuffer, ObjectOutputStream)},
+	 * then create the same indexes as the base table.
+	 */
+	void readChangesFrom(TempTable base, ObjectInputStream ois) throws TeiidComponentException, TeiidProcessingException, IOException, ClassNotFoundException {
+		String[] types = TupleBuffer.getTypeNames(getChangeColumns());
+		ListNestedSortComparator comparator = tree.getComparator();
+		long count = ois.readLong();
+		int sizeHint = tree.getExpectedHeight(base.getRowCount() + count);
+		tree.setBatchInsert(true);
+		base.lock.readLock().lock();
+		try {
+			TupleSource baseTs = base.tree.getTupleSource(false);
+			List<?> baseRow = baseTs.nextTuple();
+			long read = 0;
+			while (read < count) {
+				List<List<Object>> batch = BatchSerializer.readBatch(ois, types);
+				for (List<Object> change : batch) {
+					read++;
+					int compare = -1;
+					while (baseRow != null && (compare = comparator.compare(baseRow, change)) < 0) {
+						tree.insert(baseRow, InsertMode.ORDERED, sizeHint);
+						baseRow = baseTs.nextTuple();
+					}
+					if (baseRow != null && compare == 0) {
+						baseRow = baseTs.nextTuple();
+					}
+					if (!Boolean.TRUE.equals(change.get(columns.size()))) {
+						tree.insert(new ArrayList<Object>(change.subList(0, columns.size())), InsertMode.ORDERED, sizeHint);
+					}
+				}
+			}
+			while (baseRow != null) {
+				tree.insert(baseRow, InsertMode.ORDERED, sizeHint);
+				baseRow = baseTs.nextTuple();
+			}
+		} finally {
+			base.lock.readLock().unlock();
+			tree.setBatchInsert(false);
+		}
+		if (base.indexTables != null) {
+			for (Map.Entry<List<ElementSymbol>, TempTable> entry : base.indexTables.entrySet()) {
+				addIndex(getColumns(base, entry.getKey()), entry.getValue().uniqueColIndex > 0);
+			}
+		}
+		if (base.valueIndexes != null) {
+			for (ValueIndex index : base.valueIndexes.values()) {
+				addIndex(getColumns(base, index.getColumns()), false, index.getType());
+			}
+		}
+	}
+
+	private List<ElementSymbol> getColumns(TempTable base, List<ElementSymbol> baseColumns) {
+		ArrayList<ElementSymbol> result = new ArrayList<ElementSymbol>(baseColumns.size());
+		for (ElementSymbol es : baseColumns) {
+			result.add(this.columns.get(base.columnMap.get(es)));
+		}
+		return result;
+	}
+	
 	List<?> updateTuple(List<?> tuple, boolean remove) throws TeiidComponentException {
 		try {
 			lock.writeLock().lock();
@@ -944,6 +1270,10 @@ public class TempTable implements Cloneable, SearchableTable {
 	
 	void setUpdatable(boolean updatable) {
 		this.updatable = updatable;
+		if (updatable) {
+			//value indexes are not maintained
+			dropValueIndexes();
+		}
 		if (this.indexTables != null) {
 			for (TempTable index : this.indexTables.values()) {
 				index.setUpdatable(updatable);
@@ -25,7 +25,10 @@ package org.teiid.query.tempdata;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.Callable;
@@ -67,16 +70,19 @@ import org.teiid.logging.LogManager;
 import org.teiid.metadata.FunctionMethod.Determinism;
 import org.teiid.query.QueryPlugin;
 import org.teiid.query.eval.Evaluator;
+import org.teiid.query.metadata.MaterializationMetadataRepository;
 import org.teiid.query.metadata.QueryMetadataInterface;
 import org.teiid.query.metadata.TempMetadataAdapter;
 import org.teiid.query.metadata.TempMetadataID;
 import org.teiid.query.optimizer.relational.RelationalPlanner;
 import org.teiid.query.parser.ParseInfo;
+import org.teiid.query.parser.QueryParser;
 import org.teiid.query.processor.BatchCollector;
 import org.teiid.query.processor.CollectionTupleSource;
 import org.teiid.query.processor.ProcessorDataManager;
 import org.teiid.query.processor.QueryProcessor;
 import org.teiid.query.processor.RegisterRequestParameter;
+import org.teiid.query.resolver.QueryResolver;
 import org.teiid.query.resolver.util.ResolverUtil;
 import org.teiid.query.sql.lang.*;
 import org.teiid.query.sql.symbol.Constant;
@@ -84,6 +90,8 @@ import org.teiid.query.sql.symbol.ElementSymbol;
 import org.teiid.query.sql.symbol.Expression;
 import org.teiid.query.sql.symbol.GroupSymbol;
 import org.teiid.query.sql.symbol.Reference;
+import org.teiid.query.sql.symbol.Symbol;
+import org.teiid.query.sql.visitor.SQLStringVisitor;
 import org.teiid.query.tempdata.GlobalTableStoreImpl.MatTableInfo;
 import org.teiid.query.util.CommandContext;
 import org.teiid.translator.CacheDirective.Scope;
@@ -128,6 +136,10 @@ public class TempTableDataManager implements ProcessorDataManager {
 	private static final String REFRESHMATVIEWROW = ".refreshmatviewrow"; //$NON-NLS-1$
 	private static final String REFRESHMATVIEWROWS = ".refreshmatviewrows"; //$NON-NLS-1$
 	private static final String REFRESHMATVIEW = ".refreshmatview"; //$NON-NLS-1$
+	/**
+	 * The maximum number of matview row updates sent to the other members as a single event
+	 */
+	private static final int MAX_DISTRIBUTED_ROWS = 1 << 9;
 	public static final String CODE_PREFIX = "#CODE_"; //$NON-NLS-1$
 	private static String REFRESH_SQL = SQLConstants.Reserved.CALL + ' ' + CoreConstants.SYSTEM_ADMIN_MODEL + REFRESHMATVIEW + "(?, ?)"; //$NON-NLS-1$
 
@@ -362,7 +374,8 @@ public class TempTableDataManager implements ProcessorDataManager {
 			String matTableName = metadata.getFullName(matTableId);
 			LogManager.logDetail(LogConstants.CTX_MATVIEWS, "processing refreshmatview for", matViewName); //$NON-NLS-1$
 			boolean invalidate = Boolean.TRUE.equals(((Constant)proc.getParameter(3).getExpression()).getValue());
-			boolean needsLoading = globalStore.getMatTableInfo(matTableName).getAndClearAsynch(); 
+			boolean asynch = globalStore.getMatTableInfo(matTableName).getAndClearAsynch();
+			boolean needsLoading = asynch; 
 			if (!needsLoading) {
 			    needsLoading = globalStore.needsLoading(matTableName, globalStore.getAddress(), true, true, invalidate);
 			    if (needsLoading) {
@@ -372,6 +385,12 @@ public class TempTableDataManager implements ProcessorDataManager {
 			if (!needsLoading) {
 				return CollectionTupleSource.createUpdateCountTupleSource(-1);
 			}
+			if (!asynch && !invalidate) {
+				TupleSource ts = refreshIncrementally(context, metadata, groupID, globalStore, matViewName, matTableName);
+				if (ts != null) {
+					return ts;
+				}
+			}
 			GroupSymbol matTable = new GroupSymbol(matTableName);
 			matTable.setMetadataID(matTableId);
 			return loadGlobalTable(context, matTable, matTableName, globalStore);
@@ -423,6 +442,115 @@ public class TempTableDataManager implements ProcessorDataManager {
 		return null;
 	}
 
+	/**
+	 * Refresh a valid materialized view with the rows identified by the 
+	 * {@link MaterializationMetadataRepository#MATVIEW_DELTA_QUERY} since the last refresh.
+	 * @return the update count {@link TupleSource} or null if a full load is required
+	 */
+	private TupleSource refreshIncrementally(final CommandContext context,
+			final QueryMetadataInterface metadata, final Object groupID,
+			final GlobalTableStore globalStore, final String matViewName, 
+			final String matTableName) throws TeiidComponentException, TeiidProcessingException {
+		String deltaQuery = metadata.getExtensionProperty(groupID, MaterializationMetadataRepository.MATVIEW_DELTA_QUERY, false);
+		if (deltaQuery == null) {
+			return null;
+		}
+		final MatTableInfo info = globalStore.getMatTableInfo(matTableName);
+		TempTable table = globalStore.getTempTable(matTableName);
+		Object pk = metadata.getPrimaryKey(groupID);
+		if (!info.isValid() || table == null || !table.isUpdatable() || pk == null) {
+			return null;
+		}
+		final List<?> ids = metadata.getElementIDsInKey(pk);
+		Command command = QueryParser.getQueryParser().parseCommand(deltaQuery);
+		QueryResolver.resolveCommand(command, metadata);
+		List<Expression> projected = command.getProjectedSymbols();
+		if (projected.size() <= ids.size()) {
+			throw new QueryProcessingException(QueryPlugin.Event.TEIID31258, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID31258, matViewName, deltaQuery));
+		}
+		final Object lastMark = info.getDeltaMark();
+		final String queryString;
+		final Object[] queryParams;
+		if (lastMark == null) {
+			//the mark is unknown, so all of the logged changes are applied
+			queryString = deltaQuery;
+			queryParams = null;
+		} else {
+			String markColumn = Symbol.getShortName(projected.get(ids.size()));
+			queryString = Reserved.SELECT + " * " + Reserved.FROM + " (" + deltaQuery + ") " + Reserved.AS + " x " + Reserved.WHERE  //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+				+ " x." + SQLStringVisitor.escapeSinglePart(markColumn) + " > ?"; //$NON-NLS-1$ //$NON-NLS-2$
+			queryParams = new Object[] {lastMark};
+		}
+		LogManager.logDetail(LogConstants.CTX_MATVIEWS, "refreshing", matViewName, "incrementally from mark", lastMark); //$NON-NLS-1$ //$NON-NLS-2$
+		return new ProxyTupleSource() {
+			private QueryProcessor qp;
+			private TupleSource deltaTs;
+			private LinkedHashSet<List<Object>> keys = new LinkedHashSet<List<Object>>();
+			private Object mark = lastMark;
+			private TupleSource rows;
+			private boolean success;
+			private boolean closed;
+			
+			@Override
+			protected TupleSource createTupleSource()
+					throws TeiidComponentException, TeiidProcessingException {
+				if (rows == null) {
+					if (qp == null) {
+						qp = context.getQueryProcessorFactory().createQueryProcessor(queryString, matViewName.toUpperCase(), context, queryParams);
+						deltaTs = new BatchCollector.BatchProducerTupleSource(qp);
+					}
+					List<?> tuple = null;
+					while ((tuple = deltaTs.nextTuple()) != null) {
+						keys.add(new ArrayList<Object>(tuple.subList(0, ids.size())));
+						Object value = tuple.get(ids.size());
+						if (value != null && (mark == null || Constant.COMPARATOR.compare(value, mark) > 0)) {
+							mark = value;
+						}
+					}
+					qp.closeProcessing();
+					qp = null;
+					if (keys.isEmpty()) {
+						return finish(0);
+					}
+					Object[][] params = new Object[keys.size()][];
+					int i = 0;
+					for (List<Object> key : keys) {
+						params[i++] = key.toArray();
+					}
+					rows = updateMatviewRows(context, metadata, groupID, globalStore, matViewName, ids, params);
+				}
+				List<?> count = rows.nextTuple();
+				return finish((Integer)count.get(0));
+			}
+			
+			private TupleSource finish(int count) {
+				info.setDeltaMark(mark);
+				globalStore.refreshed(matTableName);
+				success = true;
+				LogManager.logInfo(LogConstants.CTX_MATVIEWS, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID31259, matViewName, count, mark));
+				return CollectionTupleSource.createUpdateCountTupleSource(count);
+			}
+			
+			@Override
+			public void closeSource() {
+				if (closed) {
+					return;
+				}
+				closed = true;
+				super.closeSource();
+				if (qp != null) {
+					qp.closeProcessing();
+				}
+				if (rows != null) {
+					rows.closeSource();
+				}
+				if (!success) {
+					globalStore.failedLoad(matTableName);
+				}
+			}
+		};
+	}
+
 	private TupleSource updateMatviewRows(final CommandContext context,
 			final QueryMetadataInterface metadata, final Object groupID,
 			final GlobalTableStore globalStore, final String matViewName,
@@ -467,12 +595,17 @@ public class TempTableDataManager implements ProcessorDataManager {
 		
 		final String queryString = Reserved.SELECT + " * " + Reserved.FROM + ' ' + matViewName + ' ' + Reserved.WHERE + ' ' + //$NON-NLS-1$
 			criteria.toString() + ' ' + Reserved.OPTION + ' ' + Reserved.NOCACHE;
+		final String schemaName = metadata.getName(metadata.getModelID(groupID));
+		final String viewName = metadata.getName(groupID);
 
 		return new ProxyTupleSource() {
 			private QueryProcessor qp;
 			private TupleSource ts;
 			private Object[] params;
 			private int count;
+			//changes by key not yet sent to the other members
+			private LinkedHashMap<List<Object>, List<?>> toDistribute = new LinkedHashMap<List<Object>, List<?>>();
+			private HashSet<List<Object>> deletes = new HashSet<List<Object>>();
 
 			@Override
 			protected TupleSource createTupleSource()
@@ -501,7 +634,17 @@ public class TempTableDataManager implements ProcessorDataManager {
 					}
 					
 					if (eventDistributor != null) {
-						eventDistributor.updateMatViewRow(context.getVdbName(), context.getVdbVersion(), metadata.getName(metadata.getModelID(groupID)), metadata.getName(groupID), tuple, delete);
+						//only the last change to a row is needed
+						List<Object> key = Arrays.asList(params);
+						toDistribute.put(key, tuple);
+						if (delete) {
+							deletes.add(key);
+						} else {
+							deletes.remove(key);
+						}
+						if (toDistribute.size() >= MAX_DISTRIBUTED_ROWS) {
+							distribute();
+						}
 					}
 					
 					qp.closeProcessing();
@@ -512,9 +655,30 @@ public class TempTableDataManager implements ProcessorDataManager {
 						break;
 					}
 				}
-				
+				distribute();
 				return CollectionTupleSource.createUpdateCountTupleSource(count);
 			}
+			
+			private void distribute() {
+				if (toDistribute.isEmpty()) {
+					return;
+				}
+				List<List<?>> tuples = new ArrayList<List<?>>(toDistribute.values());
+				boolean[] deleted = new boolean[tuples.size()];
+				int i = 0;
+				for (List<Object> key : toDistribute.keySet()) {
+					deleted[i++] = deletes.contains(key);
+				}
+				toDistribute.clear();
+				deletes.clear();
+				if (eventDistributor instanceof InternalEventDistributor) {
+					((InternalEventDistributor)eventDistributor).updateMatViewRows(context.getVdbName(), context.getVdbVersion(), schemaName, viewName, tuples, deleted);
+					return;
+				}
+				for (i = 0; i < tuples.size(); i++) {
+					eventDistributor.updateMatViewRow(context.getVdbName(), context.getVdbVersion(), schemaName, viewName, tuples.get(i), deleted[i]);
+				}
+			}
 
 			@Override
 			public void closeSource() {
@@ -522,6 +686,8 @@ public class TempTableDataManager implements ProcessorDataManager {
 				if (qp != null) {
 					qp.closeProcessing();
 				}
+				//send any rows already updated locally
+				distribute();
 			}
 		};
 	}
@@ -701,6 +867,26 @@ public class TempTableDataManager implements ProcessorDataManager {
 		return workContext;
 	}
 
+	/**
+	 * Get the requested type of a materialized view index, which may be set with the index option INDEX_TYPE.
+	 */
+	static ValueIndex.Type getIndexType(QueryMetadataInterface metadata, Object index) throws TeiidComponentException, QueryMetadataException {
+		Object id = index;
+		if (id instanceof TempMetadataID && ((TempMetadataID)id).getOriginalMetadataID() != null) {
+			id = ((TempMetadataID)id).getOriginalMetadataID();
+		}
+		String type = metadata.getExtensionProperty(id, ValueIndex.INDEX_TYPE, true);
+		if (type == null) {
+			return ValueIndex.Type.BTREE;
+		}
+		try {
+			return ValueIndex.Type.valueOf(type.toUpperCase());
+		} catch (IllegalArgumentException e) {
+			LogManager.logWarning(LogConstants.CTX_MATVIEWS, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID31257, type, metadata.getName(id)));
+			return ValueIndex.Type.BTREE;
+		}
+	}
+
 	private TupleSource loadGlobalTable(final CommandContext context,
 			final GroupSymbol group, final String tableName, final GlobalTableStore globalStore)
 			throws TeiidComponentException, TeiidProcessingException {
@@ -732,18 +918,19 @@ public class TempTableDataManager implements ProcessorDataManager {
 					rowCount = table.getRowCount();
 					Determinism determinism = qp.getContext().getDeterminismLevel();
 					context.setDeterminismLevel(determinism);
+					CacheHint hint = table.getCacheHint();
+					boolean updatable = hint != null && table.getPkLength() > 0 && hint.isUpdatable(false);
 					//TODO: could pre-process indexes to remove overlap
 					for (Object index : metadata.getIndexesInGroup(group.getMetadataID())) {
 						List<ElementSymbol> columns = GlobalTableStoreImpl.resolveIndex(metadata, allColumns, index);
-						table.addIndex(columns, false);
+						table.addIndex(columns, false, updatable?ValueIndex.Type.BTREE:getIndexType(metadata, index));
 					}
 					for (Object key : metadata.getUniqueKeysInGroup(group.getMetadataID())) {
 						List<ElementSymbol> columns = GlobalTableStoreImpl.resolveIndex(metadata, allColumns, key);
 						table.addIndex(columns, true);
 					}
-					CacheHint hint = table.getCacheHint();
-					if (hint != null && table.getPkLength() > 0) {
-						table.setUpdatable(hint.isUpdatable(false));
+					if (updatable) {
+						table.setUpdatable(true);
 					}
 					if (determinism.compareTo(Determinism.VDB_DETERMINISTIC) < 0 && (hint == null || hint.getScope() == null || Scope.VDB.compareTo(hint.getScope()) <= 0)) {
 						LogManager.logInfo(LogConstants.CTX_DQP, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID31143, determinism, tableName)); //$NON-NLS-1$
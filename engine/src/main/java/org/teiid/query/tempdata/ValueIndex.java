@@ -0,0 +1,407 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.query.tempdata;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.teiid.common.buffer.TupleBatch;
+import org.teiid.common.buffer.TupleBuffer;
+import org.teiid.common.buffer.TupleSource;
+import org.teiid.core.TeiidComponentException;
+import org.teiid.logging.LogConstants;
+import org.teiid.logging.LogManager;
+import org.teiid.metadata.AbstractMetadataRecord;
+import org.teiid.query.processor.relational.ListNestedSortComparator;
+import org.teiid.query.sql.lang.CompareCriteria;
+import org.teiid.query.sql.lang.Criteria;
+import org.teiid.query.sql.lang.IsNullCriteria;
+import org.teiid.query.sql.lang.SetCriteria;
+import org.teiid.query.sql.symbol.Constant;
+import org.teiid.query.sql.symbol.ElementSymbol;
+import org.teiid.query.sql.symbol.Expression;
+
+/**
+ * A hash or bitmap secondary index over a non-updatable {@link TempTable}.
+ * <br>
+ * Rows are identified by their position in a {@link TupleBuffer} of the primary keys
+ * held in key order, which is shared by all of the value indexes of a table and may
+ * spill through the buffer manager.  Each distinct index value maps to the positions of
+ * its rows as either a sorted int array (hash) or a {@link BitSet} (bitmap), so equality
+ * and in predicates are answered without a tree traversal and the results of several
+ * indexes may be intersected before any primary key lookup.
+ * <br>
+ * The postings are held on heap, so the table reserves their estimated size from the 
+ * buffer manager as the index is built - see {@link #getSizeEstimate()}.
+ */
+class ValueIndex {
+
+	public static final String INDEX_TYPE = AbstractMetadataRecord.RELATIONAL_URI + "INDEX_TYPE"; //$NON-NLS-1$
+
+	enum Type {
+		BTREE,
+		HASH,
+		BITMAP
+	}
+
+	/**
+	 * Each bitmap spans the table, so they are only effective for low cardinality values.
+	 * Past this many distinct values the postings are converted to position arrays.
+	 */
+	static final int MAX_BITMAP_VALUES = 1 << 6;
+
+	/**
+	 * The maximum number of keys to be probed for a single lookup
+	 */
+	static final int MAX_LOOKUP_KEYS = 1 << 12;
+	
+	/**
+	 * The estimated bytes for each distinct value beyond the values themselves - 
+	 * the map entry, the key list, and the posting object with its array header
+	 */
+	private static final int ENTRY_OVERHEAD = 96;
+
+	private static final class Positions {
+		int[] values = new int[2];
+		int size;
+
+		void add(int position) {
+			if (size == values.length) {
+				values = Arrays.copyOf(values, size << 1);
+			}
+			values[size++] = position;
+		}
+	}
+
+	/**
+	 * The matched positions as either a sorted int array or a {@link BitSet}.
+	 * Instances are not modified after creation.
+	 */
+	static final class Matches {
+		private int[] positions;
+		private int size;
+		private BitSet bits;
+
+		Matches(int[] positions, int size) {
+			this.positions = positions;
+			this.size = size;
+		}
+
+		Matches(BitSet bits) {
+			this.bits = bits;
+			this.size = bits.cardinality();
+		}
+
+		int size() {
+			return size;
+		}
+
+		Matches and(Matches other) {
+			if (bits != null && other.bits != null) {
+				BitSet result = (BitSet)bits.clone();
+				result.and(other.bits);
+				return new Matches(result);
+			}
+			if (bits != null) {
+				return other.and(this);
+			}
+			int[] result = new int[Math.min(size, other.size)];
+			int count = 0;
+			if (other.bits != null) {
+				for (int i = 0; i < size; i++) {
+					if (other.bits.get(positions[i])) {
+						result[count++] = positions[i];
+					}
+				}
+			} else {
+				int j = 0;
+				for (int i = 0; i < size && j < other.size;) {
+					if (positions[i] < other.positions[j]) {
+						i++;
+					} else if (positions[i] > other.positions[j]) {
+						j++;
+					} else {
+						result[count++] = positions[i];
+						i++;
+						j++;
+					}
+				}
+			}
+			return new Matches(result, count);
+		}
+
+		private int[] getPositions() {
+			if (positions == null) {
+				positions = new int[size];
+				int j = 0;
+				for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i+1)) {
+					positions[j++] = i;
+				}
+			}
+			return positions;
+		}
+
+		/**
+		 * Create a {@link TupleSource} of the matching keys in key order
+		 */
+		TupleSource createTupleSource(final TupleBuffer keys, final boolean ascending) {
+			final int[] values = getPositions();
+			return new TupleSource() {
+				int index = ascending?0:size - 1;
+				TupleBatch batch;
+
+				@Override
+				public List<?> nextTuple() throws TeiidComponentException {
+					if (index < 0 || index >= size) {
+						return null;
+					}
+					long row = values[index] + 1l;
+					index += ascending?1:-1;
+					if (batch == null || !batch.containsRow(row)) {
+						batch = keys.getBatch(row);
+					}
+					return batch.getTuple(row);
+				}
+
+				@Override
+				public void closeSource() {
+					batch = null;
+					index = -1;
+				}
+			};
+		}
+	}
+
+	private List<ElementSymbol> columns;
+	private boolean bitmap;
+	private Map<List<?>, Object> postings = new HashMap<List<?>, Object>();
+	private int valueSizeEstimate;
+	private long positionCount;
+	private int maxPosition;
+
+	/**
+	 * @param valueSizeEstimate the estimated bytes of the index values for a single row
+	 */
+	ValueIndex(List<ElementSymbol> columns, Type type, int valueSizeEstimate) {
+		this.columns = columns;
+		this.bitmap = type == Type.BITMAP;
+		this.valueSizeEstimate = valueSizeEstimate;
+	}
+	
+	/**
+	 * Get the estimated heap bytes used by the postings.  Position arrays are assumed to 
+	 * be at most twice the size of their positions and bitmaps to span all of the positions.
+	 */
+	long getSizeEstimate() {
+		long result = postings.size() * (long)(valueSizeEstimate + ENTRY_OVERHEAD);
+		if (bitmap) {
+			return result + postings.size() * (long)((maxPosition >> 3) + 8);
+		}
+		return result + (positionCount << 3);
+	}
+
+	/**
+	 * Value indexes rely upon java equality, which must be consistent
+	 * with the comparison semantics of the column types.
+	 */
+	static boolean isSupported(List<ElementSymbol> columns) {
+		for (ElementSymbol es : columns) {
+			if (!ListNestedSortComparator.isPrefixSupported(es.getType())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	List<ElementSymbol> getColumns() {
+		return columns;
+	}
+
+	Type getType() {
+		return bitmap?Type.BITMAP:Type.HASH;
+	}
+
+	/**
+	 * Add the row position for the given index values.  Positions must be added in ascending order.
+	 */
+	void add(List<?> values, int position) {
+		positionCount++;
+		maxPosition = position;
+		Object rows = postings.get(values);
+		if (rows == null) {
+			values = new ArrayList<Object>(values);
+			if (bitmap && postings.size() == MAX_BITMAP_VALUES) {
+				LogManager.logDetail(LogConstants.CTX_DQP, "Too many distinct values for a bitmap index on", columns, "using hash postings instead"); //$NON-NLS-1$ //$NON-NLS-2$
+				convertToHash();
+			}
+			if (bitmap) {
+				rows = new BitSet();
+			} else {
+				rows = new Positions();
+			}
+			postings.put(values, rows);
+		}
+		if (bitmap) {
+			((BitSet)rows).set(position);
+		} else {
+			((Positions)rows).add(position);
+		}
+	}
+
+	private void convertToHash() {
+		this.bitmap = false;
+		for (Map.Entry<List<?>, Object> entry : postings.entrySet()) {
+			BitSet bits = (BitSet)entry.getValue();
+			Positions positions = new Positions();
+			for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i+1)) {
+				positions.add(i);
+			}
+			entry.setValue(positions);
+		}
+	}
+
+	/**
+	 * Get the positions matching the conjuncts, or null if the conjuncts do not
+	 * restrict every index column to a set of values.
+	 * <br>
+	 * The conjuncts are still expected to be evaluated against the resulting rows.
+	 */
+	Matches getMatches(List<Criteria> conjuncts) {
+		List<Collection<Object>> columnValues = new ArrayList<Collection<Object>>(columns.size());
+		long keyCount = 1;
+		for (ElementSymbol column : columns) {
+			Collection<Object> values = null;
+			for (Criteria crit : conjuncts) {
+				values = getValues(column, crit);
+				if (values != null) {
+					break;
+				}
+			}
+			if (values == null) {
+				return null;
+			}
+			keyCount *= values.size();
+			if (keyCount > MAX_LOOKUP_KEYS) {
+				return null;
+			}
+			columnValues.add(values);
+		}
+		List<Object> rowsList = new ArrayList<Object>();
+		collectPostings(columnValues, new ArrayList<Object>(columns.size()), rowsList);
+		if (bitmap) {
+			if (rowsList.size() == 1) {
+				return new Matches((BitSet)rowsList.get(0));
+			}
+			BitSet result = new BitSet();
+			for (Object rows : rowsList) {
+				result.or((BitSet)rows);
+			}
+			return new Matches(result);
+		}
+		if (rowsList.size() == 1) {
+			Positions positions = (Positions)rowsList.get(0);
+			return new Matches(positions.values, positions.size);
+		}
+		int size = 0;
+		for (Object rows : rowsList) {
+			size += ((Positions)rows).size;
+		}
+		int[] result = new int[size];
+		int offset = 0;
+		for (Object rows : rowsList) {
+			Positions positions = (Positions)rows;
+			System.arraycopy(positions.values, 0, result, offset, positions.size);
+			offset += positions.size;
+		}
+		//each row has a single index value, so there are no duplicates
+		Arrays.sort(result);
+		return new Matches(result, size);
+	}
+
+	private void collectPostings(List<Collection<Object>> columnValues, List<Object> key, List<Object> rowsList) {
+		if (key.size() == columnValues.size()) {
+			Object rows = postings.get(key);
+			if (rows != null) {
+				rowsList.add(rows);
+			}
+			return;
+		}
+		for (Object value : columnValues.get(key.size())) {
+			key.add(value);
+			collectPostings(columnValues, key, rowsList);
+			key.remove(key.size() - 1);
+		}
+	}
+
+	/**
+	 * Get the values that the criteria restricts the column to, or null if
+	 * the criteria is not a simple restriction.  Null comparison values
+	 * can never match and are omitted.
+	 */
+	private static Collection<Object> getValues(ElementSymbol column, Criteria crit) {
+		if (crit instanceof CompareCriteria) {
+			CompareCriteria cc = (CompareCriteria)crit;
+			if (cc.getOperator() != CompareCriteria.EQ || !column.equals(cc.getLeftExpression()) || !(cc.getRightExpression() instanceof Constant)
+					|| ((Constant)cc.getRightExpression()).isMultiValued()) {
+				return null;
+			}
+			Object value = ((Constant)cc.getRightExpression()).getValue();
+			if (value == null) {
+				return Collections.emptyList();
+			}
+			return Collections.singletonList(value);
+		}
+		if (crit instanceof SetCriteria) {
+			SetCriteria sc = (SetCriteria)crit;
+			if (sc.isNegated() || !column.equals(sc.getExpression())) {
+				return null;
+			}
+			List<Object> result = new ArrayList<Object>(sc.getNumberOfValues());
+			for (Expression ex : (Collection<Expression>)sc.getValues()) {
+				if (!(ex instanceof Constant)) {
+					return null;
+				}
+				Object value = ((Constant)ex).getValue();
+				if (value != null) {
+					result.add(value);
+				}
+			}
+			return result;
+		}
+		if (crit instanceof IsNullCriteria) {
+			IsNullCriteria inc = (IsNullCriteria)crit;
+			if (inc.isNegated() || !column.equals(inc.getExpression())) {
+				return null;
+			}
+			return Collections.singletonList(null);
+		}
+		return null;
+	}
+
+}
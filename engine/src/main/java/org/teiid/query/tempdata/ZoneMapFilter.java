@@ -0,0 +1,200 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+
+package org.teiid.query.tempdata;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.teiid.common.buffer.ZoneMap;
+import org.teiid.query.sql.lang.AbstractCompareCriteria;
+import org.teiid.query.sql.lang.CompareCriteria;
+import org.teiid.query.sql.lang.Criteria;
+import org.teiid.query.sql.lang.IsNullCriteria;
+import org.teiid.query.sql.lang.SetCriteria;
+import org.teiid.query.sql.symbol.Constant;
+import org.teiid.query.sql.symbol.ElementSymbol;
+import org.teiid.query.sql.symbol.Expression;
+
+/**
+ * A {@link ZoneMap.Filter} built from the simple column predicates of a condition.
+ * Other predicates are ignored - the filter only needs to be conservative since
+ * the full condition is still evaluated against each row.
+ */
+class ZoneMapFilter implements ZoneMap.Filter {
+	
+	private static final int IS_NULL = -1;
+	private static final int IS_NOT_NULL = -2;
+	private static final int IN = -3;
+	
+	private static class Predicate {
+		int column;
+		int operator;
+		Object[] values;
+		
+		Predicate(int column, int operator, Object... values) {
+			this.column = column;
+			this.operator = operator;
+			this.values = values;
+		}
+	}
+	
+	private List<Predicate> predicates = new ArrayList<Predicate>(2);
+	
+	/**
+	 * @return the filter or null if no predicate of the condition can be used
+	 */
+	static ZoneMapFilter create(Criteria condition, Map<Expression, Integer> columnMap) {
+		if (condition == null) {
+			return null;
+		}
+		ZoneMapFilter filter = new ZoneMapFilter();
+		for (Criteria crit : Criteria.separateCriteriaByAnd(condition)) {
+			if (crit instanceof CompareCriteria) {
+				CompareCriteria cc = (CompareCriteria)crit;
+				if (cc.getOperator() == AbstractCompareCriteria.NE || !(cc.getRightExpression() instanceof Constant)) {
+					continue;
+				}
+				Constant c = (Constant)cc.getRightExpression();
+				Integer index = getIndex(cc.getLeftExpression(), c, columnMap);
+				if (index != null) {
+					filter.predicates.add(new Predicate(index, cc.getOperator(), c.getValue()));
+				}
+			} else if (crit instanceof SetCriteria) {
+				SetCriteria sc = (SetCriteria)crit;
+				if (sc.isNegated() || !sc.isAllConstants()) {
+					continue;
+				}
+				Integer index = null;
+				List<Object> values = new ArrayList<Object>(sc.getValues().size());
+				for (Object o : sc.getValues()) {
+					Constant c = (Constant)o;
+					index = getIndex(sc.getExpression(), c, columnMap);
+					if (index == null) {
+						break;
+					}
+					values.add(c.getValue());
+				}
+				if (index != null) {
+					filter.predicates.add(new Predicate(index, IN, values.toArray()));
+				}
+			} else if (crit instanceof IsNullCriteria) {
+				IsNullCriteria inc = (IsNullCriteria)crit;
+				Integer index = getIndex(inc.getExpression(), null, columnMap);
+				if (index != null) {
+					filter.predicates.add(new Predicate(index, inc.isNegated()?IS_NOT_NULL:IS_NULL));
+				}
+			}
+		}
+		if (filter.predicates.isEmpty()) {
+			return null;
+		}
+		return filter;
+	}
+
+	private static Integer getIndex(Expression ex, Constant c, Map<Expression, Integer> columnMap) {
+		if (!(ex instanceof ElementSymbol)) {
+			return null;
+		}
+		if (c != null && (c.getValue() == null || c.isMultiValued() || c.getType() != ex.getType())) {
+			return null;
+		}
+		return columnMap.get(ex);
+	}
+	
+	@Override
+	public boolean matches(ZoneMap zoneMap) {
+		for (Predicate predicate : predicates) {
+			int col = predicate.column;
+			if (!zoneMap.isTracked(col)) {
+				continue;
+			}
+			int nulls = zoneMap.getNullCount(col);
+			switch (predicate.operator) {
+			case IS_NULL:
+				if (nulls == 0) {
+					return false;
+				}
+				continue;
+			case IS_NOT_NULL:
+				if (nulls == zoneMap.getRowCount()) {
+					return false;
+				}
+				continue;
+			}
+			if (nulls == zoneMap.getRowCount()) {
+				//comparisons against null are never true
+				return false;
+			}
+			Object min = zoneMap.getMin(col);
+			Object max = zoneMap.getMax(col);
+			Object value = predicate.values.length > 0 ? predicate.values[0] : null;
+			switch (predicate.operator) {
+			case AbstractCompareCriteria.EQ:
+				if (!inRange(value, min, max)) {
+					return false;
+				}
+				break;
+			case AbstractCompareCriteria.LT:
+				if (Constant.COMPARATOR.compare(min, value) >= 0) {
+					return false;
+				}
+				break;
+			case AbstractCompareCriteria.LE:
+				if (Constant.COMPARATOR.compare(min, value) > 0) {
+					return false;
+				}
+				break;
+			case AbstractCompareCriteria.GT:
+				if (Constant.COMPARATOR.compare(max, value) <= 0) {
+					return false;
+				}
+				break;
+			case AbstractCompareCriteria.GE:
+				if (Constant.COMPARATOR.compare(max, value) < 0) {
+					return false;
+				}
+				break;
+			case IN:
+				boolean any = false;
+				for (Object v : predicate.values) {
+					if (inRange(v, min, max)) {
+						any = true;
+						break;
+					}
+				}
+				if (!any) {
+					return false;
+				}
+				break;
+			}
+		}
+		return true;
+	}
+
+	private static boolean inRange(Object value, Object min, Object max) {
+		return Constant.COMPARATOR.compare(value, min) >= 0 && Constant.COMPARATOR.compare(value, max) <= 0;
+	}
+
+}
@@ -34,6 +34,8 @@ import java.util.AbstractMap.SimpleEntry;
 import java.util.*;
 import java.util.Map.Entry;
 import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Pattern;
@@ -168,6 +170,8 @@ public class CommandContext implements Cloneable, org.teiid.CommandContext {
 	    private boolean resultSetCacheEnabled = true;
 	    
 	    private int userRequestSourceConcurrency;
+	    private int maxParallelism = 1;
+	    private int parallelTasks;
 	    private Subject subject;
 	    private HashSet<Object> dataObjects;
 
@@ -267,8 +271,11 @@ public class CommandContext implements Cloneable, org.teiid.CommandContext {
     }
     
     public void setDeterminismLevel(Determinism level) {
-    	if (determinismLevel[0] == null || level.compareTo(determinismLevel[0]) < 0) {
-    		determinismLevel[0] = level;
+    	Determinism[] current = determinismLevel;
+    	synchronized (current) {
+	    	if (current[0] == null || level.compareTo(current[0]) < 0) {
+	    		current[0] = level;
+	    	}
     	}
     }
     
@@ -631,6 +638,120 @@ public class CommandContext implements Cloneable, org.teiid.CommandContext {
 		this.globalState.userRequestSourceConcurrency = userRequestSourceConcurrency;
 	}
 	
+	/**
+	 * The max number of threads, including the processing thread, that may 
+	 * work on this request's plan at the same time 
+	 */
+	public int getMaxParallelism() {
+		return this.globalState.maxParallelism;
+	}
+	
+	public void setMaxParallelism(int maxParallelism) {
+		this.globalState.maxParallelism = maxParallelism;
+	}
+	
+	/**
+	 * Reserve an additional thread for parallel processing
+	 * @return true if the reservation was made, false if the max parallelism has been reached
+	 */
+	public boolean acquireParallelTask() {
+		synchronized (this.globalState) {
+			if (this.globalState.parallelTasks + 1 >= this.globalState.maxParallelism) {
+				return false;
+			}
+			this.globalState.parallelTasks++;
+			return true;
+		}
+	}
+	
+	public void releaseParallelTask() {
+		synchronized (this.globalState) {
+			this.globalState.parallelTasks--;
+		}
+	}
+	
+	/**
+	 * Run the task on the executor if an additional parallel thread is available.
+	 * The task will run with this as the thread local context and in the scope of
+	 * the {@link DQPWorkContext}.
+	 * @return true if the task was submitted
+	 */
+	public boolean executeParallel(final Runnable task) {
+		return executeParallel(task, null);
+	}
+	
+	/**
+	 * Run the task as with {@link #executeParallel(Runnable)}.  The completion, if not null, 
+	 * is run after the task and after the parallel thread has been released, so that it 
+	 * may be used to signal that the task is finished.
+	 * @return true if the task was submitted
+	 */
+	public boolean executeParallel(final Runnable task, final Runnable completion) {
+		return submitParallel(task, completion) != null;
+	}
+	
+	/**
+	 * Run the task as with {@link #executeParallel(Runnable, Runnable)}.  The returned future 
+	 * may be cancelled only if the task has not yet started, in which case neither the task nor 
+	 * the completion will run and the parallel thread is released immediately.
+	 * @return the future or null if the task was not submitted
+	 */
+	public Future<?> submitParallel(final Runnable task, final Runnable completion) {
+		if (!acquireParallelTask()) {
+			return null;
+		}
+		final DQPWorkContext workContext = getDQPWorkContext();
+		final AtomicBoolean started = new AtomicBoolean();
+		final Runnable work = new Runnable() {
+			@Override
+			public void run() {
+				if (!started.compareAndSet(false, true)) {
+					return; //cancelled
+				}
+				pushThreadLocalContext(CommandContext.this);
+				try {
+					try {
+						task.run();
+					} finally {
+						releaseParallelTask();
+						if (completion != null) {
+							completion.run();
+						}
+					}
+				} finally {
+					popThreadLocalContext();
+				}
+			}
+		};
+		final FutureTask<Void> future = new FutureTask<Void>(new Runnable() {
+			@Override
+			public void run() {
+				if (workContext != null) {
+					workContext.runInContext(work);
+				} else {
+					work.run();
+				}
+			}
+		}, null) {
+			@Override
+			public boolean cancel(boolean mayInterruptIfRunning) {
+				if (!started.compareAndSet(false, true)) {
+					return false;
+				}
+				super.cancel(false);
+				releaseParallelTask();
+				return true;
+			}
+		};
+		try {
+			getExecutor().execute(future);
+		} catch (RuntimeException e) {
+			releaseParallelTask();
+			throw e;
+		}
+		return future;
+	}
+	
 	@Override
 	public Subject getSubject() {
 		return this.globalState.subject;
@@ -655,8 +776,11 @@ public class CommandContext implements Cloneable, org.teiid.CommandContext {
 	}
 	
 	public void accessedDataObject(Object id) {
-		if (this.dataObjects != null) {
-			this.dataObjects.add(id);
+		Set<Object> objects = this.dataObjects;
+		if (objects != null) {
+			synchronized (objects) {
+				objects.add(id);
+			}
 		}
 	}
 	
@@ -1014,7 +1138,9 @@ public class CommandContext implements Cloneable, org.teiid.CommandContext {
 	}
 
 	public long addAndGetReservedBuffers(int i) {
-		return globalState.reservedBuffers += i;
+		synchronized (this.globalState) {
+			return globalState.reservedBuffers += i;
+		}
 	}
 
 	@Override
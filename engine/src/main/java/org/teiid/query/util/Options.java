@@ -40,6 +40,10 @@ public class Options {
 	public static final String DEFAULT_NULL_ORDER = "org.teiid.defaultNullOrder"; //$NON-NLS-1$
 	public static final String ASSUME_MATCHING_COLLATION = "org.teiid.assumeMatchingCollation"; //$NON-NLS-1$
 	public static final String AGGRESSIVE_JOIN_GROUPING = "org.teiid.aggressiveJoinGrouping"; //$NON-NLS-1$
+	public static final String HASH_JOIN = "org.teiid.hashJoin"; //$NON-NLS-1$
+	public static final String HASH_AGGREGATION = "org.teiid.hashAggregation"; //$NON-NLS-1$
+	public static final String BATCH_EVALUATION = "org.teiid.batchEvaluation"; //$NON-NLS-1$
+	public static final String SORT_KEY_PREFIX = "org.teiid.sortKeyPrefix"; //$NON-NLS-1$
 
 	private Properties properties;
 	private boolean subqueryUnnestDefault = false;
@@ -51,6 +55,10 @@ public class Options {
 	private NullOrder defaultNullOrder = NullOrder.LOW;
 	private boolean assumeMatchingCollation = true;
 	private boolean aggressiveJoinGrouping = true;
+	private boolean hashJoin;
+	private boolean hashAggregation;
+	private boolean batchEvaluation;
+	private boolean sortKeyPrefix;
 	
 	public Properties getProperties() {
 		return properties;
@@ -176,4 +184,56 @@ public class Options {
 		this.aggressiveJoinGrouping = b;
 		return this;
 	}
+
+	public boolean isHashJoin() {
+		return this.hashJoin;
+	}
+	
+	public void setHashJoin(boolean hashJoin) {
+		this.hashJoin = hashJoin;
+	}
+	
+	public Options hashJoin(boolean b) {
+		this.hashJoin = b;
+		return this;
+	}
+	
+	public boolean isHashAggregation() {
+		return this.hashAggregation;
+	}
+	
+	public void setHashAggregation(boolean hashAggregation) {
+		this.hashAggregation = hashAggregation;
+	}
+	
+	public Options hashAggregation(boolean b) {
+		this.hashAggregation = b;
+		return this;
+	}
+	
+	public boolean isBatchEvaluation() {
+		return this.batchEvaluation;
+	}
+	
+	public void setBatchEvaluation(boolean batchEvaluation) {
+		this.batchEvaluation = batchEvaluation;
+	}
+	
+	public Options batchEvaluation(boolean b) {
+		this.batchEvaluation = b;
+		return this;
+	}
+	
+	public boolean isSortKeyPrefix() {
+		return this.sortKeyPrefix;
+	}
+	
+	public void setSortKeyPrefix(boolean sortKeyPrefix) {
+		this.sortKeyPrefix = sortKeyPrefix;
+	}
+	
+	public Options sortKeyPrefix(boolean b) {
+		this.sortKeyPrefix = b;
+		return this;
+	}
 }
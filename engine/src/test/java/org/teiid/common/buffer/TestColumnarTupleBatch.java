@@ -0,0 +1,152 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.common.buffer;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.teiid.common.buffer.BufferManager.TupleSourceType;
+import org.teiid.common.buffer.ColumnVector.DictionaryVector;
+import org.teiid.common.buffer.ColumnVector.IntVector;
+import org.teiid.common.buffer.ColumnVector.LongVector;
+import org.teiid.core.types.DataTypeManager;
+import org.teiid.query.sql.symbol.ElementSymbol;
+
+@SuppressWarnings({"nls", "unchecked"})
+public class TestColumnarTupleBatch {
+
+	private static final Class<?>[] TYPES = new Class<?>[] {DataTypeManager.DefaultDataClasses.INTEGER,
+		DataTypeManager.DefaultDataClasses.STRING, DataTypeManager.DefaultDataClasses.LONG, DataTypeManager.DefaultDataClasses.BOOLEAN};
+
+	private TupleBatch exampleBatch() {
+		return new TupleBatch(5, Arrays.asList(
+			Arrays.asList(1, "a", 10L, true),
+			Arrays.asList(null, "b", 11L, null),
+			Arrays.asList(3, "a", null, false)
+		));
+	}
+
+	@Test public void testConversion() {
+		TupleBatch batch = exampleBatch();
+		batch.setTerminationFlag(true);
+		ColumnarTupleBatch columnar = ColumnarTupleBatch.asColumnar(batch, TYPES);
+		assertSame(columnar, ColumnarTupleBatch.asColumnar(columnar, TYPES));
+		assertEquals(3, columnar.getRowCount());
+		assertEquals(5, columnar.getBeginRow());
+		assertEquals(7, columnar.getEndRow());
+		assertTrue(columnar.getTerminationFlag());
+
+		IntVector ints = (IntVector)columnar.getColumn(0);
+		assertEquals(1, ints.getInt(0));
+		assertTrue(ints.isNull(1));
+		assertTrue(ints.hasNulls());
+		assertEquals(3, ints.getInt(2));
+
+		DictionaryVector strings = (DictionaryVector)columnar.getColumn(1);
+		assertEquals(Arrays.asList("a", "b"), strings.getDictionary());
+		assertEquals(strings.getCode(0), strings.getCode(2));
+
+		LongVector longs = (LongVector)columnar.getColumn(2);
+		assertEquals(11L, longs.getLong(1));
+		assertTrue(longs.isNull(2));
+
+		for (long row = batch.getBeginRow(); row <= batch.getEndRow(); row++) {
+			assertEquals(batch.getTuple(row), columnar.getTuple(row));
+		}
+		assertEquals(batch.getTuples(), columnar.getTuples());
+	}
+
+	@Test public void testBuilder() {
+		ColumnarTupleBatch.Builder builder = new ColumnarTupleBatch.Builder(new Class<?>[] {DataTypeManager.DefaultDataClasses.INTEGER, DataTypeManager.DefaultDataClasses.DOUBLE}, 1);
+		for (int i = 0; i < 100; i++) {
+			((IntVector)builder.getColumn(0)).addInt(i);
+			if (i % 2 == 0) {
+				builder.getColumn(1).addNull();
+			} else {
+				((ColumnVector.DoubleVector)builder.getColumn(1)).addDouble(i);
+			}
+			builder.endRow();
+		}
+		ColumnarTupleBatch batch = builder.build(1);
+		assertEquals(100, batch.getRowCount());
+		assertEquals(Arrays.asList(99, 99.0), batch.getTuple(100));
+		assertEquals(Arrays.asList(98, null), batch.getTuple(99));
+	}
+
+	@Test public void testModifyTuples() {
+		ColumnarTupleBatch columnar = ColumnarTupleBatch.asColumnar(exampleBatch(), TYPES);
+		columnar.getTuples().add(Arrays.asList(4, "c", 12L, true));
+		assertEquals(4, columnar.getRowCount());
+		assertEquals(8, columnar.getEndRow());
+		assertEquals(Arrays.asList(4, "c", 12L, true), columnar.getTuple(8));
+		assertEquals(4, ((IntVector)columnar.getColumn(0)).getInt(3));
+		assertEquals(4, columnar.getColumn(0).size());
+	}
+
+	@Test public void testColumnsRetainedOnAccess() {
+		ColumnarTupleBatch columnar = ColumnarTupleBatch.asColumnar(exampleBatch(), TYPES);
+		ColumnVector column = columnar.getColumn(0);
+		assertEquals(Arrays.asList(1, "a", 10L, true), columnar.getTuple(5));
+		assertEquals(3, columnar.getTuples().size());
+		assertSame(column, columnar.getColumn(0));
+		((List<Object>)columnar.getTuple(6)).set(0, 2);
+		assertNotSame(column, columnar.getColumn(0));
+		assertEquals(2, ((IntVector)columnar.getColumn(0)).getInt(1));
+	}
+
+	@Test public void testModifyTupleValues() {
+		ColumnarTupleBatch.Builder builder = new ColumnarTupleBatch.Builder(new Class<?>[] {DataTypeManager.DefaultDataClasses.INTEGER}, 2);
+		builder.addTuple(Arrays.asList(1));
+		builder.addTuple(Arrays.asList(2));
+		ColumnarTupleBatch columnar = builder.build(1);
+		assertEquals(1, ((IntVector)columnar.getColumn(0)).getInt(0));
+		List<Object> tuple = (List<Object>)columnar.getTuples().get(0);
+		tuple.set(0, 5);
+		assertEquals(5, ((IntVector)columnar.getColumn(0)).getInt(0));
+		
+		columnar = ColumnarTupleBatch.asColumnar(exampleBatch(), TYPES);
+		assertEquals(1, ((IntVector)columnar.getColumn(0)).getInt(0));
+		columnar.getTuples().set(0, Arrays.asList(6, "a", 10L, true));
+		assertEquals(6, ((IntVector)columnar.getColumn(0)).getInt(0));
+	}
+
+	@Test public void testTupleBuffer() throws Exception {
+		ElementSymbol x = new ElementSymbol("x");
+		x.setType(DataTypeManager.DefaultDataClasses.INTEGER);
+		ElementSymbol y = new ElementSymbol("y");
+		y.setType(DataTypeManager.DefaultDataClasses.STRING);
+		List<ElementSymbol> schema = Arrays.asList(x, y);
+		TupleBuffer tb = BufferManagerFactory.getStandaloneBufferManager().createTupleBuffer(schema, "x", TupleSourceType.PROCESSOR);
+		ColumnarTupleBatch.Builder builder = new ColumnarTupleBatch.Builder(ColumnarTupleBatch.getTypes(schema), 2);
+		builder.addTuple(Arrays.asList(1, "a"));
+		builder.addTuple(Arrays.asList(null, "b"));
+		tb.addTupleBatch(builder.build(1), true);
+		tb.close();
+		assertEquals(2, tb.getRowCount());
+		assertEquals(Arrays.asList(null, "b"), tb.getBatch(1).getTuple(2));
+	}
+
+}
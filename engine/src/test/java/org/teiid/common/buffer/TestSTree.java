@@ -184,4 +184,54 @@ public class TestSTree {
 		}
 	}
 	
+	@Test public void testZoneMapPageFilter() throws TeiidComponentException, TeiidProcessingException {
+		BufferManagerImpl bm = BufferManagerFactory.getTestBufferManager(Integer.MAX_VALUE, 1);
+		
+		ElementSymbol e1 = new ElementSymbol("x");
+		e1.setType(Integer.class);
+		ElementSymbol e2 = new ElementSymbol("y");
+		e2.setType(Integer.class);
+		List<ElementSymbol> elements = Arrays.asList(e1, e2);
+		STree map = bm.createSTree(elements, "1", 1);
+		
+		int size = 1<<14;
+		for (int i = 0; i < size; i++) {
+			assertNull(map.insert(Arrays.asList(i, i/100), InsertMode.NEW, -1));
+		}
+		map.compact();
+		ZoneMap.Filter filter = new ZoneMap.Filter() {
+			@Override
+			public boolean matches(ZoneMap zoneMap) {
+				return ((Integer)zoneMap.getMin(1)) <= 5 && ((Integer)zoneMap.getMax(1)) >= 5;
+			}
+		};
+		//the first scan computes the zone maps
+		assertEquals(size, scan(map, filter));
+		
+		int count = scan(map, filter);
+		assertTrue(count < size);
+		assertTrue(count >= 100);
+		
+		//the modified page must be read again
+		assertNotNull(map.insert(Arrays.asList(size - 1, 5), InsertMode.UPDATE, -1));
+		TupleBrowser tb = new TupleBrowser(map, null, null, true, true);
+		tb.setPageFilter(filter);
+		List<?> last = null;
+		List<?> next = null;
+		while ((next = tb.nextTuple()) != null) {
+			last = next;
+		}
+		assertEquals(Arrays.asList(size - 1, 5), last);
+	}
+
+	private int scan(STree map, ZoneMap.Filter filter) throws TeiidComponentException, TeiidProcessingException {
+		TupleBrowser tb = new TupleBrowser(map, null, null, true, true);
+		tb.setPageFilter(filter);
+		int count = 0;
+		while (tb.nextTuple() != null) {
+			count++;
+		}
+		return count;
+	}
+	
 }
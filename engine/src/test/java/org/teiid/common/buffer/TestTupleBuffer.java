@@ -24,12 +24,18 @@ package org.teiid.common.buffer;
 
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.sql.rowset.serial.SerialClob;
 
 import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.teiid.common.buffer.BufferManager.TupleSourceType;
 import org.teiid.common.buffer.TupleBuffer.TupleBufferTupleSource;
 import org.teiid.core.types.ClobType;
@@ -76,6 +82,46 @@ public class TestTupleBuffer {
 		assertFalse(tbts.hasNext());
 	}
 	
+	@SuppressWarnings("unchecked")
+	@Test public void testPrefetch() throws Exception {
+		ElementSymbol x = new ElementSymbol("x"); //$NON-NLS-1$
+		x.setType(DataTypeManager.DefaultDataClasses.INTEGER);
+		List<ElementSymbol> schema = Arrays.asList(x);
+		final Map<Long, List<List<?>>> stored = new HashMap<Long, List<List<?>>>();
+		BatchManager manager = Mockito.mock(BatchManager.class);
+		Mockito.when(manager.createManagedBatch(Mockito.anyList(), (Long)Mockito.any(), Mockito.anyBoolean())).thenAnswer(new Answer<Long>() {
+			@Override
+			public Long answer(InvocationOnMock invocation) throws Throwable {
+				Long id = Long.valueOf(stored.size());
+				stored.put(id, new ArrayList<List<?>>((List<List<?>>)invocation.getArguments()[0]));
+				return id;
+			}
+		});
+		Mockito.when(manager.getBatch((Long)Mockito.any(), Mockito.anyBoolean())).thenAnswer(new Answer<List<List<?>>>() {
+			@Override
+			public List<List<?>> answer(InvocationOnMock invocation) throws Throwable {
+				return stored.get(invocation.getArguments()[0]);
+			}
+		});
+		TupleBuffer tb = new TupleBuffer(manager, "x", schema, null, 2); //$NON-NLS-1$
+		tb.setPrefetch(2);
+		for (int i = 0; i < 10; i++) {
+			tb.addTuple(Arrays.asList(i));
+		}
+		tb.close();
+		TupleBufferTupleSource tbts = tb.createIndexedTupleSource();
+		for (int i = 0; i < 10; i++) {
+			assertEquals(i, tbts.nextTuple().get(0));
+		}
+		assertFalse(tbts.hasNext());
+		//the first two reads establish the sequential access
+		Mockito.verify(manager, Mockito.never()).prefetch(0l, 2);
+		Mockito.verify(manager, Mockito.never()).prefetch(1l, 2);
+		Mockito.verify(manager).prefetch(2l, 2);
+		Mockito.verify(manager).prefetch(3l, 2);
+		Mockito.verify(manager).prefetch(4l, 2);
+	}
+	
 	@Test public void testTruncate() throws Exception {
 		ElementSymbol x = new ElementSymbol("x"); //$NON-NLS-1$
 		x.setType(DataTypeManager.DefaultDataClasses.INTEGER);
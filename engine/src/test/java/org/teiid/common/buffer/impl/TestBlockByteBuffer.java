@@ -24,7 +24,11 @@ package org.teiid.common.buffer.impl;
 
 import static org.junit.Assert.*;
 
+import java.io.File;
+import java.nio.ByteBuffer;
+
 import org.junit.Test;
+import org.teiid.core.util.UnitTestUtil;
 
 public class TestBlockByteBuffer {
 
@@ -38,4 +42,27 @@ public class TestBlockByteBuffer {
 		assertEquals(8, bbb.getBuffers().length);
 	}
 	
+	@Test public void testAllocatedBytes() {
+		BlockByteBuffer bbb = new BlockByteBuffer(8, 100, 4, false);
+		assertEquals(0, bbb.getAllocatedBytes());
+		bbb.getByteBuffer(1);
+		assertEquals(256, bbb.getAllocatedBytes());
+		bbb.preallocate();
+		assertEquals(1600, bbb.getAllocatedBytes());
+	}
+	
+	@Test public void testMapped() throws Exception {
+		File dir = new File(UnitTestUtil.getTestScratchPath());
+		dir.mkdirs();
+		File f = File.createTempFile("mapped", null, dir); //$NON-NLS-1$
+		BlockByteBuffer bbb = new BlockByteBuffer(8, 100, 4, f);
+		ByteBuffer bb = bbb.getByteBuffer(99);
+		assertTrue(bb.isDirect());
+		bb.putInt(1);
+		assertEquals(1, bbb.duplicate().getByteBuffer(99).getInt());
+		assertEquals(1600 - 1536, bbb.getAllocatedBytes());
+		bbb.close();
+		assertFalse(f.exists());
+	}
+	
 }
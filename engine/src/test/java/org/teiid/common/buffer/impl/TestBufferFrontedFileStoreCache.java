@@ -194,6 +194,26 @@ public class TestBufferFrontedFileStoreCache {
 		assertEquals(Integer.valueOf(5001), ce.getObject());
 	}
 	
+	@Test public void testCodec() throws Exception {
+		cache = createLayeredCache(1<<15, 1<<15, true, true);
+		cache.setCodec(BlockCodec.getCodec(BlockCodec.DEFLATE));
+		
+		Serializer<Integer> s = new SimpleSerializer();
+		WeakReference<? extends Serializer<?>> ref = new WeakReference<Serializer<?>>(s);
+		cache.createCacheGroup(s.getId());
+		for (int i = 0; i < 4; i++) {
+			add(cache, s, ref, i);
+		}
+		
+		assertTrue(cache.getUncompressedBytes() > 4 * 5000 * 4);
+		assertTrue(cache.getCompressedBytes() < cache.getUncompressedBytes());
+		
+		for (int i = 0; i < 4; i++) {
+			CacheEntry ce = get(cache, Long.valueOf(i), s);
+			assertEquals(Integer.valueOf(5000 + i), ce.getObject());
+		}
+	}
+	
 	@Test public void testEvictionFails() throws Exception {
 		cache = createLayeredCache(1<<15, 1<<15, false, true);
 		BufferManagerImpl bmi = Mockito.mock(BufferManagerImpl.class);
@@ -24,6 +24,9 @@
 
 import static org.junit.Assert.*;
 
+import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 import org.junit.Test;
 
 public class TestConcurrentBitSet {
@@ -119,4 +122,45 @@ public class TestConcurrentBitSet {
 		assertEquals(-1, bst.compactHighestBitSet(0));
 	}
 	
+	@Test public void testConcurrentAllocation() throws Exception {
+		final ConcurrentBitSet bst = new ConcurrentBitSet(1 << 16, 4);
+		final BitSet[] allocated = new BitSet[8];
+		final AtomicBoolean failed = new AtomicBoolean();
+		Thread[] threads = new Thread[allocated.length];
+		for (int i = 0; i < threads.length; i++) {
+			final BitSet bits = new BitSet();
+			allocated[i] = bits;
+			threads[i] = new Thread() {
+				@Override
+				public void run() {
+					try {
+						for (int j = 0; j < bst.getTotalBits()/allocated.length; j++) {
+							int bit = bst.getAndSetNextClearBit();
+							if (bit == -1) {
+								failed.set(true);
+								return;
+							}
+							bits.set(bit);
+						}
+					} catch (Throwable e) {
+						failed.set(true);
+					}
+				}
+			};
+			threads[i].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertFalse(failed.get());
+		BitSet all = new BitSet();
+		for (BitSet bits : allocated) {
+			assertFalse(all.intersects(bits));
+			all.or(bits);
+		}
+		assertEquals(bst.getTotalBits(), all.cardinality());
+		assertEquals(bst.getTotalBits(), bst.getBitsSet());
+		assertEquals(-1, bst.getAndSetNextClearBit());
+	}
+	
 }
@@ -155,6 +155,66 @@ public class TestFileStorageManager {
     	fsos.close();
     }
 
+    @Test public void testPositionalIO() throws Exception {
+    	FileStorageManager sm = getStorageManager(null, null);
+    	sm.setPositionalIO(true);
+    	sm.setExtentSize(4096);
+    	FileStore store = sm.createFileStore("0");
+    	assertEquals(-1, store.read(0, new byte[1], 0, 1));
+    	writeBytes(store);
+    	assertEquals(2048, store.getLength());
+    	assertEquals(4096, sm.getUsedBufferSpace());
+    	assertEquals(-1, store.read(2048, new byte[1], 0, 1));
+    	
+    	writeBytes(store);
+    	writeBytes(store);
+    	assertEquals(6144, store.getLength());
+    	assertEquals(8192, sm.getUsedBufferSpace());
+    	
+    	store.setLength(1000);
+    	assertEquals(1000, store.getLength());
+    	assertEquals(1000, sm.getUsedBufferSpace());
+    	
+    	store.remove();
+    	assertEquals(0, sm.getUsedBufferSpace());
+    }
+    
+    @Test public void testPositionalIOMaxOpenFiles() throws Exception {
+    	FileStorageManager sm = getStorageManager(1, null);
+    	sm.setPositionalIO(true);
+    	FileStore store = sm.createFileStore("0");
+    	FileStore store1 = sm.createFileStore("1");
+    	byte[] expected = writeBytes(store, 0);
+    	byte[] expected1 = writeBytes(store1, 0);
+    	assertEquals(1, sm.getOpenFiles());
+    	
+    	byte[] bytesRead = new byte[2048];
+    	store.readFully(0, bytesRead, 0, bytesRead.length);
+    	assertArrayEquals(expected, bytesRead);
+    	store1.readFully(0, bytesRead, 0, bytesRead.length);
+    	assertArrayEquals(expected1, bytesRead);
+    	
+    	store.remove();
+    	store1.remove();
+    	assertEquals(0, sm.getUsedBufferSpace());
+    }
+    
+    @Test public void testPositionalIORemoved() throws Exception {
+    	FileStorageManager sm = getStorageManager(null, null);
+    	sm.setPositionalIO(true);
+    	FileStore store = sm.createFileStore("0");
+    	writeBytes(store);
+    	store.remove();
+    	try {
+    		store.setLength(100);
+    		fail();
+    	} catch (IOException e) {
+    		//should not reopen
+    	}
+    	assertEquals(0, sm.getOpenFiles());
+    	assertEquals(0, sm.getUsedBufferSpace());
+    }
+    
     static Random r = new Random();
     
 	static void writeBytes(FileStore store) throws IOException {
@@ -26,6 +26,7 @@ import static org.junit.Assert.*;
 
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
@@ -33,10 +34,12 @@ import java.util.concurrent.TimeUnit;
 import javax.resource.spi.work.Work;
 
 import org.junit.After;
+import org.junit.Assume;
 import org.junit.Test;
 import org.teiid.adminapi.impl.WorkerPoolStatisticsMetadata;
 import org.teiid.dqp.internal.process.FutureWork;
 import org.teiid.dqp.internal.process.ThreadReuseExecutor;
+import org.teiid.dqp.internal.process.VirtualThreadExecutor;
 
 /**
  */
@@ -69,6 +72,36 @@ public class TestThreadReuseExecutor {
         assertEquals("Expected threads to be maxed out", MAX_THREADS, stats.getHighestActiveThreads()); //$NON-NLS-1$
     }
 
+    @Test public void testVirtualThreadExecutor() throws Exception {
+    	Assume.assumeTrue(VirtualThreadExecutor.isSupported());
+    	final int WORK_ITEMS = 100;
+    	VirtualThreadExecutor executor = new VirtualThreadExecutor("test"); //$NON-NLS-1$
+    	final CountDownLatch started = new CountDownLatch(WORK_ITEMS);
+    	final CountDownLatch release = new CountDownLatch(1);
+    	for (int i = 0; i < WORK_ITEMS; i++) {
+    		executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					started.countDown();
+					try {
+						release.await();
+					} catch (InterruptedException e) {
+					}
+				}
+			});
+    	}
+    	//should not be bounded by a pool size
+    	assertTrue(started.await(5, TimeUnit.SECONDS));
+    	assertEquals(WORK_ITEMS, executor.getStats().getActiveThreads());
+    	release.countDown();
+    	executor.shutdownNow();
+    	assertTrue(executor.awaitTermination(1000, TimeUnit.MILLISECONDS));
+    	WorkerPoolStatisticsMetadata stats = executor.getStats();
+    	assertEquals(WORK_ITEMS, stats.getTotalSubmitted());
+    	assertEquals(WORK_ITEMS, stats.getTotalCompleted());
+    	assertEquals(WORK_ITEMS, stats.getHighestActiveThreads());
+    }
+    
     @Test public void testThreadReuse() throws Exception {
         final long SINGLE_WAIT = 50;
         final long NUM_THREADS = 5;
@@ -71,6 +71,7 @@ import org.teiid.query.sql.lang.StoredProcedure;
 import org.teiid.query.sql.symbol.Constant;
 import org.teiid.query.unittest.RealMetadataFactory;
 import org.teiid.query.util.CommandContext;
+import org.teiid.translator.BatchResultSetExecution;
 import org.teiid.translator.DataNotAvailableException;
 import org.teiid.translator.ExecutionContext;
 import org.teiid.translator.ExecutionFactory;
@@ -496,6 +497,115 @@ public class TestConnectorWorkItem {
 		assertEquals(1, message.getFinalRow());
     }
     
+    @Test public void testBatchResultSetExecution() throws Exception {
+    	List<List<String>> values = new ArrayList<List<String>>();
+    	for (int i = 1; i <= 7; i++) {
+    		values.add(Collections.singletonList(String.valueOf(i)));
+    	}
+    	ConnectorWorkItem cwi = helpExecuteBatch(values, 3);
+    	AtomicResultsMessage message = cwi.more();
+    	List[] results = message.getResults();
+    	assertEquals(5, results.length);
+		assertEquals(1, results[0].get(0));
+		assertEquals(5, results[4].get(0));
+		assertEquals(-1, message.getFinalRow());
+		message = cwi.more();
+		results = message.getResults();
+		assertEquals(2, results.length);
+		assertEquals(7, results[1].get(0));
+		assertEquals(7, message.getFinalRow());
+    }
+    
+    @Test public void testBatchResultSetExecutionConversionError() throws Exception {
+    	List<List<String>> values = new ArrayList<List<String>>();
+    	for (String value : Arrays.asList("1", "2", "a", "4")) {
+    		values.add(Collections.singletonList(value));
+    	}
+    	ConnectorWorkItem cwi = helpExecuteBatch(values, 4);
+    	AtomicResultsMessage message = cwi.more();
+    	List[] results = message.getResults();
+    	//the rows prior to the failed row should be kept
+    	assertEquals(2, results.length);
+		assertEquals(1, results[0].get(0));
+		assertEquals(2, results[1].get(0));
+		assertEquals(-1, message.getFinalRow());
+		try {
+			cwi.more();
+			fail();
+		} catch (TranslatorException e) {
+			//should throw the conversion error
+		}
+    }
+
+	private ConnectorWorkItem helpExecuteBatch(final List<List<String>> values, final int blockSize) throws Exception {
+    	BufferManager bm = BufferManagerFactory.getStandaloneBufferManager();
+    	final ExecutionFactory<Object, Object> ef = new ExecutionFactory<Object, Object> () {
+    		@Override
+    		public boolean isSourceRequired() {
+    			return false;
+    		}
+    		@Override
+    		public ResultSetExecution createResultSetExecution(
+    				QueryExpression command, ExecutionContext executionContext,
+    				RuntimeMetadata metadata, Object connection)
+    				throws TranslatorException {
+    			return new BatchResultSetExecution() {
+					
+    				private int row;
+    				private List<List<String>> block = new ArrayList<List<String>>();
+    				
+					@Override
+					public void execute() throws TranslatorException {
+						
+					}
+					
+					@Override
+					public void close() {
+						
+					}
+					
+					@Override
+					public void cancel() throws TranslatorException {
+						
+					}
+					
+					@Override
+					public List<?> next() throws TranslatorException, DataNotAvailableException {
+						throw new AssertionError();
+					}
+					
+					@Override
+					public List<? extends List<?>> nextBatch(int maxRows)
+							throws TranslatorException, DataNotAvailableException {
+						block.clear();
+						while (row < values.size() && block.size() < Math.min(maxRows, blockSize)) {
+							block.add(values.get(row++));
+						}
+						if (block.isEmpty()) {
+							return null;
+						}
+						return block;
+					}
+				};
+    		}
+    	};
+		ConnectorManager cm = new ConnectorManager("FakeConnector","FakeConnector") { //$NON-NLS-1$ //$NON-NLS-2$
+			public ExecutionFactory getExecutionFactory() {
+				return ef;
+			}
+			public Object getConnectionFactory(){
+				return null;
+			}
+		};
+		cm.start();
+    	AtomicRequestMessage requestMsg = createNewAtomicRequestMessage(1, 1);
+    	requestMsg.setCommand(helpGetCommand("SELECT intkey FROM bqt1.smalla", EXAMPLE_BQT)); //$NON-NLS-1$
+    	requestMsg.setBufferManager(bm);
+    	ConnectorWorkItem cwi = new ConnectorWorkItem(requestMsg, cm);
+    	cwi.execute();
+		return cwi;
+	}
+    
 	@Test public void testSourcHints() throws Exception {
 		Command command = helpGetCommand("update bqt1.smalla set stringkey = 1 where stringkey = 2", EXAMPLE_BQT); //$NON-NLS-1$
 		command.setSourceHint(new SourceHint());
@@ -70,11 +70,13 @@ public class TestDataTierManager {
     private RequestWorkItem workItem;
     private int limit = -1;
     private boolean serial = false;
+    private boolean shareSourceQueries = false;
     
     @Before public void setUp() {
     	limit = -1;
     	connectorManager = new AutoGenDataService();
     	serial = false;
+    	shareSourceQueries = false;
     }
     
     private static Command helpGetCommand(String sql, QueryMetadataInterface metadata) throws Exception {
@@ -129,7 +131,9 @@ public class TestDataTierManager {
         config.setMaxAgeInSeconds(-1);
 		rm.setResultsetCache(new SessionAwareCache<CachedResults>("resultset", new DefaultCacheFactory(config), SessionAwareCache.Type.RESULTSET, 0));
         rm.setPreparedPlanCache(new SessionAwareCache<PreparedPlan>("preparedplan", new DefaultCacheFactory(config), SessionAwareCache.Type.PREPAREDPLAN, 0));
-        rm.start(new DQPConfiguration());
+        DQPConfiguration dqpConfig = new DQPConfiguration();
+        dqpConfig.setShareSourceQueries(shareSourceQueries);
+        rm.start(dqpConfig);
 
         ConnectorManagerRepository repo = Mockito.mock(ConnectorManagerRepository.class);
         Mockito.stub(repo.getConnectorManager(Mockito.anyString())).toReturn(connectorManager);
@@ -357,6 +361,86 @@ public class TestDataTierManager {
     	assertEquals(0, this.rm.getRsCache().getCachePutCount());
     }
     
+    @Test public void testSharedSourceQuery() throws Exception {
+    	QueryMetadataInterface metadata = RealMetadataFactory.exampleBQTCached();
+    	shareSourceQueries = true;
+    	connectorManager.setSleep(100);
+    	helpSetupDataTierManager();
+    	TupleSource ts = helpRegisterSharedRequest(metadata);
+    	TupleSource ts1 = helpRegisterSharedRequest(metadata);
+    	assertEquals(10, pullTuples(ts, -1));
+    	assertEquals(10, pullTuples(ts1, -1));
+    	assertEquals(1, connectorManager.getExecuteCount().get());
+    	ts.closeSource();
+    	ts1.closeSource();
+    	
+    	//no longer in flight
+    	ts = helpRegisterSharedRequest(metadata);
+    	assertEquals(10, pullTuples(ts, -1));
+    	assertEquals(2, connectorManager.getExecuteCount().get());
+    	ts.closeSource();
+    }
+
+    @Test public void testSharedSourceQueryRegisteringRequestClosed() throws Exception {
+    	QueryMetadataInterface metadata = RealMetadataFactory.exampleBQTCached();
+    	shareSourceQueries = true;
+    	connectorManager.setSleep(100);
+    	helpSetupDataTierManager();
+    	TupleSource ts = helpRegisterSharedRequest(metadata);
+    	RequestWorkItem registering = workItem;
+    	TupleSource ts1 = helpRegisterSharedRequest(metadata);
+    	assertEquals(2, pullTuples(ts1, 2));
+    	
+    	//closing the registering request should not affect the other reader
+    	ts.closeSource();
+    	registering.requestCancel();
+    	assertEquals(8, pullTuples(ts1, -1));
+    	assertEquals(1, connectorManager.getExecuteCount().get());
+    	ts1.closeSource();
+    }
+
+    @Test public void testSharedSourceQueryWindow() throws Exception {
+    	QueryMetadataInterface metadata = RealMetadataFactory.exampleBQTCached();
+    	shareSourceQueries = true;
+    	connectorManager.setRows(100000);
+    	helpSetupDataTierManager();
+    	TupleSource ts = helpRegisterSharedRequest(metadata);
+    	assertEquals(90000, pullTuples(ts, 90000));
+    	
+    	//no other reader attached within the window, so the results are no longer shared
+    	TupleSource ts1 = helpRegisterSharedRequest(metadata);
+    	assertEquals(2, connectorManager.getExecuteCount().get());
+    	assertEquals(10000, pullTuples(ts, -1));
+    	assertEquals(100000, pullTuples(ts1, -1));
+    	ts.closeSource();
+    	ts1.closeSource();
+    }
+    
+    @Test public void testSharedSourceQueryLobsNotShared() throws Exception {
+    	QueryMetadataInterface metadata = RealMetadataFactory.exampleBQTCached();
+    	shareSourceQueries = true;
+    	helpSetupDataTierManager();
+    	TupleSource ts = helpRegisterSharedRequest("SELECT stringkey, objectvalue from bqt1.smalla", metadata);
+    	TupleSource ts1 = helpRegisterSharedRequest("SELECT stringkey, objectvalue from bqt1.smalla", metadata);
+    	assertEquals(10, pullTuples(ts, -1));
+    	assertEquals(10, pullTuples(ts1, -1));
+    	assertEquals(2, connectorManager.getExecuteCount().get());
+    	ts.closeSource();
+    	ts1.closeSource();
+    }
+
+	private TupleSource helpRegisterSharedRequest(QueryMetadataInterface metadata) throws Exception {
+		return helpRegisterSharedRequest("SELECT stringkey from bqt1.smalla", metadata);
+	}
+	
+	private TupleSource helpRegisterSharedRequest(String sql, QueryMetadataInterface metadata) throws Exception {
+		Command command = helpSetupRequest(sql, 1, metadata).getCommand();
+    	workItem.requestMsg.setPartialResults(false);
+    	RegisterRequestParameter rrp = new RegisterRequestParameter();
+    	rrp.connectorBindingId = "x";
+    	return dtm.registerRequest(context, command, "foo", rrp);
+	}
+    
     @Test public void testCheckForUpdatesWithBatched() throws Exception {
     	helpSetupDataTierManager();
     	QueryMetadataInterface metadata = RealMetadataFactory.exampleBQTCached();
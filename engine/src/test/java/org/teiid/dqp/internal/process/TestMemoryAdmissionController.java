@@ -0,0 +1,178 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+package org.teiid.dqp.internal.process;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.teiid.adminapi.impl.VDBMetaData;
+import org.teiid.client.RequestMessage;
+import org.teiid.common.buffer.BufferManager;
+import org.teiid.common.buffer.BufferManagerFactory;
+import org.teiid.dqp.message.RequestID;
+import org.teiid.query.processor.ProcessorPlan;
+import org.teiid.query.processor.QueryProcessor;
+import org.teiid.query.processor.relational.FakeRelationalNode;
+import org.teiid.query.processor.relational.RelationalPlan;
+import org.teiid.query.processor.relational.SortNode;
+import org.teiid.query.sql.symbol.ElementSymbol;
+
+@SuppressWarnings("nls")
+public class TestMemoryAdmissionController {
+	
+	private BufferManager bm = BufferManagerFactory.createBufferManager();
+	private int id;
+	
+	private RelationalPlan getSortPlan(Number cardinality) {
+		ElementSymbol e1 = new ElementSymbol("x");
+		e1.setType(String.class);
+		List<ElementSymbol> elements = Arrays.asList(e1);
+		FakeRelationalNode child = new FakeRelationalNode(2, new List[0]);
+		child.setElements(elements);
+		child.setEstimateNodeCardinality(cardinality);
+		SortNode sort = new SortNode(1);
+		sort.setElements(elements);
+		sort.addChild(child);
+		return new RelationalPlan(sort);
+	}
+	
+	private RequestWorkItem getWorkItem(String user) {
+		DQPWorkContext workContext = new DQPWorkContext();
+		workContext.getSession().setSessionId("1");
+		workContext.getSession().setUserName(user);
+		return new RequestWorkItem(new DQPCore(), new RequestMessage("foo"), null, null, new RequestID("1", id++), workContext);
+	}
+	
+	private RequestWorkItem getWorkItem(DQPCore core, String user, ProcessorPlan plan) {
+		DQPWorkContext workContext = new DQPWorkContext();
+		workContext.getSession().setSessionId("1");
+		workContext.getSession().setUserName(user);
+		workContext.getSession().setVdb(new VDBMetaData());
+		final QueryProcessor processor = Mockito.mock(QueryProcessor.class);
+		Mockito.stub(processor.getProcessorPlan()).toReturn(plan);
+		return new RequestWorkItem(core, new RequestMessage("foo"), null, null, new RequestID("1", id++), workContext) {
+			@Override
+			public QueryProcessor getProcessor() {
+				return processor;
+			}
+		};
+	}
+	
+	@Test public void testEstimate() {
+		long small = MemoryAdmissionController.estimateMemory(getSortPlan(100), bm, Long.MAX_VALUE);
+		long large = MemoryAdmissionController.estimateMemory(getSortPlan(100000), bm, Long.MAX_VALUE);
+		assertTrue(small > 0);
+		assertEquals(large, small * 1000);
+		assertEquals(bm.getMaxProcessingSize(), MemoryAdmissionController.estimateMemory(getSortPlan(-1), bm, Long.MAX_VALUE));
+		assertEquals(10, MemoryAdmissionController.estimateMemory(getSortPlan(100000), bm, 10));
+	}
+	
+	@Test public void testUserBudget() {
+		RelationalPlan plan = getSortPlan(1000);
+		long estimate = MemoryAdmissionController.estimateMemory(plan, bm, Long.MAX_VALUE);
+		MemoryAdmissionController controller = new MemoryAdmissionController(bm, estimate * 3 / 2);
+		
+		RequestWorkItem item = getWorkItem("a");
+		RequestWorkItem item1 = getWorkItem("a");
+		RequestWorkItem item2 = getWorkItem("b");
+		assertTrue(controller.admit(item, plan, -1));
+		assertFalse(controller.admit(item1, plan, -1));
+		assertTrue(controller.admit(item2, plan, -1));
+		assertEquals(1, controller.getQueuedCount());
+		
+		assertNull(controller.release(item2));
+		assertEquals(Arrays.asList(item1), controller.release(item));
+		assertEquals(0, controller.getQueuedCount());
+		assertEquals(1, controller.getTotalQueuedCount());
+		assertNull(controller.release(item1));
+	}
+	
+	@Test public void testVdbBudget() {
+		RelationalPlan plan = getSortPlan(1000);
+		long estimate = MemoryAdmissionController.estimateMemory(plan, bm, Long.MAX_VALUE);
+		MemoryAdmissionController controller = new MemoryAdmissionController(bm, -1);
+		
+		RequestWorkItem item = getWorkItem("a");
+		RequestWorkItem item1 = getWorkItem("b");
+		assertTrue(controller.admit(item, plan, estimate));
+		assertFalse(controller.admit(item1, plan, estimate));
+		
+		//removing a queued item does not admit anything
+		assertNull(controller.release(item1));
+		assertEquals(0, controller.getQueuedCount());
+		assertNull(controller.release(item));
+	}
+	
+	@Test public void testActivePlanLimit() {
+		BufferManager bufferManager = BufferManagerFactory.createBufferManager();
+		RelationalPlan plan = getSortPlan(1000);
+		long estimate = MemoryAdmissionController.estimateMemory(plan, bufferManager, Long.MAX_VALUE);
+		assertTrue(estimate > 1024);
+		
+		DQPConfiguration config = new DQPConfiguration();
+		config.setMaxActivePlans(1);
+		config.setMemoryAdmissionControl(true);
+		//room for the large plan or both small plans
+		config.setUserMemoryBudgetKB((int)((2*estimate + 1023)>>10));
+		DQPCore core = new DQPCore();
+		core.setBufferManager(bufferManager);
+		core.start(config);
+		try {
+			RequestWorkItem item = getWorkItem(core, "a", getSortPlan(2000));
+			RequestWorkItem item1 = getWorkItem(core, "a", plan);
+			RequestWorkItem item2 = getWorkItem(core, "a", plan);
+			core.startActivePlan(item, false);
+			assertTrue(core.admitPlan(item));
+			core.startActivePlan(item1, false);
+			assertFalse(core.admitPlan(item1));
+			core.startActivePlan(item2, false);
+			assertFalse(core.admitPlan(item2));
+			assertEquals(1, core.getActivePlanCount());
+			assertEquals(2, core.getMemoryWaitingPlanCount());
+			assertTrue(item1.heldForAdmission);
+			
+			//both plans are admitted by memory, but only one may become active
+			core.finishProcessing(item);
+			assertTrue(core.getActivePlanCount() <= core.getMaxActivePlans());
+			assertEquals(0, core.getMemoryWaitingPlanCount());
+			assertTrue(item1.active);
+			assertFalse(item1.heldForAdmission);
+			assertFalse(item2.active);
+			assertTrue(item2.heldForAdmission);
+			
+			core.finishProcessing(item1);
+			assertEquals(1, core.getActivePlanCount());
+			assertTrue(item2.active);
+			assertFalse(item2.heldForAdmission);
+			
+			core.finishProcessing(item2);
+			assertEquals(0, core.getActivePlanCount());
+		} finally {
+			core.stop();
+		}
+	}
+	
+}
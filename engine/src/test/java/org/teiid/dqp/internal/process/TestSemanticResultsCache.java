@@ -0,0 +1,119 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.dqp.internal.process;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.teiid.common.buffer.BufferManager.TupleSourceType;
+import org.teiid.common.buffer.BufferManagerFactory;
+import org.teiid.common.buffer.TupleBuffer;
+import org.teiid.query.metadata.TransformationMetadata;
+import org.teiid.query.parser.ParseInfo;
+import org.teiid.query.processor.FakeDataManager;
+import org.teiid.query.processor.ProcessorPlan;
+import org.teiid.query.processor.TestProcessor;
+import org.teiid.query.resolver.TestResolver;
+import org.teiid.query.rewriter.QueryRewriter;
+import org.teiid.query.sql.lang.Criteria;
+import org.teiid.query.sql.lang.Query;
+import org.teiid.query.sql.visitor.ElementCollectorVisitor;
+import org.teiid.query.unittest.RealMetadataFactory;
+import org.teiid.query.util.CommandContext;
+
+@SuppressWarnings({"nls", "unchecked"})
+public class TestSemanticResultsCache {
+	
+	private TransformationMetadata metadata = RealMetadataFactory.example1Cached();
+	
+	private Query getQuery(String sql) throws Exception {
+		return (Query)QueryRewriter.rewrite(TestResolver.helpResolve(sql, metadata), metadata, null);
+	}
+	
+	private SemanticResultsCache.Entry getEntry(String sql) throws Exception {
+		return SemanticResultsCache.createEntry(getQuery(sql), new ParseInfo(), sql, RealMetadataFactory.buildWorkContext(metadata));
+	}
+	
+	private boolean subsumes(SemanticResultsCache.Entry entry, String sql) throws Exception {
+		Query query = getQuery(sql);
+		return SemanticResultsCache.subsumes(entry, query, ElementCollectorVisitor.getElements(query, true), Criteria.separateCriteriaByAnd(query.getCriteria()));
+	}
+	
+	@Test public void testSubsumption() throws Exception {
+		SemanticResultsCache.Entry entry = getEntry("SELECT e1, e2 FROM pm1.g1 WHERE e2 > 1");
+		assertTrue(subsumes(entry, "SELECT e1 FROM pm1.g1 WHERE e2 > 2"));
+		assertTrue(subsumes(entry, "SELECT e1 FROM pm1.g1 WHERE e2 >= 2"));
+		assertTrue(subsumes(entry, "SELECT e1 FROM pm1.g1 WHERE e2 IN (2, 3) AND e1 IS NULL"));
+		assertTrue(subsumes(entry, "SELECT e1 FROM pm1.g1 WHERE e2 > 1 ORDER BY e2"));
+		assertFalse(subsumes(entry, "SELECT e1 FROM pm1.g1 WHERE e2 >= 1"));
+		assertFalse(subsumes(entry, "SELECT e1 FROM pm1.g1 WHERE e2 = 1"));
+		assertFalse(subsumes(entry, "SELECT e1 FROM pm1.g1"));
+		assertFalse(subsumes(entry, "SELECT e3 FROM pm1.g1 WHERE e2 > 2"));
+		
+		entry = getEntry("SELECT e1, e2, e4 FROM pm1.g1 WHERE e2 IN (1, 2, 3) AND e4 IS NOT NULL");
+		assertTrue(subsumes(entry, "SELECT e1 FROM pm1.g1 WHERE e2 IN (1, 2) AND e4 < 5"));
+		assertFalse(subsumes(entry, "SELECT e1 FROM pm1.g1 WHERE e2 IN (1, 4) AND e4 < 5"));
+		assertFalse(subsumes(entry, "SELECT e1 FROM pm1.g1 WHERE e2 = 1"));
+	}
+	
+	@Test public void testDistinct() throws Exception {
+		SemanticResultsCache.Entry entry = getEntry("SELECT DISTINCT e1, e2 FROM pm1.g1");
+		assertTrue(subsumes(entry, "SELECT DISTINCT e1 FROM pm1.g1"));
+		assertFalse(subsumes(entry, "SELECT e1 FROM pm1.g1"));
+	}
+	
+	@Test public void testNotEligible() throws Exception {
+		assertNull(getEntry("SELECT max(e2) FROM pm1.g1"));
+		assertNull(getEntry("SELECT e1 FROM pm1.g1 LIMIT 1"));
+		assertNull(getEntry("SELECT concat(e1, 'a') FROM pm1.g1"));
+		assertNull(getEntry("SELECT e1 FROM pm1.g1 WHERE e2 IN (SELECT e2 FROM pm1.g2)"));
+		assertNull(getEntry("SELECT pm1.g1.e1 FROM pm1.g1, pm1.g2"));
+		//string comparisons depend on the source collation
+		assertNull(getEntry("SELECT e1 FROM pm1.g1 WHERE e1 = 'a'"));
+		assertNull(getEntry("SELECT e1 FROM pm1.g1 WHERE e1 IN ('a', 'b')"));
+		assertNull(getEntry("SELECT e1 FROM pm1.g1 WHERE e1 > 'a'"));
+		assertNull(getEntry("SELECT e1 FROM pm1.g1 WHERE e1 LIKE 'a%'"));
+	}
+	
+	@Test public void testPlan() throws Exception {
+		SemanticResultsCache.Entry entry = getEntry("SELECT e1, e2 FROM pm1.g1 WHERE e2 > 0");
+		TupleBuffer tb = BufferManagerFactory.getStandaloneBufferManager().createTupleBuffer(entry.columns, "test", TupleSourceType.PROCESSOR);
+		tb.addTuple(Arrays.asList("a", 1));
+		tb.addTuple(Arrays.asList("b", 2));
+		tb.addTuple(Arrays.asList("c", 3));
+		tb.addTuple(Arrays.asList("b", 4));
+		tb.close();
+		Query query = getQuery("SELECT DISTINCT e1 FROM pm1.g1 WHERE e2 > 1 ORDER BY e1 DESC LIMIT 2");
+		ProcessorPlan plan = SemanticResultsCache.createPlan(query, entry, tb);
+		CommandContext cc = TestProcessor.createCommandContext();
+		cc.setMetadata(metadata);
+		TestProcessor.doProcess(plan, new FakeDataManager(), new List[] {Arrays.asList("c"), Arrays.asList("b")}, cc);
+		//the cached results are still usable
+		assertEquals(4, tb.getRowCount());
+		TestProcessor.doProcess(plan.clone(), new FakeDataManager(), new List[] {Arrays.asList("c"), Arrays.asList("b")}, cc);
+	}
+	
+}
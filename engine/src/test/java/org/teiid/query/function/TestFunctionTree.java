@@ -30,6 +30,7 @@ import java.util.Collection;
 
 import org.junit.Test;
 import org.mockito.Mockito;
+import org.teiid.api.exception.query.FunctionExecutionException;
 import org.teiid.core.TeiidRuntimeException;
 import org.teiid.core.types.BinaryType;
 import org.teiid.core.types.DataTypeManager;
@@ -76,6 +77,14 @@ public class TestFunctionTree {
     	return new String(bytes);
     }
     
+    public static int plusOne(int i) {
+    	return i + 1;
+    }
+    
+    public static String error(String s) {
+    	throw new IllegalArgumentException(s);
+    }
+    
     @Test public void testLoadErrors() {
     	FunctionMethod method = new FunctionMethod(
     			"dummy", null, null, PushDown.CAN_PUSHDOWN, null, "noMethod",  //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ 
@@ -176,6 +185,35 @@ public class TestFunctionTree {
     	assertEquals(hello, fd.invokeFunction(new Object[] {new BinaryType(hello.getBytes())}, null, null));
     }
     
+    @Test public void testMethodHandleInvocation() throws Exception {
+    	FunctionMethod plusOne = new FunctionMethod(
+    			"plusOne", null, null, PushDown.CANNOT_PUSHDOWN, TestFunctionTree.class.getName(), "plusOne",  //$NON-NLS-1$ //$NON-NLS-2$ 
+	 	    	Arrays.asList(new FunctionParameter("in", DataTypeManager.DefaultDataTypes.INTEGER)), //$NON-NLS-1$ 
+	 	    	new FunctionParameter("output", DataTypeManager.DefaultDataTypes.INTEGER), //$NON-NLS-1$
+	 	    	true, Determinism.DETERMINISTIC);
+    	FunctionMethod fail = new FunctionMethod(
+    			"fail", null, null, PushDown.CANNOT_PUSHDOWN, TestFunctionTree.class.getName(), "error",  //$NON-NLS-1$ //$NON-NLS-2$ 
+	 	    	Arrays.asList(new FunctionParameter("in", DataTypeManager.DefaultDataTypes.STRING)), //$NON-NLS-1$ 
+	 	    	new FunctionParameter("output", DataTypeManager.DefaultDataTypes.STRING), //$NON-NLS-1$
+	 	    	true, Determinism.DETERMINISTIC);
+    	FunctionTree sys = RealMetadataFactory.SFM.getSystemFunctions();
+    	FunctionLibrary fl = new FunctionLibrary(sys, new FunctionTree("foo", new UDFSource(Arrays.asList(plusOne, fail)), true)); //$NON-NLS-1$
+    	FunctionDescriptor fd = fl.findFunction("plusOne", new Class<?>[] {DataTypeManager.DefaultDataClasses.INTEGER}); //$NON-NLS-1$
+    	assertNotNull(fd.getInvocationHandle());
+    	assertEquals(2, fd.invokeFunction(new Object[] {1}, null, null));
+    	
+    	fd = fl.findFunction("concat", new Class<?>[] {DataTypeManager.DefaultDataClasses.STRING, DataTypeManager.DefaultDataClasses.STRING}); //$NON-NLS-1$
+    	assertEquals("ab", fd.invokeFunction(new Object[] {"a", "b"}, null, null)); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+    	
+    	fd = fl.findFunction("fail", new Class<?>[] {DataTypeManager.DefaultDataClasses.STRING}); //$NON-NLS-1$
+    	try {
+    		fd.invokeFunction(new Object[] {"x"}, null, null); //$NON-NLS-1$
+    		fail();
+    	} catch (FunctionExecutionException e) {
+    		assertTrue(e.getCause() instanceof IllegalArgumentException);
+    	}
+    }
+    
     @Test public void testMultiPartName() throws Exception {
     	FunctionMethod method = new FunctionMethod(
     			"x.y.dummy", null, null, PushDown.CANNOT_PUSHDOWN, TestFunctionTree.class.getName(), "toString",  //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ 
@@ -54,6 +54,7 @@ import org.teiid.query.processor.FakeDataManager;
 import org.teiid.query.processor.HardcodedDataManager;
 import org.teiid.query.processor.ProcessorPlan;
 import org.teiid.query.processor.TestProcessor;
+import org.teiid.query.processor.relational.HashJoinStrategy;
 import org.teiid.query.processor.relational.JoinNode;
 import org.teiid.query.processor.relational.RelationalNode;
 import org.teiid.query.processor.relational.RelationalPlan;
@@ -1282,6 +1283,34 @@ public class TestJoinOptimization {
         TestProcessor.helpProcess(plan, hdm, new List<?>[] {Arrays.asList(3, 2)});
     }
 	
+    @Test public void testHashJoin() throws Exception {
+    	String sql = "select bqt1.smalla.intkey, bqt2.smalla.intkey "
+        		+ "from bqt1.smalla inner join bqt2.smalla on (bqt2.smalla.intkey = bqt1.smalla.intkey)"; //$NON-NLS-1$
+        BasicSourceCapabilities bsc = TestOptimizer.getTypicalCapabilities();
+        bsc.setCapabilitySupport(Capability.QUERY_ORDERBY, false);
+        bsc.setCapabilitySupport(Capability.CRITERIA_IN, false);
+        TransformationMetadata metadata = RealMetadataFactory.exampleBQT();
+        RealMetadataFactory.setCardinality("bqt1.smalla", 3000, metadata); //$NON-NLS-1$
+        RealMetadataFactory.setCardinality("bqt2.smalla", 1000, metadata); //$NON-NLS-1$
+        
+        CommandContext cc = TestProcessor.createCommandContext();
+        cc.getOptions().setHashJoin(true);
+        
+        ProcessorPlan plan = TestProcessor.helpGetPlan(TestOptimizer.helpGetCommand(sql, metadata, null), metadata, new DefaultCapabilitiesFinder(bsc), cc);
+        TestOptimizer.checkNodeTypes(plan, new int[] {1}, new Class[] {HashJoinStrategy.class});
+
+        HardcodedDataManager hdm = new HardcodedDataManager();
+        hdm.addData("SELECT g_0.IntKey FROM BQT1.SmallA AS g_0", Arrays.asList(1), Arrays.asList(2), Arrays.asList(2));
+        hdm.addData("SELECT g_0.IntKey FROM BQT2.SmallA AS g_0", Arrays.asList(2), Arrays.asList(3));
+        
+        TestProcessor.helpProcess(plan, hdm, new List<?>[] {Arrays.asList(2, 2), Arrays.asList(2, 2)});
+        
+        //without the option a merge join is still used
+        cc = TestProcessor.createCommandContext();
+        plan = TestProcessor.helpGetPlan(TestOptimizer.helpGetCommand(sql, metadata, null), metadata, new DefaultCapabilitiesFinder(bsc), cc);
+        TestOptimizer.checkNodeTypes(plan, new int[] {0}, new Class[] {HashJoinStrategy.class});
+    }
+	
     @Test public void testOutputColumnsWithMergeJoinAndNonPushedSelect() throws TeiidComponentException, TeiidProcessingException {
         String sql = "select bqt1.smalla.intkey, bqt2.smalla.intkey "
         		+ "from bqt1.smalla inner join bqt2.smalla on (bqt2.smalla.intkey = case when bqt1.smalla.intkey = 1 then 2 else 3 end) where right(bqt1.smalla.stringkey, 1) = 'a'"; //$NON-NLS-1$
@@ -22,6 +22,8 @@
 
 package org.teiid.query.optimizer;
 
+import static org.junit.Assert.*;
+
 import java.util.Arrays;
 import java.util.List;
 
@@ -33,6 +35,7 @@ import org.teiid.metadata.Column;
 import org.teiid.metadata.MetadataStore;
 import org.teiid.metadata.Schema;
 import org.teiid.metadata.Table;
+import org.teiid.query.analysis.AnalysisRecord;
 import org.teiid.query.mapping.relational.QueryNode;
 import org.teiid.query.metadata.TransformationMetadata;
 import org.teiid.query.optimizer.TestOptimizer.ComparisonMode;
@@ -302,6 +305,7 @@ public class TestLimit {
             1,      // Sort
             0       // UnionAll
         }, NODE_TYPES);
+        assertTrue(plan.getDescriptionProperties().toString().contains(AnalysisRecord.PROP_TOP_N));
     }
 
     @Test public void testSortPushed() {
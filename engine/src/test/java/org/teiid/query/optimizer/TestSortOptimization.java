@@ -32,6 +32,7 @@ import java.util.List;
 import org.junit.Test;
 import org.teiid.core.TeiidComponentException;
 import org.teiid.core.TeiidProcessingException;
+import org.teiid.query.analysis.AnalysisRecord;
 import org.teiid.query.metadata.QueryMetadataInterface;
 import org.teiid.query.metadata.TransformationMetadata;
 import org.teiid.query.optimizer.TestOptimizer.ComparisonMode;
@@ -48,6 +49,7 @@ import org.teiid.query.processor.relational.LimitNode;
 import org.teiid.query.processor.relational.ProjectNode;
 import org.teiid.query.processor.relational.RelationalPlan;
 import org.teiid.query.unittest.RealMetadataFactory;
+import org.teiid.query.util.CommandContext;
 import org.teiid.translator.SourceSystemFunctions;
 
 @SuppressWarnings("nls")
@@ -582,4 +584,26 @@ public class TestSortOptimization {
         helpProcess(plan, dataManager, expected);
     }
 
+    @Test public void testHashAggregation() throws Exception {
+        String sql = "select e2, count(*) from pm1.g1 group by e2"; //$NON-NLS-1$
+        TransformationMetadata metadata = RealMetadataFactory.example1();
+        RealMetadataFactory.setCardinality("pm1.g1", 1000, metadata); //$NON-NLS-1$
+        metadata.getElementID("pm1.g1.e2").setDistinctValues(10); //$NON-NLS-1$
+        CapabilitiesFinder capFinder = new DefaultCapabilitiesFinder(TestOptimizer.getTypicalCapabilities());
+        
+        CommandContext cc = TestProcessor.createCommandContext();
+        cc.getOptions().setHashAggregation(true);
+        
+        ProcessorPlan plan = TestProcessor.helpGetPlan(TestOptimizer.helpGetCommand(sql, metadata, null), metadata, capFinder, cc);
+        assertTrue(plan.getDescriptionProperties().toString().contains(AnalysisRecord.PROP_HASH_AGGREGATION));
+        
+        HardcodedDataManager dataManager = new HardcodedDataManager();
+        dataManager.addData("SELECT g_0.e2 FROM pm1.g1 AS g_0", Arrays.asList(1), Arrays.asList(1), Arrays.asList(1));
+        TestProcessor.helpProcess(plan, dataManager, new List<?>[] {Arrays.asList(1, 3)});
+        
+        //the ordering must be produced by the grouping
+        plan = TestProcessor.helpGetPlan(TestOptimizer.helpGetCommand(sql + " order by e2", metadata, null), metadata, capFinder, cc); //$NON-NLS-1$
+        assertFalse(plan.getDescriptionProperties().toString().contains(AnalysisRecord.PROP_HASH_AGGREGATION));
+    }
+
 }
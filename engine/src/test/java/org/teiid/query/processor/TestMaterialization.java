@@ -27,6 +27,9 @@ import static org.junit.Assert.*;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -36,9 +39,13 @@ import org.teiid.cache.DefaultCacheFactory;
 import org.teiid.common.buffer.BufferManager;
 import org.teiid.common.buffer.BufferManagerFactory;
 import org.teiid.core.TeiidProcessingException;
+import org.teiid.core.util.FileUtils;
+import org.teiid.core.util.UnitTestUtil;
 import org.teiid.dqp.internal.process.CachedResults;
 import org.teiid.dqp.internal.process.QueryProcessorFactoryImpl;
 import org.teiid.dqp.internal.process.SessionAwareCache;
+import org.teiid.metadata.KeyRecord;
+import org.teiid.metadata.Table;
 import org.teiid.query.metadata.TempMetadataAdapter;
 import org.teiid.query.metadata.TempMetadataID;
 import org.teiid.query.metadata.TransformationMetadata;
@@ -47,6 +54,7 @@ import org.teiid.query.optimizer.capabilities.DefaultCapabilitiesFinder;
 import org.teiid.query.optimizer.relational.RelationalPlanner;
 import org.teiid.query.tempdata.GlobalTableStoreImpl;
 import org.teiid.query.tempdata.GlobalTableStoreImpl.MatTableInfo;
+import org.teiid.query.tempdata.TempTable;
 import org.teiid.query.tempdata.TempTableDataManager;
 import org.teiid.query.tempdata.TempTableStore;
 import org.teiid.query.tempdata.TempTableStore.TransactionMode;
@@ -143,6 +151,94 @@ public class TestMaterialization {
 		assertEquals(2, hdm.getCommandHistory().size());
 	}
 	
+	@Test public void testReplicateChanges() throws Exception {
+		globalStore.setAddress("a");
+		execute("SELECT * from vgroup3 where x = 'one'", Arrays.asList("one", "zne"));
+		String matTableName = RelationalPlanner.MAT_PREFIX + "MATVIEW.VGROUP3";
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		this.globalStore.getState(matTableName, baos);
+		int fullSize = baos.size();
+		TransformationMetadata actualMetadata = (TransformationMetadata)metadata.getMetadata();
+		GlobalTableStoreImpl peer = new GlobalTableStoreImpl(BufferManagerFactory.getStandaloneBufferManager(), actualMetadata.getVdbMetaData(), actualMetadata);
+		peer.setState(matTableName, new ByteArrayInputStream(baos.toByteArray()));
+		
+		//reload with a row removed and a row added
+		hdm.addData("SELECT MatSrc.MatSrc.x FROM MatSrc.MatSrc", new List[] {Arrays.asList((String)null), Arrays.asList("one"), Arrays.asList("three"), Arrays.asList("four")});
+		MatTableInfo matTableInfo = this.globalStore.getMatTableInfo(matTableName);
+		matTableInfo.setTtl(0);
+		Thread.sleep(10);
+		execute("SELECT * from vgroup3 where x = 'four'", Arrays.asList("four", "zour"));
+		assertEquals(2, hdm.getCommandHistory().size());
+		baos = new ByteArrayOutputStream();
+		this.globalStore.getState(matTableName, baos);
+		assertTrue(baos.size() < fullSize);
+		peer.setState(matTableName, new ByteArrayInputStream(baos.toByteArray()));
+		assertEquals(matTableInfo.getVersion(), peer.getMatTableInfo(matTableName).getVersion());
+		
+		//a member without the prior state must load
+		GlobalTableStoreImpl other = new GlobalTableStoreImpl(BufferManagerFactory.getStandaloneBufferManager(), actualMetadata.getVdbMetaData(), actualMetadata);
+		other.setState(matTableName, new ByteArrayInputStream(baos.toByteArray()));
+		assertFalse(other.getMatTableInfo(matTableName).isValid());
+		
+		//a joining member receives the versions after the tables
+		baos = new ByteArrayOutputStream();
+		peer.getState(baos);
+		GlobalTableStoreImpl joined = new GlobalTableStoreImpl(BufferManagerFactory.getStandaloneBufferManager(), actualMetadata.getVdbMetaData(), actualMetadata);
+		joined.setState(new ByteArrayInputStream(baos.toByteArray()));
+		assertEquals(matTableInfo.getVersion(), joined.getMatTableInfo(matTableName).getVersion());
+		
+		globalStore = peer;
+		execute("SELECT * from vgroup3 where x in ('two', 'four')", Arrays.asList("four", "zour"));
+		execute("SELECT * from vgroup3 where y = 'zhree'", Arrays.asList("three", "zhree"));
+		execute("SELECT * from vgroup3 where x is null", Arrays.asList(null, null));
+		assertEquals(2, hdm.getCommandHistory().size());
+	}
+	
+	@Test public void testSnapshot() throws Exception {
+		File dir = new File(UnitTestUtil.getTestScratchPath(), "matview_snapshot");
+		FileUtils.removeDirectoryAndChildren(dir);
+		globalStore.setSnapshotDirectory(dir);
+		execute("SELECT * from vgroup3 where x = 'one'", Arrays.asList("one", "zne"));
+		assertEquals(1, hdm.getCommandHistory().size());
+		File[] files = dir.listFiles();
+		assertEquals(1, files.length);
+		
+		//simulate a restart
+		TransformationMetadata actualMetadata = (TransformationMetadata)metadata.getMetadata();
+		globalStore = new GlobalTableStoreImpl(BufferManagerFactory.getStandaloneBufferManager(), actualMetadata.getVdbMetaData(), actualMetadata);
+		globalStore.setSnapshotDirectory(dir);
+		execute("SELECT * from vgroup3 where x = 'one'", Arrays.asList("one", "zne"));
+		execute("SELECT * from vgroup3 where x is null", Arrays.asList(null, null));
+		assertEquals(1, hdm.getCommandHistory().size());
+		
+		//a corrupt snapshot is discarded and the view is loaded from the source
+		RandomAccessFile raf = new RandomAccessFile(files[0], "rw");
+		raf.seek(raf.length() - 20);
+		int b = raf.read();
+		raf.seek(raf.length() - 20);
+		raf.write(~b);
+		raf.close();
+		globalStore = new GlobalTableStoreImpl(BufferManagerFactory.getStandaloneBufferManager(), actualMetadata.getVdbMetaData(), actualMetadata);
+		globalStore.setSnapshotDirectory(dir);
+		execute("SELECT * from vgroup3 where x = 'one'", Arrays.asList("one", "zne"));
+		assertEquals(2, hdm.getCommandHistory().size());
+		assertEquals(1, dir.listFiles().length);
+		
+		//an explicit refresh after a restart is not satisfied by the snapshot
+		String matTableName = RelationalPlanner.MAT_PREFIX + "MATVIEW.VGROUP3";
+		globalStore = new GlobalTableStoreImpl(BufferManagerFactory.getStandaloneBufferManager(), actualMetadata.getVdbMetaData(), actualMetadata);
+		globalStore.setSnapshotDirectory(dir);
+		assertTrue(globalStore.needsLoading(matTableName, null, true, true, false));
+		assertNull(globalStore.getTempTable(matTableName));
+		
+		//but an implicit load is
+		globalStore = new GlobalTableStoreImpl(BufferManagerFactory.getStandaloneBufferManager(), actualMetadata.getVdbMetaData(), actualMetadata);
+		globalStore.setSnapshotDirectory(dir);
+		assertFalse(globalStore.needsLoading(matTableName, null, true, false, false));
+		assertNotNull(globalStore.getTempTable(matTableName));
+		FileUtils.removeDirectoryAndChildren(dir);
+	}
+	
 	@Test public void testProcedureCache() throws Exception {
 		execute("call sp1('one')", Arrays.asList("one"));
 		assertEquals(1, hdm.getCommandHistory().size());
@@ -176,6 +272,60 @@ public class TestMaterialization {
 		execute("SELECT * from vgroup7 where y is null", Arrays.asList("1", null, 1));
 	}
 	
+	private void addMatSrcRows(int count) {
+		List<List<?>> rows = new ArrayList<List<?>>();
+		for (int i = 0; i < count; i++) {
+			rows.add(Arrays.asList("v" + i));
+		}
+		hdm.addData("SELECT MatSrc.MatSrc.x FROM MatSrc.MatSrc", rows.toArray(new List<?>[rows.size()]));
+	}
+	
+	@Test public void testHashIndex() throws Exception {
+		addMatSrcRows(100);
+		Table table = (Table)metadata.getGroupID("MatView.VGroup5");
+		table.getIndexes().get(0).setProperty("INDEX_TYPE", "HASH");
+		execute("SELECT * from vgroup5 where y in ('z1', 'z2') order by y desc", Arrays.asList("v2", "z2", 1), Arrays.asList("v1", "z1", 1));
+		String matTableName = RelationalPlanner.MAT_PREFIX + "MATVIEW.VGROUP5";
+		long uses = this.globalStore.getTempTable(matTableName).getValueIndexUseCount();
+		execute("SELECT x from vgroup5 where y = 'x5'", Arrays.asList("v5b"));
+		assertEquals(uses + 1, this.globalStore.getTempTable(matTableName).getValueIndexUseCount());
+		execute("SELECT x from vgroup5 where y = 'x5' and z = 2");
+		execute("SELECT count(*) from vgroup5 where y in ('x5', 'w5', 'q5')", Arrays.asList(2));
+		
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		this.globalStore.getState(matTableName, baos);
+		this.globalStore.failedLoad(matTableName);
+		this.globalStore.setState(matTableName, new ByteArrayInputStream(baos.toByteArray()));
+		execute("SELECT x from vgroup5 where y = 'w7'", Arrays.asList("v7d"));
+		assertEquals(1, hdm.getCommandHistory().size());
+		//the value index is rebuilt by the receiver
+		TempTable tempTable = this.globalStore.getTempTable(matTableName);
+		assertEquals(1, tempTable.getValueIndexUseCount());
+		
+		//removing a clone should not affect the shared index
+		tempTable.clone().remove();
+		execute("SELECT x from vgroup5 where y = 'x5'", Arrays.asList("v5b"));
+		assertEquals(2, tempTable.getValueIndexUseCount());
+	}
+	
+	@Test public void testBitmapIndex() throws Exception {
+		addMatSrcRows(100);
+		Table table = (Table)metadata.getGroupID("MatView.VGroup5");
+		table.getIndexes().get(0).setProperty("INDEX_TYPE", "HASH");
+		RealMetadataFactory.createKey(KeyRecord.Type.Index, "idx1", table, table.getColumns().subList(2, 3)).setProperty("INDEX_TYPE", "BITMAP");
+		execute("SELECT x from vgroup5 where y = 'x5' and z = 1", Arrays.asList("v5b"));
+		assertEquals(1, this.globalStore.getTempTable(RelationalPlanner.MAT_PREFIX + "MATVIEW.VGROUP5").getValueIndexUseCount());
+		execute("SELECT x from vgroup5 where y = 'x5' and z in (2, 3)");
+		execute("SELECT x from vgroup5 where y in ('z7', 'y7') and z = 1 order by x desc", Arrays.asList("v7c"), Arrays.asList("v7"));
+	}
+	
+	@Test public void testBitmapIndexWithoutPrimaryKey() throws Exception {
+		addMatSrcRows(100);
+		Table table = (Table)metadata.getGroupID("MatView.VGroup6");
+		table.getIndexes().get(0).setProperty("INDEX_TYPE", "BITMAP");
+		execute("SELECT * from vgroup6 where y in ('z3', 'z30')", Arrays.asList("v3", "z3"), Arrays.asList("v30", "z30"));
+	}
+	
 	@Test public void testFunctionBasedIndexQuery() throws Exception {
 		TempMetadataID id = this.globalStore.getGlobalTempTableMetadataId(metadata.getGroupID("MatView.vgroup2a"));
 		assertEquals("SELECT MatView.VGroup2a.*, ucase(x) FROM MatView.VGroup2a option nocache MatView.VGroup2a", id.getQueryNode().getQuery());
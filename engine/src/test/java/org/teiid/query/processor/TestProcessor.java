@@ -32,6 +32,8 @@ import java.sql.Clob;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.junit.Test;
 import org.teiid.api.exception.query.QueryValidatorException;
@@ -7915,5 +7917,66 @@ public class TestProcessor {
         TestProcessor.helpProcess(plan, dataManager, new List<?>[] {Arrays.asList("Test1@mail.com", "test1@mail.com", "test1@mail.com", "test1@mail.com")});
     }
 	
+    @Test public void testBatchEvaluation() throws Exception {
+        String sql = "SELECT e1, e2 * 2 FROM pm1.g1 WHERE e2 > 1 OR e1 = 'a'"; //$NON-NLS-1$
+        
+        List[] expected = new List[] { 
+            Arrays.asList("a", 0), //$NON-NLS-1$
+            Arrays.asList("a", 6), //$NON-NLS-1$
+            Arrays.asList("b", 4), //$NON-NLS-1$
+            Arrays.asList("a", 0), //$NON-NLS-1$
+        };    
+        
+        FakeDataManager dataManager = new FakeDataManager();
+        sampleData1(dataManager);
+        CommandContext cc = createCommandContext();
+        cc.getOptions().setBatchEvaluation(true);
+        ProcessorPlan plan = helpGetPlan(helpParse(sql), RealMetadataFactory.example1Cached(), new DefaultCapabilitiesFinder(new BasicSourceCapabilities()), cc);
+        helpProcess(plan, cc, dataManager, expected);
+    }
+    
+    @Test public void testBatchEvaluationSorted() throws Exception {
+        String sql = "SELECT e1, e2 * 2 FROM pm1.g1 WHERE e2 > 1 OR e1 = 'a' ORDER BY 2"; //$NON-NLS-1$
+        
+        List[] expected = new List[] { 
+            Arrays.asList("a", 0), //$NON-NLS-1$
+            Arrays.asList("a", 0), //$NON-NLS-1$
+            Arrays.asList("b", 4), //$NON-NLS-1$
+            Arrays.asList("a", 6), //$NON-NLS-1$
+        };    
+        
+        FakeDataManager dataManager = new FakeDataManager();
+        sampleData1(dataManager);
+        CommandContext cc = createCommandContext();
+        cc.getOptions().setBatchEvaluation(true);
+        ProcessorPlan plan = helpGetPlan(helpParse(sql), RealMetadataFactory.example1Cached(), new DefaultCapabilitiesFinder(new BasicSourceCapabilities()), cc);
+        helpProcess(plan, cc, dataManager, expected);
+    }
+    
+    @Test public void testParallelUnion() throws Exception {
+        String sql = "SELECT e1, e2 FROM pm1.g1 WHERE e2 > 1 UNION ALL SELECT e1, e2 FROM pm1.g2 WHERE e2 > 1 ORDER BY e1, e2"; //$NON-NLS-1$
+        
+        List[] expected = new List[] { 
+            Arrays.asList("a", 3), //$NON-NLS-1$
+            Arrays.asList("a", 3), //$NON-NLS-1$
+            Arrays.asList("b", 2), //$NON-NLS-1$
+            Arrays.asList("b", 2), //$NON-NLS-1$
+        };    
+        
+        FakeDataManager dataManager = new FakeDataManager();
+        sampleData1(dataManager);
+        CommandContext cc = createCommandContext();
+        cc.setMaxParallelism(3);
+        ExecutorService executor = Executors.newCachedThreadPool();
+        cc.setExecutor(executor);
+        try {
+	        ProcessorPlan plan = helpGetPlan(helpParse(sql), RealMetadataFactory.example1Cached(), new DefaultCapabilitiesFinder(new BasicSourceCapabilities()), cc);
+	        assertTrue(plan.toString().contains("ExchangeNode")); //$NON-NLS-1$
+	        helpProcess(plan, cc, dataManager, expected);
+        } finally {
+        	executor.shutdownNow();
+        }
+    }
+	
     private static final boolean DEBUG = false;
 }
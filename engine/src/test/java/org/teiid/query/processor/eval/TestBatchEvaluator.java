@@ -0,0 +1,178 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.query.processor.eval;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.teiid.api.exception.query.ExpressionEvaluationException;
+import org.teiid.common.buffer.ColumnVector;
+import org.teiid.common.buffer.ColumnarTupleBatch;
+import org.teiid.common.buffer.TupleBatch;
+import org.teiid.query.eval.BatchEvaluator;
+import org.teiid.query.eval.BatchEvaluator.BatchCriteria;
+import org.teiid.query.eval.BatchEvaluator.BatchExpression;
+import org.teiid.query.eval.Evaluator;
+import org.teiid.query.parser.QueryParser;
+import org.teiid.query.resolver.QueryResolver;
+import org.teiid.query.resolver.util.ResolverVisitor;
+import org.teiid.query.sql.lang.Criteria;
+import org.teiid.query.sql.symbol.ElementSymbol;
+import org.teiid.query.sql.symbol.Expression;
+import org.teiid.query.unittest.RealMetadataFactory;
+import org.teiid.query.util.CommandContext;
+
+@SuppressWarnings("nls")
+public class TestBatchEvaluator {
+
+	private Map<Expression, Integer> elementMap;
+	private List<ElementSymbol> elements;
+	private TupleBatch batch;
+	private Evaluator eval;
+
+	@Before public void setUp() throws Exception {
+		elementMap = new HashMap<Expression, Integer>();
+		elements = new ArrayList<ElementSymbol>();
+		for (int i = 0; i < 4; i++) {
+			ElementSymbol es = new ElementSymbol("pm1.g1.e" + (i + 1));
+			ResolverVisitor.resolveLanguageObject(es, RealMetadataFactory.example1Cached());
+			elements.add(es);
+			elementMap.put(es, i);
+		}
+		String[] strings = new String[] {"a", "b", null, "c", "A"};
+		List<?>[] tuples = new List<?>[50];
+		for (int i = 0; i < tuples.length; i++) {
+			tuples[i] = Arrays.asList(strings[i % strings.length], i % 7 == 0?null:i % 11, i % 3 == 0, i % 5 == 0?null:i / 4.0);
+		}
+		batch = new TupleBatch(1, tuples);
+		eval = new Evaluator(elementMap, null, new CommandContext());
+	}
+
+	private Criteria getCriteria(String sql) throws Exception {
+		Criteria crit = QueryParser.getQueryParser().parseCriteria(sql);
+		QueryResolver.resolveCriteria(crit, RealMetadataFactory.example1Cached());
+		return crit;
+	}
+
+	private BatchCriteria helpTestSelect(String sql) throws Exception {
+		Criteria crit = getCriteria(sql);
+		BatchCriteria batchCrit = BatchEvaluator.compile(crit, elementMap);
+		assertNotNull(batchCrit);
+		List<Integer> expected = new ArrayList<Integer>();
+		for (int i = 0; i < batch.getRowCount(); i++) {
+			if (eval.evaluate(crit, batch.getTuple(i + 1))) {
+				expected.add(i);
+			}
+		}
+		ColumnarTupleBatch columnar = ColumnarTupleBatch.asColumnar(batch, ColumnarTupleBatch.getTypes(elements));
+		int[] selection = BatchEvaluator.identity(batch.getRowCount());
+		int count = batchCrit.select(columnar, selection, selection.length, eval);
+		List<Integer> actual = new ArrayList<Integer>();
+		for (int i = 0; i < count; i++) {
+			actual.add(selection[i]);
+		}
+		assertEquals(sql, expected, actual);
+		return batchCrit;
+	}
+
+	private void helpTestEvaluate(String sql) throws Exception {
+		Expression expr = QueryParser.getQueryParser().parseExpression(sql);
+		ResolverVisitor.resolveLanguageObject(expr, RealMetadataFactory.example1Cached());
+		BatchExpression batchExpr = BatchEvaluator.compile(expr, elementMap);
+		assertNotNull(batchExpr);
+		assertFalse(batchExpr.isRowBased());
+		ColumnarTupleBatch columnar = ColumnarTupleBatch.asColumnar(batch, ColumnarTupleBatch.getTypes(elements));
+		//evaluate over every other row
+		int[] selection = new int[batch.getRowCount()/2];
+		for (int i = 0; i < selection.length; i++) {
+			selection[i] = i*2;
+		}
+		ColumnVector result = batchExpr.evaluate(columnar, selection, selection.length, eval);
+		assertEquals(selection.length, result.size());
+		for (int i = 0; i < selection.length; i++) {
+			assertEquals(sql, eval.evaluate(expr, batch.getTuple(selection[i] + 1)), result.get(i));
+		}
+	}
+
+	@Test public void testCompare() throws Exception {
+		helpTestSelect("pm1.g1.e2 > 3");
+		helpTestSelect("pm1.g1.e2 <= pm1.g1.e2");
+		helpTestSelect("pm1.g1.e4 <> 3");
+		helpTestSelect("pm1.g1.e1 = 'a'");
+		helpTestSelect("pm1.g1.e1 >= 'b'");
+		helpTestSelect("pm1.g1.e3 = true");
+		helpTestSelect("pm1.g1.e2 = null");
+	}
+
+	@Test public void testIsNull() throws Exception {
+		helpTestSelect("pm1.g1.e2 is null");
+		helpTestSelect("pm1.g1.e1 is not null");
+		helpTestSelect("not (pm1.g1.e4 is not null)");
+	}
+
+	@Test public void testLogical() throws Exception {
+		helpTestSelect("pm1.g1.e2 > 3 and pm1.g1.e1 = 'a'");
+		helpTestSelect("pm1.g1.e2 > 3 or pm1.g1.e1 = 'a' or pm1.g1.e4 is null");
+		helpTestSelect("not (pm1.g1.e2 < 5)");
+		helpTestSelect("not (pm1.g1.e2 > 3 and pm1.g1.e1 = 'a')");
+		helpTestSelect("not (pm1.g1.e2 > 3 or pm1.g1.e4 < 5)");
+	}
+
+	@Test public void testArithmetic() throws Exception {
+		helpTestSelect("pm1.g1.e2 + 1 * pm1.g1.e2 >= 10");
+		helpTestSelect("pm1.g1.e4 - 1 < pm1.g1.e4 * 2");
+		helpTestEvaluate("pm1.g1.e2 * 2 - pm1.g1.e2");
+		helpTestEvaluate("pm1.g1.e4 + pm1.g1.e4");
+		helpTestEvaluate("pm1.g1.e2 - 5");
+	}
+
+	@Test(expected=ExpressionEvaluationException.class) public void testArithmeticOverflow() throws Exception {
+		BatchCriteria batchCrit = BatchEvaluator.compile(getCriteria("pm1.g1.e2 * 2147483647 > 0"), elementMap);
+		int[] selection = BatchEvaluator.identity(batch.getRowCount());
+		batchCrit.select(ColumnarTupleBatch.asColumnar(batch, ColumnarTupleBatch.getTypes(elements)), selection, selection.length, eval);
+	}
+
+	@Test public void testDictionary() throws Exception {
+		helpTestSelect("pm1.g1.e1 like 'a%'");
+		helpTestSelect("ucase(pm1.g1.e1) in ('A', 'B')");
+		helpTestSelect("not (ifnull(pm1.g1.e1, 'x') = 'x')");
+		helpTestEvaluate("concat(pm1.g1.e1, 'x')");
+	}
+
+	@Test public void testMixed() throws Exception {
+		helpTestSelect("pm1.g1.e2 > 3 and pm1.g1.e2 in (4, 5, 6)");
+		helpTestSelect("pm1.g1.e3 = true or pm1.g1.e4 / 2 > 3");
+	}
+
+	@Test public void testNotCompiled() throws Exception {
+		assertNull(BatchEvaluator.compile(getCriteria("pm1.g1.e2 in (4, 5, 6)"), elementMap));
+	}
+
+}
@@ -0,0 +1,195 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.query.processor.relational;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.teiid.common.buffer.BlockedException;
+import org.teiid.common.buffer.BufferManager;
+import org.teiid.common.buffer.BufferManagerFactory;
+import org.teiid.common.buffer.TupleBatch;
+import org.teiid.core.TeiidComponentException;
+import org.teiid.core.TeiidProcessingException;
+import org.teiid.core.types.DataTypeManager;
+import org.teiid.query.processor.FakeDataManager;
+import org.teiid.query.sql.symbol.ElementSymbol;
+import org.teiid.query.util.CommandContext;
+
+@SuppressWarnings({"nls", "unchecked"})
+public class TestExchangeNode {
+
+	private ExecutorService executor;
+	private CommandContext context;
+
+	@Before public void setUp() {
+		executor = Executors.newCachedThreadPool();
+		context = new CommandContext("pid", "test", null, null, 1);
+		context.setExecutor(executor);
+		context.setMaxParallelism(2);
+	}
+
+	@After public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	private List<?>[] createData(int rows) {
+		List<?>[] data = new List<?>[rows];
+		for (int i = 0; i < rows; i++) {
+			data[i] = Arrays.asList(i);
+		}
+		return data;
+	}
+
+	private void helpTestExchange(RelationalNode child, List<?>[] expected) throws TeiidComponentException, TeiidProcessingException {
+		ElementSymbol es1 = new ElementSymbol("e1");
+		es1.setType(DataTypeManager.DefaultDataClasses.INTEGER);
+		List<ElementSymbol> elements = Arrays.asList(es1);
+		child.setElements(elements);
+		ExchangeNode exchange = new ExchangeNode(2);
+		exchange.setElements(elements);
+		exchange.addChild(child);
+		BufferManager mgr = BufferManagerFactory.getStandaloneBufferManager();
+		FakeDataManager fdm = new FakeDataManager();
+		child.initialize(context, mgr, fdm);
+		exchange.initialize(context, mgr, fdm);
+		exchange.open();
+
+		int currentRow = 1;
+		while (true) {
+			try {
+				TupleBatch batch = exchange.nextBatch();
+				assertEquals(currentRow, batch.getBeginRow());
+				for (int row = currentRow; row <= batch.getEndRow(); row++) {
+					assertEquals("Rows don't match at " + row, expected[row-1], batch.getTuple(row));
+				}
+				currentRow += batch.getRowCount();
+				if (batch.getTerminationFlag()) {
+					break;
+				}
+			} catch (BlockedException e) {
+				// ignore and retry
+			}
+		}
+		exchange.close();
+		assertEquals(expected.length, currentRow - 1);
+		//all tasks should have completed and released their thread
+		assertTrue(context.acquireParallelTask());
+		context.releaseParallelTask();
+	}
+
+	@Test public void testParallel() throws Exception {
+		List<?>[] data = createData(100);
+		helpTestExchange(new FakeRelationalNode(1, data, 7), data);
+	}
+
+	@Test public void testSerial() throws Exception {
+		context.setMaxParallelism(1);
+		List<?>[] data = createData(100);
+		helpTestExchange(new FakeRelationalNode(1, data, 7), data);
+	}
+
+	@Test public void testBlockingChild() throws Exception {
+		List<?>[] data = createData(50);
+		helpTestExchange(new BlockingFakeRelationalNode(1, data, 3), data);
+	}
+
+	@Test public void testNoRows() throws Exception {
+		helpTestExchange(new FakeRelationalNode(1, new List[0]), new List[0]);
+	}
+
+	@Test(expected=TeiidProcessingException.class) public void testException() throws Exception {
+		List<?>[] data = createData(50);
+		helpTestExchange(new FakeRelationalNode(1, data, 5) {
+			int count;
+			@Override
+			public TupleBatch nextBatchDirect() throws BlockedException,
+					TeiidComponentException, TeiidProcessingException {
+				if (++count == 3) {
+					throw new TeiidProcessingException("failed");
+				}
+				return super.nextBatchDirect();
+			}
+		}, data);
+	}
+
+	@Test public void testClose() throws Exception {
+		ElementSymbol es1 = new ElementSymbol("e1");
+		es1.setType(DataTypeManager.DefaultDataClasses.INTEGER);
+		List<ElementSymbol> elements = Arrays.asList(es1);
+		FakeRelationalNode child = new FakeRelationalNode(1, createData(1000), 1);
+		child.setElements(elements);
+		ExchangeNode exchange = new ExchangeNode(2);
+		exchange.setElements(elements);
+		exchange.addChild(child);
+		BufferManager mgr = BufferManagerFactory.getStandaloneBufferManager();
+		child.initialize(context, mgr, null);
+		exchange.initialize(context, mgr, null);
+		exchange.open();
+		exchange.nextBatch();
+		exchange.close();
+		assertTrue(child.isClosed());
+		assertTrue(context.acquireParallelTask());
+	}
+	
+	@Test public void testCloseQueuedTask() throws Exception {
+		//an executor that is saturated and never starts the task
+		final List<Runnable> queued = new ArrayList<Runnable>();
+		context.setExecutor(new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				queued.add(command);
+			}
+		});
+		ElementSymbol es1 = new ElementSymbol("e1");
+		es1.setType(DataTypeManager.DefaultDataClasses.INTEGER);
+		List<ElementSymbol> elements = Arrays.asList(es1);
+		FakeRelationalNode child = new FakeRelationalNode(1, createData(10), 1);
+		child.setElements(elements);
+		ExchangeNode exchange = new ExchangeNode(2);
+		exchange.setElements(elements);
+		exchange.addChild(child);
+		BufferManager mgr = BufferManagerFactory.getStandaloneBufferManager();
+		child.initialize(context, mgr, null);
+		exchange.initialize(context, mgr, null);
+		exchange.open();
+		assertEquals(1, queued.size());
+		exchange.close();
+		assertTrue(child.isClosed());
+		assertTrue(context.acquireParallelTask());
+		context.releaseParallelTask();
+		//the cancelled task should not run
+		queued.get(0).run();
+		assertTrue(context.acquireParallelTask());
+	}
+
+}
@@ -28,6 +28,7 @@ import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 
@@ -439,6 +440,94 @@ public class TestGroupingNode {
 		return node;
 	}
 	
+	private GroupingNode getExampleHashGroupingNode() {
+		GroupingNode node = new GroupingNode(1);
+        List outputElements = new ArrayList();
+        ElementSymbol col1 = new ElementSymbol("col1"); //$NON-NLS-1$
+        col1.setType(Integer.class);
+        ElementSymbol col2 = new ElementSymbol("col2"); //$NON-NLS-1$
+        col2.setType(Integer.class);
+        outputElements.add(col1);
+        outputElements.add(new AggregateSymbol("COUNT", false, col2)); //$NON-NLS-1$
+        outputElements.add(new AggregateSymbol("SUM", false, col2)); //$NON-NLS-1$
+        node.setElements(outputElements);
+        
+        List groupingElements = new ArrayList();
+        groupingElements.add(col1); 
+        node.setOrderBy(new OrderBy(groupingElements).getOrderByItems());
+        node.setHashAggregation(true);
+		return node;
+	}
+	
+	private List<List<?>> helpProcessUnordered(BufferManager mgr, GroupingNode node, FakeTupleSource dataSource) throws TeiidComponentException, TeiidProcessingException {
+		CommandContext context = new CommandContext("pid", "test", null, null, 1);
+        RelationalNode dataNode = new FakeRelationalNode(0, dataSource, mgr.getProcessorBatchSize());
+        dataNode.setElements(dataSource.getSchema());            
+        node.addChild(dataNode);    
+        node.initialize(context, mgr, null);
+        node.open();
+        List<List<?>> actual = new ArrayList<List<?>>();
+        while (true) {
+            try {
+                TupleBatch batch = node.nextBatch();
+                actual.addAll(batch.getTuples());
+                if (batch.getTerminationFlag()) {
+                    break;
+                }
+            } catch (BlockedException e) {
+                //ignore
+            }
+        }
+        return actual;
+	}
+	
+	@Test public void testHashAggregation() throws Exception {
+		BufferManager mgr = BufferManagerFactory.getStandaloneBufferManager();
+		GroupingNode node = getExampleHashGroupingNode();
+		
+		List[] expected = new List[] {
+            Arrays.asList(null, 1, 3L),
+            Arrays.asList(0, 1, 4L),
+            Arrays.asList(1, 1, 2L),
+            Arrays.asList(2, 4, 5L),
+            Arrays.asList(3, 1, 0L),
+            Arrays.asList(4, 2, 5L),
+            Arrays.asList(5, 1, 3L),
+            Arrays.asList(6, 2, 7L)
+        };
+		
+		List<List<?>> actual = helpProcessUnordered(mgr, node, createTupleSource1());
+		assertEquals(expected.length, actual.size());
+		assertEquals(new HashSet<List>(Arrays.asList(expected)), new HashSet<List>(actual));
+		assertFalse(node.isHashPartitioned());
+	}
+	
+	@Test public void testHashAggregationPartitioned() throws Exception {
+		BufferManagerImpl mgr = BufferManagerFactory.getTestBufferManager(1, 2);
+		GroupingNode node = getExampleHashGroupingNode();
+		
+		List<ElementSymbol> symbols = new ArrayList<ElementSymbol>();
+		symbols.add(new ElementSymbol("col1"));
+		symbols.get(0).setType(DataTypeManager.DefaultDataClasses.INTEGER);
+		symbols.add(new ElementSymbol("col2"));
+		symbols.get(1).setType(DataTypeManager.DefaultDataClasses.INTEGER);
+		List[] tuples = new List[1000];
+		for (int i = 0; i < tuples.length; i++) {
+			tuples[i] = Arrays.asList(i % 200, i % 2);
+		}
+		
+		HashSet<List<?>> expected = new HashSet<List<?>>();
+		for (int i = 0; i < 200; i++) {
+			expected.add(Arrays.asList(i, 5, (i % 2) * 5L));
+		}
+		
+		List<List<?>> actual = helpProcessUnordered(mgr, node, new FakeTupleSource(symbols, tuples));
+		assertEquals(expected.size(), actual.size());
+		assertEquals(expected, new HashSet<List<?>>(actual));
+		assertTrue(node.isHashPartitioned());
+		node.close();
+	}
+	
 	@Test public void testDescriptionProperties() {
 		GroupingNode node = getExampleGroupingNode();
 		SymbolMap outputMapping = new SymbolMap();
@@ -26,6 +26,8 @@ import static org.junit.Assert.*;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -1182,4 +1184,140 @@ public class TestJoinNode {
         TestProcessor.helpProcess(plan, context, hdm, results);
     }
     
+    @Test public void testHashJoin() throws Exception {
+        this.joinType = JoinType.JOIN_INNER;
+        expected = new List[] {
+            Arrays.asList(new Object[] { 2, 2 }),
+            Arrays.asList(new Object[] { 2, 2 }),
+            Arrays.asList(new Object[] { 4, 4 }),
+            Arrays.asList(new Object[] { 4, 4 }),
+            Arrays.asList(new Object[] { 1, 1 }),
+            Arrays.asList(new Object[] { 4, 4 }),
+            Arrays.asList(new Object[] { 4, 4 }),
+        };
+        helpCreateJoin();
+        this.joinStrategy = new HashJoinStrategy(false);
+        this.join.setJoinStrategy(joinStrategy);
+        helpTestJoinDirect(expected, 10, 100000);
+    }
+    
+    @Test public void testHashJoinBuildLeft() throws Exception {
+        this.joinType = JoinType.JOIN_INNER;
+        expected = new List[] {
+            Arrays.asList(new Object[] { 1, 1 }),
+            Arrays.asList(new Object[] { 4, 4 }),
+            Arrays.asList(new Object[] { 4, 4 }),
+            Arrays.asList(new Object[] { 2, 2 }),
+            Arrays.asList(new Object[] { 2, 2 }),
+            Arrays.asList(new Object[] { 4, 4 }),
+            Arrays.asList(new Object[] { 4, 4 }),
+        };
+        helpCreateJoin();
+        this.joinStrategy = new HashJoinStrategy(true);
+        this.join.setJoinStrategy(joinStrategy);
+        helpTestJoinDirect(expected, 10, 100000);
+    }
+    
+    @Test public void testHashJoinLeftOuter() throws Exception {
+        this.joinType = JoinType.JOIN_LEFT_OUTER;
+        expected = new List[] {
+            Arrays.asList(new Object[] { 5, null }),
+            Arrays.asList(new Object[] { 3, null }),
+            Arrays.asList(new Object[] { 2, 2 }),
+            Arrays.asList(new Object[] { 2, 2 }),
+            Arrays.asList(new Object[] { 4, 4 }),
+            Arrays.asList(new Object[] { 4, 4 }),
+            Arrays.asList(new Object[] { 1, 1 }),
+            Arrays.asList(new Object[] { 4, 4 }),
+            Arrays.asList(new Object[] { 4, 4 }),
+            Arrays.asList(new Object[] { 10, null }),
+            Arrays.asList(new Object[] { 11, null }),
+            Arrays.asList(new Object[] { 11, null }),
+        };
+        helpCreateJoin();
+        //build left should be ignored
+        this.joinStrategy = new HashJoinStrategy(true);
+        this.join.setJoinStrategy(joinStrategy);
+        helpTestJoinDirect(expected, 10, 100000);
+    }
+    
+    @Test public void testHashJoinPartitioned() throws Exception {
+        this.joinType = JoinType.JOIN_LEFT_OUTER;
+        this.leftTuples = createTuples(0, 200);
+        this.rightTuples = createMultiColTuples(100, 1);
+        helpTestHashJoinPartitioned();
+    }
+    
+    @Test public void testHashJoinPartitionedSkew() throws Exception {
+        this.joinType = JoinType.JOIN_LEFT_OUTER;
+        this.leftTuples = createTuples(0, 200);
+        //a single key cannot be repartitioned
+        this.rightTuples = createMultiColTuples(100, 1);
+        for (int i = 0; i < this.rightTuples.length; i+=2) {
+        	this.rightTuples[i] = Arrays.asList(5);
+        }
+        helpTestHashJoinPartitioned();
+    }
+    
+    @Test public void testHashJoinPartitionedSkewInner() throws Exception {
+        this.joinType = JoinType.JOIN_INNER;
+        this.leftTuples = createTuples(0, 200);
+        this.rightTuples = createTuples(0, 150);
+        for (int i = 0; i < this.rightTuples.length; i+=3) {
+        	this.rightTuples[i] = Arrays.asList(7);
+        }
+        helpTestHashJoinPartitioned();
+    }
+
+	private void helpTestHashJoinPartitioned() throws Exception {
+        List<List<?>> expectedList = new ArrayList<List<?>>();
+        for (List<?> left : leftTuples) {
+        	boolean matched = false;
+        	for (List<?> right : rightTuples) {
+        		if (left.get(0).equals(right.get(0))) {
+        			expectedList.add(Arrays.asList(left.get(0), right.get(0)));
+        			matched = true;
+        		}
+        	}
+        	if (!matched && this.joinType == JoinType.JOIN_LEFT_OUTER) {
+        		expectedList.add(Arrays.asList(left.get(0), null));
+        	}
+        }
+        helpCreateJoin();
+        this.joinStrategy = new HashJoinStrategy(false);
+        this.join.setJoinStrategy(joinStrategy);
+        BufferManagerImpl mgr = BufferManagerFactory.getTestBufferManager(1, 10);
+        mgr.setTargetBytesPerRow(100);
+        CommandContext context = new CommandContext("pid", "test", null, null, 1);
+        join.addChild(leftNode);
+        join.addChild(rightNode);
+        leftNode.initialize(context, mgr, dataMgr);
+        rightNode.initialize(context, mgr, dataMgr);
+        join.initialize(context, mgr, dataMgr);
+        join.open();
+        List<List<?>> actual = new ArrayList<List<?>>();
+        while (true) {
+            try {
+                TupleBatch batch = join.nextBatch();
+                actual.addAll(batch.getTuples());
+                if (batch.getTerminationFlag()) {
+                    break;
+                }
+            } catch (BlockedException e) {
+                // ignore and retry
+            }
+        }
+        join.close();
+        assertTrue(joinStrategy.toString().endsWith("RAN AS PARTITIONED"));
+        Comparator<List<?>> comparator = new Comparator<List<?>>() {
+        	@Override
+        	public int compare(List<?> o1, List<?> o2) {
+        		return o1.toString().compareTo(o2.toString());
+        	}
+		};
+		Collections.sort(actual, comparator);
+		Collections.sort(expectedList, comparator);
+        assertEquals(expectedList, actual);
+    }
+    
 }
@@ -30,6 +30,8 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.junit.Test;
 import org.teiid.common.buffer.BlockedException;
@@ -49,6 +51,7 @@ import org.teiid.query.optimizer.TestOptimizer.ComparisonMode;
 import org.teiid.query.optimizer.TestOptimizer.DupRemoveSortNode;
 import org.teiid.query.optimizer.capabilities.BasicSourceCapabilities;
 import org.teiid.query.optimizer.capabilities.FakeCapabilitiesFinder;
+import org.teiid.query.processor.BatchIterator;
 import org.teiid.query.processor.FakeDataManager;
 import org.teiid.query.processor.FakeDataStore;
 import org.teiid.query.processor.ProcessorPlan;
@@ -381,4 +384,136 @@ public class TestSortNode {
     	assertNull(ts.nextTuple());
     }
 
+    
+    @Test public void testParallelSort() throws Exception {
+    	ElementSymbol es1 = new ElementSymbol("e1"); //$NON-NLS-1$
+        es1.setType(DataTypeManager.DefaultDataClasses.INTEGER);
+        ElementSymbol es2 = new ElementSymbol("e2"); //$NON-NLS-1$
+        es2.setType(DataTypeManager.DefaultDataClasses.INTEGER);
+        BufferManagerImpl bm = BufferManagerFactory.getTestBufferManager(10000, BATCH_SIZE);
+        long reserve = bm.getReserveBatchBytes();
+        TupleBuffer tsid = bm.createTupleBuffer(Arrays.asList(es1, es2), "test", TupleSourceType.PROCESSOR); //$NON-NLS-1$
+        int rows = 20000;
+        for (int i = 0; i < rows; i++) {
+        	tsid.addTuple(Arrays.asList((i*51) % 11, i));
+        }
+        tsid.close();
+        ExecutorService executor = Executors.newCachedThreadPool();
+        CommandContext context = new CommandContext("pid", "test", null, null, 1); //$NON-NLS-1$ //$NON-NLS-2$
+        context.setExecutor(executor);
+        context.setMaxParallelism(4);
+        CommandContext.pushThreadLocalContext(context);
+        try {
+        	SortUtility su = new SortUtility(tsid.createIndexedTupleSource(), Arrays.asList(es1), Arrays.asList(Boolean.TRUE), Mode.SORT, bm, "test", tsid.getSchema()); //$NON-NLS-1$
+        	su.setBatchSize(1000);
+        	su.setStableSort(true);
+        	TupleBuffer out = su.sort();
+        	assertEquals(rows, out.getRowCount());
+        	TupleSource ts = out.createIndexedTupleSource();
+        	List<?> previous = ts.nextTuple();
+        	for (int i = 1; i < rows; i++) {
+        		List<?> tuple = ts.nextTuple();
+        		int compare = ((Integer)previous.get(0)).compareTo((Integer)tuple.get(0));
+        		assertTrue(compare <= 0);
+        		if (compare == 0) {
+        			//must be stable
+        			assertTrue(((Integer)previous.get(1)) < ((Integer)tuple.get(1)));
+        		}
+        		previous = tuple;
+        	}
+        	assertNull(ts.nextTuple());
+        	out.remove();
+        } finally {
+        	CommandContext.popThreadLocalContext();
+        	executor.shutdownNow();
+        }
+        assertEquals(reserve, bm.getReserveBatchBytes());
+    }
+
+    
+    @Test public void testSortKeyPrefix() throws Exception {
+    	ElementSymbol es1 = new ElementSymbol("e1"); //$NON-NLS-1$
+        es1.setType(DataTypeManager.DefaultDataClasses.STRING);
+        ElementSymbol es2 = new ElementSymbol("e2"); //$NON-NLS-1$
+        es2.setType(DataTypeManager.DefaultDataClasses.INTEGER);
+        String[] values = new String[] {"abcd", "abcde", "abc", null, "b", "", "abcdf", "\uffffa"};
+        int rows = 2000;
+        List[] data = new List[rows];
+        for (int i = 0; i < rows; i++) {
+        	data[i] = Arrays.asList(values[(i*7) % values.length], i);
+        }
+        for (boolean asc : new boolean[] {true, false}) {
+	        BufferManagerImpl bm = BufferManagerFactory.getTestBufferManager(10000, BATCH_SIZE);
+	        bm.getOptions().sortKeyPrefix(true);
+	        TupleBuffer tsid = bm.createTupleBuffer(Arrays.asList(es1, es2), "test", TupleSourceType.PROCESSOR); //$NON-NLS-1$
+	        for (List tuple : data) {
+	        	tsid.addTuple(tuple);
+	        }
+	        tsid.close();
+	    	SortUtility su = new SortUtility(tsid.createIndexedTupleSource(), Arrays.asList(es1, es2), Arrays.asList(asc, Boolean.TRUE), Mode.SORT, bm, "test", tsid.getSchema()); //$NON-NLS-1$
+	    	TupleBuffer out = su.sort();
+	    	List[] expected = Arrays.copyOf(data, rows);
+	    	Arrays.sort(expected, new ListNestedSortComparator(new int[] {0, 1}, Arrays.asList(asc, Boolean.TRUE)));
+	    	TupleSource ts = out.createIndexedTupleSource();
+	    	for (int i = 0; i < rows; i++) {
+	    		assertEquals(expected[i], ts.nextTuple());
+	    	}
+	    	assertNull(ts.nextTuple());
+        }
+    }
+    
+    @Test public void testNormalizedPrefix() {
+    	Object[] values = new Object[] {Long.MIN_VALUE, -1, (short)0, (byte)1, Long.MAX_VALUE};
+    	for (int i = 1; i < values.length; i++) {
+    		assertTrue(ListNestedSortComparator.normalize(values[i - 1]) < ListNestedSortComparator.normalize(values[i]));
+    	}
+    	values = new Object[] {Double.NEGATIVE_INFINITY, -1.5, -0.0, 0.0, 1.5f, Double.POSITIVE_INFINITY, Double.NaN};
+    	for (int i = 1; i < values.length; i++) {
+    		assertTrue(ListNestedSortComparator.normalize(values[i - 1]) < ListNestedSortComparator.normalize(values[i]));
+    	}
+    	values = new Object[] {"", "a", "ab", "abcd", "b", "\uffff"};
+    	for (int i = 1; i < values.length; i++) {
+    		assertTrue(ListNestedSortComparator.normalize(values[i - 1]) < ListNestedSortComparator.normalize(values[i]));
+    	}
+    	assertEquals(ListNestedSortComparator.normalize("abcd"), ListNestedSortComparator.normalize("abcde"));
+    }
+
+    
+    @Test public void testTopN() throws Exception {
+    	ElementSymbol es1 = new ElementSymbol("e1"); //$NON-NLS-1$
+        es1.setType(DataTypeManager.DefaultDataClasses.INTEGER);
+        ElementSymbol es2 = new ElementSymbol("e2"); //$NON-NLS-1$
+        es2.setType(DataTypeManager.DefaultDataClasses.INTEGER);
+        BufferManagerImpl bm = BufferManagerFactory.getTestBufferManager(10000, BATCH_SIZE);
+        long reserve = bm.getReserveBatchBytes();
+        int rows = 5000;
+        List[] data = new List[rows];
+        for (int i = 0; i < rows; i++) {
+        	data[i] = Arrays.asList((i*51) % 11, i);
+        }
+        BlockingFakeRelationalNode dataNode = new BlockingFakeRelationalNode(2, data);
+        dataNode.setReturnPeriod(3);
+        dataNode.setElements(Arrays.asList(es1, es2));
+        dataNode.initialize(new CommandContext(), bm, null);
+        SortUtility su = new SortUtility(new BatchIterator(dataNode), Arrays.asList(es1), Arrays.asList(Boolean.FALSE), Mode.SORT, bm, "test", dataNode.getElements()); //$NON-NLS-1$
+        su.setTopN(true);
+        TupleBuffer out = null;
+        while (out == null) {
+        	try {
+        		out = su.sort(150);
+        	} catch (BlockedException e) {
+        		
+        	}
+        }
+        List[] expected = Arrays.copyOf(data, rows);
+        Arrays.sort(expected, new ListNestedSortComparator(new int[] {0}, false));
+        assertEquals(150, out.getRowCount());
+        TupleSource ts = out.createIndexedTupleSource();
+        for (int i = 0; i < 150; i++) {
+        	assertEquals(expected[i], ts.nextTuple());
+        }
+        out.remove();
+        assertEquals(reserve, bm.getReserveBatchBytes());
+    }
+
 }
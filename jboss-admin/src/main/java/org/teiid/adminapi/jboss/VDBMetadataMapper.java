@@ -1163,6 +1163,10 @@ public class VDBMetadataMapper implements MetadataMapper<VDBMetaData> {
 		private static final String ACTIVE_PLAN_COUNT = "active-plans-count"; //$NON-NLS-1$
 		private static final String WAITING_PLAN_COUNT = "waiting-plans-count"; //$NON-NLS-1$
 		private static final String MAX_WAIT_PLAN_COUNT = "max-waitplan-watermark"; //$NON-NLS-1$
+		private static final String MEMORY_BUFFER_USED = "buffermgr-memory-buffer-used-kb"; //$NON-NLS-1$
+		private static final String MEMORY_BUFFER_ALLOCATED = "buffermgr-memory-buffer-allocated-kb"; //$NON-NLS-1$
+		private static final String BUFFER_UNCOMPRESSED = "buffermgr-uncompressed-kb"; //$NON-NLS-1$
+		private static final String BUFFER_COMPRESSED = "buffermgr-compressed-kb"; //$NON-NLS-1$
 		
 		public static EngineStatisticsMetadataMapper INSTANCE = new EngineStatisticsMetadataMapper();
 		
@@ -1181,6 +1185,10 @@ public class VDBMetadataMapper implements MetadataMapper<VDBMetaData> {
 			node.get(ACTIVE_PLAN_COUNT).set(object.getActivePlanCount());
 			node.get(WAITING_PLAN_COUNT).set(object.getWaitPlanCount());
 			node.get(MAX_WAIT_PLAN_COUNT).set(object.getMaxWaitPlanWaterMark());
+			node.get(MEMORY_BUFFER_USED).set(object.getMemoryBufferUsedInKB());
+			node.get(MEMORY_BUFFER_ALLOCATED).set(object.getMemoryBufferAllocatedInKB());
+			node.get(BUFFER_UNCOMPRESSED).set(object.getBufferUncompressedInKB());
+			node.get(BUFFER_COMPRESSED).set(object.getBufferCompressedInKB());
 			
 			wrapDomain(object, node);
 			return node;
@@ -1202,6 +1210,18 @@ public class VDBMetadataMapper implements MetadataMapper<VDBMetaData> {
 			stats.setActivePlanCount(node.get(ACTIVE_PLAN_COUNT).asInt());
 			stats.setWaitPlanCount(node.get(WAITING_PLAN_COUNT).asInt());
 			stats.setMaxWaitPlanWaterMark(node.get(MAX_WAIT_PLAN_COUNT).asInt());
+			if (node.has(MEMORY_BUFFER_USED)) {
+				stats.setMemoryBufferUsedInKB(node.get(MEMORY_BUFFER_USED).asLong());
+			}
+			if (node.has(MEMORY_BUFFER_ALLOCATED)) {
+				stats.setMemoryBufferAllocatedInKB(node.get(MEMORY_BUFFER_ALLOCATED).asLong());
+			}
+			if (node.has(BUFFER_UNCOMPRESSED)) {
+				stats.setBufferUncompressedInKB(node.get(BUFFER_UNCOMPRESSED).asLong());
+			}
+			if (node.has(BUFFER_COMPRESSED)) {
+				stats.setBufferCompressedInKB(node.get(BUFFER_COMPRESSED).asLong());
+			}
 			
 			unwrapDomain(stats, node);
 			return stats;
@@ -1219,6 +1239,10 @@ public class VDBMetadataMapper implements MetadataMapper<VDBMetaData> {
 			addAttribute(node, ACTIVE_PLAN_COUNT, ModelType.INT, true);
 			addAttribute(node, WAITING_PLAN_COUNT, ModelType.INT, true);
 			addAttribute(node, MAX_WAIT_PLAN_COUNT, ModelType.INT, true);
+			addAttribute(node, MEMORY_BUFFER_USED, ModelType.LONG, true);
+			addAttribute(node, MEMORY_BUFFER_ALLOCATED, ModelType.LONG, true);
+			addAttribute(node, BUFFER_UNCOMPRESSED, ModelType.LONG, true);
+			addAttribute(node, BUFFER_COMPRESSED, ModelType.LONG, true);
 			return node;
 		}
 		
@@ -1234,7 +1258,11 @@ public class VDBMetadataMapper implements MetadataMapper<VDBMetaData> {
 					new SimpleAttributeDefinition(DISK_SPACE_USED, ModelType.LONG, false),
 					new SimpleAttributeDefinition(ACTIVE_PLAN_COUNT, ModelType.INT, false),
 					new SimpleAttributeDefinition(WAITING_PLAN_COUNT, ModelType.INT, false),
-					new SimpleAttributeDefinition(MAX_WAIT_PLAN_COUNT, ModelType.INT, false)
+					new SimpleAttributeDefinition(MAX_WAIT_PLAN_COUNT, ModelType.INT, false),
+					new SimpleAttributeDefinition(MEMORY_BUFFER_USED, ModelType.LONG, false),
+					new SimpleAttributeDefinition(MEMORY_BUFFER_ALLOCATED, ModelType.LONG, false),
+					new SimpleAttributeDefinition(BUFFER_UNCOMPRESSED, ModelType.LONG, false),
+					new SimpleAttributeDefinition(BUFFER_COMPRESSED, ModelType.LONG, false)
 			};
 		}		
 	}	
@@ -22,6 +22,7 @@
 
 package org.teiid.deployers;
 
+import java.io.File;
 import java.io.Serializable;
 import java.util.List;
 import java.util.Map;
@@ -49,9 +50,15 @@ import org.teiid.runtime.RuntimePlugin;
 public class CompositeGlobalTableStore implements GlobalTableStore {
 
 	public static GlobalTableStore createInstance(CompositeVDB vdb, BufferManager bufferManager, ObjectReplicator replicator) {
+		return createInstance(vdb, bufferManager, replicator, null);
+	}
+	
+	public static GlobalTableStore createInstance(CompositeVDB vdb, BufferManager bufferManager, ObjectReplicator replicator, File snapshotDirectory) {
 		VDBMetaData vdbMetadata = vdb.getVDB();
 		QueryMetadataInterface metadata = vdbMetadata.getAttachment(TransformationMetadata.class);
-		GlobalTableStore gts = new GlobalTableStoreImpl(bufferManager, vdbMetadata, metadata);
+		GlobalTableStoreImpl gtsImpl = new GlobalTableStoreImpl(bufferManager, vdbMetadata, metadata);
+		gtsImpl.setSnapshotDirectory(snapshotDirectory);
+		GlobalTableStore gts = gtsImpl;
 		if (replicator != null) {
 			try {
 				gts = replicator.replicate(vdbMetadata.getFullName(), GlobalTableStore.class, gts, 300000);
@@ -158,6 +165,11 @@ public class CompositeGlobalTableStore implements GlobalTableStore {
 		getStoreForTable(matTableName).loaded(matTableName, table);
 	}
 	
+	@Override
+	public void refreshed(String matTableName) {
+		getStoreForTable(matTableName).refreshed(matTableName);
+	}
+	
 	GlobalTableStore getStoreForTable(String matTableName) {
 		String name = matTableName.substring(RelationalPlanner.MAT_PREFIX.length(), matTableName.length());
 		name = name.substring(0, name.indexOf('.'));
@@ -33,7 +33,6 @@ import org.teiid.core.TeiidComponentException;
 import org.teiid.core.TeiidRuntimeException;
 import org.teiid.dqp.internal.process.DQPCore;
 import org.teiid.dqp.internal.process.DataTierManagerImpl;
-import org.teiid.events.EventDistributor;
 import org.teiid.events.EventListener;
 import org.teiid.logging.LogConstants;
 import org.teiid.logging.LogManager;
@@ -50,9 +49,10 @@ import org.teiid.query.optimizer.SourceTriggerActionPlanner.SourceEventCommand;
 import org.teiid.query.optimizer.relational.RelationalPlanner;
 import org.teiid.query.processor.DdlPlan;
 import org.teiid.query.tempdata.GlobalTableStore;
+import org.teiid.query.tempdata.InternalEventDistributor;
 import org.teiid.runtime.RuntimePlugin;
 
-public abstract class EventDistributorImpl implements EventDistributor {
+public abstract class EventDistributorImpl implements InternalEventDistributor {
 	private Set<EventListener> listeners = Collections.newSetFromMap(new ConcurrentHashMap<EventListener, Boolean>());
 
 	public abstract VDBRepository getVdbRepository();
@@ -124,6 +124,26 @@ public abstract class EventDistributorImpl implements EventDistributor {
 		}
 	}
 	
+	@Override
+	public void updateMatViewRows(String vdbName, String vdbVersion,
+			String schema, String viewName, List<? extends List<?>> tuples,
+			boolean[] deletes) {
+		VDBMetaData metadata = getVdbRepository().getLiveVDB(vdbName, vdbVersion);
+		if (metadata != null) {
+			GlobalTableStore gts = metadata.getAttachment(GlobalTableStore.class);
+			if (gts != null) {
+				String matTableName = (RelationalPlanner.MAT_PREFIX + schema + '.' + viewName).toUpperCase();
+				try {
+					for (int i = 0; i < tuples.size(); i++) {
+						gts.updateMatViewRow(matTableName, tuples.get(i), deletes[i]);
+					}
+				} catch (TeiidComponentException e) {
+					LogManager.logError(LogConstants.CTX_RUNTIME, e, RuntimePlugin.Util.gs(RuntimePlugin.Event.TEIID40013, "updateMatViewRows")); //$NON-NLS-1$
+				}
+			}
+		}
+	}
+	
 	@Override
 	public void dataModification(String vdbName, int vdbVersion, String schema,
 			String... tableNames) {
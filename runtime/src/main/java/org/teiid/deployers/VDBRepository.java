@@ -21,6 +21,7 @@
  */
 package org.teiid.deployers;
 
+import java.io.File;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -92,6 +93,7 @@ public class VDBRepository implements Serializable{
 	private MetadataException odbcException;
     private BufferManager bufferManager;
     private ObjectReplicator objectReplictor;
+    private File matViewSnapshotDirectory;
     private DatabaseStore databaseStore;
 	
     public void addVDB(VDBMetaData vdb, MetadataStore metadataStore,
@@ -358,7 +360,7 @@ public class VDBRepository implements Serializable{
 				metadataAwareVDB.setStatus(Status.ACTIVE);
 				
 				// for  replication of events, temp tables and mat views
-                GlobalTableStore gts = CompositeGlobalTableStore.createInstance(v, this.bufferManager, this.objectReplictor);
+                GlobalTableStore gts = CompositeGlobalTableStore.createInstance(v, this.bufferManager, this.objectReplictor, this.matViewSnapshotDirectory);
                 metadataAwareVDB.addAttchment(GlobalTableStore.class, gts);
 				
                 if (this.databaseStore != null) {
@@ -489,6 +491,14 @@ public class VDBRepository implements Serializable{
     public void setObjectReplicator(ObjectReplicator value) {
         this.objectReplictor = value;
     }
+    
+    public void setMatViewSnapshotDirectory(File matViewSnapshotDirectory) {
+		this.matViewSnapshotDirectory = matViewSnapshotDirectory;
+	}
+    
+    public File getMatViewSnapshotDirectory() {
+		return matViewSnapshotDirectory;
+	}
 
 	NavigableMap<VDBKey, CompositeVDB> getVdbRepo() {
         return vdbRepo;
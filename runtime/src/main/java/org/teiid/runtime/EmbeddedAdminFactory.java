@@ -49,6 +49,10 @@ public class EmbeddedAdminFactory {
 		stats.setActivePlanCount(dqp.getActivePlanCount());
 		stats.setWaitPlanCount(dqp.getWaitingPlanCount());
 		stats.setMaxWaitPlanWaterMark(dqp.getMaxWaitingPlanWatermark());
+		stats.setMemoryBufferUsedInKB(bufferService.getMemoryBufferUsedKB());
+		stats.setMemoryBufferAllocatedInKB(bufferService.getMemoryBufferAllocatedKB());
+		stats.setBufferUncompressedInKB(bufferService.getUncompressedKB());
+		stats.setBufferCompressedInKB(bufferService.getCompressedKB());
 		return stats;
 	}
 
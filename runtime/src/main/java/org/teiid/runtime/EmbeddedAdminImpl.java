@@ -27,6 +27,7 @@ import org.teiid.adminapi.impl.SourceMappingMetadata;
 import org.teiid.adminapi.impl.VDBMetaData;
 import org.teiid.adminapi.impl.VDBMetadataParser;
 import org.teiid.adminapi.impl.VDBTranslatorMetaData;
+import org.teiid.adminapi.impl.WorkerPoolStatisticsMetadata;
 import org.teiid.client.plan.PlanNode;
 import org.teiid.core.TeiidComponentException;
 import org.teiid.deployers.ExtendedPropertyMetadata;
@@ -300,7 +301,11 @@ public class EmbeddedAdminImpl implements Admin {
 
 	@Override
 	public Collection<? extends WorkerPoolStatistics> getWorkerPoolStats() throws AdminException {
-		return Arrays.asList(this.embeddedServer.dqp.getWorkerPoolStatistics());
+		WorkerPoolStatisticsMetadata sourceStats = this.embeddedServer.dqp.getSourceWorkerPoolStatistics();
+		if (sourceStats == null) {
+			return Arrays.asList(this.embeddedServer.dqp.getWorkerPoolStatistics());
+		}
+		return Arrays.asList(this.embeddedServer.dqp.getWorkerPoolStatistics(), sourceStats);
 	}
 
 	@Override
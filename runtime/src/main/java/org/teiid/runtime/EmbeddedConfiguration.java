@@ -54,6 +54,7 @@ public class EmbeddedConfiguration extends DQPConfiguration {
 	private WorkManager workManager;
 	private boolean useDisk = true;
 	private String bufferDirectory;
+	private String matViewSnapshotDirectory;
 	private CacheFactory cacheFactory;
 	private int maxResultSetCacheStaleness = DEFAULT_MAX_STALENESS_SECONDS;
 	private String infinispanConfigFile = "infinispan-config.xml"; //$NON-NLS-1$
@@ -73,6 +74,12 @@ public class EmbeddedConfiguration extends DQPConfiguration {
 	private boolean encryptFiles = false;
 	private int maxStorageObjectSize ;
 	private boolean memoryBufferOffHeap = false;
+	private boolean memoryBufferMapped = false;
+	private boolean memoryBufferPreallocate = false;
+	private String memoryBufferCodec;
+	private boolean filePositionalIO = false;
+	private int fileExtentKb = -1;
+	private int prefetchBatches = -1;
 	private int memoryBufferSpace ;
 	private String nodeName;
 	
@@ -168,6 +175,20 @@ public class EmbeddedConfiguration extends DQPConfiguration {
 		return this.bufferDirectory;
 	}
 	
+	public String getMatViewSnapshotDirectory() {
+		return matViewSnapshotDirectory;
+	}
+	
+	/**
+	 * Set the directory in which snapshots of loaded internal materialized views are kept,
+	 * so that they may be restored rather than reloaded after a restart.  Defaults to null,
+	 * which does not keep snapshots.
+	 * @param matViewSnapshotDirectory
+	 */
+	public void setMatViewSnapshotDirectory(String matViewSnapshotDirectory) {
+		this.matViewSnapshotDirectory = matViewSnapshotDirectory;
+	}
+	
 	public String getInfinispanConfigFile() {
 		return infinispanConfigFile;
 	}
@@ -331,6 +352,54 @@ public class EmbeddedConfiguration extends DQPConfiguration {
 	public void setMemoryBufferOffHeap(boolean memoryBufferOffHeap) {
 		this.memoryBufferOffHeap = memoryBufferOffHeap;
 	}
+	
+	public boolean isMemoryBufferMapped() {
+		return memoryBufferMapped;
+	}
+	
+	public void setMemoryBufferMapped(boolean memoryBufferMapped) {
+		this.memoryBufferMapped = memoryBufferMapped;
+	}
+	
+	public boolean isMemoryBufferPreallocate() {
+		return memoryBufferPreallocate;
+	}
+	
+	public void setMemoryBufferPreallocate(boolean memoryBufferPreallocate) {
+		this.memoryBufferPreallocate = memoryBufferPreallocate;
+	}
+	
+	public String getMemoryBufferCodec() {
+		return memoryBufferCodec;
+	}
+	
+	public void setMemoryBufferCodec(String memoryBufferCodec) {
+		this.memoryBufferCodec = memoryBufferCodec;
+	}
+	
+	public boolean isFilePositionalIO() {
+		return filePositionalIO;
+	}
+	
+	public void setFilePositionalIO(boolean filePositionalIO) {
+		this.filePositionalIO = filePositionalIO;
+	}
+	
+	public int getFileExtentKb() {
+		return fileExtentKb;
+	}
+	
+	public void setFileExtentKb(int fileExtentKb) {
+		this.fileExtentKb = fileExtentKb;
+	}
+	
+	public int getPrefetchBatches() {
+		return prefetchBatches;
+	}
+	
+	public void setPrefetchBatches(int prefetchBatches) {
+		this.prefetchBatches = prefetchBatches;
+	}
 
 	public int getMemoryBufferSpace() {
 		return memoryBufferSpace;
@@ -24,6 +24,7 @@ package org.teiid.runtime;
 
 
 import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.InvocationHandler;
@@ -484,8 +485,13 @@ public class EmbeddedServer extends AbstractVDBDeployer implements EventDistribu
 		if(config.getMaxProcessingKb() != -1)
 			this.bufferService.setMaxProcessingKb(config.getMaxProcessingKb());
 		this.bufferService.setInlineLobs(config.isInlineLobs());
+		if(config.getPrefetchBatches() != -1)
+			this.bufferService.setPrefetchBatches(config.getPrefetchBatches());
 		if(config.getMaxOpenFiles() != -1)
 			this.bufferService.setMaxOpenFiles(config.getMaxOpenFiles());
+		this.bufferService.setFilePositionalIO(config.isFilePositionalIO());
+		if(config.getFileExtentKb() != -1)
+			this.bufferService.setFileExtentKb(config.getFileExtentKb());
 		
 		if(config.getMaxBufferSpace() != -1)
 			this.bufferService.setMaxBufferSpace(config.getMaxBufferSpace());
@@ -496,6 +502,11 @@ public class EmbeddedServer extends AbstractVDBDeployer implements EventDistribu
 			this.bufferService.setMaxStorageObjectSize(config.getMaxStorageObjectSize());
 		}
 		this.bufferService.setMemoryBufferOffHeap(config.isMemoryBufferOffHeap());
+		this.bufferService.setMemoryBufferMapped(config.isMemoryBufferMapped());
+		this.bufferService.setMemoryBufferPreallocate(config.isMemoryBufferPreallocate());
+		if (config.getMemoryBufferCodec() != null) {
+			this.bufferService.setMemoryBufferCodec(config.getMemoryBufferCodec());
+		}
 		if(config.getMemoryBufferSpace() != -1)
 			this.bufferService.setMemoryBufferSpace(config.getMemoryBufferSpace());
 		
@@ -558,7 +569,7 @@ public class EmbeddedServer extends AbstractVDBDeployer implements EventDistribu
 				if (!vdb.getVDB().getStatus().equals(Status.ACTIVE)) {
 					return;
 				}
-				GlobalTableStore gts = CompositeGlobalTableStore.createInstance(vdb, dqp.getBufferManager(), replicator);
+				GlobalTableStore gts = CompositeGlobalTableStore.createInstance(vdb, dqp.getBufferManager(), replicator, repo.getMatViewSnapshotDirectory());
 				
 				vdb.getVDB().addAttchment(GlobalTableStore.class, gts);
 			}
@@ -567,6 +578,9 @@ public class EmbeddedServer extends AbstractVDBDeployer implements EventDistribu
 			public void beforeRemove(String name, CompositeVDB vdb) {
 			}
 		});
+		if (config.getMatViewSnapshotDirectory() != null) {
+			this.repo.setMatViewSnapshotDirectory(new File(config.getMatViewSnapshotDirectory()));
+		}
 		this.repo.setSystemFunctionManager(new SystemFunctionManager());
 		this.repo.start();
 	}
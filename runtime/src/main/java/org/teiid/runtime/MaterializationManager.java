@@ -144,7 +144,9 @@ public abstract class MaterializationManager implements VDBLifeCycleListener, No
 								Future<?> f = getScheduledExecutorService().scheduleAtFixedRate(new Runnable() {
 									@Override
 									public void run() {
-										boolean invalidate = TempTableDataManager.shouldInvalidate(vdb);
+										//a delta query allows for an incremental refresh of the valid table
+										boolean invalidate = table.getProperty(MaterializationMetadataRepository.MATVIEW_DELTA_QUERY, false) == null 
+												&& TempTableDataManager.shouldInvalidate(vdb);
 										try {
 											executeAsynchQuery(vdb, "call SYSADMIN.refreshMatView('" + table.getFullName().replaceAll("'", "''") + "', " + invalidate + ")"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
 										} catch (SQLException e) {
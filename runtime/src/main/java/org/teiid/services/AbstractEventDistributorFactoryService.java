@@ -34,6 +34,7 @@ import org.teiid.events.EventDistributor;
 import org.teiid.logging.LogConstants;
 import org.teiid.logging.LogManager;
 import org.teiid.query.ObjectReplicator;
+import org.teiid.query.tempdata.InternalEventDistributor;
 import org.teiid.runtime.RuntimePlugin;
 
 public abstract class AbstractEventDistributorFactoryService implements InternalEventDistributorFactory {
@@ -50,7 +51,7 @@ public abstract class AbstractEventDistributorFactoryService implements Internal
 	protected abstract DQPCore getDQPCore();
 
 	public void start() {
-		final EventDistributor ed = new EventDistributorImpl() {
+		final InternalEventDistributor ed = new EventDistributorImpl() {
 			@Override
 			public VDBRepository getVdbRepository() {
 				return AbstractEventDistributorFactoryService.this.getVdbRepository();
@@ -66,7 +67,7 @@ public abstract class AbstractEventDistributorFactoryService implements Internal
 		// this instance is by use of teiid internally; only invokes the remote instances
 		if (objectReplicator != null) {
 			try {
-				this.replicatableEventDistributor = objectReplicator.replicate("$TEIID_ED$", EventDistributor.class, ed, 0); //$NON-NLS-1$
+				this.replicatableEventDistributor = objectReplicator.replicate("$TEIID_ED$", InternalEventDistributor.class, ed, 0); //$NON-NLS-1$
 			} catch (Exception e) {
 				LogManager.logError(LogConstants.CTX_RUNTIME, e, RuntimePlugin.Util.gs(RuntimePlugin.Event.TEIID40088, this));
 			}
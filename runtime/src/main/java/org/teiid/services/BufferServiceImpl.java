@@ -29,6 +29,7 @@ import java.io.Serializable;
 import org.teiid.common.buffer.BufferManager;
 import org.teiid.common.buffer.StorageManager;
 import org.teiid.common.buffer.TupleBufferCache;
+import org.teiid.common.buffer.impl.BlockCodec;
 import org.teiid.common.buffer.impl.BufferFrontedFileStoreCache;
 import org.teiid.common.buffer.impl.BufferManagerImpl;
 import org.teiid.common.buffer.impl.EncryptedStorageManager;
@@ -62,13 +63,19 @@ public class BufferServiceImpl implements BufferService, Serializable {
 	private int processorBatchSize = BufferManager.DEFAULT_PROCESSOR_BATCH_SIZE;
     private int maxOpenFiles = FileStorageManager.DEFAULT_MAX_OPEN_FILES;
     private long maxFileSize = SplittableStorageManager.DEFAULT_MAX_FILESIZE; // 2GB
+    private boolean filePositionalIO;
+    private int fileExtentKb;
     private int maxProcessingKb = BufferManager.DEFAULT_MAX_PROCESSING_KB;
     private int maxReserveKb = BufferManager.DEFAULT_RESERVE_BUFFER_KB;
     private long maxBufferSpace = FileStorageManager.DEFAULT_MAX_BUFFERSPACE>>20;
     private boolean inlineLobs = true;
+    private int prefetchBatches;
     private long memoryBufferSpace = -1;
     private int maxStorageObjectSize = BufferFrontedFileStoreCache.DEFAuLT_MAX_OBJECT_SIZE;
     private boolean memoryBufferOffHeap;
+    private boolean memoryBufferMapped;
+    private boolean memoryBufferPreallocate;
+    private String memoryBufferCodec = BlockCodec.NONE;
 	private FileStorageManager fsm;
 	private BufferFrontedFileStoreCache fsc;
 	private int workingMaxReserveKb;
@@ -90,6 +97,7 @@ public class BufferServiceImpl implements BufferService, Serializable {
             this.bufferMgr.setMaxReserveKB(this.maxReserveKb);
             this.bufferMgr.setMaxProcessingKB(this.maxProcessingKb);
             this.bufferMgr.setInlineLobs(inlineLobs);
+            this.bufferMgr.setPrefetchBatches(prefetchBatches);
             this.bufferMgr.initialize();
             
             // If necessary, add disk storage manager
@@ -105,6 +113,8 @@ public class BufferServiceImpl implements BufferService, Serializable {
                 fsm = new FileStorageManager();
                 fsm.setStorageDirectory(bufferDir.getCanonicalPath());
                 fsm.setMaxOpenFiles(maxOpenFiles);
+                fsm.setPositionalIO(filePositionalIO);
+                fsm.setExtentSize(((long)fileExtentKb)<<10);
                 fsm.setMaxBufferSpace(maxBufferSpace*MB);
                 SplittableStorageManager ssm = new SplittableStorageManager(fsm);
                 ssm.setMaxFileSize(maxFileSize);
@@ -116,6 +126,12 @@ public class BufferServiceImpl implements BufferService, Serializable {
                 fsc.setBufferManager(this.bufferMgr);
                 fsc.setMaxStorageObjectSize(maxStorageObjectSize);
                 fsc.setDirect(memoryBufferOffHeap);
+                if (memoryBufferMapped) {
+                	fsc.setMemoryMappedDirectory(bufferDir.getCanonicalPath());
+                }
+                fsc.setPreallocate(memoryBufferPreallocate);
+                fsc.setCodec(BlockCodec.getCodec(memoryBufferCodec));
+                boolean offHeap = memoryBufferOffHeap || memoryBufferMapped;
                 //use approximately 40% of what's set aside for the reserved accounting for conversion from kb to bytes
                 long autoMaxBufferSpace = 4*(((long)this.bufferMgr.getMaxReserveKB())<<10)/10; 
                 //estimate inode/batch overhead
@@ -125,10 +141,10 @@ public class BufferServiceImpl implements BufferService, Serializable {
                 	//scale from MB to bytes
                 	fsc.setMemoryBufferSpace(memoryBufferSpace << 20);
                 }
-				long batchAndInodeOverheadKB = fsc.getMemoryBufferSpace()>>(memoryBufferOffHeap?19:17);
+				long batchAndInodeOverheadKB = fsc.getMemoryBufferSpace()>>(offHeap?19:17);
         		this.bufferMgr.setMaxReserveKB((int)Math.max(0, this.bufferMgr.getMaxReserveKB() - batchAndInodeOverheadKB));
                 if (this.maxReserveKb < 0) {
-                	if (memoryBufferOffHeap) {
+                	if (offHeap) {
                 		//the default is too large if off heap
                 		this.bufferMgr.setMaxReserveKB(8*this.bufferMgr.getMaxReserveKB()/10);
                 	} else {
@@ -205,6 +221,17 @@ public class BufferServiceImpl implements BufferService, Serializable {
 	public boolean isInlineLobs() {
 		return inlineLobs;
 	}
+	
+	/**
+	 * Set the number of batches to read ahead of sequential tuple buffer scans
+	 */
+	public void setPrefetchBatches(int prefetchBatches) {
+		this.prefetchBatches = prefetchBatches;
+	}
+	
+	public int getPrefetchBatches() {
+		return prefetchBatches;
+	}
 
 	public int getProcessorBatchSize() {
 		return this.processorBatchSize;
@@ -221,6 +248,29 @@ public class BufferServiceImpl implements BufferService, Serializable {
     public void setMaxOpenFiles(int maxOpenFiles) {
 		this.maxOpenFiles = maxOpenFiles;
 	}
+    
+    /**
+     * Set to use positional file channel IO, which allows concurrent access to a 
+     * buffer file.
+     */
+    public void setFilePositionalIO(boolean filePositionalIO) {
+		this.filePositionalIO = filePositionalIO;
+	}
+    
+    public boolean isFilePositionalIO() {
+		return filePositionalIO;
+	}
+    
+    /**
+     * Set the size in KB by which positional IO buffer files are grown
+     */
+    public void setFileExtentKb(int fileExtentKb) {
+		this.fileExtentKb = fileExtentKb;
+	}
+    
+    public int getFileExtentKb() {
+		return fileExtentKb;
+	}
 
     public int getMaxProcessingKb() {
 		return maxProcessingKb;
@@ -253,6 +303,41 @@ public class BufferServiceImpl implements BufferService, Serializable {
     public void setMemoryBufferSpace(int memoryBufferSpace) {
 		this.memoryBufferSpace = memoryBufferSpace;
 	}
+    
+    /**
+     * Set to hold the memory buffer in memory mapped files under the buffer directory.
+     * This allows for a memory buffer larger than the max direct memory.
+     */
+    public void setMemoryBufferMapped(boolean memoryBufferMapped) {
+		this.memoryBufferMapped = memoryBufferMapped;
+	}
+    
+    public boolean isMemoryBufferMapped() {
+		return memoryBufferMapped;
+	}
+    
+    /**
+     * Set to allocate the whole memory buffer on start
+     */
+    public void setMemoryBufferPreallocate(boolean memoryBufferPreallocate) {
+		this.memoryBufferPreallocate = memoryBufferPreallocate;
+	}
+    
+    public boolean isMemoryBufferPreallocate() {
+		return memoryBufferPreallocate;
+	}
+    
+    /**
+     * Set the codec used to compress batches held in the memory buffer and storage.
+     * May be none, deflate, or the name of a {@link BlockCodec} class.
+     */
+    public void setMemoryBufferCodec(String memoryBufferCodec) {
+		this.memoryBufferCodec = memoryBufferCodec;
+	}
+    
+    public String getMemoryBufferCodec() {
+		return memoryBufferCodec;
+	}
 
     public void setMaxStorageObjectSize(int maxStorageObjectSize) {
 		this.maxStorageObjectSize = maxStorageObjectSize;
@@ -287,6 +372,13 @@ public class BufferServiceImpl implements BufferService, Serializable {
     	return 0;
     }
     
+    public long getContendedAllocationCount() {
+    	if (fsc != null) {
+    		return fsc.getContendedAllocations() + fsc.getContendedMappings();
+    	}
+    	return 0;
+    }
+    
     public long getMemoryBufferUsedKB() {
     	if (fsc != null) {
     		return fsc.getMemoryInUseBytes() >> 10;
@@ -294,6 +386,27 @@ public class BufferServiceImpl implements BufferService, Serializable {
     	return 0;
     }
     
+    public long getCompressedKB() {
+    	if (fsc != null) {
+    		return fsc.getCompressedBytes() >> 10;
+    	}
+    	return 0;
+    }
+    
+    public long getUncompressedKB() {
+    	if (fsc != null) {
+    		return fsc.getUncompressedBytes() >> 10;
+    	}
+    	return 0;
+    }
+    
+    public long getMemoryBufferAllocatedKB() {
+    	if (fsc != null) {
+    		return fsc.getMemoryAllocatedBytes() >> 10;
+    	}
+    	return 0;
+    }
+    
     public long getCacheReadCount() {
     	return bufferMgr.getReadCount();
     }
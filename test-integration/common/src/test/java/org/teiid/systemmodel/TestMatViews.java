@@ -432,6 +432,63 @@ public class TestMatViews {
 		assertFalse(rs.next());
 	}
 	
+	@Test public void testIncrementalRefresh() throws Exception {
+		ModelMetaData mmd2 = new ModelMetaData();
+		mmd2.setName("m");
+		mmd2.setModelType(Type.PHYSICAL);
+		mmd2.setSchemaSourceType("DDL");
+		mmd2.setSchemaText("create foreign table t (id integer, val string); create foreign table changes (id integer, mark long); "
+				+ "CREATE VIEW v1 ( id integer, val string, primary key (id) ) OPTIONS (MATERIALIZED true, \"teiid_rel:MATVIEW_DELTA_QUERY\" 'select id, mark from changes') AS select id, val from t");
+		mmd2.addSourceMapping("a", "a", null);
+		HardCodedExecutionFactory hcef = new HardCodedExecutionFactory();
+		hcef.addData("SELECT t.id, t.val FROM t", Arrays.asList(Arrays.asList(1, "a"), Arrays.asList(2, "b")));
+		hcef.addData("SELECT changes.id, changes.mark FROM changes", Arrays.asList(Arrays.asList(1, 5l), Arrays.asList(3, 6l)));
+		server.addTranslator("a", hcef);
+		server.deployVDB("inc", mmd2);
+		
+		Connection c = server.getDriver().connect("jdbc:teiid:inc", null);
+		Statement s = c.createStatement();
+		ResultSet rs = s.executeQuery("select * from v1 order by id");
+		assertTrue(rs.next());
+		assertEquals(1, rs.getInt(1));
+		assertTrue(rs.next());
+		assertEquals(2, rs.getInt(1));
+		assertFalse(rs.next());
+		
+		hcef.addData("SELECT t.id, t.val FROM t", Arrays.asList(Arrays.asList(2, "b"), Arrays.asList(3, "c")));
+		rs = s.executeQuery("select * from (call refreshMatView('m.v1', false)) p");
+		assertTrue(rs.next());
+		//the row for 1 is removed, the row for 3 is new
+		assertEquals(1, rs.getInt(1));
+		rs = s.executeQuery("select * from v1 order by id");
+		assertTrue(rs.next());
+		assertEquals(2, rs.getInt(1));
+		assertTrue(rs.next());
+		assertEquals(3, rs.getInt(1));
+		assertFalse(rs.next());
+		rs = s.executeQuery("select loadstate, valid from MatViews where name = 'v1'");
+		assertTrue(rs.next());
+		assertEquals("LOADED", rs.getString(1));
+		assertTrue(rs.getBoolean(2));
+		
+		//nothing past the high water mark
+		hcef.addData("SELECT t.id, t.val FROM t", Arrays.asList(Arrays.asList(2, "x"), Arrays.asList(3, "c")));
+		rs = s.executeQuery("select * from (call refreshMatView('m.v1', false)) p");
+		assertTrue(rs.next());
+		assertEquals(0, rs.getInt(1));
+		rs = s.executeQuery("select val from v1 where id = 2");
+		assertTrue(rs.next());
+		assertEquals("b", rs.getString(1));
+		
+		hcef.addData("SELECT changes.id, changes.mark FROM changes", Arrays.asList(Arrays.asList(1, 5l), Arrays.asList(3, 6l), Arrays.asList(2, 7l)));
+		rs = s.executeQuery("select * from (call refreshMatView('m.v1', false)) p");
+		assertTrue(rs.next());
+		assertEquals(1, rs.getInt(1));
+		rs = s.executeQuery("select val from v1 where id = 2");
+		assertTrue(rs.next());
+		assertEquals("x", rs.getString(1));
+	}
+	
 	@Test public void testMatViewProceduresWithSameName() throws Exception {
 		ModelMetaData mmd = new ModelMetaData();
     	mmd.setName("x");